@@ -14,7 +14,12 @@ android {
         versionCode = 1
         versionName = "1.0"
 
-        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // -PqueryTrace: run with query tracing on, for this run only (see NavigationQueryCountTest)
+        testInstrumentationRunner = if (project.hasProperty("queryTrace")) {
+            "com.pascm.fintrack.TracingTestRunner"
+        } else {
+            "androidx.test.runner.AndroidJUnitRunner"
+        }
     }
 
     buildTypes {
@@ -25,6 +30,12 @@ android {
                 "proguard-rules.pro"
             )
         }
+        // Release-like build (not debuggable) that the :benchmark module instruments
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+        }
     }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
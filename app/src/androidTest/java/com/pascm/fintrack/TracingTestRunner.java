@@ -0,0 +1,24 @@
+package com.pascm.fintrack;
+
+import android.app.Application;
+
+import androidx.test.runner.AndroidJUnitRunner;
+
+import com.pascm.fintrack.data.local.trace.QueryTrace;
+
+/**
+ * Instrumentation runner that turns on query tracing before the app starts, so
+ * the app's database is opened with the tracing layer (see QueryTrace) and
+ * tests can count the statements a screen runs.
+ *
+ * Only used when the tests are run with -PqueryTrace (see app/build.gradle.kts).
+ * Tracing stays on for this process only: the stored setting is not touched.
+ */
+public class TracingTestRunner extends AndroidJUnitRunner {
+
+    @Override
+    public void callApplicationOnCreate(Application app) {
+        QueryTrace.enableForProcess();
+        super.callApplicationOnCreate(app);
+    }
+}
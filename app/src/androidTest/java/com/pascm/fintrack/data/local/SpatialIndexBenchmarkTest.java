@@ -0,0 +1,289 @@
+package com.pascm.fintrack.data.local;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.local.dao.MerchantDao;
+import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.entity.Merchant;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.User;
+import com.pascm.fintrack.util.GeoUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the spatial-index queries with the plain latitude/longitude BETWEEN
+ * scans they replace, at 100k points spread over a metro area:
+ * - viewport box over merchants (MerchantDao IN_BOX_SQL)
+ * - viewport box over transactions (TransactionDao IN_AREA_SQL)
+ * - 5 nearest merchants (MerchantDao.getNearestSync) against a brute-force scan
+ *
+ * Also checks with EXPLAIN QUERY PLAN that, on SQLite builds without rtree, both
+ * box queries seek a latitude range of the B-tree fallback instead of scanning it.
+ *
+ * Checks that both paths agree and logs the median latency of each:
+ * adb logcat -s SpatialBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class SpatialIndexBenchmarkTest {
+
+    private static final String TAG = "SpatialBenchmark";
+    private static final int POINTS = 100_000;
+    private static final int RUNS = 50;
+    private static final int NEAREST = 5;
+
+    // Ciudad de México, ~60 x 60 km
+    private static final double CENTER_LAT = 19.4326;
+    private static final double CENTER_LNG = -99.1332;
+    private static final double SPAN = 0.55;
+
+    private static final String MERCHANT_SCAN_SQL = "SELECT * FROM merchants WHERE user_id = ? " +
+            "AND latitude BETWEEN ? AND ? AND longitude BETWEEN ? AND ?";
+    private static final String TRANSACTION_SCAN_SQL = "SELECT * FROM transactions WHERE user_id = ? " +
+            "AND latitude BETWEEN ? AND ? AND longitude BETWEEN ? AND ? " +
+            "ORDER BY transaction_date DESC LIMIT ?";
+
+    private FinTrackDatabase database;
+    private long userId;
+    private final Random random = new Random(42);
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, FinTrackDatabase.class).build();
+        // In-memory builds skip the app's callbacks
+        FinTrackDatabase.createSpatialIndex(database.getOpenHelper().getWritableDatabase());
+
+        User user = new User();
+        user.setEmail("bench@fintrack.test");
+        userId = database.userDao().insert(user);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void merchantsInViewport_100k() {
+        seedMerchants();
+        MerchantDao merchantDao = database.merchantDao();
+
+        long[] scanTimes = new long[RUNS];
+        long[] indexTimes = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            GeoUtils.Box box = randomViewport(2_000);
+            Object[] args = {userId, box.minLat, box.maxLat, box.minLng, box.maxLng};
+
+            long t0 = System.nanoTime();
+            List<Merchant> scanned = merchantDao.querySync(new SimpleSQLiteQuery(MERCHANT_SCAN_SQL, args));
+            scanTimes[i] = System.nanoTime() - t0;
+
+            long t1 = System.nanoTime();
+            List<Merchant> indexed = merchantDao.querySync(new SimpleSQLiteQuery(MerchantDao.IN_BOX_SQL, args));
+            indexTimes[i] = System.nanoTime() - t1;
+
+            assertEquals(merchantIds(scanned), merchantIds(indexed));
+        }
+
+        Log.i(TAG, POINTS + " merchants, viewport: BETWEEN scan median " + medianMicros(scanTimes) + " us, "
+                + "spatial index median " + medianMicros(indexTimes) + " us");
+    }
+
+    @Test
+    public void nearestMerchants_100k() {
+        seedMerchants();
+        MerchantDao merchantDao = database.merchantDao();
+
+        long[] scanTimes = new long[RUNS];
+        long[] indexTimes = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            double lat = CENTER_LAT + (random.nextDouble() - 0.5) * SPAN;
+            double lng = CENTER_LNG + (random.nextDouble() - 0.5) * SPAN;
+
+            // Lo que haría una búsqueda sin índice: leer todos los lugares y ordenar por distancia
+            long t0 = System.nanoTime();
+            List<Merchant> all = merchantDao.getAllSync(userId);
+            double[] distances = new double[all.size()];
+            for (int j = 0; j < distances.length; j++) {
+                distances[j] = GeoUtils.distanceMeters(lat, lng, all.get(j).getLatitude(), all.get(j).getLongitude());
+            }
+            Arrays.sort(distances);
+            scanTimes[i] = System.nanoTime() - t0;
+
+            long t1 = System.nanoTime();
+            List<Merchant> nearest = merchantDao.getNearestSync(userId, lat, lng, NEAREST, 50_000);
+            indexTimes[i] = System.nanoTime() - t1;
+
+            assertEquals(NEAREST, nearest.size());
+            Merchant farthest = nearest.get(NEAREST - 1);
+            assertEquals(distances[NEAREST - 1],
+                    GeoUtils.distanceMeters(lat, lng, farthest.getLatitude(), farthest.getLongitude()), 1.0);
+        }
+
+        Log.i(TAG, POINTS + " merchants, " + NEAREST + " nearest: full scan median " + medianMicros(scanTimes)
+                + " us, spatial index median " + medianMicros(indexTimes) + " us");
+    }
+
+    @Test
+    public void transactionsInViewport_100k() {
+        seedTransactions();
+
+        long[] scanTimes = new long[RUNS];
+        long[] indexTimes = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            GeoUtils.Box box = randomViewport(5_000);
+
+            long t0 = System.nanoTime();
+            List<Long> scanned = transactionIds(database.query(new SimpleSQLiteQuery(TRANSACTION_SCAN_SQL,
+                    new Object[]{userId, box.minLat, box.maxLat, box.minLng, box.maxLng, 300})));
+            scanTimes[i] = System.nanoTime() - t0;
+
+            long t1 = System.nanoTime();
+            List<Long> indexed = transactionIds(database.query(new SimpleSQLiteQuery(TransactionDao.IN_AREA_SQL,
+                    new Object[]{userId, box.minLat, box.maxLat, box.minLng, box.maxLng, null, 300})));
+            indexTimes[i] = System.nanoTime() - t1;
+
+            assertEquals(new HashSet<>(scanned), new HashSet<>(indexed));
+        }
+
+        Log.i(TAG, POINTS + " transactions, viewport (300 markers): BETWEEN scan median "
+                + medianMicros(scanTimes) + " us, spatial index median " + medianMicros(indexTimes) + " us");
+    }
+
+    @Test
+    public void fallbackIndex_seeksLatitudeRange() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        FinTrackDatabase plain = Room.inMemoryDatabaseBuilder(context, FinTrackDatabase.class).build();
+        try {
+            SupportSQLiteDatabase db = plain.getOpenHelper().getWritableDatabase();
+            FinTrackDatabase.createSpatialFallback(db, "merchant_spatial");
+            FinTrackDatabase.createSpatialFallback(db, "transaction_spatial");
+
+            GeoUtils.Box box = randomViewport(2_000);
+            assertSeeksLatitude(db, MerchantDao.IN_BOX_SQL, "index_merchant_spatial_lat_lng",
+                    new Object[]{userId, box.minLat, box.maxLat, box.minLng, box.maxLng});
+            assertSeeksLatitude(db, TransactionDao.IN_AREA_SQL, "index_transaction_spatial_lat_lng",
+                    new Object[]{userId, box.minLat, box.maxLat, box.minLng, box.maxLng, null, 300});
+        } finally {
+            plain.close();
+        }
+    }
+
+    private static void assertSeeksLatitude(SupportSQLiteDatabase db, String sql, String index, Object[] args) {
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detail));
+            }
+        }
+        String expected = "USING INDEX " + index + " (min_lat>? AND min_lat<?)";
+        boolean seeks = false;
+        for (String step : plan) {
+            seeks |= step.startsWith("SEARCH") && step.contains(expected);
+        }
+        assertTrue(sql + "\n" + plan, seeks);
+    }
+
+    private void seedMerchants() {
+        List<Merchant> batch = new ArrayList<>();
+        for (int i = 0; i < POINTS; i++) {
+            Merchant merchant = new Merchant("Bench " + i);
+            merchant.setUserId(userId);
+            merchant.setLatitude(CENTER_LAT + (random.nextDouble() - 0.5) * SPAN);
+            merchant.setLongitude(CENTER_LNG + (random.nextDouble() - 0.5) * SPAN);
+            batch.add(merchant);
+
+            if (batch.size() == 5_000) {
+                database.merchantDao().insertAll(batch);
+                batch.clear();
+            }
+        }
+        database.merchantDao().insertAll(batch);
+    }
+
+    private void seedTransactions() {
+        long now = System.currentTimeMillis();
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < POINTS; i++) {
+            Transaction t = new Transaction();
+            t.setUserId(userId);
+            t.setAmount(1 + random.nextInt(100_000) / 100.0);
+            t.setType(Transaction.TransactionType.EXPENSE);
+            t.setStatus(Transaction.TransactionStatus.COMPLETED);
+            t.setTransactionDate(Instant.ofEpochMilli(now - random.nextInt(Integer.MAX_VALUE)));
+            // Uno de cada cinco sin ubicación
+            if (random.nextInt(5) != 0) {
+                t.setLatitude(CENTER_LAT + (random.nextDouble() - 0.5) * SPAN);
+                t.setLongitude(CENTER_LNG + (random.nextDouble() - 0.5) * SPAN);
+            }
+            batch.add(t);
+
+            if (batch.size() == 5_000) {
+                database.transactionDao().insertAll(batch);
+                batch.clear();
+            }
+        }
+        database.transactionDao().insertAll(batch);
+    }
+
+    /**
+     * A square map viewport of the given half-width somewhere in the seeded area
+     */
+    private GeoUtils.Box randomViewport(double radiusMeters) {
+        return GeoUtils.boxAround(
+                CENTER_LAT + (random.nextDouble() - 0.5) * SPAN,
+                CENTER_LNG + (random.nextDouble() - 0.5) * SPAN,
+                radiusMeters);
+    }
+
+    private static Set<Long> merchantIds(List<Merchant> merchants) {
+        Set<Long> ids = new HashSet<>();
+        for (Merchant merchant : merchants) {
+            ids.add(merchant.getMerchantId());
+        }
+        return ids;
+    }
+
+    private static List<Long> transactionIds(Cursor cursor) {
+        List<Long> ids = new ArrayList<>();
+        try {
+            int column = cursor.getColumnIndexOrThrow("transaction_id");
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(column));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    private static long medianMicros(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1000;
+    }
+}
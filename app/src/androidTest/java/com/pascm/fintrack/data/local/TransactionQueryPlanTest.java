@@ -0,0 +1,145 @@
+package com.pascm.fintrack.data.local;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.local.dao.TransactionDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks with EXPLAIN QUERY PLAN that the hot TransactionDao queries are served by
+ * the composite indices from MIGRATION_8_9 and MIGRATION_17_18 and never need a
+ * temp B-tree sort.
+ *
+ * The SQL is TransactionDao's own (its *_SQL constants); the arguments bind the
+ * named parameters by position.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransactionQueryPlanTest {
+
+    private static final Object[] USER = {1L};
+    private static final Object[] USER_RANGE = {1L, 0L, Long.MAX_VALUE};
+    private static final Object[] USER_AND_ID = {1L, 7L};
+
+    private FinTrackDatabase database;
+    private SupportSQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, FinTrackDatabase.class).build();
+        db = database.getOpenHelper().getReadableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void getAllByUser_usesIndexWithoutSort() {
+        assertIndexedWithoutSort(TransactionDao.ALL_BY_USER_SQL, USER);
+    }
+
+    @Test
+    public void getByType_usesIndexWithoutSort() {
+        assertIndexedWithoutSort(TransactionDao.BY_TYPE_SQL, new Object[]{1L, "EXPENSE"});
+    }
+
+    @Test
+    public void getByCategory_usesIndexWithoutSort() {
+        assertIndexedWithoutSort(TransactionDao.BY_CATEGORY_SQL, USER_AND_ID);
+    }
+
+    @Test
+    public void getByAccount_usesIndexWithoutSort() {
+        assertIndexedWithoutSort(TransactionDao.BY_ACCOUNT_SQL, USER_AND_ID);
+    }
+
+    @Test
+    public void getByCard_usesIndexWithoutSort() {
+        assertIndexedWithoutSort(TransactionDao.BY_CARD_SQL, USER_AND_ID);
+    }
+
+    @Test
+    public void getByTrip_usesIndexWithoutSort() {
+        assertIndexedWithoutSort(TransactionDao.BY_TRIP_SQL, USER_AND_ID);
+    }
+
+    @Test
+    public void getByMerchant_usesIndexWithoutSort() {
+        assertIndexedWithoutSort(TransactionDao.BY_MERCHANT_SQL, USER_AND_ID);
+    }
+
+    @Test
+    public void getByDateRange_usesIndexWithoutSort() {
+        assertIndexedWithoutSort(TransactionDao.BY_DATE_RANGE_SQL, USER_RANGE);
+    }
+
+    @Test
+    public void getPageBefore_usesIndexWithoutSort() {
+        // userId, beforeDate, beforeId, limit
+        assertIndexedWithoutSort(TransactionDao.PAGE_BEFORE_SQL, new Object[]{1L, 1000L, 50L, 50});
+    }
+
+    @Test
+    public void getPageBeforeByType_usesIndexWithoutSort() {
+        // userId, type, beforeDate, beforeId, limit
+        assertIndexedWithoutSort(TransactionDao.PAGE_BEFORE_BY_TYPE_SQL,
+                new Object[]{1L, "INCOME", 1000L, 50L, 50});
+    }
+
+    @Test
+    public void totalExpensesForRange_usesCoveringIndex() {
+        List<String> plan = assertIndexedWithoutSort(TransactionDao.TOTAL_EXPENSES_FOR_RANGE_SQL, USER_RANGE);
+        assertTrue("Expected covering index: " + plan, plan.toString().contains("COVERING INDEX"));
+    }
+
+    @Test
+    public void totalIncomeForRange_usesCoveringIndex() {
+        List<String> plan = assertIndexedWithoutSort(TransactionDao.TOTAL_INCOME_FOR_RANGE_SQL, USER_RANGE);
+        assertTrue("Expected covering index: " + plan, plan.toString().contains("COVERING INDEX"));
+    }
+
+    // ========== Helpers ==========
+
+    private List<String> assertIndexedWithoutSort(String sql, Object[] args) {
+        List<String> plan = explain(sql, args);
+        String text = plan.toString();
+
+        assertFalse("Query needs a temp sort: " + text, text.contains("TEMP B-TREE"));
+        for (String step : plan) {
+            if (step.contains("transactions")) {
+                assertTrue("Query does not use an index: " + text,
+                        step.startsWith("SEARCH") && step.contains("INDEX"));
+            }
+        }
+        return plan;
+    }
+
+    private List<String> explain(String sql, Object[] args) {
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detail));
+            }
+        }
+        return plan;
+    }
+}
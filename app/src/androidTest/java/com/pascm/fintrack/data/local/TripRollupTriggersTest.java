@@ -0,0 +1,223 @@
+package com.pascm.fintrack.data.local;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.dao.TransactionRollupDao;
+import com.pascm.fintrack.data.local.dao.TripRollupDao;
+import com.pascm.fintrack.data.local.entity.Category;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.Trip;
+import com.pascm.fintrack.data.local.entity.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the trip summary read from trip_rollups (kept by the
+ * TRIP_ROLLUP_TRIGGERS) matches an aggregate over the transactions table after
+ * inserts, updates, REPLACE inserts and deletes, and after a rebuild.
+ *
+ * As the trip screens always did, only expenses with a positive amount count as
+ * spending; every row of the trip counts as a transaction.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TripRollupTriggersTest {
+
+    private static final int ROWS = 600;
+
+    private FinTrackDatabase database;
+    private TransactionDao transactionDao;
+    private long userId;
+    private long[] tripIds;
+    private long[] categoryIds;
+    private final Random random = new Random(11);
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        // Con los triggers de rollup instalados
+        database = FinTrackDatabase.createInMemory(context);
+        transactionDao = database.transactionDao();
+
+        User user = new User();
+        user.setEmail("trip-rollup@fintrack.test");
+        userId = database.userDao().insert(user);
+
+        categoryIds = new long[4];
+        for (int i = 0; i < categoryIds.length; i++) {
+            categoryIds[i] = database.categoryDao().insert(new Category("Viaje " + i, null, 0, false, true));
+        }
+        tripIds = new long[3];
+        for (int i = 0; i < tripIds.length; i++) {
+            Trip trip = new Trip();
+            trip.setUserId(userId);
+            trip.setName("Viaje " + i);
+            trip.setStartDate(LocalDate.now().minusDays(20));
+            trip.setEndDate(LocalDate.now());
+            trip.setStatus(Trip.TripStatus.ACTIVE);
+            tripIds[i] = database.tripDao().insert(trip);
+        }
+
+        for (int i = 0; i < ROWS; i++) {
+            transactionDao.insert(randomTransaction());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void inserts_matchAggregate() throws Exception {
+        assertAllTripsMatch();
+    }
+
+    @Test
+    public void updates_matchAggregate() throws Exception {
+        List<Transaction> all = transactionDao.getAllByUserSync(userId);
+        for (int i = 0; i < all.size(); i += 2) {
+            Transaction t = all.get(i);
+            switch (i % 5) {
+                case 0: t.setAmount(-t.getAmount()); break;         // Sign flips in and out of spending
+                case 1: t.setTripId(randomTripId()); break;         // Moves between trips, in and out
+                case 2: t.setCategoryId(randomCategoryId()); break;
+                case 3: t.setType(randomType()); break;
+                default: t.setTransactionDate(t.getTransactionDate().minusMillis(random.nextInt(5 * 86_400_000))); break;
+            }
+            transactionDao.update(t);
+        }
+        assertAllTripsMatch();
+    }
+
+    @Test
+    public void replaceInserts_matchAggregate() throws Exception {
+        List<Transaction> all = transactionDao.getAllByUserSync(userId);
+        for (int i = 0; i < all.size(); i += 3) {
+            Transaction replacement = randomTransaction();
+            replacement.setTransactionId(all.get(i).getTransactionId());
+            transactionDao.insert(replacement);
+        }
+        assertAllTripsMatch();
+    }
+
+    @Test
+    public void deletes_matchAggregate() throws Exception {
+        List<Transaction> all = transactionDao.getAllByUserSync(userId);
+        for (int i = 0; i < all.size(); i += 2) {
+            transactionDao.delete(all.get(i));
+        }
+        assertAllTripsMatch();
+    }
+
+    @Test
+    public void rebuild_matchesTriggers() throws Exception {
+        List<Transaction> all = transactionDao.getAllByUserSync(userId);
+        for (int i = 0; i < all.size(); i += 4) {
+            all.get(i).setAmount(0);
+            transactionDao.update(all.get(i));
+        }
+        database.tripRollupDao().rebuild();
+        assertAllTripsMatch();
+    }
+
+    // ========== Helpers ==========
+
+    private void assertAllTripsMatch() throws InterruptedException {
+        for (long tripId : tripIds) {
+            TripRollupDao.TripSpendSummary summary = summaryOf(tripId);
+            String expense = "trip_id = ? AND type = 'EXPENSE' AND amount > 0";
+            String day = TransactionRollupDao.LOCAL_DAY_SQL;
+            try (Cursor c = database.query(
+                    "SELECT " +
+                    "(SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE " + expense + "), " +
+                    "(SELECT COUNT(*) FROM transactions WHERE " + expense + "), " +
+                    "(SELECT COUNT(*) FROM transactions WHERE trip_id = ?), " +
+                    "(SELECT MIN(" + day + ") FROM transactions WHERE " + expense + "), " +
+                    "(SELECT MAX(" + day + ") FROM transactions WHERE " + expense + "), " +
+                    "(SELECT c.name FROM transactions t JOIN categories c ON c.category_id = t.category_id " +
+                    "  WHERE t.trip_id = ? AND t.type = 'EXPENSE' AND t.amount > 0 " +
+                    "  GROUP BY t.category_id ORDER BY COUNT(*) DESC, t.category_id LIMIT 1)",
+                    new Object[]{tripId, tripId, tripId, tripId, tripId, tripId})) {
+                assertTrue(c.moveToFirst());
+                String trip = "trip " + tripId + ": ";
+                assertEquals(trip + "spent", c.getDouble(0), summary.total_spent, 0.01);
+                assertEquals(trip + "expenses", c.getInt(1), summary.expense_count);
+                assertEquals(trip + "transactions", c.getInt(2), summary.transaction_count);
+                assertEquals(trip + "first day", c.isNull(3) ? null : c.getLong(3), summary.first_expense_day);
+                assertEquals(trip + "last day", c.isNull(4) ? null : c.getLong(4), summary.last_expense_day);
+                assertEquals(trip + "top category", c.getString(5), summary.top_category_name);
+            }
+        }
+    }
+
+    private TripRollupDao.TripSpendSummary summaryOf(long tripId) throws InterruptedException {
+        LiveData<TripRollupDao.TripSpendSummary> live = database.tripRollupDao().observeSummary(tripId);
+        AtomicReference<TripRollupDao.TripSpendSummary> value = new AtomicReference<>();
+        CountDownLatch loaded = new CountDownLatch(1);
+        Observer<TripRollupDao.TripSpendSummary> observer = summary -> {
+            value.set(summary);
+            loaded.countDown();
+        };
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> live.observeForever(observer));
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> live.removeObserver(observer));
+        return value.get();
+    }
+
+    /**
+     * A movement of the last 20 days: mostly trip expenses, some with an amount of
+     * 0 or less, some without a category or a trip
+     */
+    private Transaction randomTransaction() {
+        Transaction t = new Transaction();
+        t.setUserId(userId);
+        t.setTripId(randomTripId());
+        t.setType(randomType());
+        t.setCategoryId(randomCategoryId());
+        int kind = random.nextInt(10);
+        t.setAmount(kind == 0 ? 0 : kind == 1 ? -(1 + random.nextInt(500)) : 1 + random.nextInt(100_000) / 100.0);
+        t.setStatus(random.nextInt(10) == 0
+                ? Transaction.TransactionStatus.PENDING
+                : Transaction.TransactionStatus.COMPLETED);
+        t.setTransactionDate(Instant.now().minusMillis((long) (random.nextDouble() * 20 * 86_400_000L)));
+        return t;
+    }
+
+    private Long randomTripId() {
+        int pick = random.nextInt(tripIds.length + 1);
+        return pick == tripIds.length ? null : tripIds[pick];
+    }
+
+    private Long randomCategoryId() {
+        int pick = random.nextInt(categoryIds.length + 1);
+        return pick == categoryIds.length ? null : categoryIds[pick];
+    }
+
+    private Transaction.TransactionType randomType() {
+        int kind = random.nextInt(10);
+        return kind < 7 ? Transaction.TransactionType.EXPENSE
+                : kind < 9 ? Transaction.TransactionType.INCOME
+                : Transaction.TransactionType.TRANSFER;
+    }
+}
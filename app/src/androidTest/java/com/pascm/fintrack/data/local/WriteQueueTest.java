@@ -0,0 +1,215 @@
+package com.pascm.fintrack.data.local;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.local.entity.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs a WriteQueue against an in-memory database. Tasks are queued before
+ * attach(), so the writer picks them up as one batch. Callbacks run on the
+ * writer thread, so they only record what they see; the asserts run here.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WriteQueueTest {
+
+    private FinTrackDatabase database;
+    private WriteQueue queue;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = FinTrackDatabase.createInMemory(context);
+        queue = new WriteQueue();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void batch_commitsOnce_thenRunsCallbacks() throws Exception {
+        int count = 10;
+        CountDownLatch done = new CountDownLatch(count);
+        List<Boolean> visibleInCallback = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < count; i++) {
+            String email = "batch" + i + "@fintrack.test";
+            queue.execute(() -> database.userDao().insert(newUser(email)), () -> {
+                visibleInCallback.add(!database.inTransaction() && database.userDao().getByEmail(email) != null);
+                done.countDown();
+            });
+        }
+
+        queue.attach(database);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(count, visibleInCallback.size());
+        assertFalse(visibleInCallback.contains(false));
+        WriteQueue.Metrics metrics = queue.getMetrics();
+        assertEquals(1, metrics.getBatches());
+        assertEquals(count, metrics.getTasks());
+        assertEquals(0, metrics.getFailedBatches());
+    }
+
+    @Test
+    public void rollback_replaysEachTaskAlone_callbacksRunOnce() throws Exception {
+        AtomicInteger goodRuns = new AtomicInteger();
+        AtomicInteger committed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(3);
+
+        queue.execute(() -> {
+            goodRuns.incrementAndGet();
+            database.userDao().insert(newUser("first@fintrack.test"));
+        }, () -> {
+            committed.incrementAndGet();
+            done.countDown();
+        }, e -> {
+            failed.incrementAndGet();
+            done.countDown();
+        });
+        queue.execute(() -> {
+            database.userDao().insert(newUser("bad@fintrack.test"));
+            throw new IllegalStateException("boom");
+        }, () -> {
+            committed.incrementAndGet();
+            done.countDown();
+        }, e -> {
+            failed.incrementAndGet();
+            done.countDown();
+        });
+        queue.execute(() -> database.userDao().insert(newUser("last@fintrack.test")), () -> {
+            committed.incrementAndGet();
+            done.countDown();
+        });
+
+        queue.attach(database);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        queue.executeAndWait(() -> { }); // Let the writer finish the batch
+
+        // dbWork ran in the batch and again alone; callbacks ran once each
+        assertEquals(2, goodRuns.get());
+        assertEquals(2, committed.get());
+        assertEquals(1, failed.get());
+        assertNotNull(database.userDao().getByEmail("first@fintrack.test"));
+        assertNotNull(database.userDao().getByEmail("last@fintrack.test"));
+        assertNull(database.userDao().getByEmail("bad@fintrack.test"));
+        assertEquals(1, queue.getMetrics().getFailedBatches());
+    }
+
+    @Test
+    public void swallowedNestedFailure_isDetectedAndReplayed() throws Exception {
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicInteger committed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        queue.execute(() -> database.userDao().insert(newUser("kept@fintrack.test")), () -> {
+            committed.incrementAndGet();
+            done.countDown();
+        });
+        queue.execute(() -> {
+            try {
+                database.runInTransaction(() -> {
+                    database.userDao().insert(newUser("nested@fintrack.test"));
+                    throw new IllegalStateException("nested");
+                });
+            } catch (IllegalStateException ignored) {
+                // Swallowed: SQLite still rolls back the outer transaction
+            }
+        }, () -> {
+            committed.incrementAndGet();
+            done.countDown();
+        }, e -> {
+            failed.incrementAndGet();
+            done.countDown();
+        });
+
+        queue.attach(database);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertNotNull(database.userDao().getByEmail("kept@fintrack.test"));
+        assertNull(database.userDao().getByEmail("nested@fintrack.test"));
+        assertEquals(1, committed.get());
+        assertEquals(1, failed.get());
+    }
+
+    @Test
+    public void plainTask_runsAloneAndOnce() throws Exception {
+        AtomicInteger plainRuns = new AtomicInteger();
+        boolean[] inTransaction = {true};
+        CountDownLatch done = new CountDownLatch(1);
+
+        queue.execute(() -> {
+            throw new IllegalStateException("boom");
+        }, null);
+        queue.execute(() -> {
+            plainRuns.incrementAndGet();
+            database.userDao().insert(newUser("plain@fintrack.test"));
+            // Not inside a queue transaction: the insert is already committed
+            inTransaction[0] = database.inTransaction();
+            done.countDown();
+        });
+
+        queue.attach(database);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        queue.executeAndWait(() -> { });
+
+        assertEquals(1, plainRuns.get());
+        assertFalse(inTransaction[0]);
+        assertNotNull(database.userDao().getByEmail("plain@fintrack.test"));
+    }
+
+    @Test
+    public void executeAndWait_throwsTheFailure() {
+        queue.attach(database);
+        try {
+            queue.executeAndWait(() -> {
+                throw new IllegalStateException("boom");
+            });
+            fail("expected the task's exception");
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    @Test
+    public void executeAndWait_interrupted_throwsInsteadOfReturning() {
+        queue.attach(database);
+        Thread.currentThread().interrupt();
+        try {
+            queue.executeAndWait(() -> database.userDao().insert(newUser("late@fintrack.test")));
+            fail("expected the interrupt to surface");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+            assertTrue(Thread.interrupted()); // Flag kept (and cleared here for the next test)
+        }
+    }
+
+    private static User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -0,0 +1,164 @@
+package com.pascm.fintrack.data.repository;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.entity.Category;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.User;
+import com.pascm.fintrack.model.CategoryReport;
+import com.pascm.fintrack.model.PeriodReport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the single rollup read behind ReportRepository.getPeriodReport
+ * gives the same totals and category breakdown as the old scans of
+ * transactions, after inserts, updates and deletes.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PeriodReportRollupTest {
+
+    private static final int ROWS = 10_000;
+
+    private FinTrackDatabase database;
+    private long userId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        // Con los triggers de rollup instalados
+        database = FinTrackDatabase.createInMemory(context);
+
+        User user = new User();
+        user.setEmail("report@fintrack.test");
+        userId = database.userDao().insert(user);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void rollupReportMatchesScans() {
+        seed(ROWS);
+
+        LocalDate today = LocalDate.now();
+        assertReportsMatch(today.withDayOfYear(1), today);
+        assertReportsMatch(today.withDayOfMonth(1), today);
+        assertReportsMatch(LocalDate.of(2000, 1, 1), today);
+    }
+
+    @Test
+    public void rollupReportFollowsUpdatesAndDeletes() {
+        seed(2_000);
+
+        TransactionDao transactionDao = database.transactionDao();
+        List<Transaction> all = transactionDao.getAllByUserSync(userId);
+        Random random = new Random(7);
+        for (int i = 0; i < all.size(); i += 3) {
+            Transaction t = all.get(i);
+            if (i % 2 == 0) {
+                t.setAmount(t.getAmount() + 10);
+                t.setStatus(Transaction.TransactionStatus.COMPLETED);
+                t.setTransactionDate(t.getTransactionDate().minusMillis(random.nextInt(86_400_000)));
+                transactionDao.update(t);
+            } else {
+                transactionDao.delete(t);
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        assertReportsMatch(today.withDayOfYear(1), today);
+        assertReportsMatch(LocalDate.of(2000, 1, 1), today);
+    }
+
+    private void assertReportsMatch(LocalDate from, LocalDate to) {
+        long start = from.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long end = to.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        TransactionDao transactionDao = database.transactionDao();
+        PeriodReport report = ReportRepository.buildPeriodReport(database.transactionRollupDao()
+                .getPeriodReport(userId, ReportRepository.toEpochDay(start), ReportRepository.toEpochDay(end)));
+
+        assertEquals(transactionDao.getTotalIncomeForRangeSync(userId, start, end),
+                report.getSummary().getTotalIncome(), 0.01);
+        assertEquals(transactionDao.getTotalExpensesForRangeSync(userId, start, end),
+                report.getSummary().getTotalExpenses(), 0.01);
+        assertEquals(transactionDao.getTransactionCountForRangeSync(userId, start, end),
+                report.getSummary().getTransactionCount());
+
+        Map<Long, Double> scanned = new HashMap<>();
+        for (TransactionDao.CategoryReportData row : transactionDao.getCategoryReportForDateRange(userId, start, end)) {
+            if (row.total_amount != null && row.total_amount > 0) {
+                scanned.put(row.category_id, row.total_amount);
+            }
+        }
+        Map<Long, Double> rolledUp = new HashMap<>();
+        for (CategoryReport category : report.getCategoryReports()) {
+            if (category.getAmount() > 0) {
+                rolledUp.put(category.getCategoryId(), category.getAmount());
+            }
+        }
+        assertEquals(scanned.keySet(), rolledUp.keySet());
+        for (Map.Entry<Long, Double> entry : scanned.entrySet()) {
+            assertEquals(entry.getValue(), rolledUp.get(entry.getKey()), 0.01);
+        }
+    }
+
+    /**
+     * Two years of history for one user, spread over categories and payment methods
+     */
+    private void seed(int rows) {
+        long[] categoryIds = new long[6];
+        for (int i = 0; i < categoryIds.length; i++) {
+            categoryIds[i] = database.categoryDao().insert(new Category("Report " + i, null, 0, false, true));
+        }
+
+        String[] cardTypes = {null, "CREDIT", "DEBIT"};
+        Transaction.TransactionType[] types = Transaction.TransactionType.values();
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        long twoYears = 730L * 24 * 60 * 60 * 1000;
+
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            Transaction t = new Transaction();
+            t.setUserId(userId);
+            t.setAmount(1 + random.nextInt(100_000) / 100.0);
+            t.setType(types[random.nextInt(types.length)]);
+            t.setStatus(random.nextInt(20) == 0
+                    ? Transaction.TransactionStatus.PENDING
+                    : Transaction.TransactionStatus.COMPLETED);
+            t.setCategoryId(categoryIds[random.nextInt(categoryIds.length)]);
+            t.setCardType(cardTypes[random.nextInt(cardTypes.length)]);
+            t.setTransactionDate(Instant.ofEpochMilli(now - (long) (random.nextDouble() * twoYears)));
+            batch.add(t);
+
+            if (batch.size() == 5_000) {
+                database.transactionDao().insertAll(batch);
+                batch.clear();
+            }
+        }
+        database.transactionDao().insertAll(batch);
+    }
+}
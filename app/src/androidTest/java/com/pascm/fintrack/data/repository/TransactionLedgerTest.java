@@ -0,0 +1,219 @@
+package com.pascm.fintrack.data.repository;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteConstraintException;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.entity.Account;
+import com.pascm.fintrack.data.local.entity.CreditCardEntity;
+import com.pascm.fintrack.data.local.entity.PendingAction;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.User;
+import com.pascm.fintrack.data.sync.SyncActions;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TransactionRepository.postTransactionsSync against an in-memory database:
+ * balance deltas, the clamps of AccountDao/CreditCardDao.applyBalanceDelta,
+ * all-or-nothing transfers and the outbox rows it queues.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransactionLedgerTest {
+
+    private FinTrackDatabase database;
+    private TransactionRepository repository;
+    private long userId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = FinTrackDatabase.createInMemory(context);
+        repository = new TransactionRepository(database);
+
+        User user = new User();
+        user.setEmail("ledger@fintrack.test");
+        userId = database.userDao().insert(user);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void accountDeltas_areSummed() {
+        long accountId = insertAccount(1_000);
+
+        Transaction pending = accountMovement(accountId, Transaction.TransactionType.EXPENSE, 999);
+        pending.setStatus(Transaction.TransactionStatus.PENDING);
+        repository.postTransactionsSync(Arrays.asList(
+                accountMovement(accountId, Transaction.TransactionType.INCOME, 500),
+                accountMovement(accountId, Transaction.TransactionType.EXPENSE, 200),
+                accountMovement(accountId, Transaction.TransactionType.EXPENSE, 50),
+                pending));
+
+        // Pending movements do not move the balance
+        assertEquals(1_250, accountBalance(accountId), 0.001);
+        assertEquals(4, database.transactionDao().getAllByUserSync(userId).size());
+    }
+
+    @Test
+    public void accountBalance_neverGoesBelowZero() {
+        long accountId = insertAccount(100);
+
+        repository.postTransactionsSync(Arrays.asList(
+                accountMovement(accountId, Transaction.TransactionType.EXPENSE, 300)));
+
+        assertEquals(0, accountBalance(accountId), 0.001);
+    }
+
+    @Test
+    public void creditCardBalance_staysBetweenZeroAndLimit() {
+        long cardId = insertCreditCard(1_000, 200);
+
+        // Charges raise the debt
+        repository.postTransactionsSync(Arrays.asList(
+                cardMovement(cardId, Transaction.TransactionType.EXPENSE, 300)));
+        assertEquals(500, cardBalance(cardId), 0.001);
+
+        // Up to the credit limit
+        repository.postTransactionsSync(Arrays.asList(
+                cardMovement(cardId, Transaction.TransactionType.EXPENSE, 900)));
+        assertEquals(1_000, cardBalance(cardId), 0.001);
+
+        // Payments lower it, down to zero
+        repository.postTransactionsSync(Arrays.asList(
+                cardMovement(cardId, Transaction.TransactionType.INCOME, 2_000)));
+        assertEquals(0, cardBalance(cardId), 0.001);
+    }
+
+    @Test
+    public void transfer_movesBothBalances() {
+        long from = insertAccount(1_000);
+        long to = insertAccount(50);
+
+        repository.postTransactionsSync(Arrays.asList(
+                accountMovement(from, Transaction.TransactionType.EXPENSE, 300),
+                accountMovement(to, Transaction.TransactionType.INCOME, 300)));
+
+        assertEquals(700, accountBalance(from), 0.001);
+        assertEquals(350, accountBalance(to), 0.001);
+    }
+
+    @Test
+    public void transfer_failingLeg_rollsBackBoth() {
+        long from = insertAccount(1_000);
+        long cardId = insertCreditCard(5_000, 0);
+        int actionsBefore = database.syncDao().getAllPendingActions().size();
+
+        // The second leg points to an account that does not exist: its insert fails
+        List<Transaction> legs = Arrays.asList(
+                cardMovement(cardId, Transaction.TransactionType.EXPENSE, 300),
+                accountMovement(from, Transaction.TransactionType.EXPENSE, 300),
+                accountMovement(9_999, Transaction.TransactionType.INCOME, 300));
+        assertThrows(SQLiteConstraintException.class, () -> repository.postTransactionsSync(legs));
+
+        assertEquals(1_000, accountBalance(from), 0.001);
+        assertEquals(0, cardBalance(cardId), 0.001);
+        assertTrue(database.transactionDao().getAllByUserSync(userId).isEmpty());
+        assertEquals(actionsBefore, database.syncDao().getAllPendingActions().size());
+    }
+
+    @Test
+    public void post_queuesOutboxRows() {
+        long accountId = insertAccount(1_000);
+        long cardId = insertCreditCard(5_000, 0);
+
+        List<Long> ids = repository.postTransactionsSync(Arrays.asList(
+                accountMovement(accountId, Transaction.TransactionType.EXPENSE, 100),
+                cardMovement(cardId, Transaction.TransactionType.EXPENSE, 200)));
+
+        Set<Long> createdTransactions = new HashSet<>();
+        int cardUpdates = 0;
+        for (PendingAction action : database.syncDao().getAllPendingActions()) {
+            if (SyncActions.TRANSACTION.equals(action.getEntityType())) {
+                assertEquals(SyncActions.CREATE, action.getAction());
+                createdTransactions.add(action.getEntityId());
+            } else if (SyncActions.CREDIT_CARD.equals(action.getEntityType())) {
+                assertEquals(SyncActions.UPDATE, action.getAction());
+                assertEquals(cardId, action.getEntityId());
+                cardUpdates++;
+            }
+        }
+        assertEquals(new HashSet<>(ids), createdTransactions);
+        assertEquals(1, cardUpdates);
+    }
+
+    // ========== Helpers ==========
+
+    private long insertAccount(double balance) {
+        Account account = new Account();
+        account.setUserId(userId);
+        account.setName("Cuenta");
+        account.setType(Account.AccountType.CHECKING);
+        account.setCurrencyCode("MXN");
+        account.setBalance(balance);
+        return database.accountDao().insert(account);
+    }
+
+    private long insertCreditCard(double limit, double balance) {
+        CreditCardEntity card = new CreditCardEntity();
+        card.setUserId(userId);
+        card.setIssuer("BBVA");
+        card.setLabel("Crédito BBVA");
+        card.setBrand("VISA");
+        card.setPanLast4("1234");
+        card.setCreditLimit(limit);
+        card.setCurrentBalance(balance);
+        return database.creditCardDao().insert(card);
+    }
+
+    private Transaction accountMovement(long accountId, Transaction.TransactionType type, double amount) {
+        Transaction transaction = movement(type, amount);
+        transaction.setAccountId(accountId);
+        transaction.setCardType("CASH");
+        return transaction;
+    }
+
+    private Transaction cardMovement(long cardId, Transaction.TransactionType type, double amount) {
+        Transaction transaction = movement(type, amount);
+        transaction.setCardId(cardId);
+        transaction.setCardType("CREDIT");
+        return transaction;
+    }
+
+    private Transaction movement(Transaction.TransactionType type, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setType(type);
+        transaction.setAmount(amount);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transaction.setTransactionDate(Instant.now());
+        return transaction;
+    }
+
+    private double accountBalance(long accountId) {
+        return database.accountDao().getByIdSync(accountId).getBalance();
+    }
+
+    private double cardBalance(long cardId) {
+        return database.creditCardDao().getByIdSync(cardId).getCurrentBalance();
+    }
+}
@@ -0,0 +1,164 @@
+package com.pascm.fintrack.data.sync;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.entity.Merchant;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Runs DeltaPuller against an in-memory database and an in-process fake
+ * source holding documents as SyncEngine would have pushed them.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DeltaPullerTest {
+
+    private static final String ACCOUNT_UID = "uid-1";
+
+    private FinTrackDatabase database;
+    private FakeSource source;
+    private long userId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, FinTrackDatabase.class).build();
+        source = new FakeSource();
+
+        User user = new User();
+        user.setEmail("pull@fintrack.test");
+        user.setFirebaseUid(ACCOUNT_UID);
+        userId = database.userDao().insert(user);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void pull_updatedMerchant_keepsTransactionLink() throws Exception {
+        Merchant merchant = new Merchant("Café");
+        merchant.setUserId(userId);
+        merchant.setMerchantId(database.merchantDao().insert(merchant));
+        Transaction transaction = newTransaction(userId, 25);
+        transaction.setMerchantId(merchant.getMerchantId());
+        transaction.setTransactionId(database.transactionDao().insert(transaction));
+
+        merchant.setName("Café Central");
+        source.put(SyncActions.MERCHANT, merchant.getSyncId(), merchant);
+
+        assertEquals(1, new DeltaPuller(database, source).pull(userId));
+
+        Merchant pulled = database.merchantDao().getByIdSync(merchant.getMerchantId(), userId);
+        assertEquals("Café Central", pulled.getName());
+        // An in-place update, not a delete + insert: ON DELETE SET NULL did not fire
+        assertEquals(Long.valueOf(merchant.getMerchantId()),
+                database.transactionDao().getByIdSync(transaction.getTransactionId()).getMerchantId());
+    }
+
+    @Test
+    public void pull_otherDeviceDocuments_mapToNewLocalRows() throws Exception {
+        Transaction local = newTransaction(userId, 10);
+        local.setTransactionId(database.transactionDao().insert(local));
+
+        // Pushed from another install, where both rows happen to have the local IDs used here
+        Merchant remoteMerchant = new Merchant("Mercado");
+        remoteMerchant.setUserId(99);
+        remoteMerchant.setMerchantId(local.getTransactionId());
+        Transaction remote = newTransaction(99, 40);
+        remote.setTransactionId(local.getTransactionId());
+        remote.setMerchantId(remoteMerchant.getMerchantId());
+        source.put(SyncActions.MERCHANT, remoteMerchant.getSyncId(), remoteMerchant);
+        Map<String, Object> remoteData = source.put(SyncActions.TRANSACTION, remote.getSyncId(), remote);
+        remoteData.put(SyncActions.MERCHANT_REF_FIELD, remoteMerchant.getSyncId());
+
+        assertEquals(2, new DeltaPuller(database, source).pull(userId));
+
+        // The local row is untouched
+        assertEquals(10.0, database.transactionDao().getByIdSync(local.getTransactionId()).getAmount(), 0.001);
+
+        Long pulledId = new SyncIds(database).localIdOf(SyncActions.TRANSACTION, remote.getSyncId());
+        assertNotNull(pulledId);
+        assertNotEquals(local.getTransactionId(), pulledId.longValue());
+        Transaction pulled = database.transactionDao().getByIdSync(pulledId);
+        assertEquals(userId, pulled.getUserId());
+        assertEquals(new SyncIds(database).localIdOf(SyncActions.MERCHANT, remoteMerchant.getSyncId()),
+                pulled.getMerchantId());
+        assertEquals("users/" + ACCOUNT_UID + "/transactions/" + remote.getSyncId(),
+                database.syncDao().getSyncState(SyncActions.TRANSACTION, pulledId).getFirebaseId());
+    }
+
+    @Test
+    public void pull_unlinkedUser_readsNothing() throws Exception {
+        User other = new User();
+        other.setEmail("offline@fintrack.test");
+        long otherId = database.userDao().insert(other);
+        Transaction remote = newTransaction(otherId, 5);
+        source.put(SyncActions.TRANSACTION, remote.getSyncId(), remote);
+
+        assertEquals(0, new DeltaPuller(database, source).pull(otherId));
+        assertEquals(0, source.reads);
+    }
+
+    private static Transaction newTransaction(long ownerId, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(ownerId);
+        transaction.setAmount(amount);
+        transaction.setType(Transaction.TransactionType.EXPENSE);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transaction.setTransactionDate(Instant.now());
+        return transaction;
+    }
+
+    /**
+     * Serves documents of ACCOUNT_UID, one page per collection
+     */
+    private static class FakeSource implements PullSource {
+        final Map<String, List<RemoteDocument>> collections = new HashMap<>();
+        int reads;
+
+        Map<String, Object> put(String entityType, String documentId, Object entity) {
+            Map<String, Object> data = SyncActions.parsePayload(
+                    SyncActions.create(entityType, 0, SyncActions.UPDATE, entity).getPayloadJson());
+            List<RemoteDocument> documents = collections.computeIfAbsent(
+                    SyncActions.collectionFor(entityType), c -> new ArrayList<>());
+            documents.add(new RemoteDocument(documentId, documents.size() + 1, data));
+            return data;
+        }
+
+        @Override
+        public List<RemoteDocument> fetchPage(String ownerUid, String collection, long afterMicros,
+                                              String afterDocumentId, int limit) {
+            reads++;
+            assertEquals(ACCOUNT_UID, ownerUid);
+            List<RemoteDocument> page = new ArrayList<>();
+            for (RemoteDocument document : collections.getOrDefault(collection, new ArrayList<>())) {
+                if (afterDocumentId == null || document.getUpdatedMicros() > afterMicros) {
+                    page.add(document);
+                }
+            }
+            return page.subList(0, Math.min(limit, page.size()));
+        }
+    }
+}
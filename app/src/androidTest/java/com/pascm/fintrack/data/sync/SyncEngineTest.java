@@ -0,0 +1,300 @@
+package com.pascm.fintrack.data.sync;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.dao.SyncDao;
+import com.pascm.fintrack.data.local.entity.CreditCardEntity;
+import com.pascm.fintrack.data.local.entity.PendingAction;
+import com.pascm.fintrack.data.local.entity.SyncState;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the outbox and SyncEngine against an in-memory database and an
+ * in-process fake transport.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SyncEngineTest {
+
+    private static final String ACCOUNT_UID = "uid-1";
+
+    private FinTrackDatabase database;
+    private SyncDao syncDao;
+    private FakeTransport transport;
+    private long userId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, FinTrackDatabase.class).build();
+        syncDao = database.syncDao();
+        transport = new FakeTransport();
+
+        User user = new User();
+        user.setEmail("sync@fintrack.test");
+        user.setFirebaseUid(ACCOUNT_UID);
+        userId = database.userDao().insert(user);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void enqueue_repeatedUpdatesAfterCreate_coalesceIntoOneCreate() {
+        Transaction transaction = insertTransaction(100);
+
+        transaction.setAmount(200);
+        syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, transaction.getTransactionId(),
+                SyncActions.UPDATE, transaction));
+        transaction.setAmount(300);
+        syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, transaction.getTransactionId(),
+                SyncActions.UPDATE, transaction));
+
+        List<PendingAction> actions = syncDao.getAllPendingActions();
+        assertEquals(1, actions.size());
+        assertEquals(SyncActions.CREATE, actions.get(0).getAction());
+
+        new SyncEngine(database, transport, ACCOUNT_UID).drain();
+        assertEquals(1, transport.commits.size());
+        assertEquals(300.0, ((Number) transport.commits.get(0).get(0).getData().get("amount")).doubleValue(), 0.001);
+    }
+
+    @Test
+    public void enqueue_deleteAfterCreate_keepsOnlyDelete() {
+        Transaction transaction = insertTransaction(100);
+        syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, transaction.getTransactionId(),
+                SyncActions.DELETE, transaction));
+
+        List<PendingAction> actions = syncDao.getAllPendingActions();
+        assertEquals(1, actions.size());
+        assertTrue(actions.get(0).isDeleteAction());
+    }
+
+    @Test
+    public void drain_largeQueue_commitsBatchesOfAtMost500() {
+        for (int i = 0; i < 1201; i++) {
+            insertTransaction(i + 1);
+        }
+
+        SyncEngine.DrainResult result = new SyncEngine(database, transport, ACCOUNT_UID).drain();
+
+        assertEquals(1201, result.getPushed());
+        assertEquals(3, result.getBatches());
+        assertEquals(0, result.getRemaining());
+        assertEquals(500, transport.commits.get(0).size());
+        assertEquals(500, transport.commits.get(1).size());
+        assertEquals(201, transport.commits.get(2).size());
+        assertTrue(syncDao.getAllPendingActions().isEmpty());
+        assertTrue(syncDao.getAllDirty().isEmpty());
+    }
+
+    @Test
+    public void drain_success_marksSyncStateClean() {
+        Transaction transaction = insertTransaction(50);
+
+        new SyncEngine(database, transport, ACCOUNT_UID).drain();
+
+        SyncState state = syncDao.getSyncState(SyncActions.TRANSACTION, transaction.getTransactionId());
+        assertNotNull(state);
+        assertFalse(state.isDirtyFlag());
+        assertEquals("users/" + ACCOUNT_UID + "/transactions/" + transaction.getSyncId(), state.getFirebaseId());
+    }
+
+    @Test
+    public void drain_cardsBeforeTransactions() {
+        insertTransaction(10);
+        CreditCardEntity card = new CreditCardEntity();
+        card.setUserId(userId);
+        card.setIssuer("Banco");
+        card.setLabel("Oro");
+        card.setBrand("visa");
+        card.setPanLast4("1234");
+        card.setGradient("VIOLET");
+        database.runInTransaction(() -> {
+            long id = database.creditCardDao().insert(card);
+            card.setCardId(id);
+            syncDao.enqueue(SyncActions.create(SyncActions.CREDIT_CARD, id, SyncActions.CREATE, card));
+        });
+
+        new SyncEngine(database, transport, ACCOUNT_UID).drain();
+
+        List<SyncOperation> batch = transport.commits.get(0);
+        assertEquals(SyncActions.CREDIT_CARD, batch.get(0).getEntityType());
+        assertEquals(SyncActions.TRANSACTION, batch.get(1).getEntityType());
+    }
+
+    @Test
+    public void drain_failure_backsOffAndRetriesLater() {
+        Transaction transaction = insertTransaction(10);
+        transport.failNext = true;
+
+        SyncEngine.DrainResult failed = new SyncEngine(database, transport, ACCOUNT_UID).drain();
+        assertEquals(1, failed.getFailed());
+        assertEquals(1, failed.getRemaining());
+
+        PendingAction action = syncDao.getPendingActionForEntity(SyncActions.TRANSACTION, transaction.getTransactionId());
+        assertEquals(1, action.getRetryCount());
+        assertNotNull(action.getLastError());
+
+        // Within the backoff window nothing is read
+        SyncEngine.DrainResult waiting = new SyncEngine(database, transport, ACCOUNT_UID).drain();
+        assertEquals(0, waiting.getPushed());
+        assertEquals(1, waiting.getRemaining());
+
+        // Once 2^1 minutes have passed the action goes out
+        action.setLastAttemptAt(Instant.now().minusSeconds(121));
+        syncDao.updatePendingAction(action);
+        SyncEngine.DrainResult retried = new SyncEngine(database, transport, ACCOUNT_UID).drain();
+        assertEquals(1, retried.getPushed());
+        assertEquals(0, retried.getRemaining());
+    }
+
+    @Test
+    public void drain_updateQueuedDuringCommit_isNotLost() {
+        Transaction transaction = insertTransaction(10);
+        transport.duringCommit = () -> {
+            transaction.setAmount(20);
+            syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, transaction.getTransactionId(),
+                    SyncActions.UPDATE, transaction));
+        };
+
+        SyncEngine.DrainResult result = new SyncEngine(database, transport, ACCOUNT_UID).drain();
+
+        // The coalesced row is a new one, so it survives the first commit and goes in a second batch
+        assertEquals(2, transport.commits.size());
+        assertEquals(20.0, ((Number) transport.commits.get(1).get(0).getData().get("amount")).doubleValue(), 0.001);
+        assertEquals(0, result.getRemaining());
+    }
+
+    @Test
+    public void drain_badPayload_isAbandoned() {
+        PendingAction action = new PendingAction(SyncActions.TRANSACTION, 999, SyncActions.UPDATE, "{}");
+        syncDao.enqueue(action);
+
+        SyncEngine.DrainResult result = new SyncEngine(database, transport, ACCOUNT_UID).drain();
+
+        assertEquals(0, result.getPushed());
+        assertEquals(0, result.getRemaining());
+        assertEquals(1, syncDao.getFailedActions().size());
+        assertTrue(transport.commits.isEmpty());
+    }
+
+    @Test
+    public void drain_unlinkedUser_isHeldNotFailed() {
+        User other = new User();
+        other.setEmail("offline@fintrack.test");
+        long otherId = database.userDao().insert(other);
+        insertTransaction(10, otherId);
+        insertTransaction(20);
+
+        SyncEngine.DrainResult result = new SyncEngine(database, transport, ACCOUNT_UID).drain();
+
+        assertEquals(1, result.getPushed());
+        assertEquals(1, result.getHeld());
+        assertEquals(1, result.getRemaining());
+        assertTrue(syncDao.getFailedActions().isEmpty());
+
+        // Once linked, the same action goes out under that account
+        database.userDao().updateFirebaseUid(otherId, "uid-2", System.currentTimeMillis());
+        SyncEngine.DrainResult linked = new SyncEngine(database, transport, "uid-2").drain();
+        assertEquals(1, linked.getPushed());
+        assertEquals(0, linked.getRemaining());
+        assertTrue(transport.commits.get(1).get(0).getDocumentPath().startsWith("users/uid-2/transactions/"));
+    }
+
+    @Test
+    public void drain_moreHeldThanOneBatchAheadOfQueue_stillPushesOwnActions() {
+        User other = new User();
+        other.setEmail("offline@fintrack.test");
+        long otherId = database.userDao().insert(other);
+        int heldCount = SyncTransport.MAX_BATCH_SIZE + 1;
+        for (int i = 0; i < heldCount; i++) {
+            insertTransaction(i + 1, otherId);
+        }
+        Transaction own = insertTransaction(10);
+
+        SyncEngine.DrainResult result = new SyncEngine(database, transport, ACCOUNT_UID).drain();
+
+        assertEquals(1, result.getPushed());
+        assertEquals(heldCount, result.getHeld());
+        assertEquals(heldCount, result.getRemaining());
+        assertEquals(own.getSyncId(), transport.commits.get(0).get(0).getDocumentId());
+    }
+
+    @Test
+    public void drain_payloadWithoutSyncId_usesRowSyncId() {
+        Transaction transaction = insertTransaction(10);
+        syncDao.deleteAllPendingActions();
+        syncDao.enqueue(new PendingAction(SyncActions.TRANSACTION, transaction.getTransactionId(),
+                SyncActions.UPDATE, "{\"userId\":" + userId + ",\"amount\":10.0}"));
+
+        new SyncEngine(database, transport, ACCOUNT_UID).drain();
+
+        assertEquals("users/" + ACCOUNT_UID + "/transactions/" + transaction.getSyncId(),
+                transport.commits.get(0).get(0).getDocumentPath());
+    }
+
+    private Transaction insertTransaction(double amount) {
+        return insertTransaction(amount, userId);
+    }
+
+    private Transaction insertTransaction(double amount, long ownerId) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(ownerId);
+        transaction.setAmount(amount);
+        transaction.setType(Transaction.TransactionType.EXPENSE);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transaction.setTransactionDate(Instant.now());
+        database.runInTransaction(() -> {
+            long id = database.transactionDao().insert(transaction);
+            transaction.setTransactionId(id);
+            syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, id, SyncActions.CREATE, transaction));
+        });
+        return transaction;
+    }
+
+    /**
+     * Records committed batches; can fail the next commit or run code mid-commit
+     */
+    private static class FakeTransport implements SyncTransport {
+        final List<List<SyncOperation>> commits = new ArrayList<>();
+        boolean failNext;
+        Runnable duringCommit;
+
+        @Override
+        public void commit(List<SyncOperation> operations) throws Exception {
+            assertTrue(operations.size() <= MAX_BATCH_SIZE);
+            if (duringCommit != null) {
+                Runnable action = duringCommit;
+                duringCommit = null;
+                action.run();
+            }
+            if (failNext) {
+                failNext = false;
+                throw new Exception("unavailable");
+            }
+            commits.add(new ArrayList<>(operations));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.pascm.fintrack.ui;
+
+import android.Manifest;
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.navigation.NavController;
+import androidx.navigation.Navigation;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.MainActivity;
+import com.pascm.fintrack.R;
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.Trip;
+import com.pascm.fintrack.data.local.entity.User;
+import com.pascm.fintrack.data.local.trace.QueryTrace;
+import com.pascm.fintrack.util.SessionManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Counts the database statements Home, Reportes and Modo viaje run on rotation
+ * and on back navigation, with no data changes in between. Their state lives in
+ * ViewModels over Room LiveData, which only re-query after their tables change,
+ * so each case should run none.
+ *
+ * Statements are counted with the query trace, which TracingTestRunner turns
+ * on before the app opens its database. It is skipped unless run with it:
+ * ./gradlew connectedDebugAndroidTest -PqueryTrace \
+ *     -Pandroid.testInstrumentationRunnerArguments.class=com.pascm.fintrack.ui.NavigationQueryCountTest
+ *
+ * Every statement of the process counts (workers included), so each step first
+ * waits until no statement has run for QUIET_MS. The counts are logged under
+ * the tag "NavigationQueryCount".
+ */
+@RunWith(AndroidJUnit4.class)
+public class NavigationQueryCountTest {
+
+    private static final String TAG = "NavigationQueryCount";
+
+    /** A step is settled once no statement ran for this long */
+    private static final long QUIET_MS = 500;
+    private static final long SETTLE_TIMEOUT_MS = 10_000;
+
+    private Context context;
+    private ActivityScenario<MainActivity> scenario;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        assumeTrue("Query tracing is off: run with -PqueryTrace", QueryTrace.isInstalled());
+
+        InstrumentationRegistry.getInstrumentation().getUiAutomation().grantRuntimePermission(
+                context.getPackageName(), Manifest.permission.POST_NOTIFICATIONS);
+
+        FinTrackDatabase database = FinTrackDatabase.getDatabase(context);
+        User user = new User();
+        user.setEmail("nav-" + System.currentTimeMillis() + "@fintrack.test");
+        user.setUserId(database.userDao().insert(user));
+        SessionManager.login(context, user, "Navegación");
+
+        // An active trip, so Modo viaje and Viaje activo load everything they show
+        Trip trip = new Trip();
+        trip.setUserId(user.getUserId());
+        trip.setName("Viaje de prueba");
+        trip.setBudgetAmount(5_000.0);
+        trip.setStartDate(LocalDate.now().minusDays(2));
+        trip.setEndDate(LocalDate.now().plusDays(2));
+        trip.setStatus(Trip.TripStatus.ACTIVE);
+        long tripId = database.tripDao().insert(trip);
+        Transaction expense = new Transaction();
+        expense.setUserId(user.getUserId());
+        expense.setTripId(tripId);
+        expense.setAmount(250);
+        expense.setType(Transaction.TransactionType.EXPENSE);
+        expense.setStatus(Transaction.TransactionStatus.COMPLETED);
+        expense.setTransactionDate(Instant.now());
+        database.transactionDao().insert(expense);
+
+        // Logged in: the login screen goes straight to Home
+        scenario = ActivityScenario.launch(MainActivity.class);
+        settle();
+    }
+
+    @After
+    public void tearDown() {
+        if (scenario != null) {
+            scenario.close();
+            SessionManager.logout(context);
+        }
+    }
+
+    @Test
+    public void home_rotateAndBack_runNoStatements() {
+        assertEquals(R.id.homeFragment, currentDestination());
+        assertNoStatements("Rotate Home", () -> scenario.recreate());
+
+        navigate(R.id.action_home_to_reportes);
+        assertNoStatements("Back to Home", this::navigateUp);
+        assertEquals(R.id.homeFragment, currentDestination());
+    }
+
+    @Test
+    public void reportes_rotateAndBack_runNoStatements() {
+        navigate(R.id.action_home_to_reportes);
+        assertNoStatements("Rotate Reportes", () -> scenario.recreate());
+
+        navigate(R.id.action_reportes_to_transacciones_list);
+        assertNoStatements("Back to Reportes", this::navigateUp);
+        assertEquals(R.id.reportesFragment, currentDestination());
+    }
+
+    @Test
+    public void modoViaje_rotateAndBack_runNoStatements() {
+        navigate(R.id.action_home_to_modo_viaje);
+        assertNoStatements("Rotate Modo viaje", () -> scenario.recreate());
+
+        navigate(R.id.action_modo_viaje_to_viaje_activo);
+        assertNoStatements("Back to Modo viaje", this::navigateUp);
+        assertEquals(R.id.modoViajeFragment, currentDestination());
+    }
+
+    // ========== Helpers ==========
+
+    /**
+     * Run a step from a settled screen and assert it ran no statement
+     */
+    private void assertNoStatements(String step, Runnable action) {
+        QueryTrace.reset();
+        action.run();
+        settle();
+        long count = QueryTrace.statementCount();
+        Log.i(TAG, step + ": " + count + " statements");
+        assertEquals(step + " ran:\n" + QueryTrace.summary(20), 0, count);
+    }
+
+    private void navigate(int actionId) {
+        scenario.onActivity(activity -> navController(activity).navigate(actionId));
+        settle();
+    }
+
+    private void navigateUp() {
+        scenario.onActivity(activity -> navController(activity).navigateUp());
+    }
+
+    private int currentDestination() {
+        int[] id = new int[1];
+        scenario.onActivity(activity -> id[0] = navController(activity).getCurrentDestination().getId());
+        return id[0];
+    }
+
+    private static NavController navController(Activity activity) {
+        return Navigation.findNavController(activity, R.id.nav_host_fragment);
+    }
+
+    /**
+     * Wait for the main thread to go idle and then for QUIET_MS without a new statement
+     */
+    private void settle() {
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        long deadline = SystemClock.uptimeMillis() + SETTLE_TIMEOUT_MS;
+        long last = QueryTrace.statementCount();
+        long quietSince = SystemClock.uptimeMillis();
+        while (SystemClock.uptimeMillis() - quietSince < QUIET_MS) {
+            assertTrue("Statements never stopped running", SystemClock.uptimeMillis() < deadline);
+            SystemClock.sleep(50);
+            long count = QueryTrace.statementCount();
+            if (count != last) {
+                last = count;
+                quietSince = SystemClock.uptimeMillis();
+            }
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+}
@@ -3,125 +3,65 @@ package com.pascm.fintrack;
 import android.app.Application;
 import android.util.Log;
 
-import androidx.work.Constraints;
-import androidx.work.ExistingPeriodicWorkPolicy;
-import androidx.work.NetworkType;
-import androidx.work.PeriodicWorkRequest;
-import androidx.work.WorkManager;
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
 
-import com.pascm.fintrack.worker.CardPaymentNotificationWorker;
-import com.pascm.fintrack.worker.CreditCardNotificationWorker;
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.repository.RollupZone;
+import com.pascm.fintrack.util.SessionManager;
+import com.pascm.fintrack.worker.CardReminderWorker;
+import com.pascm.fintrack.worker.PullWorker;
+import com.pascm.fintrack.worker.SyncWorker;
 
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
 
 /**
  * Custom Application class for FinTrack
- * Initializes WorkManager for credit card notifications
+ * Initializes WorkManager for credit card notifications and Firestore sync
  */
 public class FinTrackApplication extends Application {
 
     private static final String TAG = "FinTrackApplication";
-    private static final String CREDIT_CARD_NOTIFICATION_WORK = "credit_card_notification_work";
-    private static final String CARD_PAYMENT_NOTIFICATION_WORK = "card_payment_notification_work";
 
     @Override
     public void onCreate() {
         super.onCreate();
         Log.d(TAG, "Application onCreate");
 
-        // Initialize periodic work for credit card notifications
-        scheduleCreditCardNotifications();
+        // Load the session off the main thread before the first screen asks for it
+        SessionManager.init(this);
 
-        // Initialize periodic work for card payment notifications
-        scheduleCardPaymentNotifications();
-    }
-
-    /**
-     * Schedules a daily worker to check credit card dates and send notifications
-     */
-    private void scheduleCreditCardNotifications() {
-        Log.d(TAG, "Scheduling credit card notifications");
-
-        // Create constraints - no network required
-        Constraints constraints = new Constraints.Builder()
-                .setRequiresBatteryNotLow(false)
-                .setRequiresCharging(false)
-                .setRequiresDeviceIdle(false)
-                .setRequiresStorageNotLow(false)
-                .setRequiredNetworkType(NetworkType.NOT_REQUIRED)
-                .build();
+        // Credit card statement and payment reminders (one-shot alarm at the next date)
+        CardReminderWorker.start(this);
 
-        // Create periodic work request - runs once every 24 hours
-        PeriodicWorkRequest workRequest = new PeriodicWorkRequest.Builder(
-                CreditCardNotificationWorker.class,
-                1, // repeat interval
-                TimeUnit.DAYS // time unit
-        )
-                .setConstraints(constraints)
-                .setInitialDelay(1, TimeUnit.HOURS) // Wait 1 hour before first run
-                .build();
+        // Rebuild the day rollups (reports, trip spend) if the time zone changed
+        RollupZone.start(this);
 
-        // Enqueue the work request
-        // KEEP policy ensures we don't duplicate the work if it already exists
-        WorkManager.getInstance(this).enqueueUniquePeriodicWork(
-                CREDIT_CARD_NOTIFICATION_WORK,
-                ExistingPeriodicWorkPolicy.KEEP,
-                workRequest
-        );
+        // Push local changes to Firestore whenever the sync queue changes
+        startOutboxSync();
 
-        Log.d(TAG, "Credit card notifications scheduled successfully");
-    }
-
-    /**
-     * Schedules a daily worker to check card payment dates and send notifications
-     */
-    private void scheduleCardPaymentNotifications() {
-        Log.d(TAG, "Scheduling card payment notifications");
-
-        // Create constraints - no network required
-        Constraints constraints = new Constraints.Builder()
-                .setRequiresBatteryNotLow(false)
-                .setRequiresCharging(false)
-                .setRequiresDeviceIdle(false)
-                .setRequiresStorageNotLow(false)
-                .setRequiredNetworkType(NetworkType.NOT_REQUIRED)
-                .build();
-
-        // Create periodic work request - runs once every 24 hours at 9 AM (approximately)
-        PeriodicWorkRequest workRequest = new PeriodicWorkRequest.Builder(
-                CardPaymentNotificationWorker.class,
-                1, // repeat interval
-                TimeUnit.DAYS // time unit
-        )
-                .setConstraints(constraints)
-                .setInitialDelay(1, TimeUnit.HOURS) // Wait 1 hour before first run
-                .build();
-
-        // Enqueue the work request
-        // KEEP policy ensures we don't duplicate the work if it already exists
-        WorkManager.getInstance(this).enqueueUniquePeriodicWork(
-                CARD_PAYMENT_NOTIFICATION_WORK,
-                ExistingPeriodicWorkPolicy.KEEP,
-                workRequest
-        );
-
-        Log.d(TAG, "Card payment notifications scheduled successfully");
-    }
-
-    /**
-     * Cancels all scheduled credit card notifications
-     * Can be called when user disables notifications in settings
-     */
-    public static void cancelCreditCardNotifications(Application application) {
-        Log.d(TAG, "Cancelling credit card notifications");
-        WorkManager.getInstance(application).cancelUniqueWork(CREDIT_CARD_NOTIFICATION_WORK);
+        // Download remote changes made since the last pull
+        PullWorker.requestPull(this);
     }
 
     /**
-     * Cancels all scheduled card payment notifications
+     * Requests a sync now (for changes queued in a previous session) and every
+     * time a write adds rows to pending_actions. The observer runs after the
+     * write commits, so the worker always sees the new rows.
+     *
+     * The database is opened on a background thread: getDatabase() may read the
+     * debug settings, which is disk I/O.
      */
-    public static void cancelCardPaymentNotifications(Application application) {
-        Log.d(TAG, "Cancelling card payment notifications");
-        WorkManager.getInstance(application).cancelUniqueWork(CARD_PAYMENT_NOTIFICATION_WORK);
+    private void startOutboxSync() {
+        SyncWorker.requestSync(this);
+
+        FinTrackDatabase.databaseReadExecutor.execute(() ->
+                FinTrackDatabase.getDatabase(this).getInvalidationTracker().addObserver(
+                        new InvalidationTracker.Observer("pending_actions") {
+                            @Override
+                            public void onInvalidated(@NonNull Set<String> tables) {
+                                SyncWorker.requestSync(FinTrackApplication.this);
+                            }
+                        }));
     }
 }
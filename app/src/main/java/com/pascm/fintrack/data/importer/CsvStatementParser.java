@@ -0,0 +1,247 @@
+package com.pascm.fintrack.data.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streaming parser of bank statement CSV exports.
+ *
+ * - The delimiter (comma, semicolon or tab) is detected from the start of the file.
+ * - Lines before the header (account number, period...) are skipped: the header
+ *   is the first record, within the first MAX_PREAMBLE_RECORDS, that names a
+ *   date column and either an amount column or debit/credit columns, in
+ *   Spanish or English ("Fecha", "Concepto", "Cargo", "Abono", "Amount"...).
+ * - Quoted fields may hold delimiters, doubled quotes and line breaks.
+ * - With one amount column its sign is kept; with debit and credit columns the
+ *   movement is credit - debit.
+ */
+public final class CsvStatementParser implements StatementParser {
+
+    private static final int MAX_PREAMBLE_RECORDS = 30;
+    private static final int SNIFF_CHARS = 4096;
+
+    private final Reader in;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private char delimiter;
+
+    private final List<String> record = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+
+    private boolean headerRead;
+    private int dateColumn = -1;
+    private int descriptionColumn = -1;
+    private int amountColumn = -1;
+    private int debitColumn = -1;
+    private int creditColumn = -1;
+    private int skippedRows;
+
+    public CsvStatementParser(Reader in) {
+        this.in = in;
+    }
+
+    @Override
+    public StatementRow next() throws IOException {
+        if (!headerRead) {
+            detectDelimiter();
+            readHeader();
+            headerRead = true;
+        }
+        while (readRecord()) {
+            if (isBlank(record)) continue;
+            StatementRow row = toRow();
+            if (row != null) {
+                return row;
+            }
+            skippedRows++;
+        }
+        return null;
+    }
+
+    @Override
+    public int getSkippedRows() {
+        return skippedRows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // ========== Header ==========
+
+    private void detectDelimiter() throws IOException {
+        fill();
+        // UTF-8 byte order mark, as Excel writes it
+        if (limit > 0 && buffer[0] == '\uFEFF') {
+            position = 1;
+        }
+        int commas = 0, semicolons = 0, tabs = 0;
+        boolean quoted = false;
+        for (int i = 0; i < Math.min(limit, SNIFF_CHARS); i++) {
+            char c = buffer[i];
+            if (c == '"') quoted = !quoted;
+            if (quoted) continue;
+            if (c == ',') commas++;
+            else if (c == ';') semicolons++;
+            else if (c == '\t') tabs++;
+        }
+        delimiter = tabs > commas && tabs > semicolons ? '\t' : semicolons > commas ? ';' : ',';
+    }
+
+    private void readHeader() throws IOException {
+        for (int i = 0; i < MAX_PREAMBLE_RECORDS && readRecord(); i++) {
+            if (mapColumns()) {
+                return;
+            }
+        }
+        throw new IOException("No se encontró el encabezado del estado de cuenta (fecha y monto)");
+    }
+
+    /**
+     * Map the columns if the current record is the header
+     */
+    private boolean mapColumns() {
+        int date = -1, description = -1, amount = -1, debit = -1, credit = -1;
+        for (int i = 0; i < record.size(); i++) {
+            String name = normalize(record.get(i));
+            if (name.isEmpty()) continue;
+            if (date < 0 && (name.startsWith("fecha") || name.contains("date"))) {
+                date = i;
+            } else if (description < 0 && (name.contains("descripcion") || name.contains("concepto")
+                    || name.contains("description") || name.contains("detalle") || name.contains("memo")
+                    || name.contains("payee") || name.equals("nombre"))) {
+                description = i;
+            } else if (debit < 0 && (name.startsWith("cargo") || name.startsWith("retiro")
+                    || name.startsWith("debit") || name.startsWith("withdrawal"))) {
+                debit = i;
+            } else if (credit < 0 && (name.startsWith("abono") || name.startsWith("deposit")
+                    || name.startsWith("credit"))) {
+                credit = i;
+            } else if (amount < 0 && (name.startsWith("monto") || name.startsWith("importe")
+                    || name.startsWith("amount") || name.startsWith("cantidad"))) {
+                amount = i;
+            }
+        }
+        if (date < 0 || (amount < 0 && debit < 0 && credit < 0)) {
+            return false;
+        }
+        dateColumn = date;
+        descriptionColumn = description;
+        amountColumn = amount;
+        debitColumn = debit;
+        creditColumn = credit;
+        return true;
+    }
+
+    /**
+     * Lower case header name without accents or surrounding spaces
+     */
+    private static String normalize(String name) {
+        String decomposed = Normalizer.normalize(name.trim(), Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                out.append(c);
+            }
+        }
+        return out.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // ========== Rows ==========
+
+    private StatementRow toRow() {
+        LocalDate date = StatementValues.parseDate(column(dateColumn));
+        if (date == null) return null;
+
+        double amount;
+        if (amountColumn >= 0 && !column(amountColumn).isEmpty()) {
+            amount = StatementValues.parseAmount(column(amountColumn));
+        } else {
+            double debit = StatementValues.parseAmount(column(debitColumn));
+            double credit = StatementValues.parseAmount(column(creditColumn));
+            if (Double.isNaN(debit) && Double.isNaN(credit)) return null;
+            amount = (Double.isNaN(credit) ? 0 : Math.abs(credit)) - (Double.isNaN(debit) ? 0 : Math.abs(debit));
+        }
+        if (Double.isNaN(amount) || amount == 0) return null;
+
+        return new StatementRow(date, amount, column(descriptionColumn).trim());
+    }
+
+    private String column(int index) {
+        return index >= 0 && index < record.size() ? record.get(index) : "";
+    }
+
+    private static boolean isBlank(List<String> record) {
+        for (String value : record) {
+            if (!value.trim().isEmpty()) return false;
+        }
+        return true;
+    }
+
+    // ========== Records ==========
+
+    /**
+     * Read the next record into {@link #record}
+     *
+     * @return false at the end of the input
+     */
+    private boolean readRecord() throws IOException {
+        record.clear();
+        field.setLength(0);
+        if (!ensure()) return false;
+
+        boolean quoted = false;
+        boolean fieldWasQuoted = false;
+        while (ensure()) {
+            char c = buffer[position++];
+            if (quoted) {
+                if (c == '"') {
+                    if (ensure() && buffer[position] == '"') {
+                        field.append('"');
+                        position++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0 && !fieldWasQuoted) {
+                quoted = true;
+                fieldWasQuoted = true;
+            } else if (c == delimiter) {
+                record.add(field.toString());
+                field.setLength(0);
+                fieldWasQuoted = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && ensure() && buffer[position] == '\n') {
+                    position++;
+                }
+                break;
+            } else {
+                field.append(c);
+            }
+        }
+        record.add(field.toString());
+        return true;
+    }
+
+    private boolean ensure() throws IOException {
+        return position < limit || fill();
+    }
+
+    private boolean fill() throws IOException {
+        if (position < limit) return true;
+        int read = in.read(buffer, 0, buffer.length);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+}
@@ -0,0 +1,122 @@
+package com.pascm.fintrack.data.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+
+/**
+ * Streaming parser of OFX/QFX statements, both OFX 1.x (SGML, leaf elements
+ * without closing tags) and OFX 2.x (XML).
+ *
+ * Reads the STMTTRN elements of bank and credit card statements:
+ * DTPOSTED is the date, TRNAMT the signed amount, NAME (or MEMO) the description.
+ */
+public final class OfxStatementParser implements StatementParser {
+
+    private final Reader in;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+
+    private final StringBuilder tag = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+    private int skippedRows;
+
+    public OfxStatementParser(Reader in) {
+        this.in = in;
+    }
+
+    @Override
+    public StatementRow next() throws IOException {
+        boolean inTransaction = false;
+        String posted = null, amount = null, name = null, memo = null;
+
+        while (nextTag()) {
+            String element = tag.toString();
+            if (element.equalsIgnoreCase("STMTTRN")) {
+                inTransaction = true;
+                posted = amount = name = memo = null;
+            } else if (element.equalsIgnoreCase("/STMTTRN")) {
+                if (!inTransaction) continue;
+                inTransaction = false;
+                LocalDate date = StatementValues.parseDate(posted);
+                double value = StatementValues.parseAmount(amount);
+                if (date == null || Double.isNaN(value) || value == 0) {
+                    skippedRows++;
+                    continue;
+                }
+                String description = name != null && !name.isEmpty() ? name : memo != null ? memo : "";
+                return new StatementRow(date, value, description);
+            } else if (inTransaction) {
+                String value = readText();
+                if (element.equalsIgnoreCase("DTPOSTED")) {
+                    posted = value;
+                } else if (element.equalsIgnoreCase("TRNAMT")) {
+                    amount = value;
+                } else if (element.equalsIgnoreCase("NAME")) {
+                    name = unescape(value);
+                } else if (element.equalsIgnoreCase("MEMO")) {
+                    memo = unescape(value);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getSkippedRows() {
+        return skippedRows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Advance to the next tag and read its name into {@link #tag}
+     *
+     * @return false at the end of the input
+     */
+    private boolean nextTag() throws IOException {
+        while (ensure()) {
+            if (buffer[position++] == '<') {
+                tag.setLength(0);
+                while (ensure()) {
+                    char c = buffer[position++];
+                    if (c == '>') return true;
+                    tag.append(c);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Text after the current tag, up to the next tag or line break
+     */
+    private String readText() throws IOException {
+        text.setLength(0);
+        while (ensure()) {
+            char c = buffer[position];
+            if (c == '<' || c == '\n' || c == '\r') break;
+            text.append(c);
+            position++;
+        }
+        return text.toString().trim();
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('&') < 0) return value;
+        return value.replace("&lt;", "<").replace("&gt;", ">")
+                .replace("&quot;", "\"").replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    private boolean ensure() throws IOException {
+        if (position < limit) return true;
+        int read = in.read(buffer, 0, buffer.length);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+}
@@ -0,0 +1,368 @@
+package com.pascm.fintrack.data.importer;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.repository.TransactionRepository;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Imports bank statements (CSV or OFX) as transactions paid with one card,
+ * account or cash.
+ *
+ * The file is streamed: rows are parsed one at a time and handled in chunks of
+ * CHUNK_SIZE. For each chunk:
+ * - rows already in the database are dropped. A row is a duplicate when an
+ *   existing transaction has the same TransactionFingerprint (day, signed
+ *   amount, card or account, normalized notes). The fingerprints of the existing
+ *   rows are read once per day range with one scan of the (user_id,
+ *   transaction_date) index and kept in a hash index with a count per
+ *   fingerprint. Each existing row absorbs one statement row, so importing a
+ *   file twice adds nothing, while two identical movements in one file (two
+ *   coffees on the same day) are both kept.
+ * - the remaining rows are posted with TransactionRepository.postTransactionsSync,
+ *   which inserts them with insertAll in one transaction, applies them to the
+ *   balance of the card or account, and queues them for sync.
+ *
+ * Statements are sorted by date, so each chunk extends the loaded day range
+ * on one side only.
+ */
+public class StatementImporter {
+
+    private static final String TAG = "StatementImporter";
+
+    /** Rows per insert transaction */
+    static final int CHUNK_SIZE = 1_000;
+
+    private static final int SNIFF_BYTES = 1024;
+
+    /** Time of day given to imported rows, which only have a date */
+    private static final LocalTime IMPORT_TIME = LocalTime.NOON;
+
+    /** One import at a time */
+    private static final ExecutorService importExecutor = Executors.newSingleThreadExecutor();
+
+    private final Context context;
+    private final TransactionDao transactionDao;
+    private final TransactionRepository transactionRepository;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    public StatementImporter(Context context) {
+        this(context, FinTrackDatabase.getDatabase(context));
+    }
+
+    /**
+     * Importer into a given database. Public for the benchmark module.
+     */
+    @VisibleForTesting
+    public StatementImporter(Context context, FinTrackDatabase database) {
+        this.context = context.getApplicationContext();
+        this.transactionDao = database.transactionDao();
+        this.transactionRepository = new TransactionRepository(database);
+    }
+
+    // ========== Import ==========
+
+    /**
+     * Import a statement file in the background.
+     * The callback is invoked on the import thread.
+     */
+    public void importStatement(Uri uri, long userId, Target target, ImportCallback callback) {
+        importExecutor.execute(() -> {
+            Result result;
+            try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("No se pudo abrir el archivo");
+                }
+                result = importSync(in, userId, target, callback);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error importing statement", e);
+                callback.onError(e.getMessage());
+                return;
+            }
+            callback.onComplete(result);
+        });
+    }
+
+    /**
+     * Import a statement (synchronous). Chunks committed before an error stay imported;
+     * importing the file again skips them as duplicates.
+     *
+     * WARNING: Don't call on main thread!
+     *
+     * @param listener Progress after each chunk, may be null
+     */
+    public Result importSync(InputStream input, long userId, Target target, ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        ExistingRows existing = new ExistingRows(userId, target.paymentKey());
+
+        try (StatementParser parser = open(input)) {
+            List<StatementRow> rows = new ArrayList<>(CHUNK_SIZE);
+            StatementRow row;
+            while ((row = parser.next()) != null) {
+                rows.add(row);
+                if (rows.size() == CHUNK_SIZE) {
+                    importChunk(rows, userId, target, existing, result);
+                    rows.clear();
+                    if (listener != null) listener.onProgress(result.rowsRead, result.imported, result.duplicates);
+                }
+            }
+            if (!rows.isEmpty()) {
+                importChunk(rows, userId, target, existing, result);
+                if (listener != null) listener.onProgress(result.rowsRead, result.imported, result.duplicates);
+            }
+            result.skipped = parser.getSkippedRows();
+        }
+
+        result.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        Log.i(TAG, "Imported " + result.imported + " of " + result.rowsRead + " rows ("
+                + result.duplicates + " duplicates, " + result.skipped + " unreadable) in "
+                + result.elapsedMillis + " ms");
+        return result;
+    }
+
+    private void importChunk(List<StatementRow> rows, long userId, Target target,
+                             ExistingRows existing, Result result) {
+        LocalDate from = rows.get(0).date;
+        LocalDate to = from;
+        for (StatementRow row : rows) {
+            if (row.date.isBefore(from)) from = row.date;
+            if (row.date.isAfter(to)) to = row.date;
+        }
+        existing.load(from, to);
+
+        String paymentKey = target.paymentKey();
+        List<Transaction> transactions = new ArrayList<>(rows.size());
+        for (StatementRow row : rows) {
+            long fingerprint = TransactionFingerprint.of(row.date,
+                    TransactionFingerprint.toCents(row.amount), paymentKey, row.description);
+            if (existing.consume(fingerprint)) {
+                result.duplicates++;
+            } else {
+                transactions.add(toTransaction(row, userId, target));
+            }
+        }
+        result.rowsRead += rows.size();
+
+        if (!transactions.isEmpty()) {
+            transactionRepository.postTransactionsSync(transactions);
+            result.imported += transactions.size();
+        }
+    }
+
+    private Transaction toTransaction(StatementRow row, long userId, Target target) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setType(row.amount < 0
+                ? Transaction.TransactionType.EXPENSE
+                : Transaction.TransactionType.INCOME);
+        transaction.setAmount(Math.abs(row.amount));
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transaction.setTransactionDate(row.date.atTime(IMPORT_TIME).atZone(zone).toInstant());
+        transaction.setNotes(row.description.isEmpty() ? null : row.description);
+        transaction.setCardType(target.cardType);
+        transaction.setCardId(target.cardId);
+        transaction.setAccountId(target.accountId);
+        return transaction;
+    }
+
+    // ========== Format detection ==========
+
+    /**
+     * Parser for the file's format (OFX by its header, CSV otherwise) and encoding
+     * (UTF-8 if the start of the file is valid UTF-8, Windows-1252 otherwise, as
+     * Excel and older OFX exports write it)
+     */
+    static StatementParser open(InputStream input) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(input, 64 * 1024);
+        in.mark(SNIFF_BYTES);
+        byte[] head = new byte[SNIFF_BYTES];
+        int length = 0;
+        int read;
+        while (length < head.length && (read = in.read(head, length, head.length - length)) > 0) {
+            length += read;
+        }
+        in.reset();
+
+        Charset charset = isUtf8(head, length) ? StandardCharsets.UTF_8 : Charset.forName("windows-1252");
+        String start = new String(head, 0, length, charset).toUpperCase(Locale.ROOT);
+        Reader reader = new InputStreamReader(in, charset);
+        if (start.contains("OFXHEADER") || start.contains("<OFX>")) {
+            return new OfxStatementParser(reader);
+        }
+        return new CsvStatementParser(reader);
+    }
+
+    private static boolean isUtf8(byte[] bytes, int length) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // Not the end of input: a character cut at the sample boundary is fine
+        CharBuffer out = CharBuffer.allocate(length);
+        return !decoder.decode(ByteBuffer.wrap(bytes, 0, length), out, false).isError();
+    }
+
+    // ========== Existing rows ==========
+
+    /**
+     * Hash index of the fingerprints of the user's rows over a growing day range,
+     * with how many statement rows each can still absorb
+     */
+    private class ExistingRows {
+        private final long userId;
+        private final String paymentKey;
+        private final Map<Long, Integer> counts = new HashMap<>();
+        private LocalDate loadedFrom;
+        private LocalDate loadedTo;
+
+        ExistingRows(long userId, String paymentKey) {
+            this.userId = userId;
+            this.paymentKey = paymentKey;
+        }
+
+        void load(LocalDate from, LocalDate to) {
+            if (loadedFrom == null) {
+                read(from, to);
+                loadedFrom = from;
+                loadedTo = to;
+                return;
+            }
+            if (from.isBefore(loadedFrom)) {
+                read(from, loadedFrom.minusDays(1));
+                loadedFrom = from;
+            }
+            if (to.isAfter(loadedTo)) {
+                read(loadedTo.plusDays(1), to);
+                loadedTo = to;
+            }
+        }
+
+        private void read(LocalDate from, LocalDate to) {
+            long start = from.atStartOfDay(zone).toInstant().toEpochMilli();
+            long end = to.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1;
+            for (TransactionDao.FingerprintRow row : transactionDao.getFingerprintRowsSync(userId, start, end)) {
+                String payment = TransactionFingerprint.paymentKey(row.card_type, row.card_id, row.account_id);
+                // Rows paid with something else can never match
+                if (!payment.equals(paymentKey)) continue;
+
+                LocalDate date = Instant.ofEpochMilli(row.transaction_date).atZone(zone).toLocalDate();
+                long cents = TransactionFingerprint.toCents(row.amount);
+                long signedCents = "INCOME".equals(row.type) ? cents : -cents;
+                counts.merge(TransactionFingerprint.of(date, signedCents, payment, row.notes), 1, Integer::sum);
+            }
+        }
+
+        /**
+         * Whether an existing row matches, using it up
+         */
+        boolean consume(long fingerprint) {
+            Integer count = counts.get(fingerprint);
+            if (count == null) return false;
+            if (count == 1) {
+                counts.remove(fingerprint);
+            } else {
+                counts.put(fingerprint, count - 1);
+            }
+            return true;
+        }
+    }
+
+    // ========== Types ==========
+
+    /**
+     * What the imported movements were paid with
+     */
+    public static final class Target {
+        final String cardType;
+        final Long cardId;
+        final Long accountId;
+
+        private Target(String cardType, Long cardId, Long accountId) {
+            this.cardType = cardType;
+            this.cardId = cardId;
+            this.accountId = accountId;
+        }
+
+        public static Target creditCard(long cardId) {
+            return new Target("CREDIT", cardId, null);
+        }
+
+        public static Target debitCard(long cardId, long accountId) {
+            return new Target("DEBIT", cardId, accountId);
+        }
+
+        public static Target account(long accountId) {
+            return new Target(null, null, accountId);
+        }
+
+        /**
+         * Cash, kept in the user's CASH account like movements entered in the app
+         * (card type "CASH" plus that account), so the import moves the cash
+         * balance and is deduplicated against those movements
+         */
+        public static Target cash(long cashAccountId) {
+            return new Target("CASH", null, cashAccountId);
+        }
+
+        String paymentKey() {
+            return TransactionFingerprint.paymentKey(cardType, cardId, accountId);
+        }
+    }
+
+    /**
+     * Counts of an import
+     */
+    public static final class Result {
+        /** Movements read from the file */
+        public int rowsRead;
+        /** Movements inserted */
+        public int imported;
+        /** Movements already in the database */
+        public int duplicates;
+        /** Rows that could not be read (no date or amount) */
+        public int skipped;
+        public long elapsedMillis;
+    }
+
+    public interface ProgressListener {
+        void onProgress(int rowsRead, int imported, int duplicates);
+    }
+
+    /**
+     * Callback for importStatement
+     */
+    public interface ImportCallback extends ProgressListener {
+        void onComplete(Result result);
+
+        void onError(String error);
+    }
+}
@@ -0,0 +1,24 @@
+package com.pascm.fintrack.data.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streaming reader of the movements in a bank statement file.
+ * Rows are parsed one at a time, so a file of any size is read in constant memory.
+ */
+public interface StatementParser extends Closeable {
+
+    /**
+     * Next movement, or null at the end of the file.
+     * Rows that cannot be read (no date or amount) are skipped and counted.
+     *
+     * @throws IOException If the file cannot be read or is not a statement
+     */
+    StatementRow next() throws IOException;
+
+    /**
+     * Rows skipped so far because they could not be read
+     */
+    int getSkippedRows();
+}
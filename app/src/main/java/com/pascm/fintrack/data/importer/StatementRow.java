@@ -0,0 +1,24 @@
+package com.pascm.fintrack.data.importer;
+
+import java.time.LocalDate;
+
+/**
+ * One movement read from a bank statement, before it is mapped to a Transaction
+ */
+public final class StatementRow {
+
+    /** Day the movement was posted */
+    public final LocalDate date;
+
+    /** Signed amount: negative for money out (expenses, card charges), positive for money in */
+    public final double amount;
+
+    /** Description as printed by the bank, may be empty */
+    public final String description;
+
+    public StatementRow(LocalDate date, double amount, String description) {
+        this.date = date;
+        this.amount = amount;
+        this.description = description;
+    }
+}
@@ -0,0 +1,138 @@
+package com.pascm.fintrack.data.importer;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Lenient parsing of the dates and amounts found in bank statements
+ */
+final class StatementValues {
+
+    private StatementValues() {
+    }
+
+    /**
+     * Date in any of the usual statement forms, or null:
+     * - year first: 2024-01-31, 2024/01/31, 20240131 (OFX), with or without a time after it
+     * - day first, as Mexican banks write it: 31/01/2024, 31-01-24, 31.01.2024
+     * - month first when the day first reading is impossible: 01/31/2024
+     */
+    static LocalDate parseDate(String text) {
+        if (text == null) return null;
+        text = text.trim();
+        int[] parts = new int[3];
+        int[] digits = new int[3];
+        int part = 0;
+        int i = 0;
+        int length = text.length();
+
+        // Compact yyyyMMdd[hhmmss...]
+        if (length >= 8 && isDigits(text, 0, 8)) {
+            return date(Integer.parseInt(text.substring(0, 4)),
+                    Integer.parseInt(text.substring(4, 6)),
+                    Integer.parseInt(text.substring(6, 8)));
+        }
+
+        while (i < length && part < 3) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                parts[part] = parts[part] * 10 + (c - '0');
+                if (++digits[part] > 4) return null;
+            } else if ((c == '/' || c == '-' || c == '.') && digits[part] > 0) {
+                part++;
+            } else if (c == ' ' || c == 'T') {
+                // Time after the date
+                break;
+            } else {
+                return null;
+            }
+            i++;
+        }
+        if (part < 2 || digits[2] == 0) return null;
+
+        if (digits[0] == 4) {
+            return date(parts[0], parts[1], parts[2]);
+        }
+        int year = digits[2] == 2 ? 2000 + parts[2] : parts[2];
+        if (parts[1] > 12 && parts[0] <= 12) {
+            return date(year, parts[0], parts[1]);
+        }
+        return date(year, parts[1], parts[0]);
+    }
+
+    /**
+     * Amount with optional currency sign, thousands separators, decimal comma,
+     * minus sign (leading or trailing) or parentheses for negatives.
+     *
+     * @return The amount, or NaN if there is none
+     */
+    static double parseAmount(String text) {
+        if (text == null) return Double.NaN;
+        StringBuilder number = new StringBuilder(text.length());
+        boolean negative = false;
+        int lastComma = -1;
+        int lastDot = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number.append(c);
+            } else if (c == ',') {
+                lastComma = number.length();
+                number.append(c);
+            } else if (c == '.') {
+                lastDot = number.length();
+                number.append(c);
+            } else if (c == '-' || c == '(' || c == '\u2212') {
+                negative = true;
+            }
+            // Currency signs, codes, spaces and '+' are ignored
+        }
+        if (number.length() == 0) return Double.NaN;
+
+        // The last separator is the decimal one, unless a lone comma or dot
+        // is followed by exactly three digits (a thousands separator)
+        int decimal = Math.max(lastComma, lastDot);
+        if (decimal >= 0 && (lastComma < 0 || lastDot < 0)) {
+            char separator = number.charAt(decimal);
+            boolean repeated = number.indexOf(String.valueOf(separator)) != decimal;
+            if (repeated || number.length() - decimal - 1 == 3) {
+                decimal = -1;
+            }
+        }
+
+        StringBuilder plain = new StringBuilder(number.length());
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                plain.append(c);
+            } else if (i == decimal) {
+                plain.append('.');
+            }
+        }
+        if (plain.length() == 0 || ".".contentEquals(plain)) {
+            return Double.NaN;
+        }
+        try {
+            double value = Double.parseDouble(plain.toString());
+            return negative ? -value : value;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static boolean isDigits(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static LocalDate date(int year, int month, int day) {
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.pascm.fintrack.data.importer;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+
+/**
+ * Duplicate key of a transaction for statement imports: the local day, the
+ * signed amount in cents, what it was paid with and the normalized notes,
+ * hashed to 64 bits.
+ *
+ * Notes are compared case, accent and punctuation insensitive
+ * ("PAGO OXXO #123" and "Pago Oxxo 123" match), since the same movement is
+ * often written differently by the bank's CSV and OFX exports.
+ */
+public final class TransactionFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private TransactionFingerprint() {
+    }
+
+    /**
+     * @param signedCents Amount in cents, negative for expenses
+     * @param payment     What it was paid with, see paymentKey()
+     * @param notes       Notes or description, may be null
+     */
+    public static long of(LocalDate date, long signedCents, String payment, String notes) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, date.toEpochDay());
+        hash = mix(hash, signedCents);
+        hash = mix(hash, payment);
+        return mix(hash, normalizeNotes(notes));
+    }
+
+    /**
+     * Card if the transaction has one, else its account, else cash
+     */
+    public static String paymentKey(String cardType, Long cardId, Long accountId) {
+        if (cardId != null) {
+            return (cardType != null ? cardType : "CARD") + ":" + cardId;
+        }
+        if (accountId != null) {
+            return "ACCOUNT:" + accountId;
+        }
+        return "CASH";
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Lower case, no accents, letters and digits only, single spaces
+     */
+    static String normalizeNotes(String notes) {
+        if (notes == null || notes.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(notes, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (space && out.length() > 0) out.append(' ');
+                space = false;
+                out.append(Character.toLowerCase(c));
+            } else {
+                space = true;
+            }
+        }
+        return out.toString();
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash ^= c & 0xFF;
+            hash *= FNV_PRIME;
+            hash ^= c >>> 8;
+            hash *= FNV_PRIME;
+        }
+        // Field separator, so ("ab", "c") and ("a", "bc") differ
+        hash ^= 0xFF;
+        return hash * FNV_PRIME;
+    }
+}
@@ -1,8 +1,11 @@
 package com.pascm.fintrack.data.local;
 
 import android.content.Context;
+import android.database.SQLException;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
@@ -10,6 +13,7 @@ import androidx.room.TypeConverters;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.pascm.fintrack.BuildConfig;
 import com.pascm.fintrack.data.local.converters.Converters;
 import com.pascm.fintrack.data.local.dao.AccountDao;
 import com.pascm.fintrack.data.local.dao.CategoryDao;
@@ -21,7 +25,9 @@ import com.pascm.fintrack.data.local.dao.MerchantDao;
 import com.pascm.fintrack.data.local.dao.NotificationDao;
 import com.pascm.fintrack.data.local.dao.SyncDao;
 import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.dao.TransactionRollupDao;
 import com.pascm.fintrack.data.local.dao.TripDao;
+import com.pascm.fintrack.data.local.dao.TripRollupDao;
 import com.pascm.fintrack.data.local.dao.UserDao;
 import com.pascm.fintrack.data.local.entity.Account;
 import com.pascm.fintrack.data.local.entity.Category;
@@ -32,11 +38,16 @@ import com.pascm.fintrack.data.local.entity.GroupMemberEntity;
 import com.pascm.fintrack.data.local.entity.Merchant;
 import com.pascm.fintrack.data.local.entity.NotificationEntity;
 import com.pascm.fintrack.data.local.entity.PendingAction;
+import com.pascm.fintrack.data.local.entity.SyncCursor;
 import com.pascm.fintrack.data.local.entity.SyncState;
 import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.TransactionRollup;
+import com.pascm.fintrack.data.local.entity.TransactionSearchEntry;
 import com.pascm.fintrack.data.local.entity.Trip;
+import com.pascm.fintrack.data.local.entity.TripRollup;
 import com.pascm.fintrack.data.local.entity.User;
 import com.pascm.fintrack.data.local.entity.UserProfile;
+import com.pascm.fintrack.data.local.trace.QueryTrace;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -85,6 +96,11 @@ import java.util.concurrent.Executors;
                 Category.class,
                 Merchant.class,
 
+                // Report aggregates and search index (maintained by triggers)
+                TransactionRollup.class,
+                TransactionSearchEntry.class,
+                TripRollup.class,
+
                 // Trip management
                 Trip.class,
 
@@ -97,7 +113,8 @@ import java.util.concurrent.Executors;
 
                 // Sync infrastructure
                 SyncState.class,
-                PendingAction.class
+                PendingAction.class,
+                SyncCursor.class
 
                 // TODO: Add remaining entities in future versions
                 // Subcategory.class,
@@ -112,7 +129,7 @@ import java.util.concurrent.Executors;
                 // AuditLog.class,
                 // AttachmentLocal.class
         },
-        version = 8,
+        version = 19,
         exportSchema = false
 )
 @TypeConverters({Converters.class})
@@ -180,6 +197,16 @@ public abstract class FinTrackDatabase extends RoomDatabase {
      */
     public abstract NotificationDao notificationDao();
 
+    /**
+     * DAO for TransactionRollup table (report aggregates)
+     */
+    public abstract TransactionRollupDao transactionRollupDao();
+
+    /**
+     * DAO for TripRollup table (per-trip aggregates)
+     */
+    public abstract TripRollupDao tripRollupDao();
+
     // TODO: Add remaining DAOs as they are created
     // public abstract BudgetDao budgetDao();
     // public abstract ReminderDao reminderDao();
@@ -189,15 +216,29 @@ public abstract class FinTrackDatabase extends RoomDatabase {
     private static volatile FinTrackDatabase INSTANCE;
 
     /**
-     * Thread pool for async database operations.
+     * Single-writer queue for async database writes.
      * Use this executor for all write operations to avoid blocking the main thread.
+     * Database-only work queued close together is committed in one transaction;
+     * plain tasks run alone (see WriteQueue).
+     *
+     * Example:
+     * FinTrackDatabase.databaseWriteExecutor.execute(
+     *         () -> userDao().insert(user),
+     *         () -> callback.onSaved());
+     */
+    public static final WriteQueue databaseWriteExecutor = new WriteQueue();
+
+    /**
+     * Thread pool for async database reads (also runs Room's LiveData queries).
+     * Reads run in parallel with each other and with the writer (WAL).
      *
      * Example:
-     * FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-     *     userDao().insert(user);
+     * FinTrackDatabase.databaseReadExecutor.execute(() -> {
+     *     List<Account> accounts = accountDao().getAllByUserSync(userId);
+     *     ...
      * });
      */
-    public static final ExecutorService databaseWriteExecutor =
+    public static final ExecutorService databaseReadExecutor =
             Executors.newFixedThreadPool(4);
 
     /**
@@ -212,25 +253,52 @@ public abstract class FinTrackDatabase extends RoomDatabase {
         if (INSTANCE == null) {
             synchronized (FinTrackDatabase.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(
+                    RoomDatabase.Builder<FinTrackDatabase> builder = Room.databaseBuilder(
                                     context.getApplicationContext(),
                                     FinTrackDatabase.class,
                                     "fintrack_database"
                             )
                             // Add migrations when schema changes
-                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12, MIGRATION_12_13, MIGRATION_13_14, MIGRATION_14_15, MIGRATION_15_16, MIGRATION_16_17, MIGRATION_17_18, MIGRATION_18_19)
+
+                            // Install triggers that Room does not create from the entities
+                            .addCallback(TRIGGERS_CALLBACK)
+
+                            // LiveData queries share the read pool
+                            .setQueryExecutor(databaseReadExecutor)
 
                             // CAUTION: fallbackToDestructiveMigration() will DELETE ALL DATA
                             // Only use during development! Remove for production.
-                            .fallbackToDestructiveMigration()
+                            .fallbackToDestructiveMigration();
 
-                            .build();
+                    // Opt-in query tracing (debug builds only, see QueryTrace). Release builds
+                    // never read the setting, so opening the database reads no preferences.
+                    if (BuildConfig.DEBUG && QueryTrace.isEnabled(context)) {
+                        QueryTrace.install(builder, databaseReadExecutor);
+                    }
+
+                    INSTANCE = builder.build();
+                    databaseWriteExecutor.attach(INSTANCE);
                 }
             }
         }
         return INSTANCE;
     }
 
+    /**
+     * Build a private in-memory database with the same triggers and spatial
+     * indices as the app database (Room.inMemoryDatabaseBuilder alone leaves the
+     * rollups, search index and spatial tables empty).
+     *
+     * For tests and the benchmark module; the caller closes it.
+     */
+    @VisibleForTesting
+    public static FinTrackDatabase createInMemory(Context context) {
+        return Room.inMemoryDatabaseBuilder(context.getApplicationContext(), FinTrackDatabase.class)
+                .addCallback(TRIGGERS_CALLBACK)
+                .build();
+    }
+
     // ========== Database Migrations ==========
 
     /**
@@ -409,6 +477,602 @@ public abstract class FinTrackDatabase extends RoomDatabase {
         }
     };
 
+    /**
+     * Migration from version 8 to 9: Composite indices on transactions.
+     *
+     * Every hot TransactionDao query filters on user_id plus some of type/status/trip_id
+     * and a transaction_date range, and orders by transaction_date. With only single-column
+     * indices SQLite had to walk all of a user's rows and sort them in a temp B-tree.
+     * The (user_id, created_at) and (user_id) indices are dropped: no query uses
+     * created_at, and every new index starts with user_id.
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP INDEX IF EXISTS `index_transactions_user_id`");
+            db.execSQL("DROP INDEX IF EXISTS `index_transactions_user_id_created_at`");
+
+            // Date-ordered lists, date ranges and keyset pages
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_transactions_user_id_transaction_date` " +
+                "ON `transactions` (`user_id`, `transaction_date`)"
+            );
+
+            // Lists filtered by type
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_transactions_user_id_type_transaction_date` " +
+                "ON `transactions` (`user_id`, `type`, `transaction_date`)"
+            );
+
+            // Income/expense sums over a date range (covering: amount is in the index)
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_transactions_user_id_type_status_transaction_date_amount` " +
+                "ON `transactions` (`user_id`, `type`, `status`, `transaction_date`, `amount`)"
+            );
+
+            // Trip transaction lists
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS `index_transactions_user_id_trip_id_transaction_date` " +
+                "ON `transactions` (`user_id`, `trip_id`, `transaction_date`)"
+            );
+        }
+    };
+
+    /**
+     * Migration from version 9 to 10: Add transaction_rollups table, its triggers,
+     * and backfill it from existing transactions
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS `transaction_rollups` (" +
+                "`user_id` INTEGER NOT NULL, " +
+                "`day` INTEGER NOT NULL, " +
+                "`type` TEXT NOT NULL, " +
+                "`category_id` INTEGER NOT NULL, " +
+                "`card_type` TEXT NOT NULL, " +
+                "`total_amount` REAL NOT NULL, " +
+                "`transaction_count` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`user_id`, `day`, `type`, `category_id`, `card_type`))"
+            );
+
+            createTriggers(db);
+
+            db.execSQL(
+                "INSERT INTO transaction_rollups " +
+                "(user_id, day, type, category_id, card_type, total_amount, transaction_count) " +
+                "SELECT user_id, " + TransactionRollupDao.LOCAL_DAY_SQL + ", type, " +
+                "COALESCE(category_id, 0), COALESCE(card_type, ''), SUM(amount), COUNT(*) " +
+                "FROM transactions WHERE status = 'COMPLETED' " +
+                "GROUP BY 1, 2, 3, 4, 5"
+            );
+        }
+    };
+
+    /**
+     * Migration from version 10 to 11: Add sync_cursors table (delta pull high-water marks)
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS `sync_cursors` (" +
+                "`user_id` INTEGER NOT NULL, " +
+                "`entity_type` TEXT NOT NULL, " +
+                "`cursor_micros` INTEGER NOT NULL, " +
+                "`cursor_document_id` TEXT, " +
+                "`last_pulled_at` INTEGER, " +
+                "PRIMARY KEY(`user_id`, `entity_type`))"
+            );
+        }
+    };
+
+    /**
+     * Migration from version 11 to 12: Add transaction_search full-text index, its
+     * triggers, and fill it from existing transactions
+     */
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL(
+                "CREATE VIRTUAL TABLE IF NOT EXISTS `transaction_search` USING FTS4(" +
+                "`notes` TEXT, `merchant_name` TEXT, `category_name` TEXT, " +
+                "tokenize=unicode61, prefix=`2,3`)"
+            );
+
+            createSearchTriggers(db);
+
+            db.execSQL(
+                "INSERT INTO transaction_search (rowid, notes, merchant_name, category_name) " +
+                "SELECT t.transaction_id, t.notes, m.name, c.name FROM transactions t " +
+                "LEFT JOIN merchants m ON m.merchant_id = t.merchant_id " +
+                "LEFT JOIN categories c ON c.category_id = t.category_id"
+            );
+        }
+    };
+
+    /**
+     * Migration from version 12 to 13: Add the merchant_spatial and
+     * transaction_spatial point indices, their triggers, and fill them from
+     * existing rows
+     */
+    static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            createSpatialIndex(db);
+
+            db.execSQL(
+                "INSERT OR REPLACE INTO merchant_spatial (id, min_lat, max_lat, min_lng, max_lng) " +
+                "SELECT merchant_id, latitude, latitude, longitude, longitude FROM merchants " +
+                "WHERE latitude IS NOT NULL AND longitude IS NOT NULL"
+            );
+            db.execSQL(
+                "INSERT OR REPLACE INTO transaction_spatial (id, min_lat, max_lat, min_lng, max_lng) " +
+                "SELECT transaction_id, latitude, latitude, longitude, longitude FROM transactions " +
+                "WHERE latitude IS NOT NULL AND longitude IS NOT NULL"
+            );
+        }
+    };
+
+    /**
+     * Migration from version 13 to 14: Add the indexed next_statement_date and
+     * next_payment_due_date columns to credit_cards (left null, CardReminderWorker
+     * computes them) and the trigger that clears them when the days change
+     */
+    static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `credit_cards` ADD COLUMN `next_statement_date` INTEGER");
+            db.execSQL("ALTER TABLE `credit_cards` ADD COLUMN `next_payment_due_date` INTEGER");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_credit_cards_next_statement_date` " +
+                    "ON `credit_cards` (`next_statement_date`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_credit_cards_next_payment_due_date` " +
+                    "ON `credit_cards` (`next_payment_due_date`)");
+
+            createScheduleTriggers(db);
+        }
+    };
+
+    /**
+     * Migration from version 14 to 15: Add trip_rollups table, its triggers, and
+     * backfill it from existing trip transactions
+     */
+    static final Migration MIGRATION_14_15 = new Migration(14, 15) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS `trip_rollups` (" +
+                "`trip_id` INTEGER NOT NULL, " +
+                "`day` INTEGER NOT NULL, " +
+                "`type` TEXT NOT NULL, " +
+                "`category_id` INTEGER NOT NULL, " +
+                "`total_amount` REAL NOT NULL, " +
+                "`transaction_count` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`trip_id`, `day`, `type`, `category_id`))"
+            );
+
+            createTripRollupTriggers(db);
+
+            db.execSQL(
+                "INSERT INTO trip_rollups " +
+                "(trip_id, day, type, category_id, total_amount, transaction_count) " +
+                "SELECT trip_id, " + TransactionRollupDao.LOCAL_DAY_SQL + ", " + TripRollupDao.TYPE_SQL + ", " +
+                "COALESCE(category_id, 0), SUM(amount), COUNT(*) " +
+                "FROM transactions WHERE trip_id IS NOT NULL " +
+                "GROUP BY 1, 2, 3, 4"
+            );
+        }
+    };
+
+    /**
+     * Migration from version 15 to 16: Add a globally unique sync_id to the synced
+     * tables (the Firestore document ID). Existing rows get 128 random bits as hex;
+     * new rows get a UUID from their entity.
+     */
+    static final Migration MIGRATION_15_16 = new Migration(15, 16) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            for (String table : new String[]{"transactions", "credit_cards", "debit_cards", "trips", "merchants"}) {
+                db.execSQL("ALTER TABLE `" + table + "` ADD COLUMN `sync_id` TEXT");
+                db.execSQL("UPDATE `" + table + "` SET sync_id = lower(hex(randomblob(16)))");
+                db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_" + table + "_sync_id` " +
+                        "ON `" + table + "` (`sync_id`)");
+            }
+        }
+    };
+
+    /**
+     * Migration from version 16 to 17: Keep expenses with an amount of 0 or less
+     * out of the trip spending totals (see TripRollupDao.TYPE_SQL). Recreates the
+     * trip rollup triggers and rebuilds trip_rollups.
+     */
+    static final Migration MIGRATION_16_17 = new Migration(16, 17) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            for (String trigger : TRIP_ROLLUP_TRIGGER_NAMES) {
+                db.execSQL("DROP TRIGGER IF EXISTS `" + trigger + "`");
+            }
+            createTripRollupTriggers(db);
+
+            db.execSQL("DELETE FROM trip_rollups");
+            db.execSQL(
+                "INSERT INTO trip_rollups " +
+                "(trip_id, day, type, category_id, total_amount, transaction_count) " +
+                "SELECT trip_id, " + TransactionRollupDao.LOCAL_DAY_SQL + ", " + TripRollupDao.TYPE_SQL + ", " +
+                "COALESCE(category_id, 0), SUM(amount), COUNT(*) " +
+                "FROM transactions WHERE trip_id IS NOT NULL " +
+                "GROUP BY 1, 2, 3, 4"
+            );
+        }
+    };
+
+    /**
+     * Migration from version 17 to 18: Composite indices for the lists filtered by
+     * category, account, card and merchant (TransactionDao.getByCategory etc.).
+     * The single-column indices on those foreign keys only found the rows; SQLite
+     * still sorted them by date in a temp B-tree.
+     */
+    static final Migration MIGRATION_17_18 = new Migration(17, 18) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            for (String column : new String[]{"category_id", "account_id", "card_id", "merchant_id"}) {
+                db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_user_id_" + column + "_transaction_date` " +
+                        "ON `transactions` (`user_id`, `" + column + "`, `transaction_date`)");
+            }
+        }
+    };
+
+    /**
+     * Migration from version 18 to 19: Add the owner (user_id) to pending_actions,
+     * so SyncDao.getReadyActions() skips other accounts' actions in SQL. Existing
+     * rows take the owner of their entity; rows whose entity is gone keep NULL and
+     * get it from their payload when SyncEngine reads them.
+     */
+    static final Migration MIGRATION_18_19 = new Migration(18, 19) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `pending_actions` ADD COLUMN `user_id` INTEGER");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_pending_actions_user_id` ON `pending_actions` (`user_id`)");
+            String[][] owners = {
+                    {"TRANSACTION", "transactions", "transaction_id"},
+                    {"CREDIT_CARD", "credit_cards", "card_id"},
+                    {"DEBIT_CARD", "debit_cards", "card_id"},
+                    {"TRIP", "trips", "trip_id"},
+                    {"MERCHANT", "merchants", "merchant_id"}
+            };
+            for (String[] owner : owners) {
+                db.execSQL("UPDATE pending_actions SET user_id = " +
+                        "(SELECT e.user_id FROM `" + owner[1] + "` e WHERE e." + owner[2] + " = pending_actions.entity_id) " +
+                        "WHERE entity_type = '" + owner[0] + "'");
+            }
+        }
+    };
+
+    // ========== Triggers ==========
+
+    /**
+     * Key columns of the rollup row a transactions row (NEW or OLD) belongs to
+     */
+    private static String rollupKey(String row) {
+        return "user_id = " + row + ".user_id " +
+                "AND day = " + TransactionRollupDao.LOCAL_DAY_SQL.replace("transaction_date", row + ".transaction_date") + " " +
+                "AND type = " + row + ".type " +
+                "AND category_id = COALESCE(" + row + ".category_id, 0) " +
+                "AND card_type = COALESCE(" + row + ".card_type, '')";
+    }
+
+    private static String addToRollup(String row) {
+        return "INSERT OR IGNORE INTO transaction_rollups " +
+                "(user_id, day, type, category_id, card_type, total_amount, transaction_count) VALUES (" +
+                row + ".user_id, " +
+                TransactionRollupDao.LOCAL_DAY_SQL.replace("transaction_date", row + ".transaction_date") + ", " +
+                row + ".type, COALESCE(" + row + ".category_id, 0), COALESCE(" + row + ".card_type, ''), 0, 0); " +
+                "UPDATE transaction_rollups SET total_amount = total_amount + " + row + ".amount, " +
+                "transaction_count = transaction_count + 1 WHERE " + rollupKey(row) + "; ";
+    }
+
+    /**
+     * Key of the rollup row holding the existing transaction a REPLACE insert overwrites
+     */
+    private static String replacedRollupKey() {
+        return "(user_id, day, type, category_id, card_type) = (" +
+                "SELECT t.user_id, " + TransactionRollupDao.LOCAL_DAY_SQL.replace("transaction_date", "t.transaction_date") + ", " +
+                "t.type, COALESCE(t.category_id, 0), COALESCE(t.card_type, '') " +
+                "FROM transactions t WHERE t.transaction_id = NEW.transaction_id AND t.status = 'COMPLETED')";
+    }
+
+    private static String removeFromRollup(String row) {
+        return "UPDATE transaction_rollups SET total_amount = total_amount - " + row + ".amount, " +
+                "transaction_count = transaction_count - 1 WHERE " + rollupKey(row) + "; " +
+                "DELETE FROM transaction_rollups WHERE transaction_count <= 0 AND " + rollupKey(row) + "; ";
+    }
+
+    /**
+     * Triggers that keep transaction_rollups in sync with transactions.
+     *
+     * Only COMPLETED rows count. The BEFORE INSERT trigger covers
+     * OnConflictStrategy.REPLACE inserts over an existing id: SQLite does not fire
+     * delete triggers for REPLACE deletions unless recursive_triggers is on, so the
+     * replaced row is subtracted here instead.
+     */
+    static final String[] ROLLUP_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS `trg_rollup_insert` AFTER INSERT ON `transactions` " +
+                    "WHEN NEW.status = 'COMPLETED' BEGIN " + addToRollup("NEW") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_rollup_replace` BEFORE INSERT ON `transactions` " +
+                    "WHEN NEW.transaction_id IS NOT NULL BEGIN " +
+                    "UPDATE transaction_rollups SET " +
+                    "total_amount = total_amount - (SELECT t.amount FROM transactions t WHERE t.transaction_id = NEW.transaction_id), " +
+                    "transaction_count = transaction_count - 1 " +
+                    "WHERE " + replacedRollupKey() + "; " +
+                    "DELETE FROM transaction_rollups WHERE transaction_count <= 0 AND " + replacedRollupKey() + "; " +
+                    "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_rollup_delete` AFTER DELETE ON `transactions` " +
+                    "WHEN OLD.status = 'COMPLETED' BEGIN " + removeFromRollup("OLD") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_rollup_update_old` AFTER UPDATE OF " +
+                    "user_id, transaction_date, type, status, category_id, card_type, amount ON `transactions` " +
+                    "WHEN OLD.status = 'COMPLETED' BEGIN " + removeFromRollup("OLD") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_rollup_update_new` AFTER UPDATE OF " +
+                    "user_id, transaction_date, type, status, category_id, card_type, amount ON `transactions` " +
+                    "WHEN NEW.status = 'COMPLETED' BEGIN " + addToRollup("NEW") + "END"
+    };
+
+    static void createTriggers(@NonNull SupportSQLiteDatabase db) {
+        for (String sql : ROLLUP_TRIGGERS) {
+            db.execSQL(sql);
+        }
+    }
+
+    /**
+     * Rollup type of a transactions row (NEW, OLD or an alias), see TripRollupDao.TYPE_SQL
+     */
+    private static String tripRollupType(String row) {
+        return TripRollupDao.TYPE_SQL.replace("type", row + ".type").replace("amount", row + ".amount");
+    }
+
+    /**
+     * Key columns of the trip rollup row a transactions row (NEW or OLD) belongs to
+     */
+    private static String tripRollupKey(String row) {
+        return "trip_id = " + row + ".trip_id " +
+                "AND day = " + TransactionRollupDao.LOCAL_DAY_SQL.replace("transaction_date", row + ".transaction_date") + " " +
+                "AND type = " + tripRollupType(row) + " " +
+                "AND category_id = COALESCE(" + row + ".category_id, 0)";
+    }
+
+    private static String addToTripRollup(String row) {
+        return "INSERT OR IGNORE INTO trip_rollups " +
+                "(trip_id, day, type, category_id, total_amount, transaction_count) VALUES (" +
+                row + ".trip_id, " +
+                TransactionRollupDao.LOCAL_DAY_SQL.replace("transaction_date", row + ".transaction_date") + ", " +
+                tripRollupType(row) + ", COALESCE(" + row + ".category_id, 0), 0, 0); " +
+                "UPDATE trip_rollups SET total_amount = total_amount + " + row + ".amount, " +
+                "transaction_count = transaction_count + 1 WHERE " + tripRollupKey(row) + "; ";
+    }
+
+    private static String removeFromTripRollup(String row) {
+        return "UPDATE trip_rollups SET total_amount = total_amount - " + row + ".amount, " +
+                "transaction_count = transaction_count - 1 WHERE " + tripRollupKey(row) + "; " +
+                "DELETE FROM trip_rollups WHERE transaction_count <= 0 AND " + tripRollupKey(row) + "; ";
+    }
+
+    /**
+     * Key of the trip rollup row holding the existing transaction a REPLACE insert overwrites
+     */
+    private static String replacedTripRollupKey() {
+        return "(trip_id, day, type, category_id) = (" +
+                "SELECT t.trip_id, " + TransactionRollupDao.LOCAL_DAY_SQL.replace("transaction_date", "t.transaction_date") + ", " +
+                tripRollupType("t") + ", COALESCE(t.category_id, 0) " +
+                "FROM transactions t WHERE t.transaction_id = NEW.transaction_id AND t.trip_id IS NOT NULL)";
+    }
+
+    /**
+     * Triggers that keep trip_rollups in sync with the transactions of trips
+     * (rows with a trip_id, any status). Same shape as ROLLUP_TRIGGERS.
+     */
+    static final String[] TRIP_ROLLUP_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS `trg_trip_rollup_insert` AFTER INSERT ON `transactions` " +
+                    "WHEN NEW.trip_id IS NOT NULL BEGIN " + addToTripRollup("NEW") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_trip_rollup_replace` BEFORE INSERT ON `transactions` " +
+                    "WHEN NEW.transaction_id IS NOT NULL BEGIN " +
+                    "UPDATE trip_rollups SET " +
+                    "total_amount = total_amount - (SELECT t.amount FROM transactions t WHERE t.transaction_id = NEW.transaction_id), " +
+                    "transaction_count = transaction_count - 1 " +
+                    "WHERE " + replacedTripRollupKey() + "; " +
+                    "DELETE FROM trip_rollups WHERE transaction_count <= 0 AND " + replacedTripRollupKey() + "; " +
+                    "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_trip_rollup_delete` AFTER DELETE ON `transactions` " +
+                    "WHEN OLD.trip_id IS NOT NULL BEGIN " + removeFromTripRollup("OLD") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_trip_rollup_update_old` AFTER UPDATE OF " +
+                    "trip_id, transaction_date, type, category_id, amount ON `transactions` " +
+                    "WHEN OLD.trip_id IS NOT NULL BEGIN " + removeFromTripRollup("OLD") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_trip_rollup_update_new` AFTER UPDATE OF " +
+                    "trip_id, transaction_date, type, category_id, amount ON `transactions` " +
+                    "WHEN NEW.trip_id IS NOT NULL BEGIN " + addToTripRollup("NEW") + "END"
+    };
+
+    /**
+     * Names of the TRIP_ROLLUP_TRIGGERS, to drop them before recreating them
+     */
+    private static final String[] TRIP_ROLLUP_TRIGGER_NAMES = {
+            "trg_trip_rollup_insert", "trg_trip_rollup_replace", "trg_trip_rollup_delete",
+            "trg_trip_rollup_update_old", "trg_trip_rollup_update_new"
+    };
+
+    static void createTripRollupTriggers(@NonNull SupportSQLiteDatabase db) {
+        for (String sql : TRIP_ROLLUP_TRIGGERS) {
+            db.execSQL(sql);
+        }
+    }
+
+    private static String insertSearchEntry(String row) {
+        return "INSERT INTO transaction_search (rowid, notes, merchant_name, category_name) VALUES (" +
+                row + ".transaction_id, " + row + ".notes, " +
+                "(SELECT name FROM merchants WHERE merchant_id = " + row + ".merchant_id), " +
+                "(SELECT name FROM categories WHERE category_id = " + row + ".category_id)); ";
+    }
+
+    /**
+     * Triggers that keep transaction_search in sync with transactions and with the
+     * merchant and category names it copies. As with the rollups, the BEFORE INSERT
+     * trigger removes the entry of a row overwritten by a REPLACE insert.
+     */
+    static final String[] SEARCH_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS `trg_search_insert` AFTER INSERT ON `transactions` " +
+                    "BEGIN " + insertSearchEntry("NEW") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_search_replace` BEFORE INSERT ON `transactions` " +
+                    "WHEN NEW.transaction_id IS NOT NULL BEGIN " +
+                    "DELETE FROM transaction_search WHERE rowid = NEW.transaction_id; " +
+                    "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_search_delete` AFTER DELETE ON `transactions` " +
+                    "BEGIN DELETE FROM transaction_search WHERE rowid = OLD.transaction_id; END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_search_update` AFTER UPDATE OF " +
+                    "notes, merchant_id, category_id ON `transactions` BEGIN " +
+                    "DELETE FROM transaction_search WHERE rowid = OLD.transaction_id; " +
+                    insertSearchEntry("NEW") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_search_merchant_name` AFTER UPDATE OF name ON `merchants` " +
+                    "BEGIN UPDATE transaction_search SET merchant_name = NEW.name WHERE rowid IN " +
+                    "(SELECT transaction_id FROM transactions WHERE merchant_id = NEW.merchant_id); END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_search_category_name` AFTER UPDATE OF name ON `categories` " +
+                    "BEGIN UPDATE transaction_search SET category_name = NEW.name WHERE rowid IN " +
+                    "(SELECT transaction_id FROM transactions WHERE category_id = NEW.category_id); END"
+    };
+
+    static void createSearchTriggers(@NonNull SupportSQLiteDatabase db) {
+        for (String sql : SEARCH_TRIGGERS) {
+            db.execSQL(sql);
+        }
+    }
+
+    /**
+     * Re-index one point row (NEW) in a spatial table: drop its entry, then add it
+     * back if the row has coordinates. Deleting first also covers REPLACE inserts
+     * over an existing id and rows whose location was cleared.
+     */
+    private static String indexPoint(String table, String id) {
+        return "DELETE FROM " + table + " WHERE id = NEW." + id + "; " +
+                "INSERT INTO " + table + " (id, min_lat, max_lat, min_lng, max_lng) " +
+                "SELECT NEW." + id + ", NEW.latitude, NEW.latitude, NEW.longitude, NEW.longitude " +
+                "WHERE NEW.latitude IS NOT NULL AND NEW.longitude IS NOT NULL; ";
+    }
+
+    /**
+     * Triggers that keep merchant_spatial and transaction_spatial in sync with the
+     * coordinates of merchants and transactions.
+     */
+    static final String[] SPATIAL_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS `trg_spatial_merchant_insert` AFTER INSERT ON `merchants` " +
+                    "BEGIN " + indexPoint("merchant_spatial", "merchant_id") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_spatial_merchant_update` AFTER UPDATE OF " +
+                    "latitude, longitude ON `merchants` " +
+                    "BEGIN " + indexPoint("merchant_spatial", "merchant_id") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_spatial_merchant_delete` AFTER DELETE ON `merchants` " +
+                    "BEGIN DELETE FROM merchant_spatial WHERE id = OLD.merchant_id; END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_spatial_transaction_insert` AFTER INSERT ON `transactions` " +
+                    "BEGIN " + indexPoint("transaction_spatial", "transaction_id") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_spatial_transaction_update` AFTER UPDATE OF " +
+                    "latitude, longitude ON `transactions` " +
+                    "BEGIN " + indexPoint("transaction_spatial", "transaction_id") + "END",
+
+            "CREATE TRIGGER IF NOT EXISTS `trg_spatial_transaction_delete` AFTER DELETE ON `transactions` " +
+                    "BEGIN DELETE FROM transaction_spatial WHERE id = OLD.transaction_id; END"
+    };
+
+    /**
+     * An update that changes statement_day or payment_due_day also writes the
+     * card's old next dates; clear them so CardReminderWorker recomputes both.
+     */
+    static void createScheduleTriggers(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `trg_card_schedule_reset` AFTER UPDATE OF " +
+                "statement_day, payment_due_day ON `credit_cards` " +
+                "WHEN OLD.statement_day IS NOT NEW.statement_day " +
+                "OR OLD.payment_due_day IS NOT NEW.payment_due_day BEGIN " +
+                "UPDATE credit_cards SET next_statement_date = NULL, next_payment_due_date = NULL " +
+                "WHERE card_id = NEW.card_id; END");
+    }
+
+    /**
+     * Create the point indices behind MerchantDao.getNearby/getNearestSync and
+     * TransactionDao.getInArea, and their triggers.
+     *
+     * Each index is an R*Tree (id, min_lat, max_lat, min_lng, max_lng) holding one
+     * zero-size box per located row. Some platform SQLite builds ship without the
+     * rtree module; there the same columns go in a plain table with a B-tree index
+     * on (min_lat, min_lng), so the queries work unchanged, only with a range scan
+     * on latitude instead of a 2D lookup.
+     *
+     * Room does not know these tables, so queries on them are @RawQuery and observe
+     * the merchants/transactions entities, whose triggers keep them current.
+     */
+    static void createSpatialIndex(@NonNull SupportSQLiteDatabase db) {
+        for (String table : new String[]{"merchant_spatial", "transaction_spatial"}) {
+            try {
+                db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `" + table + "` USING rtree(" +
+                        "id, min_lat, max_lat, min_lng, max_lng)");
+            } catch (SQLException e) {
+                Log.w("FinTrackDatabase", "rtree module not available, indexing " + table + " with a B-tree", e);
+                createSpatialFallback(db, table);
+            }
+        }
+        for (String sql : SPATIAL_TRIGGERS) {
+            db.execSQL(sql);
+        }
+    }
+
+    /**
+     * Plain-table version of a spatial index, for SQLite builds without rtree
+     */
+    @VisibleForTesting
+    static void createSpatialFallback(@NonNull SupportSQLiteDatabase db, String table) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS `" + table + "` (" +
+                "`id` INTEGER PRIMARY KEY NOT NULL, `min_lat` REAL NOT NULL, `max_lat` REAL NOT NULL, " +
+                "`min_lng` REAL NOT NULL, `max_lng` REAL NOT NULL)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_" + table + "_lat_lng` ON `" + table + "` " +
+                "(`min_lat`, `min_lng`)");
+    }
+
+    /**
+     * Room creates tables and indices from the entities, but not triggers or the
+     * spatial indices. Install them every time the database opens: every statement
+     * is IF NOT EXISTS, so this is a no-op once they exist, and onOpen runs after
+     * Room has created its tables (also after a destructive migration).
+     */
+    private static final RoomDatabase.Callback TRIGGERS_CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            createTriggers(db);
+            createSearchTriggers(db);
+            createSpatialIndex(db);
+            createScheduleTriggers(db);
+            createTripRollupTriggers(db);
+        }
+
+        @Override
+        public void onDestructiveMigration(@NonNull SupportSQLiteDatabase db) {
+            // Runs after Room dropped its own tables and before it creates them again,
+            // so only drop the spatial tables it does not know; onOpen recreates them
+            db.execSQL("DROP TABLE IF EXISTS merchant_spatial");
+            db.execSQL("DROP TABLE IF EXISTS transaction_spatial");
+        }
+    };
+
     // ========== Database Callbacks ==========
 
     /**
@@ -0,0 +1,451 @@
+package com.pascm.fintrack.data.local;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Single-writer queue for database writes (FinTrackDatabase.databaseWriteExecutor).
+ *
+ * SQLite allows one writer at a time, and every statement outside a transaction
+ * pays for its own commit (journal write + fsync). This queue runs all writes on
+ * one thread and groups the database work queued within a short flush window into
+ * a single Room transaction. A burst of writes (e.g. a transfer: two inserts and
+ * two balance updates) then costs one commit instead of four contended ones.
+ *
+ * Two kinds of tasks:
+ * - execute(dbWork, onCommitted[, onFailed]) is grouped with its neighbours.
+ *   dbWork must only touch the database: no UI, no callbacks, no other threads
+ *   started. If the batch rolls back, every dbWork of it is run again on its
+ *   own, each in its own transaction, so one bad task cannot take the others
+ *   down (Room writes of entity objects are safe to repeat). onCommitted or
+ *   onFailed runs exactly once, on the writer thread, after the outcome of its
+ *   dbWork is final; that is where results go to the UI.
+ * - execute(Runnable), the plain Executor method, runs the task alone and as
+ *   is, like a single-thread executor: statements outside its own
+ *   runInTransaction() commit one by one, and it is never run twice. Use it for
+ *   tasks that mix writes with side effects.
+ *
+ * A dbWork that catches the failure of its own nested runInTransaction() makes
+ * SQLite roll the whole batch back without an exception. Each batch writes a
+ * sequence number to a temp table and reads it back after the commit; if it is
+ * missing, the batch is replayed task by task as above.
+ *
+ * Do not use this queue for reads: they would wait behind writes and hold the
+ * write transaction open. Use FinTrackDatabase.databaseReadExecutor instead.
+ */
+public final class WriteQueue implements Executor {
+
+    private static final String TAG = "WriteQueue";
+
+    /**
+     * How long the writer waits for more tasks after the first one of a batch
+     */
+    static final long FLUSH_WINDOW_MILLIS = 4;
+
+    /**
+     * Largest number of tasks grouped into one transaction
+     */
+    static final int MAX_BATCH_SIZE = 64;
+
+    /**
+     * Log the metrics every this many batches
+     */
+    private static final int LOG_EVERY_BATCHES = 100;
+
+    private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final Object metricsLock = new Object();
+
+    private volatile RoomDatabase database;
+    private volatile Thread writerThread;
+
+    // Writer thread only
+    private long batchSequence;
+
+    // Metrics, guarded by metricsLock
+    private long batches;
+    private long tasks;
+    private long failedBatches;
+    private int maxBatchSize;
+    private long totalCommitNanos;
+    private long maxCommitNanos;
+    private long lastCommitNanos;
+
+    /**
+     * Start the writer thread for a database. Tasks queued before this call wait
+     * for it. Must be called once.
+     */
+    synchronized void attach(@NonNull RoomDatabase database) {
+        if (writerThread != null) {
+            throw new IllegalStateException("WriteQueue already attached");
+        }
+        this.database = database;
+        Thread thread = new Thread(this::writerLoop, "fintrack-db-writer");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Run a task alone, never batched and never repeated. Exceptions are logged.
+     */
+    @Override
+    public void execute(@NonNull Runnable task) {
+        enqueue(new Task(task, false, null, null));
+    }
+
+    /**
+     * Queue database-only work that may share a transaction with other writes.
+     *
+     * @param dbWork      Database writes only; may run twice if its batch rolls back
+     * @param onCommitted Run once after dbWork has committed, on the writer thread
+     */
+    public void execute(@NonNull Runnable dbWork, @Nullable Runnable onCommitted) {
+        execute(dbWork, onCommitted, null);
+    }
+
+    /**
+     * Queue database-only work that may share a transaction with other writes.
+     *
+     * @param dbWork      Database writes only; may run twice if its batch rolls back
+     * @param onCommitted Run once after dbWork has committed, on the writer thread
+     * @param onFailed    Run once if dbWork failed, with its error, on the writer thread
+     */
+    public void execute(@NonNull Runnable dbWork, @Nullable Runnable onCommitted,
+                        @Nullable Consumer<RuntimeException> onFailed) {
+        enqueue(new Task(dbWork, true, onCommitted, onFailed));
+    }
+
+    /**
+     * Queue database-only work and block until it has been committed.
+     *
+     * Use from background threads that need a write to be visible before they go
+     * on (e.g. a read that repairs derived data). Runs inline when called from
+     * the writer thread itself.
+     *
+     * @param dbWork Database writes only; may run twice if its batch rolls back
+     * @throws RuntimeException the error dbWork failed with
+     * @throws IllegalStateException if the calling thread was interrupted before
+     *         the outcome was known (the interrupt flag stays set). dbWork stays
+     *         queued and may still commit later; do not treat it as committed.
+     */
+    public void executeAndWait(@NonNull Runnable dbWork) {
+        if (Thread.currentThread() == writerThread) {
+            dbWork.run();
+            return;
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        RuntimeException[] failure = new RuntimeException[1];
+        execute(dbWork, done::countDown, e -> {
+            failure[0] = e;
+            done.countDown();
+        });
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted before the write was committed", e);
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    /**
+     * Current counters (queue depth is sampled now, the rest since startup)
+     */
+    public Metrics getMetrics() {
+        synchronized (metricsLock) {
+            return new Metrics(queue.size(), maxQueueDepth.get(), batches, tasks, failedBatches,
+                    maxBatchSize, totalCommitNanos, maxCommitNanos, lastCommitNanos);
+        }
+    }
+
+    private void enqueue(Task task) {
+        queue.add(task);
+        maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    // ========== Writer Thread ==========
+
+    private void writerLoop() {
+        List<Task> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        Task next = null;
+        while (true) {
+            try {
+                Task first = next != null ? next : queue.take();
+                next = null;
+                if (!first.batchable) {
+                    runPlain(first);
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_WINDOW_MILLIS);
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    long remaining = deadline - System.nanoTime();
+                    Task polled = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (polled == null) {
+                        break;
+                    }
+                    if (!polled.batchable) {
+                        next = polled; // Runs right after this batch, in queue order
+                        break;
+                    }
+                    batch.add(polled);
+                }
+            } catch (InterruptedException e) {
+                // The writer never stops while the process lives; keep serving
+                Thread.interrupted();
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void runPlain(Task task) {
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            task.work.run();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Write task failed", e);
+            failed = true;
+        }
+        recordBatch(1, System.nanoTime() - start, failed);
+    }
+
+    private void flush(List<Task> batch) {
+        long start = System.nanoTime();
+        RuntimeException failure = runInTransaction(batch);
+        if (failure != null) {
+            if (batch.size() == 1) {
+                Log.e(TAG, "Write task failed", failure);
+                batch.get(0).failure = failure;
+            } else {
+                Log.w(TAG, "Batch of " + batch.size() + " rolled back, replaying tasks one by one", failure);
+                replayAlone(batch);
+            }
+        }
+        recordBatch(batch.size(), System.nanoTime() - start, failure != null);
+
+        // Outcomes are final now: each callback runs once, outside any transaction
+        for (Task task : batch) {
+            task.complete();
+        }
+    }
+
+    /**
+     * Run tasks in one transaction
+     *
+     * @return null if it committed, otherwise why it rolled back
+     */
+    private RuntimeException runInTransaction(List<Task> tasks) {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        long sequence = ++batchSequence;
+        try {
+            database.runInTransaction(() -> {
+                for (Task task : tasks) {
+                    task.work.run();
+                }
+                db.execSQL(CREATE_CANARY_SQL);
+                db.execSQL("INSERT OR REPLACE INTO temp.write_queue_canary (id, seq) VALUES (0, ?)",
+                        new Object[]{sequence});
+            });
+        } catch (RuntimeException e) {
+            return e;
+        }
+
+        if (readCanary(db) != sequence) {
+            return new IllegalStateException("Rolled back by a failed nested transaction");
+        }
+        return null;
+    }
+
+    private static final String CREATE_CANARY_SQL =
+            "CREATE TEMP TABLE IF NOT EXISTS write_queue_canary (id INTEGER PRIMARY KEY, seq INTEGER NOT NULL)";
+
+    /**
+     * Sequence number of the last committed batch. Temp tables live on the
+     * connection, so this reads inside a transaction to stay on the writer's one.
+     */
+    private long readCanary(SupportSQLiteDatabase db) {
+        return database.runInTransaction(() -> {
+            db.execSQL(CREATE_CANARY_SQL);
+            try (Cursor cursor = db.query("SELECT seq FROM temp.write_queue_canary WHERE id = 0")) {
+                return cursor.moveToFirst() ? cursor.getLong(0) : -1L;
+            }
+        });
+    }
+
+    private void replayAlone(List<Task> batch) {
+        for (Task task : batch) {
+            task.failure = runInTransaction(Collections.singletonList(task));
+            if (task.failure != null) {
+                Log.e(TAG, "Write task failed", task.failure);
+            }
+        }
+    }
+
+    private void recordBatch(int size, long commitNanos, boolean failed) {
+        Metrics snapshot = null;
+        synchronized (metricsLock) {
+            batches++;
+            tasks += size;
+            if (failed) failedBatches++;
+            maxBatchSize = Math.max(maxBatchSize, size);
+            totalCommitNanos += commitNanos;
+            maxCommitNanos = Math.max(maxCommitNanos, commitNanos);
+            lastCommitNanos = commitNanos;
+            if (batches % LOG_EVERY_BATCHES == 0) {
+                snapshot = getMetrics();
+            }
+        }
+        if (snapshot != null) {
+            Log.d(TAG, snapshot.toString());
+        }
+    }
+
+    /**
+     * A queued task and, for batched work, its callbacks
+     */
+    private static final class Task {
+        final Runnable work;
+        final boolean batchable;
+        final Runnable onCommitted;
+        final Consumer<RuntimeException> onFailed;
+
+        // Writer thread only: why the work did not commit, or null
+        RuntimeException failure;
+
+        Task(Runnable work, boolean batchable, Runnable onCommitted, Consumer<RuntimeException> onFailed) {
+            this.work = work;
+            this.batchable = batchable;
+            this.onCommitted = onCommitted;
+            this.onFailed = onFailed;
+        }
+
+        void complete() {
+            try {
+                if (failure == null) {
+                    if (onCommitted != null) onCommitted.run();
+                } else if (onFailed != null) {
+                    onFailed.accept(failure);
+                }
+            } catch (RuntimeException e) {
+                // The write stands either way; a broken callback must not stop the writer
+                Log.e(TAG, "Write callback failed", e);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the queue counters
+     */
+    public static class Metrics {
+        private final int queueDepth;
+        private final int maxQueueDepth;
+        private final long batches;
+        private final long tasks;
+        private final long failedBatches;
+        private final int maxBatchSize;
+        private final long totalCommitNanos;
+        private final long maxCommitNanos;
+        private final long lastCommitNanos;
+
+        Metrics(int queueDepth, int maxQueueDepth, long batches, long tasks, long failedBatches,
+                int maxBatchSize, long totalCommitNanos, long maxCommitNanos, long lastCommitNanos) {
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.batches = batches;
+            this.tasks = tasks;
+            this.failedBatches = failedBatches;
+            this.maxBatchSize = maxBatchSize;
+            this.totalCommitNanos = totalCommitNanos;
+            this.maxCommitNanos = maxCommitNanos;
+            this.lastCommitNanos = lastCommitNanos;
+        }
+
+        /**
+         * Tasks waiting right now
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+
+        /**
+         * Transactions committed (or rolled back and replayed)
+         */
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getTasks() {
+            return tasks;
+        }
+
+        /**
+         * Batches rolled back because a task threw
+         */
+        public long getFailedBatches() {
+            return failedBatches;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public double getAverageBatchSize() {
+            return batches == 0 ? 0 : (double) tasks / batches;
+        }
+
+        /**
+         * Time to run and commit a batch, in milliseconds
+         */
+        public double getAverageCommitMillis() {
+            return batches == 0 ? 0 : totalCommitNanos / 1e6 / batches;
+        }
+
+        public double getMaxCommitMillis() {
+            return maxCommitNanos / 1e6;
+        }
+
+        public double getLastCommitMillis() {
+            return lastCommitNanos / 1e6;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "depth=%d (max %d), batches=%d (failed %d), tasks=%d, batch avg=%.1f max=%d, commit avg=%.2fms max=%.2fms last=%.2fms",
+                    queueDepth, maxQueueDepth, batches, failedBatches, tasks,
+                    getAverageBatchSize(), maxBatchSize,
+                    getAverageCommitMillis(), getMaxCommitMillis(), getLastCommitMillis());
+        }
+    }
+}
@@ -2,14 +2,9 @@ package com.pascm.fintrack.data.local.converters;
 
 import androidx.room.TypeConverter;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-
-import java.lang.reflect.Type;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -18,11 +13,12 @@ import java.util.Map;
  *
  * Room cannot directly persist complex types like List, Map, Instant, or LocalDate.
  * These converters transform them to/from simple types (String, Long) that Room can handle.
+ *
+ * Lists and maps are stored as JSON through JsonCodec, which runs for every row
+ * Room reads (e.g. Transaction.attachments) without Gson's reflection.
  */
 public class Converters {
 
-    private static final Gson gson = new Gson();
-
     // ========== Instant (timestamps) ==========
 
     /**
@@ -67,7 +63,7 @@ public class Converters {
     @TypeConverter
     public static String stringListToJson(List<String> list) {
         if (list == null) return null;
-        return gson.toJson(list);
+        return JsonCodec.writeStringList(list);
     }
 
     /**
@@ -76,8 +72,7 @@ public class Converters {
     @TypeConverter
     public static List<String> jsonToStringList(String json) {
         if (json == null) return null;
-        Type listType = new TypeToken<ArrayList<String>>() {}.getType();
-        return gson.fromJson(json, listType);
+        return JsonCodec.readStringList(json);
     }
 
     // ========== List<Long> (for IDs, permission lists, etc.) ==========
@@ -88,7 +83,7 @@ public class Converters {
     @TypeConverter
     public static String longListToJson(List<Long> list) {
         if (list == null) return null;
-        return gson.toJson(list);
+        return JsonCodec.writeLongList(list);
     }
 
     /**
@@ -97,8 +92,7 @@ public class Converters {
     @TypeConverter
     public static List<Long> jsonToLongList(String json) {
         if (json == null) return null;
-        Type listType = new TypeToken<ArrayList<Long>>() {}.getType();
-        return gson.fromJson(json, listType);
+        return JsonCodec.readLongList(json);
     }
 
     // ========== Map<String, String> (for metadata, payloads) ==========
@@ -109,7 +103,7 @@ public class Converters {
     @TypeConverter
     public static String mapToJson(Map<String, String> map) {
         if (map == null) return null;
-        return gson.toJson(map);
+        return JsonCodec.writeStringMap(map);
     }
 
     /**
@@ -118,8 +112,7 @@ public class Converters {
     @TypeConverter
     public static Map<String, String> jsonToMap(String json) {
         if (json == null) return null;
-        Type mapType = new TypeToken<Map<String, String>>() {}.getType();
-        return gson.fromJson(json, mapType);
+        return JsonCodec.readStringMap(json);
     }
 
     // ========== Map<String, Object> (for flexible metadata/JSON payloads) ==========
@@ -130,7 +123,7 @@ public class Converters {
     @TypeConverter
     public static String objectMapToJson(Map<String, Object> map) {
         if (map == null) return null;
-        return gson.toJson(map);
+        return JsonCodec.writeObjectMap(map);
     }
 
     /**
@@ -139,8 +132,7 @@ public class Converters {
     @TypeConverter
     public static Map<String, Object> jsonToObjectMap(String json) {
         if (json == null) return null;
-        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
-        return gson.fromJson(json, mapType);
+        return JsonCodec.readObjectMap(json);
     }
 
     // ========== Double (for proper null handling) ==========
@@ -0,0 +1,417 @@
+package com.pascm.fintrack.data.local.converters;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written JSON codec for the list and map columns in Converters.
+ *
+ * Writes the same JSON shapes Gson produced, so existing rows, rows written by
+ * older app versions and SQL such as "attachments != '[]'" keep working, but
+ * without reflection, TypeTokens or an intermediate tree: writing is one
+ * StringBuilder, reading is one pass over the string that allocates only the
+ * result (strings without escapes are plain substrings).
+ *
+ * The reader is as lenient as Gson was for these types: primitives inside a
+ * string list/map come back as their literal text, quoted numbers and integral
+ * doubles ("5", 5.0) read as longs, and "" or "null" read as null.
+ */
+final class JsonCodec {
+
+    // Valid in JSON but not in JavaScript string literals; escaped as Gson did
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private JsonCodec() {
+    }
+
+    // ========== Writing ==========
+
+    static String writeStringList(List<String> list) {
+        StringBuilder out = new StringBuilder(2 + list.size() * 24);
+        out.append('[');
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) out.append(',');
+            writeString(out, list.get(i));
+        }
+        return out.append(']').toString();
+    }
+
+    static String writeLongList(List<Long> list) {
+        StringBuilder out = new StringBuilder(2 + list.size() * 8);
+        out.append('[');
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) out.append(',');
+            Long value = list.get(i);
+            if (value == null) {
+                out.append("null");
+            } else {
+                out.append(value.longValue());
+            }
+        }
+        return out.append(']').toString();
+    }
+
+    static String writeStringMap(Map<String, String> map) {
+        StringBuilder out = new StringBuilder(2 + map.size() * 32);
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            // Gson left out null values
+            if (entry.getValue() == null) continue;
+            if (!first) out.append(',');
+            first = false;
+            writeString(out, String.valueOf(entry.getKey()));
+            out.append(':');
+            writeString(out, entry.getValue());
+        }
+        return out.append('}').toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException If a value is not a string, number,
+     *                                  boolean, null, map or collection
+     */
+    static String writeObjectMap(Map<String, Object> map) {
+        StringBuilder out = new StringBuilder(2 + map.size() * 32);
+        writeValue(out, map);
+        return out.toString();
+    }
+
+    private static void writeValue(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String) {
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.append(((Boolean) value).booleanValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                throw new IllegalArgumentException(number + " is not a valid JSON number");
+            }
+            out.append(number);
+        } else if (value instanceof Number) {
+            out.append(((Number) value).longValue());
+        } else if (value instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getValue() == null) continue;
+                if (!first) out.append(',');
+                first = false;
+                writeString(out, String.valueOf(entry.getKey()));
+                out.append(':');
+                writeValue(out, entry.getValue());
+            }
+            out.append('}');
+        } else if (value instanceof Collection) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) out.append(',');
+                first = false;
+                writeValue(out, element);
+            }
+            out.append(']');
+        } else {
+            throw new IllegalArgumentException("Unsupported JSON value: " + value.getClass().getName());
+        }
+    }
+
+    private static void writeString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != LINE_SEPARATOR && c != PARAGRAPH_SEPARATOR) {
+                continue;
+            }
+            out.append(value, start, i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                case '\b': out.append("\\b"); break;
+                case '\f': out.append("\\f"); break;
+                default:
+                    out.append("\\u");
+                    String hex = Integer.toHexString(c);
+                    for (int pad = hex.length(); pad < 4; pad++) out.append('0');
+                    out.append(hex);
+                    break;
+            }
+            start = i + 1;
+        }
+        out.append(value, start, value.length()).append('"');
+    }
+
+    // ========== Reading ==========
+
+    static List<String> readStringList(String json) {
+        Reader reader = new Reader(json);
+        if (reader.isNull()) return null;
+        ArrayList<String> list = new ArrayList<>();
+        reader.expect('[');
+        if (!reader.consume(']')) {
+            do {
+                list.add(reader.readText());
+            } while (reader.consume(','));
+            reader.expect(']');
+        }
+        reader.end();
+        return list;
+    }
+
+    static List<Long> readLongList(String json) {
+        Reader reader = new Reader(json);
+        if (reader.isNull()) return null;
+        ArrayList<Long> list = new ArrayList<>();
+        reader.expect('[');
+        if (!reader.consume(']')) {
+            do {
+                list.add(reader.readLong());
+            } while (reader.consume(','));
+            reader.expect(']');
+        }
+        reader.end();
+        return list;
+    }
+
+    static Map<String, String> readStringMap(String json) {
+        Reader reader = new Reader(json);
+        if (reader.isNull()) return null;
+        Map<String, String> map = new LinkedHashMap<>();
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                String key = reader.readString();
+                reader.expect(':');
+                map.put(key, reader.readText());
+            } while (reader.consume(','));
+            reader.expect('}');
+        }
+        reader.end();
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> readObjectMap(String json) {
+        Reader reader = new Reader(json);
+        if (reader.isNull()) return null;
+        reader.skipWhitespace();
+        if (reader.peek() != '{') {
+            throw reader.error("Expected '{'");
+        }
+        Map<String, Object> map = (Map<String, Object>) reader.readValue();
+        reader.end();
+        return map;
+    }
+
+    /**
+     * Cursor over a JSON string
+     */
+    private static final class Reader {
+        private final String json;
+        private int pos;
+
+        Reader(String json) {
+            this.json = json;
+        }
+
+        /** Empty input or a bare null, which Gson read as null */
+        boolean isNull() {
+            skipWhitespace();
+            if (pos == json.length()) return true;
+            if (json.startsWith("null", pos)) {
+                pos += 4;
+                end();
+                return true;
+            }
+            return false;
+        }
+
+        void skipWhitespace() {
+            while (pos < json.length()) {
+                char c = json.charAt(pos);
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') break;
+                pos++;
+            }
+        }
+
+        char peek() {
+            if (pos >= json.length()) throw error("Unexpected end of input");
+            return json.charAt(pos);
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < json.length() && json.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) throw error("Expected '" + c + "'");
+        }
+
+        void end() {
+            skipWhitespace();
+            if (pos != json.length()) throw error("Trailing characters");
+        }
+
+        /** A string, or a primitive as its literal text, or null */
+        String readText() {
+            skipWhitespace();
+            char c = peek();
+            if (c == '"') return readString();
+            if (c == '{' || c == '[') throw error("Expected a string");
+            String literal = readLiteral();
+            return "null".equals(literal) ? null : literal;
+        }
+
+        Long readLong() {
+            skipWhitespace();
+            String text = peek() == '"' ? readString() : readLiteral();
+            if ("null".equals(text)) return null;
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                double number = parseDouble(text);
+                long value = (long) number;
+                if (value != number) throw error("Expected a long but was " + text);
+                return value;
+            }
+        }
+
+        String readString() {
+            skipWhitespace();
+            if (peek() != '"') throw error("Expected a string");
+            int start = ++pos;
+            // Fast path: no escapes, the value is a substring of the input
+            while (pos < json.length()) {
+                char c = json.charAt(pos);
+                if (c == '"') {
+                    return json.substring(start, pos++);
+                }
+                if (c == '\\') break;
+                pos++;
+            }
+
+            StringBuilder value = new StringBuilder(pos - start + 16);
+            value.append(json, start, pos);
+            while (pos < json.length()) {
+                char c = json.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = peek();
+                pos++;
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > json.length()) throw error("Truncated escape");
+                        try {
+                            value.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        // \" \\ \/ and Gson's lenient \'
+                        value.append(escaped);
+                        break;
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        /** Unquoted token: number, true, false or null */
+        private String readLiteral() {
+            int start = pos;
+            while (pos < json.length()) {
+                char c = json.charAt(pos);
+                if (c == ',' || c == ']' || c == '}' || c == ':' || c == ' '
+                        || c == '\n' || c == '\r' || c == '\t') break;
+                pos++;
+            }
+            if (start == pos) throw error("Expected a value");
+            return json.substring(start, pos);
+        }
+
+        /**
+         * Any JSON value, typed as Gson's Object adapter did: String, Double,
+         * Boolean, null, ArrayList or LinkedHashMap
+         */
+        Object readValue() {
+            skipWhitespace();
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{') {
+                pos++;
+                Map<String, Object> map = new LinkedHashMap<>();
+                if (!consume('}')) {
+                    do {
+                        String key = readString();
+                        expect(':');
+                        map.put(key, readValue());
+                    } while (consume(','));
+                    expect('}');
+                }
+                return map;
+            }
+            if (c == '[') {
+                pos++;
+                List<Object> list = new ArrayList<>();
+                if (!consume(']')) {
+                    do {
+                        list.add(readValue());
+                    } while (consume(','));
+                    expect(']');
+                }
+                return list;
+            }
+            String literal = readLiteral();
+            switch (literal) {
+                case "null": return null;
+                case "true": return Boolean.TRUE;
+                case "false": return Boolean.FALSE;
+                default: return parseDouble(literal);
+            }
+        }
+
+        private double parseDouble(String text) {
+            try {
+                return Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                throw error("Expected a number but was " + text);
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + pos + " in JSON column value");
+        }
+    }
+}
@@ -53,12 +53,56 @@ public interface AccountDao {
     @Query("UPDATE accounts SET balance = :newBalance, updated_at = :updatedAt WHERE account_id = :accountId")
     int updateBalance(long accountId, double newBalance, long updatedAt);
 
+    /**
+     * Add a signed amount to the balance in place (never below zero).
+     * Unlike updateBalance, concurrent callers cannot overwrite each other.
+     */
+    @Query("UPDATE accounts SET balance = MAX(0, balance + :delta), updated_at = :updatedAt WHERE account_id = :accountId")
+    int applyBalanceDelta(long accountId, double delta, long updatedAt);
+
     @Query("UPDATE accounts SET archived = 1, updated_at = :updatedAt WHERE account_id = :accountId")
     int archive(long accountId, long updatedAt);
 
     @Query("SELECT SUM(balance) FROM accounts WHERE user_id = :userId AND archived = 0")
     LiveData<Double> getTotalBalance(long userId);
 
+    /**
+     * Figures of the home screen in one read, refreshed whenever accounts or cards change.
+     *
+     * Each subquery is a range read on a user_id index. Debit cards show the
+     * balance of their linked account; credit cards show the credit still available.
+     */
+    @Query("SELECT " +
+            "(SELECT COALESCE(SUM(balance), 0) FROM accounts " +
+            "  WHERE user_id = :userId AND archived = 0) AS account_balance, " +
+            "(SELECT COALESCE(SUM(balance), 0) FROM accounts " +
+            "  WHERE user_id = :userId AND archived = 0 AND type = 'CASH') AS cash_balance, " +
+            "(SELECT COUNT(*) FROM accounts " +
+            "  WHERE user_id = :userId AND archived = 0 AND type = 'CASH') AS cash_count, " +
+            "(SELECT COALESCE(SUM(credit_limit - current_balance), 0) FROM credit_cards " +
+            "  WHERE user_id = :userId AND archived = 0) AS credit_available, " +
+            "(SELECT COUNT(*) FROM credit_cards " +
+            "  WHERE user_id = :userId AND archived = 0) AS credit_count, " +
+            "(SELECT COALESCE(SUM(a.balance), 0) FROM debit_cards d " +
+            "  JOIN accounts a ON a.account_id = d.account_id AND a.archived = 0 " +
+            "  WHERE d.user_id = :userId AND d.archived = 0) AS debit_balance, " +
+            "(SELECT COUNT(*) FROM debit_cards " +
+            "  WHERE user_id = :userId AND archived = 0) AS debit_count")
+    LiveData<HomeSummaryData> getHomeSummary(long userId);
+
     @Query("SELECT COUNT(*) FROM accounts WHERE user_id = :userId AND archived = 0")
     LiveData<Integer> getAccountCount(long userId);
+
+    /**
+     * POJO for the home screen figures
+     */
+    class HomeSummaryData {
+        public double account_balance;
+        public double cash_balance;
+        public int cash_count;
+        public double credit_available;
+        public int credit_count;
+        public double debit_balance;
+        public int debit_count;
+    }
 }
@@ -7,9 +7,11 @@ import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 import androidx.room.Update;
+import androidx.room.Upsert;
 
 import com.pascm.fintrack.data.local.entity.CreditCardEntity;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -35,6 +37,14 @@ public interface CreditCardDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     List<Long> insertAll(List<CreditCardEntity> cards);
 
+    /**
+     * Insert new credit cards and update existing ones in place, by primary key. Unlike
+     * a REPLACE insert, updated rows are never deleted, so ON DELETE actions of
+     * the rows that point to them do not fire. Returns -1 for updated rows.
+     */
+    @Upsert
+    List<Long> upsertAll(List<CreditCardEntity> cards);
+
     // ========== Update Operations ==========
 
     /**
@@ -49,6 +59,14 @@ public interface CreditCardDao {
     @Query("UPDATE credit_cards SET current_balance = :newBalance, updated_at = :updatedAt WHERE card_id = :cardId")
     int updateBalance(long cardId, double newBalance, long updatedAt);
 
+    /**
+     * Add a signed amount to the balance owed in place, kept between 0 and the credit limit.
+     * Unlike updateBalance, concurrent callers cannot overwrite each other.
+     */
+    @Query("UPDATE credit_cards SET current_balance = MIN(credit_limit, MAX(0, current_balance + :delta)), " +
+            "updated_at = :updatedAt WHERE card_id = :cardId")
+    int applyBalanceDelta(long cardId, double delta, long updatedAt);
+
     /**
      * Archive a card (soft delete).
      */
@@ -123,12 +141,6 @@ public interface CreditCardDao {
     @Query("SELECT * FROM credit_cards WHERE user_id = :userId AND brand = :brand AND archived = 0")
     List<CreditCardEntity> getByBrandSync(long userId, String brand);
 
-    /**
-     * Get all distinct user IDs that have credit cards (for notification worker).
-     */
-    @Query("SELECT DISTINCT user_id FROM credit_cards WHERE archived = 0")
-    List<Long> getAllUserIdsSync();
-
     // ========== Aggregate Queries ==========
 
     /**
@@ -149,19 +161,51 @@ public interface CreditCardDao {
     @Query("SELECT SUM(credit_limit - current_balance) FROM credit_cards WHERE user_id = :userId AND archived = 0")
     LiveData<Double> getTotalAvailableCredit(long userId);
 
-    // ========== Date-based Queries for Notifications ==========
+    // ========== Reminder Schedule (CardReminderWorker) ==========
+
+    /**
+     * Cards with a statement or payment day whose next date has not been
+     * computed yet (new cards, or the day changed and a trigger cleared it).
+     */
+    @Query("SELECT * FROM credit_cards WHERE archived = 0 AND " +
+            "((statement_day IS NOT NULL AND next_statement_date IS NULL) OR " +
+            "(payment_due_day IS NOT NULL AND next_payment_due_date IS NULL))")
+    List<CreditCardEntity> getUnscheduledSync();
+
+    /**
+     * Cards with a statement or payment due date on or before the given day.
+     * One range scan per date index.
+     */
+    @Query("SELECT * FROM credit_cards WHERE archived = 0 AND " +
+            "(next_statement_date <= :endDate OR next_payment_due_date <= :endDate)")
+    List<CreditCardEntity> getDueBySync(LocalDate endDate);
+
+    /**
+     * Store the next dates of a card. Leaves updated_at alone: this is derived
+     * state, not a user change to sync.
+     */
+    @Query("UPDATE credit_cards SET next_statement_date = :statementDate, " +
+            "next_payment_due_date = :paymentDueDate WHERE card_id = :cardId")
+    int updateSchedule(long cardId, LocalDate statementDate, LocalDate paymentDueDate);
 
     /**
-     * Get all credit cards with a specific statement day (synchronous).
-     * Used for checking which cards have their statement date today.
+     * Earliest pending dates over all cards, for the next reminder alarm.
+     * reminder_due_date is the earliest due date after reminderAfter, whose
+     * reminder (some days before) has not been sent yet.
      */
-    @Query("SELECT * FROM credit_cards WHERE statement_day = :day AND archived = 0 AND current_balance > 0")
-    List<CreditCardEntity> getCardsByStatementDay(int day);
+    @Query("SELECT MIN(next_statement_date) AS statement_date, " +
+            "MIN(next_payment_due_date) AS due_date, " +
+            "(SELECT MIN(next_payment_due_date) FROM credit_cards " +
+            "WHERE archived = 0 AND next_payment_due_date > :reminderAfter) AS reminder_due_date " +
+            "FROM credit_cards WHERE archived = 0")
+    ScheduleBounds getScheduleBoundsSync(LocalDate reminderAfter);
 
     /**
-     * Get all credit cards with a specific payment due day (synchronous).
-     * Used for checking which cards have their payment due date today.
+     * POJO for getScheduleBoundsSync (epoch days, null when no card has one)
      */
-    @Query("SELECT * FROM credit_cards WHERE payment_due_day = :day AND archived = 0 AND current_balance > 0")
-    List<CreditCardEntity> getCardsByPaymentDueDay(int day);
+    class ScheduleBounds {
+        public Long statement_date;
+        public Long due_date;
+        public Long reminder_due_date;
+    }
 }
@@ -7,6 +7,7 @@ import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 import androidx.room.Update;
+import androidx.room.Upsert;
 
 import com.pascm.fintrack.data.local.entity.DebitCardEntity;
 
@@ -28,6 +29,14 @@ public interface DebitCardDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     List<Long> insertAll(List<DebitCardEntity> cards);
 
+    /**
+     * Insert new debit cards and update existing ones in place, by primary key. Unlike
+     * a REPLACE insert, updated rows are never deleted, so ON DELETE actions of
+     * the rows that point to them do not fire. Returns -1 for updated rows.
+     */
+    @Upsert
+    List<Long> upsertAll(List<DebitCardEntity> cards);
+
     // ========== Update Operations ==========
 
     @Update
@@ -122,7 +131,8 @@ public interface DebitCardDao {
     LiveData<List<DebitCardEntity>> getExpiredCards(long userId, long currentDate);
 
     /**
-     * Search debit cards by label or issuer
+     * Search debit cards by label or issuer (a LIKE scan of one user's cards,
+     * narrowed by the user_id index; not on the transaction_search index)
      */
     @Query("SELECT * FROM debit_cards WHERE user_id = :userId AND (label LIKE '%' || :query || '%' OR issuer LIKE '%' || :query || '%') AND archived = 0 ORDER BY created_at DESC")
     LiveData<List<DebitCardEntity>> search(long userId, String query);
@@ -6,10 +6,16 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RawQuery;
 import androidx.room.Update;
+import androidx.room.Upsert;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
 import com.pascm.fintrack.data.local.entity.Merchant;
+import com.pascm.fintrack.util.GeoUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -29,6 +35,14 @@ public interface MerchantDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     List<Long> insertAll(List<Merchant> merchants);
 
+    /**
+     * Insert new merchants and update existing ones in place, by primary key. Unlike
+     * a REPLACE insert, updated rows are never deleted, so ON DELETE actions of
+     * the rows that point to them do not fire. Returns -1 for updated rows.
+     */
+    @Upsert
+    List<Long> upsertAll(List<Merchant> merchants);
+
     // ========== Update Operations ==========
 
     @Update
@@ -69,7 +83,11 @@ public interface MerchantDao {
     LiveData<List<Merchant>> getFrequentMerchants(long userId);
 
     /**
-     * Search merchants by name or address
+     * Search merchants by name or address.
+     *
+     * Not on the transaction_search index: that one holds transactions, and a
+     * place with no transactions yet must still be found. The user_id index
+     * narrows the scan to one user's places (tens of rows), so the LIKE stays cheap.
      */
     @Query("SELECT * FROM merchants WHERE user_id = :userId AND (name LIKE '%' || :query || '%' OR address LIKE '%' || :query || '%') ORDER BY name ASC")
     LiveData<List<Merchant>> search(long userId, String query);
@@ -87,15 +105,17 @@ public interface MerchantDao {
     LiveData<List<Merchant>> getByTag(long userId, String tag);
 
     /**
-     * Get merchants near a location (simple bounding box)
+     * Get merchants inside a bounding box, by name (served by merchant_spatial)
      *
      * @param minLat Minimum latitude
      * @param maxLat Maximum latitude
      * @param minLng Minimum longitude
      * @param maxLng Maximum longitude
      */
-    @Query("SELECT * FROM merchants WHERE user_id = :userId AND latitude BETWEEN :minLat AND :maxLat AND longitude BETWEEN :minLng AND :maxLng ORDER BY name ASC")
-    LiveData<List<Merchant>> getNearby(long userId, double minLat, double maxLat, double minLng, double maxLng);
+    default LiveData<List<Merchant>> getNearby(long userId, double minLat, double maxLat, double minLng, double maxLng) {
+        return queryLive(new SimpleSQLiteQuery(IN_BOX_SQL + " ORDER BY m.name ASC",
+                new Object[]{userId, minLat, maxLat, minLng, maxLng}));
+    }
 
     /**
      * Get merchants marked as frequent (is_frequent = true)
@@ -162,4 +182,72 @@ public interface MerchantDao {
      */
     @Query("UPDATE merchants SET usage_count = :usageCount, last_used_at = :lastUsedAt, is_frequent = CASE WHEN :usageCount >= 5 THEN 1 ELSE is_frequent END WHERE merchant_id = :merchantId")
     int updateUsageCount(long merchantId, int usageCount, long lastUsedAt);
+
+    // ========== Spatial Queries ==========
+
+    /**
+     * Merchants of user ?1 inside the box lat [?2, ?3], lng [?4, ?5].
+     *
+     * merchant_spatial narrows the candidates (see FinTrackDatabase.createSpatialIndex);
+     * the exact check on m.latitude/m.longitude drops the few extra rows let through
+     * by the rtree's 32-bit float boxes. Its boxes are points, so min_lat/min_lng are
+     * bounded on both sides: the B-tree fallback seeks a latitude range instead of
+     * scanning every row south of the box. CROSS JOIN keeps the spatial table as
+     * the outer loop.
+     */
+    String IN_BOX_SQL = "SELECT m.* FROM merchant_spatial s CROSS JOIN merchants m ON m.merchant_id = s.id " +
+            "WHERE s.min_lat >= ?2 AND s.min_lat <= ?3 AND s.min_lng >= ?4 AND s.min_lng <= ?5 " +
+            "AND s.max_lat >= ?2 AND s.max_lng >= ?4 " +
+            "AND m.user_id = ?1 AND m.latitude BETWEEN ?2 AND ?3 AND m.longitude BETWEEN ?4 AND ?5";
+
+    /**
+     * IN_BOX_SQL, closest to (?6, ?7) first, at most ?9 rows. Distance is
+     * equirectangular: ?8 is cos²(latitude), which scales longitude degrees.
+     */
+    String NEAREST_IN_BOX_SQL = IN_BOX_SQL +
+            " ORDER BY (m.latitude - ?6) * (m.latitude - ?6) + (m.longitude - ?7) * (m.longitude - ?7) * ?8 LIMIT ?9";
+
+    /** Radius of the first box tried by getNearestSync */
+    double NEAREST_START_METERS = 250;
+
+    @RawQuery(observedEntities = Merchant.class)
+    LiveData<List<Merchant>> queryLive(SupportSQLiteQuery query);
+
+    @RawQuery
+    List<Merchant> querySync(SupportSQLiteQuery query);
+
+    /**
+     * Get up to limit merchants of a user closest to a point, nearest first, within
+     * maxMeters.
+     *
+     * Searches a box around the point and grows it (x4) until it holds limit
+     * merchants inside its inscribed circle, or reaches maxMeters. Every merchant
+     * inside that circle is inside the box, so the result is the exact k nearest.
+     *
+     * WARNING: Don't call on main thread!
+     */
+    default List<Merchant> getNearestSync(long userId, double latitude, double longitude,
+                                          int limit, double maxMeters) {
+        double cos = Math.cos(Math.toRadians(latitude));
+        double radius = Math.min(NEAREST_START_METERS, maxMeters);
+        while (true) {
+            GeoUtils.Box box = GeoUtils.boxAround(latitude, longitude, radius);
+            List<Merchant> candidates = querySync(new SimpleSQLiteQuery(NEAREST_IN_BOX_SQL, new Object[]{
+                    userId, box.minLat, box.maxLat, box.minLng, box.maxLng,
+                    latitude, longitude, cos * cos, limit}));
+
+            List<Merchant> nearest = new ArrayList<>(candidates.size());
+            for (Merchant merchant : candidates) {
+                if (GeoUtils.distanceMeters(latitude, longitude,
+                        merchant.getLatitude(), merchant.getLongitude()) <= radius) {
+                    nearest.add(merchant);
+                }
+            }
+
+            if (nearest.size() >= limit || radius >= maxMeters) {
+                return nearest;
+            }
+            radius = Math.min(radius * 4, maxMeters);
+        }
+    }
 }
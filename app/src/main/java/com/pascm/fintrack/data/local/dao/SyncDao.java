@@ -6,17 +6,20 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import com.pascm.fintrack.data.local.entity.PendingAction;
+import com.pascm.fintrack.data.local.entity.SyncCursor;
 import com.pascm.fintrack.data.local.entity.SyncState;
 
 import java.util.List;
 
 /**
- * Data Access Object for Sync management (SyncState and PendingAction).
+ * Data Access Object for Sync management (SyncState, PendingAction and SyncCursor).
  *
- * Provides methods for tracking synchronization state and managing the sync queue.
+ * Provides methods for tracking synchronization state, managing the sync queue
+ * and keeping the delta pull cursors.
  */
 @Dao
 public interface SyncDao {
@@ -99,6 +102,58 @@ public interface SyncDao {
     @Query("SELECT * FROM pending_actions WHERE retry_count < 5 ORDER BY priority DESC, created_at ASC")
     List<PendingAction> getPendingActionsReadyForRetry();
 
+    /**
+     * Get up to :limit actions of the Firebase account :accountUid whose backoff
+     * has elapsed, highest priority first.
+     *
+     * An action that has been attempted waits 2^retry_count minutes after its
+     * last attempt (same schedule as PendingAction.shouldRetry()). Actions of
+     * other local users, or of users not linked to Firebase yet, are never read,
+     * so however many of them are queued they cannot block this account's.
+     * Actions without user_id (queued before it existed) are read so SyncEngine
+     * can record their owner.
+     */
+    @Query("SELECT * FROM pending_actions " +
+            "WHERE retry_count < 5 " +
+            "AND (last_attempt_at IS NULL OR last_attempt_at + (60000 << retry_count) <= :now) " +
+            "AND (user_id IS NULL OR user_id IN (SELECT user_id FROM users WHERE firebase_uid = :accountUid)) " +
+            "ORDER BY priority DESC, created_at ASC, pending_action_id ASC LIMIT :limit")
+    List<PendingAction> getReadyActions(String accountUid, long now, int limit);
+
+    /**
+     * Get count of retryable actions that belong to other accounts than :accountUid
+     * (other local users, or users not linked to Firebase yet)
+     */
+    @Query("SELECT COUNT(*) FROM pending_actions WHERE retry_count < 5 AND user_id IS NOT NULL " +
+            "AND user_id NOT IN (SELECT user_id FROM users WHERE firebase_uid = :accountUid)")
+    int getHeldActionCount(String accountUid);
+
+    /**
+     * Record the owner of an action queued before pending_actions.user_id existed
+     */
+    @Query("UPDATE pending_actions SET user_id = :userId WHERE pending_action_id = :actionId")
+    int setActionUserId(long actionId, long userId);
+
+    /**
+     * Get count of actions that can still be retried (ready or waiting for backoff)
+     */
+    @Query("SELECT COUNT(*) FROM pending_actions WHERE retry_count < 5")
+    int getRetryableActionCount();
+
+    /**
+     * Record a failed attempt of an action
+     */
+    @Query("UPDATE pending_actions SET retry_count = retry_count + 1, last_attempt_at = :attemptedAt, " +
+            "last_error = :error WHERE pending_action_id = :actionId")
+    int recordActionFailure(long actionId, long attemptedAt, String error);
+
+    /**
+     * Move an action straight to the failed set (it can never succeed, e.g. bad payload)
+     */
+    @Query("UPDATE pending_actions SET retry_count = 5, last_attempt_at = :attemptedAt, " +
+            "last_error = :error WHERE pending_action_id = :actionId")
+    int abandonAction(long actionId, long attemptedAt, String error);
+
     /**
      * Get pending actions for a specific entity type
      */
@@ -141,6 +196,36 @@ public interface SyncDao {
     @Query("DELETE FROM pending_actions")
     int deleteAllPendingActions();
 
+    /**
+     * Get IDs of entities of a type that have a queued action (local changes not pushed yet)
+     */
+    @Query("SELECT entity_id FROM pending_actions WHERE entity_type = :entityType AND entity_id IN (:entityIds)")
+    List<Long> getEntityIdsWithPendingActions(String entityType, List<Long> entityIds);
+
+    // ========== SyncCursor Operations ==========
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertCursor(SyncCursor cursor);
+
+    /**
+     * Get the pull cursor of an entity type (null if never pulled)
+     */
+    @Query("SELECT * FROM sync_cursors WHERE user_id = :userId AND entity_type = :entityType")
+    SyncCursor getCursor(long userId, String entityType);
+
+    /**
+     * Forget the pull cursors of a user (next pull downloads everything again)
+     */
+    @Query("DELETE FROM sync_cursors WHERE user_id = :userId")
+    int deleteCursors(long userId);
+
+    /**
+     * Record that an entity was written from its remote copy (clean, already synced)
+     */
+    @Query("INSERT OR REPLACE INTO sync_state (entity_type, entity_id, firebase_id, last_synced_at, dirty_flag, sync_attempts, updated_at) " +
+            "VALUES (:entityType, :entityId, :firebaseId, :syncedAt, 0, 0, :syncedAt)")
+    void markEntityPulled(String entityType, long entityId, String firebaseId, long syncedAt);
+
     // ========== Combined Operations ==========
 
     /**
@@ -150,4 +235,68 @@ public interface SyncDao {
     @Query("UPDATE sync_state SET dirty_flag = 1, pending_operation = :operation, updated_at = :updatedAt " +
             "WHERE entity_type = :entityType AND entity_id = :entityId")
     int markEntityDirty(String entityType, long entityId, String operation, long updatedAt);
+
+    /**
+     * Create a sync state row for an entity if it has none (keeps firebase_id of existing rows)
+     */
+    @Query("INSERT OR IGNORE INTO sync_state (entity_type, entity_id, dirty_flag, sync_attempts, updated_at) " +
+            "VALUES (:entityType, :entityId, 1, 0, :updatedAt)")
+    void insertSyncStateIfAbsent(String entityType, long entityId, long updatedAt);
+
+    /**
+     * Record a successful push. The entity stays dirty if a newer action was
+     * queued for it while the push was in flight.
+     */
+    @Query("UPDATE sync_state SET firebase_id = :firebaseId, last_synced_at = :syncedAt, " +
+            "dirty_flag = EXISTS(SELECT 1 FROM pending_actions p WHERE p.entity_type = :entityType AND p.entity_id = :entityId), " +
+            "pending_operation = (SELECT p.action FROM pending_actions p WHERE p.entity_type = :entityType AND p.entity_id = :entityId LIMIT 1), " +
+            "sync_attempts = 0, last_error = NULL, updated_at = :syncedAt " +
+            "WHERE entity_type = :entityType AND entity_id = :entityId")
+    int markEntitySynced(String entityType, long entityId, String firebaseId, long syncedAt);
+
+    /**
+     * Record a failed push of an entity
+     */
+    @Query("UPDATE sync_state SET sync_attempts = sync_attempts + 1, last_error = :error, updated_at = :updatedAt " +
+            "WHERE entity_type = :entityType AND entity_id = :entityId")
+    int recordSyncFailure(String entityType, long entityId, String error, long updatedAt);
+
+    /**
+     * Queue a sync action for an entity and mark it dirty.
+     *
+     * Call inside the same Room transaction as the entity write, so the change and
+     * its outbox row commit (or roll back) together.
+     *
+     * An entity has at most one queued action: a new action replaces the previous
+     * one (the payload is always a full snapshot, so only the latest matters).
+     * A CREATE followed by UPDATEs stays a CREATE; a DELETE always wins. The
+     * replacement gets a new row ID, so a push of the old row that is in flight
+     * will not remove it when it completes.
+     */
+    @Transaction
+    default void enqueue(PendingAction action) {
+        PendingAction previous = getPendingActionForEntity(action.getEntityType(), action.getEntityId());
+        if (previous != null) {
+            if (previous.isCreateAction() && !action.isDeleteAction()) {
+                action.setAction(previous.getAction());
+            }
+            action.setPriority(Math.max(previous.getPriority(), action.getPriority()));
+            deletePendingActionForEntity(action.getEntityType(), action.getEntityId());
+        }
+        insertPendingAction(action);
+
+        long now = action.getCreatedAt().toEpochMilli();
+        insertSyncStateIfAbsent(action.getEntityType(), action.getEntityId(), now);
+        markEntityDirty(action.getEntityType(), action.getEntityId(), action.getAction(), now);
+    }
+
+    /**
+     * Queue sync actions for several entities (see enqueue)
+     */
+    @Transaction
+    default void enqueueAll(List<PendingAction> actions) {
+        for (PendingAction action : actions) {
+            enqueue(action);
+        }
+    }
 }
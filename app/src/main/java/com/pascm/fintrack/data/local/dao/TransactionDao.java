@@ -1,12 +1,18 @@
 package com.pascm.fintrack.data.local.dao;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RawQuery;
 import androidx.room.Update;
+import androidx.room.Upsert;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
 import com.pascm.fintrack.data.local.entity.Transaction;
 
@@ -25,6 +31,45 @@ import java.util.List;
 @Dao
 public interface TransactionDao {
 
+    // ========== Query SQL ==========
+    // The list and total queries whose plans TransactionQueryPlanTest checks. The test
+    // explains these same strings; SQLite binds the named parameters by position, in
+    // order of first use.
+
+    String ALL_BY_USER_SQL = "SELECT * FROM transactions WHERE user_id = :userId ORDER BY transaction_date DESC";
+
+    String PAGE_BEFORE_SQL = "SELECT * FROM transactions WHERE user_id = :userId " +
+            "AND transaction_date <= :beforeDate " +
+            "AND (transaction_date < :beforeDate OR (transaction_date = :beforeDate AND transaction_id < :beforeId)) " +
+            "ORDER BY transaction_date DESC, transaction_id DESC LIMIT :limit";
+
+    String PAGE_BEFORE_BY_TYPE_SQL = "SELECT * FROM transactions WHERE user_id = :userId AND type = :type " +
+            "AND transaction_date <= :beforeDate " +
+            "AND (transaction_date < :beforeDate OR (transaction_date = :beforeDate AND transaction_id < :beforeId)) " +
+            "ORDER BY transaction_date DESC, transaction_id DESC LIMIT :limit";
+
+    String BY_TYPE_SQL = "SELECT * FROM transactions WHERE user_id = :userId AND type = :type ORDER BY transaction_date DESC";
+
+    String BY_CATEGORY_SQL = "SELECT * FROM transactions WHERE user_id = :userId AND category_id = :categoryId ORDER BY transaction_date DESC";
+
+    String BY_ACCOUNT_SQL = "SELECT * FROM transactions WHERE user_id = :userId AND account_id = :accountId ORDER BY transaction_date DESC";
+
+    String BY_CARD_SQL = "SELECT * FROM transactions WHERE user_id = :userId AND card_id = :cardId ORDER BY transaction_date DESC";
+
+    String BY_TRIP_SQL = "SELECT * FROM transactions WHERE user_id = :userId AND trip_id = :tripId ORDER BY transaction_date DESC";
+
+    String BY_MERCHANT_SQL = "SELECT * FROM transactions WHERE user_id = :userId AND merchant_id = :merchantId ORDER BY transaction_date DESC";
+
+    String BY_DATE_RANGE_SQL = "SELECT * FROM transactions WHERE user_id = :userId AND transaction_date BETWEEN :startDate AND :endDate ORDER BY transaction_date DESC";
+
+    String TOTAL_EXPENSES_FOR_RANGE_SQL = "SELECT COALESCE(SUM(amount), 0) FROM transactions " +
+            "WHERE user_id = :userId AND type = 'EXPENSE' AND status = 'COMPLETED' " +
+            "AND transaction_date BETWEEN :startDate AND :endDate";
+
+    String TOTAL_INCOME_FOR_RANGE_SQL = "SELECT COALESCE(SUM(amount), 0) FROM transactions " +
+            "WHERE user_id = :userId AND type = 'INCOME' AND status = 'COMPLETED' " +
+            "AND transaction_date BETWEEN :startDate AND :endDate";
+
     // ========== Insert Operations ==========
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
@@ -33,6 +78,14 @@ public interface TransactionDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     List<Long> insertAll(List<Transaction> transactions);
 
+    /**
+     * Insert new transactions and update existing ones in place, by primary key. Unlike
+     * a REPLACE insert, updated rows are never deleted, so ON DELETE actions of
+     * the rows that point to them do not fire. Returns -1 for updated rows.
+     */
+    @Upsert
+    List<Long> upsertAll(List<Transaction> transactions);
+
     // ========== Update Operations ==========
 
     @Update
@@ -60,48 +113,126 @@ public interface TransactionDao {
     /**
      * Get all transactions for a user, ordered by date (newest first)
      */
-    @Query("SELECT * FROM transactions WHERE user_id = :userId ORDER BY transaction_date DESC")
+    @Query(ALL_BY_USER_SQL)
     LiveData<List<Transaction>> getAllByUser(long userId);
 
     @Query("SELECT * FROM transactions WHERE user_id = :userId ORDER BY transaction_date DESC LIMIT :limit")
     LiveData<List<Transaction>> getRecentByUser(long userId, int limit);
 
+    // ========== Keyset Paging Queries ==========
+    // The redundant "transaction_date <=/>= key" term lets SQLite seek straight to the
+    // cursor in index_transactions_user_id_transaction_date instead of walking past
+    // every newer row; the OR term alone is not usable as an index range.
+
+    /**
+     * Get the page of transactions strictly older than the (beforeDate, beforeId) key,
+     * newest first. Pass Long.MAX_VALUE for both keys to get the first page.
+     */
+    @Query(PAGE_BEFORE_SQL)
+    List<Transaction> getPageBefore(long userId, long beforeDate, long beforeId, int limit);
+
+    /**
+     * Get the page of transactions strictly newer than the (afterDate, afterId) key,
+     * oldest first (callers reverse it to keep the feed order).
+     */
+    @Query("SELECT * FROM transactions WHERE user_id = :userId " +
+            "AND transaction_date >= :afterDate " +
+            "AND (transaction_date > :afterDate OR (transaction_date = :afterDate AND transaction_id > :afterId)) " +
+            "ORDER BY transaction_date ASC, transaction_id ASC LIMIT :limit")
+    List<Transaction> getPageAfter(long userId, long afterDate, long afterId, int limit);
+
+    /**
+     * Same as getPageBefore, filtered by type
+     */
+    @Query(PAGE_BEFORE_BY_TYPE_SQL)
+    List<Transaction> getPageBeforeByType(long userId, String type, long beforeDate, long beforeId, int limit);
+
+    /**
+     * Same as getPageAfter, filtered by type
+     */
+    @Query("SELECT * FROM transactions WHERE user_id = :userId AND type = :type " +
+            "AND transaction_date >= :afterDate " +
+            "AND (transaction_date > :afterDate OR (transaction_date = :afterDate AND transaction_id > :afterId)) " +
+            "ORDER BY transaction_date ASC, transaction_id ASC LIMIT :limit")
+    List<Transaction> getPageAfterByType(long userId, String type, long afterDate, long afterId, int limit);
+
+    // ========== Export ==========
+
+    /**
+     * Get the next chunk of export rows after the (afterDate, afterId) key, up to endDate,
+     * oldest first, with category and merchant names joined in.
+     *
+     * Pass the range start and -1 as keys for the first chunk. Each chunk is a
+     * bounded LIMIT query seeking on the keyset, so reading the whole range costs
+     * one pass over the index however many rows it has. The caller closes the cursor.
+     */
+    @Query("SELECT t.transaction_id, t.transaction_date, t.type, t.amount, t.card_type, t.notes, " +
+            "c.name AS category_name, m.name AS merchant_name " +
+            "FROM transactions t " +
+            "LEFT JOIN categories c ON c.category_id = t.category_id " +
+            "LEFT JOIN merchants m ON m.merchant_id = t.merchant_id " +
+            "WHERE t.user_id = :userId AND t.transaction_date <= :endDate " +
+            "AND t.transaction_date >= :afterDate " +
+            "AND (t.transaction_date > :afterDate OR (t.transaction_date = :afterDate AND t.transaction_id > :afterId)) " +
+            "ORDER BY t.transaction_date ASC, t.transaction_id ASC LIMIT :limit")
+    Cursor getExportChunk(long userId, long afterDate, long afterId, long endDate, int limit);
+
+    // ========== Import ==========
+
+    /**
+     * Get the fields of the duplicate fingerprint (see TransactionFingerprint) of
+     * every row in a date range. One range scan of the (user_id, transaction_date) index.
+     */
+    @Query("SELECT transaction_date, type, amount, card_type, card_id, account_id, notes FROM transactions " +
+            "WHERE user_id = :userId AND transaction_date BETWEEN :startDate AND :endDate")
+    List<FingerprintRow> getFingerprintRowsSync(long userId, long startDate, long endDate);
+
     // ========== Filtered Queries ==========
 
     /**
      * Get transactions by type (INCOME, EXPENSE, TRANSFER)
      */
-    @Query("SELECT * FROM transactions WHERE user_id = :userId AND type = :type ORDER BY transaction_date DESC")
+    @Query(BY_TYPE_SQL)
     LiveData<List<Transaction>> getByType(long userId, String type);
 
     /**
      * Get transactions by category
      */
-    @Query("SELECT * FROM transactions WHERE user_id = :userId AND category_id = :categoryId ORDER BY transaction_date DESC")
+    @Query(BY_CATEGORY_SQL)
     LiveData<List<Transaction>> getByCategory(long userId, long categoryId);
 
     /**
      * Get transactions by account
      */
-    @Query("SELECT * FROM transactions WHERE user_id = :userId AND account_id = :accountId ORDER BY transaction_date DESC")
+    @Query(BY_ACCOUNT_SQL)
     LiveData<List<Transaction>> getByAccount(long userId, long accountId);
 
     /**
      * Get transactions by card
      */
-    @Query("SELECT * FROM transactions WHERE user_id = :userId AND card_id = :cardId ORDER BY transaction_date DESC")
+    @Query(BY_CARD_SQL)
     LiveData<List<Transaction>> getByCard(long userId, long cardId);
 
     /**
      * Get transactions for a trip
      */
-    @Query("SELECT * FROM transactions WHERE user_id = :userId AND trip_id = :tripId ORDER BY transaction_date DESC")
+    @Query(BY_TRIP_SQL)
     LiveData<List<Transaction>> getByTrip(long userId, long tripId);
 
+    @Query(BY_TRIP_SQL)
+    List<Transaction> getByTripSync(long userId, long tripId);
+
+    /**
+     * Get the most recent transactions of a trip
+     */
+    @Query("SELECT * FROM transactions WHERE user_id = :userId AND trip_id = :tripId " +
+            "ORDER BY transaction_date DESC LIMIT :limit")
+    LiveData<List<Transaction>> getRecentByTrip(long userId, long tripId, int limit);
+
     /**
      * Get transactions by merchant
      */
-    @Query("SELECT * FROM transactions WHERE user_id = :userId AND merchant_id = :merchantId ORDER BY transaction_date DESC")
+    @Query(BY_MERCHANT_SQL)
     LiveData<List<Transaction>> getByMerchant(long userId, long merchantId);
 
     // ========== Date Range Queries ==========
@@ -109,10 +240,10 @@ public interface TransactionDao {
     /**
      * Get transactions within date range
      */
-    @Query("SELECT * FROM transactions WHERE user_id = :userId AND transaction_date BETWEEN :startDate AND :endDate ORDER BY transaction_date DESC")
+    @Query(BY_DATE_RANGE_SQL)
     LiveData<List<Transaction>> getByDateRange(long userId, long startDate, long endDate);
 
-    @Query("SELECT * FROM transactions WHERE user_id = :userId AND transaction_date BETWEEN :startDate AND :endDate ORDER BY transaction_date DESC")
+    @Query(BY_DATE_RANGE_SQL)
     List<Transaction> getByDateRangeSync(long userId, long startDate, long endDate);
 
     /**
@@ -177,10 +308,32 @@ public interface TransactionDao {
     // ========== Search Queries ==========
 
     /**
-     * Search transactions by notes (full-text search)
+     * Search transactions by notes, merchant or category name, newest first.
+     *
+     * @param matchQuery FTS MATCH expression (see TransactionSearch.toMatchQuery)
+     */
+    @Query("SELECT * FROM transactions WHERE user_id = :userId AND transaction_id IN " +
+            "(SELECT rowid FROM transaction_search WHERE transaction_search MATCH :matchQuery) " +
+            "ORDER BY transaction_date DESC")
+    LiveData<List<Transaction>> search(long userId, String matchQuery);
+
+    /**
+     * Get every match of a full-text query with the data to rank it.
+     * Only IDs and match statistics are read; rows are loaded per page with getByIdsSync.
+     *
+     * @param matchQuery FTS MATCH expression (see TransactionSearch.toMatchQuery)
      */
-    @Query("SELECT * FROM transactions WHERE user_id = :userId AND notes LIKE '%' || :searchQuery || '%' ORDER BY transaction_date DESC")
-    LiveData<List<Transaction>> search(long userId, String searchQuery);
+    @Query("SELECT t.transaction_id, t.transaction_date, " +
+            "matchinfo(transaction_search, 'pcnx') AS match_info " +
+            "FROM transaction_search JOIN transactions t ON t.transaction_id = transaction_search.rowid " +
+            "WHERE transaction_search MATCH :matchQuery AND t.user_id = :userId")
+    List<SearchMatch> searchMatches(long userId, String matchQuery);
+
+    /**
+     * Get transactions by ID (in no particular order)
+     */
+    @Query("SELECT * FROM transactions WHERE transaction_id IN (:transactionIds)")
+    List<Transaction> getByIdsSync(List<Long> transactionIds);
 
     /**
      * Get transactions with attachments
@@ -194,6 +347,47 @@ public interface TransactionDao {
     @Query("SELECT * FROM transactions WHERE user_id = :userId AND latitude IS NOT NULL AND longitude IS NOT NULL ORDER BY transaction_date DESC")
     LiveData<List<Transaction>> getWithLocation(long userId);
 
+    /**
+     * Transactions of user ?1 inside the box lat [?2, ?3], lng [?4, ?5], of trip ?6
+     * (any trip when null), newest first, at most ?7 rows.
+     *
+     * transaction_spatial narrows the candidates (see FinTrackDatabase.createSpatialIndex);
+     * the exact check on t.latitude/t.longitude drops the few extra rows let through
+     * by the rtree's 32-bit float boxes. As in MerchantDao.IN_BOX_SQL, min_lat/min_lng
+     * are bounded on both sides so the B-tree fallback can seek.
+     */
+    String IN_AREA_SQL = "SELECT t.* FROM transaction_spatial s CROSS JOIN transactions t ON t.transaction_id = s.id " +
+            "WHERE s.min_lat >= ?2 AND s.min_lat <= ?3 AND s.min_lng >= ?4 AND s.min_lng <= ?5 " +
+            "AND s.max_lat >= ?2 AND s.max_lng >= ?4 " +
+            "AND t.user_id = ?1 AND (?6 IS NULL OR t.trip_id = ?6) " +
+            "AND t.latitude BETWEEN ?2 AND ?3 AND t.longitude BETWEEN ?4 AND ?5 " +
+            "ORDER BY t.transaction_date DESC LIMIT ?7";
+
+    /**
+     * Get located transactions inside a bounding box (a map viewport), newest first
+     *
+     * @param tripId Only this trip's transactions, or null for all
+     * @param limit  Maximum number of rows (markers) to return
+     */
+    default LiveData<List<Transaction>> getInArea(long userId, Long tripId, double minLat, double maxLat,
+                                                  double minLng, double maxLng, int limit) {
+        return queryLive(new SimpleSQLiteQuery(IN_AREA_SQL,
+                new Object[]{userId, minLat, maxLat, minLng, maxLng, tripId, limit}));
+    }
+
+    @RawQuery(observedEntities = Transaction.class)
+    LiveData<List<Transaction>> queryLive(SupportSQLiteQuery query);
+
+    /**
+     * Get the bounding box of a trip's located transactions (to fit the map camera
+     * without loading them)
+     */
+    @Query("SELECT MIN(latitude) AS min_lat, MAX(latitude) AS max_lat, " +
+            "MIN(longitude) AS min_lng, MAX(longitude) AS max_lng, COUNT(*) AS point_count " +
+            "FROM transactions WHERE user_id = :userId AND trip_id = :tripId " +
+            "AND latitude IS NOT NULL AND longitude IS NOT NULL")
+    LiveData<LocationBounds> getLocationBoundsForTrip(long userId, long tripId);
+
     // ========== Sync Queries ==========
 
     /**
@@ -268,7 +462,7 @@ public interface TransactionDao {
     /**
      * Get all transactions synchronously
      */
-    @Query("SELECT * FROM transactions WHERE user_id = :userId ORDER BY transaction_date DESC")
+    @Query(ALL_BY_USER_SQL)
     List<Transaction> getAllByUserSync(long userId);
 
     /**
@@ -316,6 +510,12 @@ public interface TransactionDao {
     @Query("SELECT COUNT(*) FROM transactions WHERE user_id = :userId AND transaction_date BETWEEN :startDate AND :endDate")
     LiveData<Integer> getTransactionCountForDateRange(long userId, long startDate, long endDate);
 
+    /**
+     * Get transaction count for date range (synchronous)
+     */
+    @Query("SELECT COUNT(*) FROM transactions WHERE user_id = :userId AND transaction_date BETWEEN :startDate AND :endDate")
+    int getTransactionCountForDateRangeSync(long userId, long startDate, long endDate);
+
     /**
      * Update trip ID for a transaction
      */
@@ -371,17 +571,13 @@ public interface TransactionDao {
     /**
      * Get total expenses for date range (sync)
      */
-    @Query("SELECT COALESCE(SUM(amount), 0) FROM transactions " +
-            "WHERE user_id = :userId AND type = 'EXPENSE' AND status = 'COMPLETED' " +
-            "AND transaction_date BETWEEN :startDate AND :endDate")
+    @Query(TOTAL_EXPENSES_FOR_RANGE_SQL)
     double getTotalExpensesForRangeSync(long userId, long startDate, long endDate);
 
     /**
      * Get total income for date range (sync)
      */
-    @Query("SELECT COALESCE(SUM(amount), 0) FROM transactions " +
-            "WHERE user_id = :userId AND type = 'INCOME' AND status = 'COMPLETED' " +
-            "AND transaction_date BETWEEN :startDate AND :endDate")
+    @Query(TOTAL_INCOME_FOR_RANGE_SQL)
     double getTotalIncomeForRangeSync(long userId, long startDate, long endDate);
 
     /**
@@ -412,4 +608,37 @@ public interface TransactionDao {
         public Double total_amount;
         public Integer transaction_count;
     }
+
+    /**
+     * POJO for the bounding box of a set of located transactions (null bounds when point_count is 0)
+     */
+    class LocationBounds {
+        public Double min_lat;
+        public Double max_lat;
+        public Double min_lng;
+        public Double max_lng;
+        public int point_count;
+    }
+
+    /**
+     * POJO for the fingerprint fields of a transaction (statement import dedup)
+     */
+    class FingerprintRow {
+        public long transaction_date;
+        public String type;
+        public double amount;
+        public String card_type;
+        public Long card_id;
+        public Long account_id;
+        public String notes;
+    }
+
+    /**
+     * POJO for a full-text match (matchinfo 'pcnx' blob)
+     */
+    class SearchMatch {
+        public long transaction_id;
+        public long transaction_date;
+        public byte[] match_info;
+    }
 }
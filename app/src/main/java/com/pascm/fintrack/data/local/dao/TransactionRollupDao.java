@@ -0,0 +1,146 @@
+package com.pascm.fintrack.data.local.dao;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+/**
+ * Data Access Object for the transaction_rollups table.
+ *
+ * All report aggregates are served from here. Day parameters are local epoch days
+ * (LocalDate.toEpochDay()), both ends inclusive. Rows only hold COMPLETED transactions.
+ *
+ * Rows are written by triggers, so this DAO has no insert/update methods; the only
+ * write is a full rebuild, used after the device time zone changes (days are keyed
+ * by local time at write time).
+ */
+@Dao
+public interface TransactionRollupDao {
+
+    /**
+     * Local epoch day of a transaction_date column, as computed by the triggers
+     */
+    String LOCAL_DAY_SQL = "CAST(ROUND(julianday(transaction_date / 1000, 'unixepoch', 'localtime', 'start of day') - 2440587.5) AS INTEGER)";
+
+    // ========== Totals ==========
+
+    /**
+     * Total amount of a type (INCOME, EXPENSE) for a day range, kept current
+     */
+    @Query("SELECT COALESCE(SUM(total_amount), 0) FROM transaction_rollups " +
+            "WHERE user_id = :userId AND day BETWEEN :startDay AND :endDay AND type = :type")
+    LiveData<Double> observeTotalForRange(long userId, long startDay, long endDay, String type);
+
+    // ========== Combined Period Report ==========
+
+    /**
+     * Get every (category, card type) group of a day range in one index walk,
+     * with income and expense split by conditional aggregation. The totals are
+     * the sum of these rows; the category and account-type breakdowns fold the
+     * expense columns.
+     */
+    @Query("SELECT category_id, card_type, " +
+            "SUM(CASE WHEN type = 'INCOME' THEN total_amount ELSE 0 END) as income_amount, " +
+            "SUM(CASE WHEN type = 'EXPENSE' THEN total_amount ELSE 0 END) as expense_amount, " +
+            "SUM(CASE WHEN type = 'EXPENSE' THEN transaction_count ELSE 0 END) as expense_count, " +
+            "SUM(transaction_count) as transaction_count " +
+            "FROM transaction_rollups " +
+            "WHERE user_id = :userId AND day BETWEEN :startDay AND :endDay " +
+            "GROUP BY category_id, card_type")
+    List<RollupGroup> getGroupsForRange(long userId, long startDay, long endDay);
+
+    /**
+     * Get the categories shown in the report breakdown (active expense categories)
+     */
+    @Query("SELECT category_id, name as category_name, icon as category_icon, color as category_color " +
+            "FROM categories WHERE is_expense = 1 AND active = 1")
+    List<CategoryInfo> getReportCategories();
+
+    /**
+     * Read everything a period report needs inside one read transaction, so a
+     * concurrent write cannot land between the totals and the breakdowns.
+     */
+    @Transaction
+    default PeriodReportData getPeriodReport(long userId, long startDay, long endDay) {
+        PeriodReportData data = new PeriodReportData();
+        data.groups = getGroupsForRange(userId, startDay, endDay);
+        data.categories = getReportCategories();
+        return data;
+    }
+
+    /**
+     * POJO for a rollup group of a day range
+     */
+    class RollupGroup {
+        public long category_id;
+        public String card_type;
+        public double income_amount;
+        public double expense_amount;
+        public int expense_count;
+        /** Completed transactions of every type */
+        public int transaction_count;
+    }
+
+    /**
+     * POJO for category display data
+     */
+    class CategoryInfo {
+        public long category_id;
+        public String category_name;
+        public String category_icon;
+        public Integer category_color;
+    }
+
+    /**
+     * Consistent snapshot of the data behind a period report
+     */
+    class PeriodReportData {
+        public List<RollupGroup> groups;
+        public List<CategoryInfo> categories;
+    }
+
+    // ========== Series ==========
+
+    /**
+     * Get daily expenses since a day (newest first)
+     */
+    @Query("SELECT date(day * 86400, 'unixepoch') as date, SUM(total_amount) as total " +
+            "FROM transaction_rollups " +
+            "WHERE user_id = :userId AND day >= :sinceDay AND type = 'EXPENSE' " +
+            "GROUP BY day ORDER BY day DESC")
+    List<TransactionDao.DailyExpense> getDailyExpenses(long userId, long sinceDay);
+
+    /**
+     * Get expenses by month for a day range (usually one year)
+     */
+    @Query("SELECT strftime('%m', day * 86400, 'unixepoch') as month, SUM(total_amount) as total " +
+            "FROM transaction_rollups " +
+            "WHERE user_id = :userId AND day BETWEEN :startDay AND :endDay AND type = 'EXPENSE' " +
+            "GROUP BY month ORDER BY month ASC")
+    List<TransactionDao.MonthlyExpense> getSpendingByMonth(long userId, long startDay, long endDay);
+
+    // ========== Maintenance ==========
+
+    @Query("DELETE FROM transaction_rollups")
+    void deleteAll();
+
+    @Query("INSERT INTO transaction_rollups " +
+            "(user_id, day, type, category_id, card_type, total_amount, transaction_count) " +
+            "SELECT user_id, " + LOCAL_DAY_SQL + ", type, COALESCE(category_id, 0), COALESCE(card_type, ''), " +
+            "SUM(amount), COUNT(*) " +
+            "FROM transactions WHERE status = 'COMPLETED' " +
+            "GROUP BY 1, 2, 3, 4, 5")
+    void insertFromTransactions();
+
+    /**
+     * Recompute every rollup from the transactions table
+     */
+    @Transaction
+    default void rebuild() {
+        deleteAll();
+        insertFromTransactions();
+    }
+}
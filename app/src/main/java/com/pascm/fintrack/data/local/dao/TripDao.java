@@ -7,6 +7,7 @@ import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 import androidx.room.Update;
+import androidx.room.Upsert;
 
 import com.pascm.fintrack.data.local.entity.Trip;
 
@@ -28,6 +29,14 @@ public interface TripDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     List<Long> insertAll(List<Trip> trips);
 
+    /**
+     * Insert new trips and update existing ones in place, by primary key. Unlike
+     * a REPLACE insert, updated rows are never deleted, so ON DELETE actions of
+     * the rows that point to them do not fire. Returns -1 for updated rows.
+     */
+    @Upsert
+    List<Long> upsertAll(List<Trip> trips);
+
     // ========== Update Operations ==========
 
     @Update
@@ -110,7 +119,8 @@ public interface TripDao {
     LiveData<Integer> getTripCount(long userId);
 
     /**
-     * Search trips by name or destination
+     * Search trips by name or destination (a LIKE scan of one user's trips,
+     * narrowed by the user_id index; not on the transaction_search index)
      */
     @Query("SELECT * FROM trips WHERE user_id = :userId AND (name LIKE '%' || :query || '%' OR destination LIKE '%' || :query || '%') ORDER BY start_date DESC")
     LiveData<List<Trip>> search(long userId, String query);
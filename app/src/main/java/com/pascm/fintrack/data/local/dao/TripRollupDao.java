@@ -0,0 +1,75 @@
+package com.pascm.fintrack.data.local.dao;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+/**
+ * Data Access Object for the trip_rollups table (per-trip daily totals).
+ *
+ * Rows are written by triggers on transactions, so reading a trip's figures costs
+ * one row per (day, type, category) of the trip, however many transactions it has.
+ * As in transaction_rollups, days are local epoch days at write time and the only
+ * write here is a full rebuild after a time zone change.
+ */
+@Dao
+public interface TripRollupDao {
+
+    /**
+     * Rollup type of a transactions row: its type, except that expenses with an
+     * amount of 0 or less are kept apart as NON_POSITIVE_EXPENSE. They count as
+     * trip transactions but not as spending, expenses or for the top category.
+     */
+    String TYPE_SQL = "CASE WHEN type = 'EXPENSE' AND amount <= 0 THEN 'NON_POSITIVE_EXPENSE' ELSE type END";
+
+    /**
+     * Totals of a trip in one row: spent, expense and transaction counts, days
+     * with expenses and the category with the most expenses
+     */
+    @Query("SELECT " +
+            "COALESCE(SUM(CASE WHEN type = 'EXPENSE' THEN total_amount END), 0) as total_spent, " +
+            "COALESCE(SUM(CASE WHEN type = 'EXPENSE' THEN transaction_count END), 0) as expense_count, " +
+            "COALESCE(SUM(transaction_count), 0) as transaction_count, " +
+            "MIN(CASE WHEN type = 'EXPENSE' THEN day END) as first_expense_day, " +
+            "MAX(CASE WHEN type = 'EXPENSE' THEN day END) as last_expense_day, " +
+            "(SELECT c.name FROM trip_rollups r JOIN categories c ON c.category_id = r.category_id " +
+            "  WHERE r.trip_id = :tripId AND r.type = 'EXPENSE' " +
+            "  GROUP BY r.category_id ORDER BY SUM(r.transaction_count) DESC, r.category_id LIMIT 1) as top_category_name " +
+            "FROM trip_rollups WHERE trip_id = :tripId")
+    LiveData<TripSpendSummary> observeSummary(long tripId);
+
+    /**
+     * POJO for a trip's totals
+     */
+    class TripSpendSummary {
+        public double total_spent;
+        public int expense_count;
+        public int transaction_count;
+        /** Epoch day, null without expenses */
+        public Long first_expense_day;
+        public Long last_expense_day;
+        public String top_category_name;
+    }
+
+    // ========== Maintenance ==========
+
+    @Query("DELETE FROM trip_rollups")
+    void deleteAll();
+
+    @Query("INSERT INTO trip_rollups (trip_id, day, type, category_id, total_amount, transaction_count) " +
+            "SELECT trip_id, " + TransactionRollupDao.LOCAL_DAY_SQL + ", " + TYPE_SQL + ", COALESCE(category_id, 0), " +
+            "SUM(amount), COUNT(*) " +
+            "FROM transactions WHERE trip_id IS NOT NULL " +
+            "GROUP BY 1, 2, 3, 4")
+    void insertFromTransactions();
+
+    /**
+     * Recompute every trip rollup from the transactions table
+     */
+    @Transaction
+    default void rebuild() {
+        deleteAll();
+        insertFromTransactions();
+    }
+}
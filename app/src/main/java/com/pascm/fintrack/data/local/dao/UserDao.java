@@ -59,6 +59,12 @@ public interface UserDao {
     @Query("UPDATE users SET password_hash = :newHash, updated_at = :updatedAt WHERE user_id = :userId")
     int updatePasswordHash(long userId, String newHash, long updatedAt);
 
+    /**
+     * Link the user to its Firebase Auth account
+     */
+    @Query("UPDATE users SET firebase_uid = :firebaseUid, updated_at = :updatedAt WHERE user_id = :userId")
+    int updateFirebaseUid(long userId, String firebaseUid, long updatedAt);
+
     // ========== Delete Operations ==========
 
     @Delete
@@ -127,4 +133,7 @@ public interface UserDao {
 
     @Query("SELECT * FROM user_profiles WHERE user_id = :userId LIMIT 1")
     LiveData<UserProfile> getProfile(long userId);
+
+    @Query("SELECT * FROM user_profiles WHERE user_id = :userId LIMIT 1")
+    UserProfile getProfileSync(long userId);
 }
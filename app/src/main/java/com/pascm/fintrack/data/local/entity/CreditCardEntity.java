@@ -11,6 +11,7 @@ import androidx.room.PrimaryKey;
 import com.pascm.fintrack.model.CreditCard;
 
 import java.time.Instant;
+import java.util.UUID;
 
 /**
  * CreditCardEntity - Room entity for credit cards.
@@ -39,7 +40,10 @@ import java.time.Instant;
         },
         indices = {
                 @Index("user_id"),
-                @Index("account_id")
+                @Index("account_id"),
+                @Index("next_statement_date"),
+                @Index("next_payment_due_date"),
+                @Index(value = "sync_id", unique = true)
         }
 )
 public class CreditCardEntity {
@@ -48,6 +52,13 @@ public class CreditCardEntity {
     @ColumnInfo(name = "card_id")
     private long cardId;
 
+    /**
+     * Globally unique ID (UUID), the document ID of the row in Firestore.
+     * Local IDs are per install; this one is the same on every device.
+     */
+    @ColumnInfo(name = "sync_id")
+    private String syncId;
+
     /**
      * Owner user ID (FK)
      */
@@ -112,6 +123,20 @@ public class CreditCardEntity {
     @ColumnInfo(name = "payment_due_day")
     private Integer paymentDueDay;
 
+    /**
+     * Next statement date not yet notified, maintained by CardReminderWorker.
+     * Null until computed (new cards, or statement_day changed).
+     */
+    @ColumnInfo(name = "next_statement_date")
+    private java.time.LocalDate scheduledStatementDate;
+
+    /**
+     * Next payment due date not yet notified, maintained by CardReminderWorker.
+     * Null until computed (new cards, or payment_due_day changed).
+     */
+    @ColumnInfo(name = "next_payment_due_date")
+    private java.time.LocalDate scheduledPaymentDueDate;
+
     /**
      * Card expiration date
      */
@@ -148,6 +173,7 @@ public class CreditCardEntity {
     // ========== Constructors ==========
 
     public CreditCardEntity() {
+        this.syncId = UUID.randomUUID().toString();
         Instant now = Instant.now();
         this.createdAt = now;
         this.updatedAt = now;
@@ -315,6 +341,14 @@ public class CreditCardEntity {
         this.cardId = cardId;
     }
 
+    public String getSyncId() {
+        return syncId;
+    }
+
+    public void setSyncId(String syncId) {
+        this.syncId = syncId;
+    }
+
     public long getUserId() {
         return userId;
     }
@@ -399,6 +433,22 @@ public class CreditCardEntity {
         this.paymentDueDay = paymentDueDay;
     }
 
+    public java.time.LocalDate getScheduledStatementDate() {
+        return scheduledStatementDate;
+    }
+
+    public void setScheduledStatementDate(java.time.LocalDate scheduledStatementDate) {
+        this.scheduledStatementDate = scheduledStatementDate;
+    }
+
+    public java.time.LocalDate getScheduledPaymentDueDate() {
+        return scheduledPaymentDueDate;
+    }
+
+    public void setScheduledPaymentDueDate(java.time.LocalDate scheduledPaymentDueDate) {
+        this.scheduledPaymentDueDate = scheduledPaymentDueDate;
+    }
+
     public Instant getExpiryDate() {
         return expiryDate;
     }
@@ -9,6 +9,7 @@ import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import java.time.Instant;
+import java.util.UUID;
 
 /**
  * Room entity for Debit Cards.
@@ -53,7 +54,8 @@ import java.time.Instant;
     },
     indices = {
         @Index("user_id"),
-        @Index("account_id")
+        @Index("account_id"),
+        @Index(value = "sync_id", unique = true)
     }
 )
 public class DebitCardEntity {
@@ -62,6 +64,13 @@ public class DebitCardEntity {
     @ColumnInfo(name = "card_id")
     private long cardId;
 
+    /**
+     * Globally unique ID (UUID), the document ID of the row in Firestore.
+     * Local IDs are per install; this one is the same on every device.
+     */
+    @ColumnInfo(name = "sync_id")
+    private String syncId;
+
     /**
      * User who owns this card
      */
@@ -198,6 +207,7 @@ public class DebitCardEntity {
     // ========== Constructors ==========
 
     public DebitCardEntity() {
+        this.syncId = UUID.randomUUID().toString();
         this.createdAt = Instant.now();
         this.updatedAt = Instant.now();
     }
@@ -260,6 +270,14 @@ public class DebitCardEntity {
         this.cardId = cardId;
     }
 
+    public String getSyncId() {
+        return syncId;
+    }
+
+    public void setSyncId(String syncId) {
+        this.syncId = syncId;
+    }
+
     public long getUserId() {
         return userId;
     }
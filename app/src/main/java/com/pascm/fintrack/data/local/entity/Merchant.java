@@ -10,6 +10,7 @@ import androidx.room.PrimaryKey;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Merchant entity - represents places/merchants where transactions occur.
@@ -23,7 +24,7 @@ import java.util.List;
                 childColumns = "user_id",
                 onDelete = ForeignKey.CASCADE
         ),
-        indices = { @Index("name"), @Index("user_id") }
+        indices = { @Index("name"), @Index("user_id"), @Index(value = "sync_id", unique = true) }
 )
 public class Merchant {
 
@@ -31,6 +32,13 @@ public class Merchant {
     @ColumnInfo(name = "merchant_id")
     private long merchantId;
 
+    /**
+     * Globally unique ID (UUID), the document ID of the row in Firestore.
+     * Local IDs are per install; this one is the same on every device.
+     */
+    @ColumnInfo(name = "sync_id")
+    private String syncId;
+
     // Nuevo: ID del usuario dueño
     @ColumnInfo(name = "user_id")
     private long userId;
@@ -107,6 +115,7 @@ public class Merchant {
     // ========== Constructors ==========
 
     public Merchant() {
+        this.syncId = UUID.randomUUID().toString();
         this.createdAt = Instant.now();
     }
 
@@ -148,6 +157,14 @@ public class Merchant {
         this.merchantId = merchantId;
     }
 
+    public String getSyncId() {
+        return syncId;
+    }
+
+    public void setSyncId(String syncId) {
+        this.syncId = syncId;
+    }
+
     public long getUserId() {
         return userId;
     }
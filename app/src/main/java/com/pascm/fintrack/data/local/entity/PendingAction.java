@@ -23,7 +23,8 @@ import java.time.Instant;
                 @Index("entity_type"),
                 @Index("entity_id"),
                 @Index("created_at"),
-                @Index("retry_count")
+                @Index("retry_count"),
+                @Index("user_id")
         }
 )
 public class PendingAction {
@@ -45,6 +46,13 @@ public class PendingAction {
     @ColumnInfo(name = "entity_id")
     private long entityId;
 
+    /**
+     * Local ID of the user that owns the entity (payload userId).
+     * Null for rows queued before this column existed, until SyncEngine reads them.
+     */
+    @ColumnInfo(name = "user_id")
+    private Long userId;
+
     /**
      * Action to perform ("CREATE", "UPDATE", "DELETE")
      */
@@ -167,6 +175,13 @@ public class PendingAction {
         return minutesSinceLastAttempt >= backoffMinutes;
     }
 
+    /**
+     * Check if action is a create operation
+     */
+    public boolean isCreateAction() {
+        return "CREATE".equalsIgnoreCase(action);
+    }
+
     /**
      * Check if action is a delete operation
      */
@@ -201,6 +216,14 @@ public class PendingAction {
         this.entityId = entityId;
     }
 
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
     @NonNull
     public String getAction() {
         return action;
@@ -0,0 +1,125 @@
+package com.pascm.fintrack.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+import java.time.Instant;
+
+/**
+ * SyncCursor entity - high-water mark of the delta pull from Firebase.
+ *
+ * One row per (user, entity type). Remote documents are read in order of their
+ * server-side update time and document ID; the cursor holds the position of the
+ * last document applied, so the next pull only reads documents changed after it.
+ */
+@Entity(
+        tableName = "sync_cursors",
+        primaryKeys = {"user_id", "entity_type"}
+)
+public class SyncCursor {
+
+    /**
+     * Owner user ID
+     */
+    @ColumnInfo(name = "user_id")
+    private long userId;
+
+    /**
+     * Type of entity (e.g., "TRANSACTION", "CREDIT_CARD", "TRIP")
+     */
+    @NonNull
+    @ColumnInfo(name = "entity_type")
+    private String entityType = "";
+
+    /**
+     * Server update time of the last applied document, in microseconds since epoch
+     * (Firestore timestamp precision). 0 if nothing has been pulled yet.
+     */
+    @ColumnInfo(name = "cursor_micros")
+    private long cursorMicros;
+
+    /**
+     * Document ID of the last applied document (tie-break for equal update times)
+     */
+    @ColumnInfo(name = "cursor_document_id")
+    private String cursorDocumentId;
+
+    /**
+     * Last time a pull of this entity type completed
+     */
+    @ColumnInfo(name = "last_pulled_at")
+    private Instant lastPulledAt;
+
+    // ========== Constructors ==========
+
+    public SyncCursor() {
+    }
+
+    @Ignore
+    public SyncCursor(long userId, @NonNull String entityType) {
+        this.userId = userId;
+        this.entityType = entityType;
+    }
+
+    // ========== Business Logic Methods ==========
+
+    /**
+     * Check if this entity type has never been pulled
+     */
+    public boolean isInitial() {
+        return cursorDocumentId == null;
+    }
+
+    /**
+     * Move the cursor past a document
+     */
+    public void advance(long micros, String documentId) {
+        this.cursorMicros = micros;
+        this.cursorDocumentId = documentId;
+    }
+
+    // ========== Getters and Setters ==========
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    @NonNull
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(@NonNull String entityType) {
+        this.entityType = entityType;
+    }
+
+    public long getCursorMicros() {
+        return cursorMicros;
+    }
+
+    public void setCursorMicros(long cursorMicros) {
+        this.cursorMicros = cursorMicros;
+    }
+
+    public String getCursorDocumentId() {
+        return cursorDocumentId;
+    }
+
+    public void setCursorDocumentId(String cursorDocumentId) {
+        this.cursorDocumentId = cursorDocumentId;
+    }
+
+    public Instant getLastPulledAt() {
+        return lastPulledAt;
+    }
+
+    public void setLastPulledAt(Instant lastPulledAt) {
+        this.lastPulledAt = lastPulledAt;
+    }
+}
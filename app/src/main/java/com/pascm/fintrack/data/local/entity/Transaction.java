@@ -9,6 +9,7 @@ import androidx.room.PrimaryKey;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Transaction entity - represents a financial transaction (income, expense, or transfer).
@@ -44,7 +45,6 @@ import java.util.List;
                 )
         },
         indices = {
-                @Index("user_id"),
                 @Index("account_id"),
                 @Index("card_id"),
                 @Index("category_id"),
@@ -52,7 +52,21 @@ import java.util.List;
                 @Index("merchant_id"),
                 @Index("trip_id"),
                 @Index("created_at"),
-                @Index(value = {"user_id", "created_at"})
+                @Index(value = "sync_id", unique = true),
+
+                // Composite indices matched to the TransactionDao predicates (see MIGRATION_8_9).
+                // transaction_id is the rowid, so every index is implicitly ordered by it last,
+                // which also serves the (transaction_date, transaction_id) keyset pages.
+                @Index(value = {"user_id", "transaction_date"}),
+                @Index(value = {"user_id", "type", "transaction_date"}),
+                @Index(value = {"user_id", "type", "status", "transaction_date", "amount"}),
+                @Index(value = {"user_id", "trip_id", "transaction_date"}),
+
+                // Lists by category, account, card and merchant (see MIGRATION_17_18)
+                @Index(value = {"user_id", "category_id", "transaction_date"}),
+                @Index(value = {"user_id", "account_id", "transaction_date"}),
+                @Index(value = {"user_id", "card_id", "transaction_date"}),
+                @Index(value = {"user_id", "merchant_id", "transaction_date"})
         }
 )
 public class Transaction {
@@ -61,6 +75,13 @@ public class Transaction {
     @ColumnInfo(name = "transaction_id")
     private long transactionId;
 
+    /**
+     * Globally unique ID (UUID), the document ID of the row in Firestore.
+     * Local IDs are per install; this one is the same on every device.
+     */
+    @ColumnInfo(name = "sync_id")
+    private String syncId;
+
     /**
      * Owner user ID (FK)
      */
@@ -192,6 +213,7 @@ public class Transaction {
     // ========== Constructors ==========
 
     public Transaction() {
+        this.syncId = UUID.randomUUID().toString();
         Instant now = Instant.now();
         this.transactionDate = now;
         this.createdAt = now;
@@ -241,6 +263,14 @@ public class Transaction {
         this.transactionId = transactionId;
     }
 
+    public String getSyncId() {
+        return syncId;
+    }
+
+    public void setSyncId(String syncId) {
+        this.syncId = syncId;
+    }
+
     public long getUserId() {
         return userId;
     }
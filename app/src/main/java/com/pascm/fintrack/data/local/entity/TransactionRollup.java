@@ -0,0 +1,127 @@
+package com.pascm.fintrack.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+/**
+ * TransactionRollup entity - pre-aggregated daily totals of completed transactions.
+ *
+ * One row per (user, local day, type, category, card type). Rows are maintained by
+ * SQLite triggers on the transactions table (see FinTrackDatabase.ROLLUP_TRIGGERS),
+ * so every write path keeps them in sync, including DAO calls that bypass the
+ * repositories. Reports read this table instead of scanning transactions, so their
+ * cost grows with the number of days in the range rather than the number of rows.
+ *
+ * Only COMPLETED transactions are counted, matching the report queries.
+ */
+@Entity(
+        tableName = "transaction_rollups",
+        primaryKeys = {"user_id", "day", "type", "category_id", "card_type"}
+)
+public class TransactionRollup {
+
+    /**
+     * Owner user ID
+     */
+    @ColumnInfo(name = "user_id")
+    private long userId;
+
+    /**
+     * Local calendar day of transaction_date, as epoch day (LocalDate.toEpochDay())
+     */
+    @ColumnInfo(name = "day")
+    private long day;
+
+    /**
+     * Transaction type name (INCOME, EXPENSE, TRANSFER)
+     */
+    @NonNull
+    @ColumnInfo(name = "type")
+    private String type = "";
+
+    /**
+     * Category ID, 0 when the transaction has no category
+     */
+    @ColumnInfo(name = "category_id")
+    private long categoryId;
+
+    /**
+     * Card type ("CREDIT", "DEBIT"), empty when paid without a card
+     */
+    @NonNull
+    @ColumnInfo(name = "card_type")
+    private String cardType = "";
+
+    /**
+     * Sum of amounts
+     */
+    @ColumnInfo(name = "total_amount")
+    private double totalAmount;
+
+    /**
+     * Number of transactions
+     */
+    @ColumnInfo(name = "transaction_count")
+    private int transactionCount;
+
+    // ========== Getters and Setters ==========
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    public long getDay() {
+        return day;
+    }
+
+    public void setDay(long day) {
+        this.day = day;
+    }
+
+    @NonNull
+    public String getType() {
+        return type;
+    }
+
+    public void setType(@NonNull String type) {
+        this.type = type;
+    }
+
+    public long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    @NonNull
+    public String getCardType() {
+        return cardType;
+    }
+
+    public void setCardType(@NonNull String cardType) {
+        this.cardType = cardType;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(int transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+}
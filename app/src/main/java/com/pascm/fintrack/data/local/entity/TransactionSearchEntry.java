@@ -0,0 +1,75 @@
+package com.pascm.fintrack.data.local.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * TransactionSearchEntry entity - full-text index of transactions (FTS4).
+ *
+ * One row per transaction, with the same rowid as its transaction_id, holding the
+ * notes and the names of its merchant and category. Rows are maintained by SQLite
+ * triggers on transactions, merchants and categories (see
+ * FinTrackDatabase.SEARCH_TRIGGERS), so renaming a merchant or category re-indexes
+ * its transactions.
+ *
+ * The unicode61 tokenizer folds case and removes diacritics, so "cafe" matches
+ * "Café". Prefix indexes of 2 and 3 characters keep typeahead prefix queries
+ * ("caf*") from scanning the whole term list.
+ */
+@Fts4(tokenizer = FtsOptions.TOKENIZER_UNICODE61, prefix = {2, 3})
+@Entity(tableName = "transaction_search")
+public class TransactionSearchEntry {
+
+    /**
+     * transaction_id of the indexed transaction
+     */
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowId;
+
+    @ColumnInfo(name = "notes")
+    private String notes;
+
+    @ColumnInfo(name = "merchant_name")
+    private String merchantName;
+
+    @ColumnInfo(name = "category_name")
+    private String categoryName;
+
+    // ========== Getters and Setters ==========
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    public void setRowId(long rowId) {
+        this.rowId = rowId;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public String getMerchantName() {
+        return merchantName;
+    }
+
+    public void setMerchantName(String merchantName) {
+        this.merchantName = merchantName;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public void setCategoryName(String categoryName) {
+        this.categoryName = categoryName;
+    }
+}
@@ -9,6 +9,7 @@ import androidx.room.PrimaryKey;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.UUID;
 
 /**
  * Trip entity - represents a travel/trip with budget tracking.
@@ -27,7 +28,8 @@ import java.time.LocalDate;
                 @Index("user_id"),
                 @Index("start_date"),
                 @Index("status"),
-                @Index(value = {"user_id", "status"})
+                @Index(value = {"user_id", "status"}),
+                @Index(value = "sync_id", unique = true)
         }
 )
 public class Trip {
@@ -36,6 +38,13 @@ public class Trip {
     @ColumnInfo(name = "trip_id")
     private long tripId;
 
+    /**
+     * Globally unique ID (UUID), the document ID of the row in Firestore.
+     * Local IDs are per install; this one is the same on every device.
+     */
+    @ColumnInfo(name = "sync_id")
+    private String syncId;
+
     /**
      * Owner user ID (FK)
      */
@@ -154,6 +163,7 @@ public class Trip {
     // ========== Constructors ==========
 
     public Trip() {
+        this.syncId = UUID.randomUUID().toString();
         Instant now = Instant.now();
         this.createdAt = now;
         this.updatedAt = now;
@@ -203,6 +213,14 @@ public class Trip {
         this.tripId = tripId;
     }
 
+    public String getSyncId() {
+        return syncId;
+    }
+
+    public void setSyncId(String syncId) {
+        this.syncId = syncId;
+    }
+
     public long getUserId() {
         return userId;
     }
@@ -0,0 +1,112 @@
+package com.pascm.fintrack.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+/**
+ * TripRollup entity - pre-aggregated daily totals of a trip's transactions.
+ *
+ * One row per (trip, local day, type, category). Rows are maintained by SQLite
+ * triggers on the transactions table (see FinTrackDatabase.TRIP_ROLLUP_TRIGGERS),
+ * like transaction_rollups, so the trip screens read a handful of rows instead of
+ * loading every transaction of the trip.
+ *
+ * Every transaction with a trip_id counts, whatever its status, matching what the
+ * trip screens have always shown.
+ */
+@Entity(
+        tableName = "trip_rollups",
+        primaryKeys = {"trip_id", "day", "type", "category_id"}
+)
+public class TripRollup {
+
+    /**
+     * Trip ID
+     */
+    @ColumnInfo(name = "trip_id")
+    private long tripId;
+
+    /**
+     * Local calendar day of transaction_date, as epoch day (LocalDate.toEpochDay())
+     */
+    @ColumnInfo(name = "day")
+    private long day;
+
+    /**
+     * Transaction type name (INCOME, EXPENSE, TRANSFER), or NON_POSITIVE_EXPENSE
+     * for expenses with an amount of 0 or less (see TripRollupDao.TYPE_SQL)
+     */
+    @NonNull
+    @ColumnInfo(name = "type")
+    private String type = "";
+
+    /**
+     * Category ID, 0 when the transaction has no category
+     */
+    @ColumnInfo(name = "category_id")
+    private long categoryId;
+
+    /**
+     * Sum of amounts
+     */
+    @ColumnInfo(name = "total_amount")
+    private double totalAmount;
+
+    /**
+     * Number of transactions
+     */
+    @ColumnInfo(name = "transaction_count")
+    private int transactionCount;
+
+    // ========== Getters and Setters ==========
+
+    public long getTripId() {
+        return tripId;
+    }
+
+    public void setTripId(long tripId) {
+        this.tripId = tripId;
+    }
+
+    public long getDay() {
+        return day;
+    }
+
+    public void setDay(long day) {
+        this.day = day;
+    }
+
+    @NonNull
+    public String getType() {
+        return type;
+    }
+
+    public void setType(@NonNull String type) {
+        this.type = type;
+    }
+
+    public long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(int transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+}
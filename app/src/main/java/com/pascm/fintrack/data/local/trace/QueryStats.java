@@ -0,0 +1,77 @@
+package com.pascm.fintrack.data.local.trace;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregate for one SQL statement: latency histogram, rows and callers.
+ *
+ * Latencies go into power-of-two millisecond buckets (under 1 ms, 1-2 ms,
+ * 2-4 ms ... 1 s and more), so percentiles are estimates: the upper bound of
+ * the bucket that holds them. Not thread-safe; QueryTrace guards it.
+ */
+final class QueryStats {
+
+    /** Upper bounds of the buckets in milliseconds; the last bucket is open */
+    static final long[] BUCKET_BOUNDS_MS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+    /** Callers kept per statement; the rest are counted as "(other)" */
+    private static final int MAX_CALLERS = 16;
+
+    final String sql;
+    final long[] buckets = new long[BUCKET_BOUNDS_MS.length + 1];
+    final Map<String, Long> callers = new HashMap<>();
+    long count;
+    long totalNanos;
+    long maxNanos;
+    long totalRows;
+    long maxRows;
+    long mainThreadCount;
+
+    QueryStats(String sql) {
+        this.sql = sql;
+    }
+
+    void add(long elapsedNanos, int rows, boolean mainThread, String caller) {
+        count++;
+        totalNanos += elapsedNanos;
+        maxNanos = Math.max(maxNanos, elapsedNanos);
+        buckets[bucketOf(elapsedNanos)]++;
+        if (rows > 0) {
+            totalRows += rows;
+            maxRows = Math.max(maxRows, rows);
+        }
+        if (mainThread) {
+            mainThreadCount++;
+        }
+        String key = callers.containsKey(caller) || callers.size() < MAX_CALLERS ? caller : "(other)";
+        Long previous = callers.get(key);
+        callers.put(key, previous == null ? 1 : previous + 1);
+    }
+
+    static int bucketOf(long elapsedNanos) {
+        long millis = elapsedNanos / 1_000_000;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (millis < BUCKET_BOUNDS_MS[i]) return i;
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+
+    /**
+     * Estimated latency at the given percentile (0-100), in milliseconds: the
+     * upper bound of its bucket, or the maximum seen for the open bucket
+     */
+    double percentileMs(double percentile) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= Math.max(rank, 1)) {
+                double bound = i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : Double.MAX_VALUE;
+                return Math.min(bound, maxNanos / 1_000_000.0);
+            }
+        }
+        return maxNanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,421 @@
+package com.pascm.fintrack.data.local.trace;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Opt-in tracing of the queries run against FinTrackDatabase, to find the slow
+ * ones on real user data.
+ *
+ * When enabled (a setting of debug builds, applied the next time the database
+ * is opened; release builds never read it)
+ * every statement is timed at the SQLite open helper (TracingOpenHelperFactory)
+ * and recorded with:
+ * - its latency: until the cursor is closed for queries, until the statement
+ *   returns for writes
+ * - rows returned (queries only)
+ * - the calling app class and method, taken from the stack (for LiveData
+ *   queries, "LiveData")
+ * - the time the task waited in Room's query executor before running
+ * - whether it ran on the main thread
+ *
+ * Each SQL statement keeps a latency histogram (see QueryStats) and the last
+ * RECENT_SIZE statements are kept in a ring buffer. toJson() dumps both.
+ * Bind arguments are never recorded, so the dump holds no user data beyond
+ * the SQL text of the app itself.
+ *
+ * When disabled nothing is installed and the database runs untouched.
+ */
+public final class QueryTrace {
+
+    private static final String TAG = "QueryTrace";
+
+    private static final String PREFS_NAME = "fintrack_debug_prefs";
+    private static final String KEY_ENABLED = "query_tracing";
+
+    /** Statements kept in the ring buffer */
+    static final int RECENT_SIZE = 256;
+
+    /** Distinct SQL statements tracked; the rest are aggregated as "(other)" */
+    static final int MAX_STATEMENTS = 200;
+
+    private static final int MAX_SQL_LENGTH = 500;
+
+    /** Statements slower than this are also logged */
+    private static final long SLOW_NANOS = 100_000_000L;
+
+    private static final String APP_PACKAGE = "com.pascm.fintrack.";
+    private static final String DATA_LOCAL_PACKAGE = "com.pascm.fintrack.data.local.";
+
+    private static volatile boolean installed;
+    private static volatile boolean enabledForProcess;
+
+    // Guarded by LOCK
+    private static final Object LOCK = new Object();
+    private static final Map<String, QueryStats> STATS = new HashMap<>();
+    private static final Record[] RECENT = new Record[RECENT_SIZE];
+    private static int recentNext;
+    private static long startedAtMillis = System.currentTimeMillis();
+
+    /** Queue wait of the executor task running on this thread */
+    private static final ThreadLocal<Long> QUEUE_WAIT = new ThreadLocal<>();
+
+    private QueryTrace() {
+    }
+
+    // ========== Setting ==========
+
+    public static boolean isEnabled(Context context) {
+        if (enabledForProcess) {
+            return true;
+        }
+        SharedPreferences sp = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return sp.getBoolean(KEY_ENABLED, false);
+    }
+
+    /**
+     * Turn tracing on or off. Takes effect the next time the app starts.
+     */
+    public static void setEnabled(Context context, boolean enabled) {
+        SharedPreferences sp = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        sp.edit().putBoolean(KEY_ENABLED, enabled).apply();
+    }
+
+    /**
+     * Turn tracing on for this process only, without storing the setting. Must be
+     * called before the database is opened, i.e. before the app starts.
+     */
+    @VisibleForTesting
+    public static void enableForProcess() {
+        enabledForProcess = true;
+    }
+
+    /**
+     * Whether tracing is running in this process
+     */
+    public static boolean isInstalled() {
+        return installed;
+    }
+
+    /**
+     * Install the tracing layer on a database builder: the timing open helper
+     * and a wrapper around its query executor.
+     */
+    public static <T extends RoomDatabase> void install(RoomDatabase.Builder<T> builder, Executor queryExecutor) {
+        builder.openHelperFactory(new TracingOpenHelperFactory(new FrameworkSQLiteOpenHelperFactory()));
+        builder.setQueryExecutor(wrap(queryExecutor));
+        installed = true;
+        Log.i(TAG, "Query tracing enabled");
+    }
+
+    /**
+     * Executor that records how long each task waited before it ran
+     */
+    static Executor wrap(Executor executor) {
+        return command -> {
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                QUEUE_WAIT.set(System.nanoTime() - submitted);
+                try {
+                    command.run();
+                } finally {
+                    QUEUE_WAIT.remove();
+                }
+            });
+        };
+    }
+
+    // ========== Recording ==========
+
+    /**
+     * Record one statement run on the current thread
+     *
+     * @param rows Rows returned, or -1 for statements that return none
+     */
+    static void record(String sql, long elapsedNanos, int rows) {
+        boolean mainThread = Looper.getMainLooper().isCurrentThread();
+        String caller = findCaller();
+        Long queued = QUEUE_WAIT.get();
+        String key = normalize(sql);
+
+        Record record = new Record(System.currentTimeMillis(), key, elapsedNanos, rows,
+                Thread.currentThread().getName(), mainThread, caller, queued != null ? queued : -1);
+
+        synchronized (LOCK) {
+            QueryStats stats = STATS.get(key);
+            if (stats == null) {
+                if (STATS.size() >= MAX_STATEMENTS) {
+                    key = "(other)";
+                    stats = STATS.get(key);
+                }
+                if (stats == null) {
+                    stats = new QueryStats(key);
+                    STATS.put(key, stats);
+                }
+            }
+            stats.add(elapsedNanos, rows, mainThread, caller);
+
+            RECENT[recentNext] = record;
+            recentNext = (recentNext + 1) % RECENT_SIZE;
+        }
+
+        if (mainThread) {
+            Log.w(TAG, "Query on the main thread from " + caller + ": " + key);
+        } else if (elapsedNanos >= SLOW_NANOS) {
+            Log.w(TAG, "Slow query (" + elapsedNanos / 1_000_000 + " ms) from " + caller + ": " + key);
+        }
+    }
+
+    /**
+     * The first app frame outside the data.local package (DAOs, the database,
+     * this tracer), e.g. "TransactionRepository.getPage"
+     */
+    private static String findCaller() {
+        boolean liveData = false;
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith(APP_PACKAGE) && !className.startsWith(DATA_LOCAL_PACKAGE)) {
+                return callerName(className, frame.getMethodName());
+            }
+            if (className.contains("LiveData")) {
+                liveData = true;
+            }
+        }
+        return liveData ? "LiveData" : Thread.currentThread().getName();
+    }
+
+    /**
+     * Simple class name and method, with lambdas and inner classes folded into
+     * the method that declares them
+     */
+    static String callerName(String className, String methodName) {
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        int inner = simpleName.indexOf('$');
+        if (inner > 0) {
+            simpleName = simpleName.substring(0, inner);
+        }
+        if (methodName.startsWith("lambda$")) {
+            int end = methodName.indexOf('$', "lambda$".length());
+            methodName = methodName.substring("lambda$".length(), end > 0 ? end : methodName.length());
+        }
+        return simpleName + "." + methodName;
+    }
+
+    /**
+     * Collapse whitespace, so the same statement written on several lines is one key
+     */
+    static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(Math.min(sql.length(), MAX_SQL_LENGTH));
+        boolean space = false;
+        for (int i = 0; i < sql.length() && out.length() < MAX_SQL_LENGTH; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = out.length() > 0;
+            } else {
+                if (space) out.append(' ');
+                space = false;
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Drop everything recorded so far
+     */
+    public static void reset() {
+        synchronized (LOCK) {
+            STATS.clear();
+            Arrays.fill(RECENT, null);
+            recentNext = 0;
+            startedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    // ========== Reading ==========
+
+    /**
+     * Statements recorded since the last reset()
+     */
+    public static long statementCount() {
+        synchronized (LOCK) {
+            long count = 0;
+            for (QueryStats stats : STATS.values()) {
+                count += stats.count;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Short text of the statements with the most total time, for the debug screen
+     */
+    public static String summary(int limit) {
+        List<QueryStats> sorted = sortedStats();
+        if (sorted.isEmpty()) {
+            return installed ? "Sin consultas registradas" : "El registro de consultas no está activo";
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < Math.min(limit, sorted.size()); i++) {
+            QueryStats stats = sorted.get(i);
+            out.append(String.format(Locale.US, "%.0f ms · %d× · p95 %.0f ms · máx %.0f ms",
+                    stats.totalNanos / 1e6, stats.count, stats.percentileMs(95), stats.maxNanos / 1e6));
+            if (stats.mainThreadCount > 0) {
+                out.append(" · main ").append(stats.mainThreadCount);
+            }
+            out.append('\n').append(stats.sql).append("\n\n");
+        }
+        return out.toString().trim();
+    }
+
+    /**
+     * Everything recorded: per-statement aggregates, worst total time first,
+     * and the recent statements, newest first
+     */
+    public static JSONObject toJson() throws JSONException {
+        JSONObject root = new JSONObject();
+        root.put("generatedAt", Instant.now().toString());
+        synchronized (LOCK) {
+            root.put("since", Instant.ofEpochMilli(startedAtMillis).toString());
+
+            JSONArray statements = new JSONArray();
+            for (QueryStats stats : sortedStatsLocked()) {
+                statements.put(toJson(stats));
+            }
+            root.put("statements", statements);
+
+            JSONArray recent = new JSONArray();
+            for (int i = 1; i <= RECENT_SIZE; i++) {
+                Record record = RECENT[(recentNext - i + RECENT_SIZE) % RECENT_SIZE];
+                if (record == null) break;
+                recent.put(record.toJson());
+            }
+            root.put("recent", recent);
+        }
+        return root;
+    }
+
+    /**
+     * Write toJson() to the cache directory, for sharing
+     */
+    public static File writeDump(Context context) throws IOException {
+        File file = new File(context.getCacheDir(), "query_trace.json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(toJson().toString(2));
+        } catch (JSONException e) {
+            throw new IOException("Could not build the query trace dump", e);
+        }
+        return file;
+    }
+
+    private static JSONObject toJson(QueryStats stats) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("sql", stats.sql);
+        json.put("count", stats.count);
+        json.put("totalMs", stats.totalNanos / 1e6);
+        json.put("meanMs", stats.totalNanos / 1e6 / stats.count);
+        json.put("p50Ms", stats.percentileMs(50));
+        json.put("p95Ms", stats.percentileMs(95));
+        json.put("p99Ms", stats.percentileMs(99));
+        json.put("maxMs", stats.maxNanos / 1e6);
+        json.put("rowsTotal", stats.totalRows);
+        json.put("rowsMax", stats.maxRows);
+        json.put("mainThread", stats.mainThreadCount);
+
+        JSONObject callers = new JSONObject();
+        for (Map.Entry<String, Long> entry : stats.callers.entrySet()) {
+            callers.put(entry.getKey(), entry.getValue());
+        }
+        json.put("callers", callers);
+
+        JSONArray histogram = new JSONArray();
+        for (int i = 0; i < stats.buckets.length; i++) {
+            if (stats.buckets[i] == 0) continue;
+            JSONObject bucket = new JSONObject();
+            // The last bucket is open ended
+            if (i < QueryStats.BUCKET_BOUNDS_MS.length) {
+                bucket.put("ltMs", QueryStats.BUCKET_BOUNDS_MS[i]);
+            }
+            bucket.put("count", stats.buckets[i]);
+            histogram.put(bucket);
+        }
+        json.put("histogram", histogram);
+        return json;
+    }
+
+    private static List<QueryStats> sortedStats() {
+        synchronized (LOCK) {
+            return sortedStatsLocked();
+        }
+    }
+
+    private static List<QueryStats> sortedStatsLocked() {
+        List<QueryStats> sorted = new ArrayList<>(STATS.values());
+        sorted.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        return sorted;
+    }
+
+    /**
+     * One traced statement
+     */
+    private static final class Record {
+        final long timeMillis;
+        final String sql;
+        final long elapsedNanos;
+        final int rows;
+        final String thread;
+        final boolean mainThread;
+        final String caller;
+        final long queuedNanos;
+
+        Record(long timeMillis, String sql, long elapsedNanos, int rows, String thread,
+               boolean mainThread, String caller, long queuedNanos) {
+            this.timeMillis = timeMillis;
+            this.sql = sql;
+            this.elapsedNanos = elapsedNanos;
+            this.rows = rows;
+            this.thread = thread;
+            this.mainThread = mainThread;
+            this.caller = caller;
+            this.queuedNanos = queuedNanos;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("time", Instant.ofEpochMilli(timeMillis).toString());
+            json.put("sql", sql);
+            json.put("ms", elapsedNanos / 1e6);
+            if (rows >= 0) json.put("rows", rows);
+            if (queuedNanos >= 0) json.put("queuedMs", queuedNanos / 1e6);
+            json.put("thread", thread);
+            json.put("mainThread", mainThread);
+            json.put("caller", caller);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package com.pascm.fintrack.data.local.trace;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.CancellationSignal;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Open helper factory that times every statement run through Room and reports
+ * it to QueryTrace. Everything else is passed through to the wrapped factory.
+ *
+ * Room's QueryCallback only reports a statement before it runs, so it cannot
+ * tell the latency or the rows; this layer sees both: a query is timed from
+ * the call until its cursor is closed (Room closes it once the rows are read)
+ * and reports the row count; other statements are timed until they return.
+ *
+ * Migrations and the open callbacks get the unwrapped database and are not traced.
+ */
+final class TracingOpenHelperFactory implements SupportSQLiteOpenHelper.Factory {
+
+    private final SupportSQLiteOpenHelper.Factory delegate;
+
+    TracingOpenHelperFactory(SupportSQLiteOpenHelper.Factory delegate) {
+        this.delegate = delegate;
+    }
+
+    @NonNull
+    @Override
+    public SupportSQLiteOpenHelper create(@NonNull SupportSQLiteOpenHelper.Configuration configuration) {
+        return new TracingOpenHelper(delegate.create(configuration));
+    }
+
+    // ========== Open helper ==========
+
+    private static final class TracingOpenHelper implements SupportSQLiteOpenHelper {
+        private final SupportSQLiteOpenHelper delegate;
+        private TracingDatabase database;
+
+        TracingOpenHelper(SupportSQLiteOpenHelper delegate) {
+            this.delegate = delegate;
+        }
+
+        @Nullable
+        @Override
+        public String getDatabaseName() {
+            return delegate.getDatabaseName();
+        }
+
+        @Override
+        public void setWriteAheadLoggingEnabled(boolean enabled) {
+            delegate.setWriteAheadLoggingEnabled(enabled);
+        }
+
+        @NonNull
+        @Override
+        public SupportSQLiteDatabase getWritableDatabase() {
+            return wrap(delegate.getWritableDatabase());
+        }
+
+        @NonNull
+        @Override
+        public SupportSQLiteDatabase getReadableDatabase() {
+            return wrap(delegate.getReadableDatabase());
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+
+        private synchronized SupportSQLiteDatabase wrap(SupportSQLiteDatabase db) {
+            // The framework helper hands out the same database until it is closed
+            if (database == null || database.delegate != db) {
+                database = new TracingDatabase(db);
+            }
+            return database;
+        }
+    }
+
+    // ========== Database ==========
+
+    private static final class TracingDatabase implements SupportSQLiteDatabase {
+        final SupportSQLiteDatabase delegate;
+
+        TracingDatabase(SupportSQLiteDatabase delegate) {
+            this.delegate = delegate;
+        }
+
+        // Traced
+
+        @NonNull
+        @Override
+        public Cursor query(@NonNull String query) {
+            long start = System.nanoTime();
+            return new TracingCursor(delegate.query(query), query, start);
+        }
+
+        @NonNull
+        @Override
+        public Cursor query(@NonNull String query, @NonNull Object[] bindArgs) {
+            long start = System.nanoTime();
+            return new TracingCursor(delegate.query(query, bindArgs), query, start);
+        }
+
+        @NonNull
+        @Override
+        public Cursor query(@NonNull SupportSQLiteQuery query) {
+            long start = System.nanoTime();
+            return new TracingCursor(delegate.query(query), query.getSql(), start);
+        }
+
+        @NonNull
+        @Override
+        public Cursor query(@NonNull SupportSQLiteQuery query, @Nullable CancellationSignal cancellationSignal) {
+            long start = System.nanoTime();
+            return new TracingCursor(delegate.query(query, cancellationSignal), query.getSql(), start);
+        }
+
+        @NonNull
+        @Override
+        public SupportSQLiteStatement compileStatement(@NonNull String sql) {
+            return new TracingStatement(delegate.compileStatement(sql), sql);
+        }
+
+        @Override
+        public long insert(@NonNull String table, int conflictAlgorithm, @NonNull ContentValues values) throws SQLException {
+            long start = System.nanoTime();
+            try {
+                return delegate.insert(table, conflictAlgorithm, values);
+            } finally {
+                QueryTrace.record("INSERT INTO " + table, System.nanoTime() - start, -1);
+            }
+        }
+
+        @Override
+        public int delete(@NonNull String table, @Nullable String whereClause, @Nullable Object[] whereArgs) {
+            long start = System.nanoTime();
+            try {
+                return delegate.delete(table, whereClause, whereArgs);
+            } finally {
+                QueryTrace.record("DELETE FROM " + table + (whereClause != null ? " WHERE " + whereClause : ""),
+                        System.nanoTime() - start, -1);
+            }
+        }
+
+        @Override
+        public int update(@NonNull String table, int conflictAlgorithm, @NonNull ContentValues values,
+                          @Nullable String whereClause, @Nullable Object[] whereArgs) {
+            long start = System.nanoTime();
+            try {
+                return delegate.update(table, conflictAlgorithm, values, whereClause, whereArgs);
+            } finally {
+                QueryTrace.record("UPDATE " + table + (whereClause != null ? " WHERE " + whereClause : ""),
+                        System.nanoTime() - start, -1);
+            }
+        }
+
+        @Override
+        public void execSQL(@NonNull String sql) throws SQLException {
+            long start = System.nanoTime();
+            try {
+                delegate.execSQL(sql);
+            } finally {
+                QueryTrace.record(sql, System.nanoTime() - start, -1);
+            }
+        }
+
+        @Override
+        public void execSQL(@NonNull String sql, @NonNull Object[] bindArgs) throws SQLException {
+            long start = System.nanoTime();
+            try {
+                delegate.execSQL(sql, bindArgs);
+            } finally {
+                QueryTrace.record(sql, System.nanoTime() - start, -1);
+            }
+        }
+
+        // Passed through
+
+        @Override
+        public void beginTransaction() {
+            delegate.beginTransaction();
+        }
+
+        @Override
+        public void beginTransactionNonExclusive() {
+            delegate.beginTransactionNonExclusive();
+        }
+
+        @Override
+        public void beginTransactionWithListener(@NonNull SQLiteTransactionListener transactionListener) {
+            delegate.beginTransactionWithListener(transactionListener);
+        }
+
+        @Override
+        public void beginTransactionWithListenerNonExclusive(@NonNull SQLiteTransactionListener transactionListener) {
+            delegate.beginTransactionWithListenerNonExclusive(transactionListener);
+        }
+
+        @Override
+        public void endTransaction() {
+            delegate.endTransaction();
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            delegate.setTransactionSuccessful();
+        }
+
+        @Override
+        public boolean inTransaction() {
+            return delegate.inTransaction();
+        }
+
+        @Override
+        public boolean isDbLockedByCurrentThread() {
+            return delegate.isDbLockedByCurrentThread();
+        }
+
+        @Override
+        public boolean yieldIfContendedSafely() {
+            return delegate.yieldIfContendedSafely();
+        }
+
+        @Override
+        public boolean yieldIfContendedSafely(long sleepAfterYieldDelayMillis) {
+            return delegate.yieldIfContendedSafely(sleepAfterYieldDelayMillis);
+        }
+
+        @Override
+        public boolean isExecPerConnectionSQLSupported() {
+            return delegate.isExecPerConnectionSQLSupported();
+        }
+
+        @Override
+        public void execPerConnectionSQL(@NonNull String sql, @Nullable Object[] bindArgs) {
+            delegate.execPerConnectionSQL(sql, bindArgs);
+        }
+
+        @Override
+        public int getVersion() {
+            return delegate.getVersion();
+        }
+
+        @Override
+        public void setVersion(int version) {
+            delegate.setVersion(version);
+        }
+
+        @Override
+        public long getMaximumSize() {
+            return delegate.getMaximumSize();
+        }
+
+        @Override
+        public long setMaximumSize(long numBytes) {
+            return delegate.setMaximumSize(numBytes);
+        }
+
+        @Override
+        public long getPageSize() {
+            return delegate.getPageSize();
+        }
+
+        @Override
+        public void setPageSize(long pageSize) {
+            delegate.setPageSize(pageSize);
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return delegate.isReadOnly();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public boolean needUpgrade(int newVersion) {
+            return delegate.needUpgrade(newVersion);
+        }
+
+        @Nullable
+        @Override
+        public String getPath() {
+            return delegate.getPath();
+        }
+
+        @Override
+        public void setLocale(@NonNull Locale locale) {
+            delegate.setLocale(locale);
+        }
+
+        @Override
+        public void setMaxSqlCacheSize(int cacheSize) {
+            delegate.setMaxSqlCacheSize(cacheSize);
+        }
+
+        @Override
+        public void setForeignKeyConstraintsEnabled(boolean enabled) {
+            delegate.setForeignKeyConstraintsEnabled(enabled);
+        }
+
+        @Override
+        public boolean enableWriteAheadLogging() {
+            return delegate.enableWriteAheadLogging();
+        }
+
+        @Override
+        public void disableWriteAheadLogging() {
+            delegate.disableWriteAheadLogging();
+        }
+
+        @Override
+        public boolean isWriteAheadLoggingEnabled() {
+            return delegate.isWriteAheadLoggingEnabled();
+        }
+
+        @Nullable
+        @Override
+        public List<Pair<String, String>> getAttachedDbs() {
+            return delegate.getAttachedDbs();
+        }
+
+        @Override
+        public boolean isDatabaseIntegrityOk() {
+            return delegate.isDatabaseIntegrityOk();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    // ========== Statement ==========
+
+    private static final class TracingStatement implements SupportSQLiteStatement {
+        private final SupportSQLiteStatement delegate;
+        private final String sql;
+
+        TracingStatement(SupportSQLiteStatement delegate, String sql) {
+            this.delegate = delegate;
+            this.sql = sql;
+        }
+
+        @Override
+        public void execute() {
+            long start = System.nanoTime();
+            try {
+                delegate.execute();
+            } finally {
+                QueryTrace.record(sql, System.nanoTime() - start, -1);
+            }
+        }
+
+        @Override
+        public int executeUpdateDelete() {
+            long start = System.nanoTime();
+            try {
+                return delegate.executeUpdateDelete();
+            } finally {
+                QueryTrace.record(sql, System.nanoTime() - start, -1);
+            }
+        }
+
+        @Override
+        public long executeInsert() {
+            long start = System.nanoTime();
+            try {
+                return delegate.executeInsert();
+            } finally {
+                QueryTrace.record(sql, System.nanoTime() - start, -1);
+            }
+        }
+
+        @Override
+        public long simpleQueryForLong() {
+            long start = System.nanoTime();
+            try {
+                return delegate.simpleQueryForLong();
+            } finally {
+                QueryTrace.record(sql, System.nanoTime() - start, 1);
+            }
+        }
+
+        @Nullable
+        @Override
+        public String simpleQueryForString() {
+            long start = System.nanoTime();
+            try {
+                return delegate.simpleQueryForString();
+            } finally {
+                QueryTrace.record(sql, System.nanoTime() - start, 1);
+            }
+        }
+
+        @Override
+        public void bindNull(int index) {
+            delegate.bindNull(index);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            delegate.bindLong(index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            delegate.bindDouble(index, value);
+        }
+
+        @Override
+        public void bindString(int index, @NonNull String value) {
+            delegate.bindString(index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, @NonNull byte[] value) {
+            delegate.bindBlob(index, value);
+        }
+
+        @Override
+        public void clearBindings() {
+            delegate.clearBindings();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    // ========== Cursor ==========
+
+    /**
+     * Reports the query when closed, with the time since it was started
+     */
+    private static final class TracingCursor extends CursorWrapper {
+        private final String sql;
+        private final long start;
+        private boolean recorded;
+
+        TracingCursor(Cursor cursor, String sql, long start) {
+            super(cursor);
+            this.sql = sql;
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            if (!recorded) {
+                recorded = true;
+                // The count is already known once the rows have been read
+                QueryTrace.record(sql, System.nanoTime() - start, getCount());
+            }
+            super.close();
+        }
+    }
+}
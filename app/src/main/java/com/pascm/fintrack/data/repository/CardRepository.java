@@ -7,10 +7,13 @@ import androidx.lifecycle.LiveData;
 import com.pascm.fintrack.data.local.FinTrackDatabase;
 import com.pascm.fintrack.data.local.dao.CreditCardDao;
 import com.pascm.fintrack.data.local.dao.DebitCardDao;
+import com.pascm.fintrack.data.local.dao.SyncDao;
 import com.pascm.fintrack.data.local.entity.CreditCardEntity;
 import com.pascm.fintrack.data.local.entity.DebitCardEntity;
+import com.pascm.fintrack.data.sync.SyncActions;
 import com.pascm.fintrack.model.CreditCard;
 import com.pascm.fintrack.util.CardsManager;
+import com.pascm.fintrack.worker.CardReminderWorker;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -24,7 +27,8 @@ import java.util.stream.Collectors;
  * with proper Room database persistence.
  *
  * Provides both LiveData (reactive) and synchronous methods for flexibility.
- * All write operations are executed asynchronously on a background thread.
+ * All write operations are executed asynchronously on a background thread,
+ * and queue a sync action in the same Room transaction as the write.
  *
  * Usage in Fragment/ViewModel:
  * <pre>
@@ -43,7 +47,9 @@ public class CardRepository {
 
     private final CreditCardDao creditCardDao;
     private final DebitCardDao debitCardDao;
+    private final SyncDao syncDao;
     private final FinTrackDatabase database;
+    private final Context appContext;
 
     /**
      * Constructor - initializes database and DAOs.
@@ -51,9 +57,11 @@ public class CardRepository {
      * @param context Application context
      */
     public CardRepository(Context context) {
+        this.appContext = context.getApplicationContext();
         this.database = FinTrackDatabase.getDatabase(context);
         this.creditCardDao = database.creditCardDao();
         this.debitCardDao = database.debitCardDao();
+        this.syncDao = database.syncDao();
     }
 
     // ========== Credit Cards - Read Operations ==========
@@ -173,16 +181,18 @@ public class CardRepository {
      * @param card Credit card entity to insert
      */
     public void insertCreditCard(CreditCardEntity card) {
+        Instant now = Instant.now();
+        card.setCreatedAt(now);
+        card.setUpdatedAt(now);
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            Instant now = Instant.now();
-            card.setCreatedAt(now);
-            card.setUpdatedAt(now);
-
-            long id = creditCardDao.insert(card);
-
-            // TODO: Mark for Firebase sync
-            // SyncRepository.markForSync("CREDIT_CARD", id, "CREATE");
-        });
+            // A replay after a rollback inserts a new row
+            card.setCardId(0);
+            database.runInTransaction(() -> {
+                long id = creditCardDao.insert(card);
+                card.setCardId(id);
+                syncDao.enqueue(SyncActions.create(SyncActions.CREDIT_CARD, id, SyncActions.CREATE, card));
+            });
+        }, () -> CardReminderWorker.schedule(appContext));
     }
 
     /**
@@ -206,12 +216,16 @@ public class CardRepository {
      * @param card Credit card entity to update
      */
     public void updateCreditCard(CreditCardEntity card) {
+        card.setUpdatedAt(Instant.now());
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            card.setUpdatedAt(Instant.now());
-            creditCardDao.update(card);
-
-            // TODO: Mark for Firebase sync
-            // SyncRepository.markForSync("CREDIT_CARD", card.getCardId(), "UPDATE");
+            database.runInTransaction(() -> {
+                if (creditCardDao.update(card) > 0) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.CREDIT_CARD, card.getCardId(), SyncActions.UPDATE, card));
+                }
+            });
+        }, () -> {
+            // Statement/payment days may have changed
+            CardReminderWorker.schedule(appContext);
         });
     }
 
@@ -225,11 +239,11 @@ public class CardRepository {
      */
     public void updateCardBalance(long cardId, double newBalance) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            creditCardDao.updateBalance(cardId, newBalance, Instant.now().toEpochMilli());
-
-            // TODO: Mark for Firebase sync
-            // SyncRepository.markForSync("CREDIT_CARD", cardId, "UPDATE");
-        });
+            database.runInTransaction(() -> {
+                creditCardDao.updateBalance(cardId, newBalance, Instant.now().toEpochMilli());
+                enqueueCreditCardUpdate(cardId);
+            });
+        }, null);
     }
 
     /**
@@ -242,11 +256,11 @@ public class CardRepository {
      */
     public void archiveCreditCard(long cardId) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            creditCardDao.archive(cardId, Instant.now().toEpochMilli());
-
-            // TODO: Mark for Firebase sync
-            // SyncRepository.markForSync("CREDIT_CARD", cardId, "UPDATE");
-        });
+            database.runInTransaction(() -> {
+                creditCardDao.archive(cardId, Instant.now().toEpochMilli());
+                enqueueCreditCardUpdate(cardId);
+            });
+        }, () -> CardReminderWorker.schedule(appContext));
     }
 
     /**
@@ -259,11 +273,12 @@ public class CardRepository {
      */
     public void deleteCreditCard(CreditCardEntity card) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            creditCardDao.delete(card);
-
-            // TODO: Mark for Firebase sync
-            // SyncRepository.markForSync("CREDIT_CARD", card.getCardId(), "DELETE");
-        });
+            database.runInTransaction(() -> {
+                if (creditCardDao.delete(card) > 0) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.CREDIT_CARD, card.getCardId(), SyncActions.DELETE, card));
+                }
+            });
+        }, () -> CardReminderWorker.schedule(appContext));
     }
 
     // ========== Migration from CardsManager ==========
@@ -437,18 +452,18 @@ public class CardRepository {
      * @param card Debit card entity to insert
      */
     public void insertDebitCard(DebitCardEntity card) {
+        Instant now = Instant.now();
+        card.setCreatedAt(now);
+        card.setUpdatedAt(now);
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            Instant now = Instant.now();
-            card.setCreatedAt(now);
-            card.setUpdatedAt(now);
-
-            long id = debitCardDao.insert(card);
-
-            android.util.Log.i("CardRepository", "Inserted debit card ID: " + id);
-
-            // TODO: Mark for Firebase sync
-            // SyncRepository.markForSync("DEBIT_CARD", id, "CREATE");
-        });
+            // A replay after a rollback inserts a new row
+            card.setCardId(0);
+            database.runInTransaction(() -> {
+                long cardId = debitCardDao.insert(card);
+                card.setCardId(cardId);
+                syncDao.enqueue(SyncActions.create(SyncActions.DEBIT_CARD, cardId, SyncActions.CREATE, card));
+            });
+        }, () -> android.util.Log.i("CardRepository", "Inserted debit card ID: " + card.getCardId()));
     }
 
     /**
@@ -459,13 +474,14 @@ public class CardRepository {
      * @param card Debit card entity to update
      */
     public void updateDebitCard(DebitCardEntity card) {
+        card.setUpdatedAt(Instant.now());
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            card.setUpdatedAt(Instant.now());
-            debitCardDao.update(card);
-
-            // TODO: Mark for Firebase sync
-            // SyncRepository.markForSync("DEBIT_CARD", card.getCardId(), "UPDATE");
-        });
+            database.runInTransaction(() -> {
+                if (debitCardDao.update(card) > 0) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.DEBIT_CARD, card.getCardId(), SyncActions.UPDATE, card));
+                }
+            });
+        }, null);
     }
 
     /**
@@ -476,10 +492,15 @@ public class CardRepository {
      */
     public void setPrimaryDebitCard(long userId, long cardId) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            debitCardDao.setPrimaryCard(userId, cardId, Instant.now().toEpochMilli());
+            database.runInTransaction(() -> {
+                debitCardDao.setPrimaryCard(userId, cardId, Instant.now().toEpochMilli());
 
-            // TODO: Mark for Firebase sync
-        });
+                // The flag changes on every card of the user
+                for (DebitCardEntity card : debitCardDao.getAllByUserSync(userId)) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.DEBIT_CARD, card.getCardId(), SyncActions.UPDATE, card));
+                }
+            });
+        }, null);
     }
 
     /**
@@ -490,10 +511,11 @@ public class CardRepository {
      */
     public void updateDebitCardStatus(long cardId, boolean isActive) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            debitCardDao.updateStatus(cardId, isActive, Instant.now().toEpochMilli());
-
-            // TODO: Mark for Firebase sync
-        });
+            database.runInTransaction(() -> {
+                debitCardDao.updateStatus(cardId, isActive, Instant.now().toEpochMilli());
+                enqueueDebitCardUpdate(cardId);
+            });
+        }, null);
     }
 
     /**
@@ -504,10 +526,11 @@ public class CardRepository {
      */
     public void updateDailyLimit(long cardId, double dailyLimit) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            debitCardDao.updateDailyLimit(cardId, dailyLimit, Instant.now().toEpochMilli());
-
-            // TODO: Mark for Firebase sync
-        });
+            database.runInTransaction(() -> {
+                debitCardDao.updateDailyLimit(cardId, dailyLimit, Instant.now().toEpochMilli());
+                enqueueDebitCardUpdate(cardId);
+            });
+        }, null);
     }
 
     /**
@@ -520,11 +543,11 @@ public class CardRepository {
      */
     public void archiveDebitCard(long cardId) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            debitCardDao.archive(cardId, Instant.now().toEpochMilli());
-
-            // TODO: Mark for Firebase sync
-            // SyncRepository.markForSync("DEBIT_CARD", cardId, "UPDATE");
-        });
+            database.runInTransaction(() -> {
+                debitCardDao.archive(cardId, Instant.now().toEpochMilli());
+                enqueueDebitCardUpdate(cardId);
+            });
+        }, null);
     }
 
     /**
@@ -537,11 +560,12 @@ public class CardRepository {
      */
     public void deleteDebitCard(DebitCardEntity card) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            debitCardDao.delete(card);
-
-            // TODO: Mark for Firebase sync
-            // SyncRepository.markForSync("DEBIT_CARD", card.getCardId(), "DELETE");
-        });
+            database.runInTransaction(() -> {
+                if (debitCardDao.delete(card) > 0) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.DEBIT_CARD, card.getCardId(), SyncActions.DELETE, card));
+                }
+            });
+        }, null);
     }
 
     // ========== Migration from CardsManager (Debit Cards) ==========
@@ -597,4 +621,28 @@ public class CardRepository {
             android.util.Log.i("CardRepository", "Migrated " + entities.size() + " debit cards from CardsManager");
         });
     }
+
+    // ========== Sync Helpers ==========
+
+    /**
+     * Queue an UPDATE with the current row after a partial update.
+     * Must run inside the transaction of the update.
+     */
+    private void enqueueCreditCardUpdate(long cardId) {
+        CreditCardEntity card = creditCardDao.getByIdSync(cardId);
+        if (card != null) {
+            syncDao.enqueue(SyncActions.create(SyncActions.CREDIT_CARD, cardId, SyncActions.UPDATE, card));
+        }
+    }
+
+    /**
+     * Queue an UPDATE with the current row after a partial update.
+     * Must run inside the transaction of the update.
+     */
+    private void enqueueDebitCardUpdate(long cardId) {
+        DebitCardEntity card = debitCardDao.getByIdSync(cardId);
+        if (card != null) {
+            syncDao.enqueue(SyncActions.create(SyncActions.DEBIT_CARD, cardId, SyncActions.UPDATE, card));
+        }
+    }
 }
@@ -26,18 +26,20 @@ public class GroupRepository {
     // ========== Group Operations ==========
 
     public void createGroup(GroupEntity group, OnGroupCreatedListener listener) {
+        long[] groupId = new long[1];
+        // Group and admin member share one transaction
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            long groupId = groupDao.insert(group);
+            groupId[0] = groupDao.insert(group);
 
             // Add creator as admin member
             GroupMemberEntity adminMember = new GroupMemberEntity();
-            adminMember.setGroupId(groupId);
+            adminMember.setGroupId(groupId[0]);
             adminMember.setUserId(group.getAdminUserId());
             adminMember.setAdmin(true);
             groupMemberDao.insert(adminMember);
-
+        }, () -> {
             if (listener != null) {
-                listener.onGroupCreated(groupId);
+                listener.onGroupCreated(groupId[0]);
             }
         });
     }
@@ -55,17 +57,17 @@ public class GroupRepository {
     }
 
     public void updateGroup(GroupEntity group) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> groupDao.update(group));
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> groupDao.update(group), null);
     }
 
     public void deleteGroup(GroupEntity group) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> groupDao.delete(group));
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> groupDao.delete(group), null);
     }
 
     // ========== Group Member Operations ==========
 
     public void addMember(GroupMemberEntity member) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> groupMemberDao.insert(member));
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> groupMemberDao.insert(member), null);
     }
 
     public LiveData<List<GroupMemberEntity>> getMembersByGroupId(long groupId) {
@@ -78,7 +80,7 @@ public class GroupRepository {
 
     public void removeMember(long groupId, long userId) {
         FinTrackDatabase.databaseWriteExecutor.execute(() ->
-            groupMemberDao.removeMemberFromGroup(groupId, userId));
+            groupMemberDao.removeMemberFromGroup(groupId, userId), null);
     }
 
     public LiveData<Integer> getMemberCount(long groupId) {
@@ -38,7 +38,7 @@ public class NotificationRepository {
     public void createNotification(NotificationEntity notification) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
             notificationDao.insert(notification);
-        });
+        }, null);
     }
 
     // Convenience alias: insert (matches some fragment calls)
@@ -50,21 +50,21 @@ public class NotificationRepository {
     public void markAsRead(long notificationId) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
             notificationDao.markAsRead(notificationId);
-        });
+        }, null);
     }
 
     // Mark all notifications as read for a user
     public void markAllAsRead(long userId) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
             notificationDao.markAllAsRead(userId);
-        });
+        }, null);
     }
 
     // Delete a notification by id
     public void deleteNotification(long notificationId) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
             notificationDao.deleteNotification(notificationId);
-        });
+        }, null);
     }
 
     // Convenience overload: delete by entity
@@ -77,6 +77,6 @@ public class NotificationRepository {
     public void deleteAllByUserId(long userId) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
             notificationDao.deleteAllByUserId(userId);
-        });
+        }, null);
     }
 }
@@ -6,7 +6,9 @@ import androidx.lifecycle.LiveData;
 
 import com.pascm.fintrack.data.local.FinTrackDatabase;
 import com.pascm.fintrack.data.local.dao.MerchantDao;
+import com.pascm.fintrack.data.local.dao.SyncDao;
 import com.pascm.fintrack.data.local.entity.Merchant;
+import com.pascm.fintrack.data.sync.SyncActions;
 import com.pascm.fintrack.util.SessionManager;
 
 import java.time.Instant;
@@ -15,10 +17,14 @@ import java.util.List;
 /**
  * Repository for managing places/merchants.
  * Ahora filtra y persiste por usuario (user_id).
+ *
+ * Cada escritura encola el lugar para sincronizar (SyncActions.MERCHANT) en la
+ * misma transacción.
  */
 public class PlaceRepository {
 
     private final MerchantDao merchantDao;
+    private final SyncDao syncDao;
     private final FinTrackDatabase database;
     private final Context context;
 
@@ -31,6 +37,7 @@ public class PlaceRepository {
         this.context = context.getApplicationContext();
         this.database = FinTrackDatabase.getDatabase(this.context);
         this.merchantDao = database.merchantDao();
+        this.syncDao = database.syncDao();
     }
 
     private long currentUserId() {
@@ -124,6 +131,21 @@ public class PlaceRepository {
         return merchantDao.getNearby(currentUserId(), minLat, maxLat, minLng, maxLng);
     }
 
+    /**
+     * Get the places closest to a location, nearest first (synchronous).
+     *
+     * WARNING: Don't call on main thread!
+     *
+     * @param latitude  Latitude of the location
+     * @param longitude Longitude of the location
+     * @param limit     Maximum number of places
+     * @param maxMeters Ignore places farther than this
+     * @return Up to limit merchants, nearest first
+     */
+    public List<Merchant> getNearestPlacesSync(double latitude, double longitude, int limit, double maxMeters) {
+        return merchantDao.getNearestSync(currentUserId(), latitude, longitude, limit, maxMeters);
+    }
+
     /**
      * Get favorite places (marked as frequent).
      *
@@ -163,42 +185,37 @@ public class PlaceRepository {
      * @param place Merchant entity to insert
      */
     public void insertPlace(Merchant place) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            if (place.getCreatedAt() == null) {
-                place.setCreatedAt(Instant.now());
-            }
-            // Asegurar user_id
-            if (place.getUserId() == 0) {
-                place.setUserId(currentUserId());
-            }
-
-            long id = merchantDao.insert(place);
-
-            android.util.Log.i("PlaceRepository", "Inserted place ID: " + id);
-        });
+        insertPlace(place, null);
     }
 
     /**
      * Insert a new place with callback.
      *
      * @param place Merchant entity to insert
-     * @param callback Callback with the inserted place ID
+     * @param callback Callback with the inserted place ID, run on the writer thread after the commit
      */
     public void insertPlace(Merchant place, InsertCallback callback) {
+        if (place.getCreatedAt() == null) {
+            place.setCreatedAt(Instant.now());
+        }
+        // Asegurar user_id
+        if (place.getUserId() == 0) {
+            place.setUserId(currentUserId());
+        }
+        long[] id = new long[1];
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            if (place.getCreatedAt() == null) {
-                place.setCreatedAt(Instant.now());
-            }
-            if (place.getUserId() == 0) {
-                place.setUserId(currentUserId());
-            }
-
-            long id = merchantDao.insert(place);
-
-            android.util.Log.i("PlaceRepository", "Inserted place ID: " + id);
+            // A replay after a rollback inserts a new row
+            place.setMerchantId(0);
+            database.runInTransaction(() -> {
+                id[0] = merchantDao.insert(place);
+                place.setMerchantId(id[0]);
+                syncDao.enqueue(SyncActions.create(SyncActions.MERCHANT, id[0], SyncActions.CREATE, place));
+            });
+        }, () -> {
+            android.util.Log.i("PlaceRepository", "Inserted place ID: " + id[0]);
 
             if (callback != null) {
-                callback.onInsertComplete(id);
+                callback.onInsertComplete(id[0]);
             }
         });
     }
@@ -209,7 +226,13 @@ public class PlaceRepository {
      * @param place Merchant entity to update
      */
     public void updatePlace(Merchant place) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> merchantDao.update(place));
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            database.runInTransaction(() -> {
+                if (merchantDao.update(place) > 0) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.MERCHANT, place.getMerchantId(), SyncActions.UPDATE, place));
+                }
+            });
+        }, null);
     }
 
     /**
@@ -218,7 +241,13 @@ public class PlaceRepository {
      * @param place Merchant entity to delete
      */
     public void deletePlace(Merchant place) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> merchantDao.delete(place));
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            database.runInTransaction(() -> {
+                if (merchantDao.delete(place) > 0) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.MERCHANT, place.getMerchantId(), SyncActions.DELETE, place));
+                }
+            });
+        }, null);
     }
 
     /**
@@ -227,7 +256,16 @@ public class PlaceRepository {
      * @param placeId Place ID to delete
      */
     public void deletePlaceById(long placeId) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> merchantDao.deleteById(placeId));
+        long userId = currentUserId();
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            database.runInTransaction(() -> {
+                // The DELETE payload needs the row (owner and sync_id)
+                Merchant place = merchantDao.getByIdSync(placeId, userId);
+                if (place != null && merchantDao.deleteById(placeId) > 0) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.MERCHANT, placeId, SyncActions.DELETE, place));
+                }
+            });
+        }, null);
     }
 
     /**
@@ -237,7 +275,13 @@ public class PlaceRepository {
      * @param isFavorite true to mark as favorite, false otherwise
      */
     public void toggleFavorite(long placeId, boolean isFavorite) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> merchantDao.updateFrequent(placeId, isFavorite));
+        long userId = currentUserId();
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            database.runInTransaction(() -> {
+                merchantDao.updateFrequent(placeId, isFavorite);
+                enqueueUpdate(placeId, userId);
+            });
+        }, null);
     }
 
     /**
@@ -248,7 +292,13 @@ public class PlaceRepository {
      * @param longitude Longitude
      */
     public void updateLocation(long placeId, double latitude, double longitude) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> merchantDao.updateLocation(placeId, latitude, longitude));
+        long userId = currentUserId();
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            database.runInTransaction(() -> {
+                merchantDao.updateLocation(placeId, latitude, longitude);
+                enqueueUpdate(placeId, userId);
+            });
+        }, null);
     }
 
     /**
@@ -257,7 +307,25 @@ public class PlaceRepository {
      * @param placeId Place ID
      */
     public void incrementUsage(long placeId) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> merchantDao.incrementUsageCount(placeId, Instant.now().toEpochMilli()));
+        long now = Instant.now().toEpochMilli();
+        long userId = currentUserId();
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            database.runInTransaction(() -> {
+                merchantDao.incrementUsageCount(placeId, now);
+                enqueueUpdate(placeId, userId);
+            });
+        }, null);
+    }
+
+    /**
+     * Queue an UPDATE with the current row after a partial update.
+     * Must run inside the transaction of the update.
+     */
+    private void enqueueUpdate(long placeId, long userId) {
+        Merchant place = merchantDao.getByIdSync(placeId, userId);
+        if (place != null) {
+            syncDao.enqueue(SyncActions.create(SyncActions.MERCHANT, placeId, SyncActions.UPDATE, place));
+        }
     }
 
     /**
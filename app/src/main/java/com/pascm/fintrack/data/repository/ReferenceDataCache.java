@@ -0,0 +1,327 @@
+package com.pascm.fintrack.data.repository;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.entity.Account;
+import com.pascm.fintrack.data.local.entity.Category;
+import com.pascm.fintrack.data.local.entity.CreditCardEntity;
+import com.pascm.fintrack.data.local.entity.DebitCardEntity;
+import com.pascm.fintrack.data.local.entity.Merchant;
+import com.pascm.fintrack.data.local.entity.UserProfile;
+import com.pascm.fintrack.util.SessionManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide cache of the signed-in user's small reference tables: credit and
+ * debit cards, accounts, categories, places (merchants) and profile.
+ *
+ * A screen that needs several of them observes one Snapshot instead of running
+ * its own queries on every open (the add movement, cards and places screens,
+ * and the category names of the reports). Room's
+ * InvalidationTracker marks the sets whose tables changed as stale; stale sets
+ * are reloaded together in one transaction (a consistent snapshot) the next
+ * time someone observes or asks, and sets that did not change are carried over.
+ * With nothing changed, observing costs no query at all.
+ *
+ * Entities in a Snapshot are shared between screens: treat them as read-only and
+ * write through the repositories.
+ *
+ * Usage:
+ * <pre>
+ * ReferenceDataCache.getInstance(context).observe(userId).observe(owner, data -> {
+ *     if (data == null) return;   // first load still running
+ *     adapter.submitList(data.creditCards);
+ * });
+ * </pre>
+ */
+public final class ReferenceDataCache {
+
+    private static final long NO_USER = -1;
+
+    // Sets, as bits of a stale mask
+    private static final int CREDIT_CARDS = 1;
+    private static final int DEBIT_CARDS = 1 << 1;
+    private static final int ACCOUNTS = 1 << 2;
+    private static final int CATEGORIES = 1 << 3;
+    private static final int MERCHANTS = 1 << 4;
+    private static final int PROFILE = 1 << 5;
+    private static final int ALL = (1 << 6) - 1;
+
+    private static final String[] TABLES = {
+            "credit_cards", "debit_cards", "accounts", "categories", "merchants", "user_profiles"
+    };
+
+    private static volatile ReferenceDataCache INSTANCE;
+
+    private final FinTrackDatabase database;
+    private final SnapshotLiveData live = new SnapshotLiveData();
+    /**
+     * Held for a whole load, so loads run one at a time: each builds on the
+     * snapshot the previous one published. Taken before this, never inside it.
+     */
+    private final Object loadLock = new Object();
+
+    // Guarded by this
+    private long userId = NO_USER;
+    private Snapshot snapshot;
+    private int staleSets = ALL;
+    private boolean loadQueued = false;
+
+    private ReferenceDataCache(FinTrackDatabase database) {
+        this.database = database;
+        database.getInvalidationTracker().addObserver(new InvalidationTracker.Observer(TABLES) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                synchronized (ReferenceDataCache.this) {
+                    staleSets |= setsOf(tables);
+                }
+                if (live.hasActiveObservers()) {
+                    requestLoad();
+                }
+            }
+        });
+        // Drop the user's data on logout
+        SessionManager.addListener(session -> {
+            if (!session.loggedIn) select(NO_USER);
+        });
+    }
+
+    public static ReferenceDataCache getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ReferenceDataCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ReferenceDataCache(FinTrackDatabase.getDatabase(context));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Reference data of a user, kept current while observed. Emits null while the
+     * first load for this user runs.
+     */
+    public LiveData<Snapshot> observe(long userId) {
+        select(userId);
+        if (live.hasActiveObservers()) {
+            requestLoad();
+        }
+        return live;
+    }
+
+    /**
+     * Current reference data of a user, reloading the stale sets first. For
+     * background threads (never the main thread).
+     *
+     * Not from inside a write transaction (a WriteQueue task): the reload would
+     * see and keep rows that are not committed yet and may be rolled back. Read
+     * through the DAOs there.
+     */
+    @NonNull
+    public Snapshot getSync(long userId) {
+        select(userId);
+        return load();
+    }
+
+    /**
+     * Switch the cache to a user (login, account switch); the previous user's
+     * data is dropped
+     */
+    private void select(long userId) {
+        synchronized (this) {
+            if (this.userId == userId) return;
+            this.userId = userId;
+            snapshot = null;
+            staleSets = ALL;
+        }
+        live.postValue(null);
+    }
+
+    private void requestLoad() {
+        synchronized (this) {
+            if (loadQueued || staleSets == 0 || userId == NO_USER) return;
+            loadQueued = true;
+        }
+        FinTrackDatabase.databaseReadExecutor.execute(() -> {
+            synchronized (this) {
+                loadQueued = false;
+            }
+            load();
+        });
+    }
+
+    /**
+     * Reload the stale sets (if any) in one transaction and publish the result.
+     *
+     * Loads are serialized (loadLock): two overlapping loads would both start from
+     * the same old snapshot, and the one publishing last would put back the sets
+     * only the other one reloaded, with nothing marking them stale again.
+     */
+    private Snapshot load() {
+        synchronized (loadLock) {
+            return loadLocked();
+        }
+    }
+
+    private Snapshot loadLocked() {
+        long user;
+        int sets;
+        Snapshot base;
+        synchronized (this) {
+            user = userId;
+            sets = staleSets;
+            base = snapshot;
+            if (sets == 0 && base != null) return base;
+            // Cleared before reading: a change committed during the read marks its set again
+            staleSets = 0;
+        }
+
+        Snapshot loaded;
+        try {
+            loaded = database.runInTransaction(() -> read(user, sets, base));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                staleSets |= sets;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            if (user != userId) return loaded;
+            snapshot = loaded;
+        }
+        live.postValue(loaded);
+        return loaded;
+    }
+
+    private Snapshot read(long user, int sets, @Nullable Snapshot base) {
+        boolean all = base == null;
+        return new Snapshot(user,
+                all || (sets & CREDIT_CARDS) != 0
+                        ? database.creditCardDao().getAllByUserSync(user) : base.creditCards,
+                all || (sets & DEBIT_CARDS) != 0
+                        ? database.debitCardDao().getAllByUserSync(user) : base.debitCards,
+                all || (sets & ACCOUNTS) != 0
+                        ? database.accountDao().getAllByUserSync(user) : base.accounts,
+                all || (sets & CATEGORIES) != 0
+                        ? database.categoryDao().getAllByUserSync() : base.categories,
+                all || (sets & MERCHANTS) != 0
+                        ? database.merchantDao().getAllSync(user) : base.merchants,
+                all || (sets & PROFILE) != 0
+                        ? database.userDao().getProfileSync(user) : base.profile);
+    }
+
+    private static int setsOf(Set<String> tables) {
+        int sets = 0;
+        for (String table : tables) {
+            switch (table) {
+                case "credit_cards": sets |= CREDIT_CARDS; break;
+                case "debit_cards": sets |= DEBIT_CARDS; break;
+                case "accounts": sets |= ACCOUNTS; break;
+                case "categories": sets |= CATEGORIES; break;
+                case "merchants": sets |= MERCHANTS; break;
+                case "user_profiles": sets |= PROFILE; break;
+                default: break;
+            }
+        }
+        return sets;
+    }
+
+    /**
+     * Loads the stale sets when a screen starts observing
+     */
+    private final class SnapshotLiveData extends LiveData<Snapshot> {
+        @Override
+        protected void onActive() {
+            requestLoad();
+        }
+    }
+
+    /**
+     * Immutable view of a user's reference data at one point in time
+     */
+    public static final class Snapshot {
+        public final long userId;
+        /** Active credit cards, newest first */
+        public final List<CreditCardEntity> creditCards;
+        /** Active debit cards, primary first */
+        public final List<DebitCardEntity> debitCards;
+        /** Active accounts, newest first */
+        public final List<Account> accounts;
+        /** All categories, by name */
+        public final List<Category> categories;
+        /** Places, by name */
+        public final List<Merchant> merchants;
+        @Nullable
+        public final UserProfile profile;
+
+        private final Map<Long, CreditCardEntity> creditCardsById;
+        private final Map<Long, DebitCardEntity> debitCardsById;
+        private final Map<Long, Account> accountsById;
+
+        Snapshot(long userId, List<CreditCardEntity> creditCards, List<DebitCardEntity> debitCards,
+                 List<Account> accounts, List<Category> categories, List<Merchant> merchants,
+                 @Nullable UserProfile profile) {
+            this.userId = userId;
+            this.creditCards = Collections.unmodifiableList(creditCards);
+            this.debitCards = Collections.unmodifiableList(debitCards);
+            this.accounts = Collections.unmodifiableList(accounts);
+            this.categories = Collections.unmodifiableList(categories);
+            this.merchants = Collections.unmodifiableList(merchants);
+            this.profile = profile;
+
+            creditCardsById = new HashMap<>(creditCards.size() * 2);
+            for (CreditCardEntity card : creditCards) creditCardsById.put(card.getCardId(), card);
+            debitCardsById = new HashMap<>(debitCards.size() * 2);
+            for (DebitCardEntity card : debitCards) debitCardsById.put(card.getCardId(), card);
+            accountsById = new HashMap<>(accounts.size() * 2);
+            for (Account account : accounts) accountsById.put(account.getAccountId(), account);
+        }
+
+        @Nullable
+        public CreditCardEntity getCreditCard(long cardId) {
+            return creditCardsById.get(cardId);
+        }
+
+        @Nullable
+        public DebitCardEntity getDebitCard(long cardId) {
+            return debitCardsById.get(cardId);
+        }
+
+        @Nullable
+        public Account getAccount(long accountId) {
+            return accountsById.get(accountId);
+        }
+
+        /**
+         * The user's cash account (first active CASH account), or null if none yet
+         */
+        @Nullable
+        public Account getCashAccount() {
+            for (Account account : accounts) {
+                if (account.getType() == Account.AccountType.CASH) return account;
+            }
+            return null;
+        }
+
+        /**
+         * Default currency of the user's profile, or null if not set
+         */
+        @Nullable
+        public String getDefaultCurrency() {
+            String currency = profile != null ? profile.getDefaultCurrency() : null;
+            return currency != null && !currency.isEmpty() ? currency : null;
+        }
+    }
+}
@@ -2,156 +2,179 @@ package com.pascm.fintrack.data.repository;
 
 import android.content.Context;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.pascm.fintrack.data.local.FinTrackDatabase;
-import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.dao.TransactionRollupDao;
+import com.pascm.fintrack.data.local.entity.Category;
 import com.pascm.fintrack.model.AccountTypeReport;
 import com.pascm.fintrack.model.CategoryReport;
+import com.pascm.fintrack.model.PeriodReport;
 import com.pascm.fintrack.model.ReportData;
 
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Repository para generar reportes y estadísticas
+ * Repository para generar reportes y estadísticas.
+ *
+ * Los agregados se leen de la tabla transaction_rollups (totales diarios mantenidos
+ * por triggers), así que el costo depende de los días del rango y no del número de
+ * transacciones. Los rangos llegan en milisegundos y se convierten a días locales.
  */
 public class ReportRepository {
 
-    private final TransactionDao transactionDao;
-    private final FinTrackDatabase database;
+    private final TransactionRollupDao rollupDao;
+    private final Context context;
 
     public ReportRepository(Context context) {
-        this.database = FinTrackDatabase.getDatabase(context);
-        this.transactionDao = database.transactionDao();
+        this.context = context.getApplicationContext();
+        this.rollupDao = FinTrackDatabase.getDatabase(context).transactionRollupDao();
     }
 
     /**
-     * Obtener reporte general para un rango de fechas
+     * Convertir un instante (epoch millis) al día local (epoch day) usado en los rollups
      */
-    public void getReportData(long userId, long startDate, long endDate, ReportCallback callback) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            try {
-                double totalIncome = transactionDao.getTotalIncomeForRangeSync(userId, startDate, endDate);
-                double totalExpenses = transactionDao.getTotalExpensesForRangeSync(userId, startDate, endDate);
-                int transactionCount = transactionDao.getTransactionCountForRangeSync(userId, startDate, endDate);
-                double balance = totalIncome - totalExpenses;
+    public static long toEpochDay(long epochMilli) {
+        return Instant.ofEpochMilli(epochMilli).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
 
-                ReportData reportData = new ReportData(totalIncome, totalExpenses, balance, transactionCount);
-                callback.onSuccess(reportData);
+    /**
+     * Obtener el reporte completo de un periodo (resumen, categorías y tipos de cuenta).
+     * Los grupos salen de una sola consulta, así que resumen y desgloses son
+     * consistentes; los nombres e iconos de categoría salen de ReferenceDataCache.
+     */
+    public void getPeriodReport(long userId, long startDate, long endDate, PeriodReportCallback callback) {
+        FinTrackDatabase.databaseReadExecutor.execute(() -> {
+            try {
+                RollupZone.ensureMatchesZone(context);
+                TransactionRollupDao.PeriodReportData data = new TransactionRollupDao.PeriodReportData();
+                data.groups = rollupDao.getGroupsForRange(userId, toEpochDay(startDate), toEpochDay(endDate));
+                data.categories = reportCategories(
+                        ReferenceDataCache.getInstance(context).getSync(userId).categories);
+                callback.onSuccess(buildPeriodReport(data));
 
             } catch (Exception e) {
-                android.util.Log.e("ReportRepository", "Error getting report data", e);
+                android.util.Log.e("ReportRepository", "Error getting period report", e);
                 callback.onError("Error al generar reporte: " + e.getMessage());
             }
         });
     }
 
     /**
-     * Obtener reporte por categorías
+     * Categorías que aparecen en el desglose (de gasto y activas), igual que
+     * TransactionRollupDao.getReportCategories()
      */
-    public void getCategoryReport(long userId, long startDate, long endDate, CategoryReportCallback callback) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            try {
-                List<TransactionDao.CategoryReportData> rawData =
-                        transactionDao.getCategoryReportForDateRange(userId, startDate, endDate);
-
-                // Calcular el total para porcentajes
-                double total = 0;
-                for (TransactionDao.CategoryReportData data : rawData) {
-                    if (data.total_amount != null) {
-                        total += data.total_amount;
-                    }
-                }
-
-                // Convertir a modelo de reporte
-                List<CategoryReport> reports = new ArrayList<>();
-                for (TransactionDao.CategoryReportData data : rawData) {
-                    if (data.category_id != null) {
-                        CategoryReport report = new CategoryReport();
-                        report.setCategoryId(data.category_id);
-                        report.setCategoryName(data.category_name != null ? data.category_name : "Sin categoría");
-                        report.setCategoryIcon(data.category_icon);
-                        report.setCategoryColor(data.category_color != null ? data.category_color : 0);
-                        report.setAmount(data.total_amount != null ? data.total_amount : 0);
-                        report.setTransactionCount(data.transaction_count != null ? data.transaction_count : 0);
-
-                        // Calcular porcentaje
-                        if (total > 0 && data.total_amount != null) {
-                            report.setPercentage((data.total_amount / total) * 100);
-                        } else {
-                            report.setPercentage(0);
-                        }
-
-                        reports.add(report);
-                    }
-                }
-
-                callback.onSuccess(reports);
-
-            } catch (Exception e) {
-                android.util.Log.e("ReportRepository", "Error getting category report", e);
-                callback.onError("Error al generar reporte por categorías: " + e.getMessage());
-            }
-        });
+    private static List<TransactionRollupDao.CategoryInfo> reportCategories(List<Category> categories) {
+        List<TransactionRollupDao.CategoryInfo> infos = new ArrayList<>();
+        for (Category category : categories) {
+            if (!category.isExpense() || !category.isActive()) continue;
+            TransactionRollupDao.CategoryInfo info = new TransactionRollupDao.CategoryInfo();
+            info.category_id = category.getCategoryId();
+            info.category_name = category.getName();
+            info.category_icon = category.getIcon();
+            info.category_color = category.getColor();
+            infos.add(info);
+        }
+        return infos;
     }
 
     /**
-     * Obtener reporte por tipo de cuenta
+     * Plegar los grupos del rango (ya agregados en SQL por categoría y tipo de
+     * pago) en resumen y desgloses, en una sola pasada.
+     * Público para el módulo de benchmarks.
      */
-    public void getAccountTypeReport(long userId, long startDate, long endDate, AccountTypeReportCallback callback) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            try {
-                List<TransactionDao.AccountTypeReportData> rawData =
-                        transactionDao.getAccountTypeReportForDateRange(userId, startDate, endDate);
-
-                // Calcular el total para porcentajes
-                double total = 0;
-                for (TransactionDao.AccountTypeReportData data : rawData) {
-                    if (data.total_amount != null) {
-                        total += data.total_amount;
-                    }
-                }
-
-                // Convertir a modelo de reporte
-                List<AccountTypeReport> reports = new ArrayList<>();
-                for (TransactionDao.AccountTypeReportData data : rawData) {
-                    AccountTypeReport report = new AccountTypeReport();
-                    report.setAccountType(data.account_type);
-                    report.setAmount(data.total_amount != null ? data.total_amount : 0);
-                    report.setTransactionCount(data.transaction_count != null ? data.transaction_count : 0);
-
-                    // Calcular porcentaje
-                    if (total > 0 && data.total_amount != null) {
-                        report.setPercentage((data.total_amount / total) * 100);
-                    } else {
-                        report.setPercentage(0);
-                    }
-
-                    reports.add(report);
-                }
-
-                callback.onSuccess(reports);
+    @VisibleForTesting
+    public static PeriodReport buildPeriodReport(TransactionRollupDao.PeriodReportData data) {
+        double totalIncome = 0;
+        double totalExpenses = 0;
+        int transactionCount = 0;
+
+        Map<Long, double[]> expenseByCategory = new HashMap<>();
+        // Orden fijo para que los empates salgan siempre igual
+        Map<String, double[]> expenseByAccountType = new LinkedHashMap<>();
+
+        for (TransactionRollupDao.RollupGroup group : data.groups) {
+            transactionCount += group.transaction_count;
+            totalIncome += group.income_amount;
+            totalExpenses += group.expense_amount;
+            if (group.expense_count == 0) {
+                continue;
+            }
 
-            } catch (Exception e) {
-                android.util.Log.e("ReportRepository", "Error getting account type report", e);
-                callback.onError("Error al generar reporte por tipo de cuenta: " + e.getMessage());
+            double[] category = expenseByCategory.get(group.category_id);
+            if (category == null) {
+                category = new double[2];
+                expenseByCategory.put(group.category_id, category);
             }
-        });
+            category[0] += group.expense_amount;
+            category[1] += group.expense_count;
+
+            String accountType = toAccountType(group.card_type);
+            double[] account = expenseByAccountType.get(accountType);
+            if (account == null) {
+                account = new double[2];
+                expenseByAccountType.put(accountType, account);
+            }
+            account[0] += group.expense_amount;
+            account[1] += group.expense_count;
+        }
+
+        ReportData summary = new ReportData(totalIncome, totalExpenses, totalIncome - totalExpenses, transactionCount);
+
+        // Categorías: todas las de gasto activas, aunque no tengan movimientos
+        List<CategoryReport> categoryReports = new ArrayList<>();
+        double categoryTotal = 0;
+        for (TransactionRollupDao.CategoryInfo info : data.categories) {
+            double[] totals = expenseByCategory.get(info.category_id);
+            CategoryReport report = new CategoryReport();
+            report.setCategoryId(info.category_id);
+            report.setCategoryName(info.category_name != null ? info.category_name : "Sin categoría");
+            report.setCategoryIcon(info.category_icon);
+            report.setCategoryColor(info.category_color != null ? info.category_color : 0);
+            report.setAmount(totals != null ? totals[0] : 0);
+            report.setTransactionCount(totals != null ? (int) totals[1] : 0);
+            categoryTotal += report.getAmount();
+            categoryReports.add(report);
+        }
+        for (CategoryReport report : categoryReports) {
+            report.setPercentage(categoryTotal > 0 ? (report.getAmount() / categoryTotal) * 100 : 0);
+        }
+        categoryReports.sort((a, b) -> Double.compare(b.getAmount(), a.getAmount()));
+
+        // Tipos de cuenta: solo los que tienen gastos en el periodo
+        List<AccountTypeReport> accountTypeReports = new ArrayList<>();
+        for (Map.Entry<String, double[]> entry : expenseByAccountType.entrySet()) {
+            AccountTypeReport report = new AccountTypeReport();
+            report.setAccountType(entry.getKey());
+            report.setAmount(entry.getValue()[0]);
+            report.setTransactionCount((int) entry.getValue()[1]);
+            report.setPercentage(totalExpenses > 0 ? (entry.getValue()[0] / totalExpenses) * 100 : 0);
+            accountTypeReports.add(report);
+        }
+        accountTypeReports.sort((a, b) -> Double.compare(b.getAmount(), a.getAmount()));
+
+        return new PeriodReport(summary, categoryReports, accountTypeReports);
     }
 
-    // ========== Callbacks ==========
-
-    public interface ReportCallback {
-        void onSuccess(ReportData reportData);
-        void onError(String errorMessage);
+    /**
+     * Misma clasificación que TransactionDao.getAccountTypeReportForDateRange
+     */
+    private static String toAccountType(String cardType) {
+        if ("CREDIT".equals(cardType)) return "CREDIT";
+        if ("DEBIT".equals(cardType)) return "DEBIT";
+        return "CASH";
     }
 
-    public interface CategoryReportCallback {
-        void onSuccess(List<CategoryReport> reports);
-        void onError(String errorMessage);
-    }
+    // ========== Callbacks ==========
 
-    public interface AccountTypeReportCallback {
-        void onSuccess(List<AccountTypeReport> reports);
+    public interface PeriodReportCallback {
+        void onSuccess(PeriodReport report);
         void onError(String errorMessage);
     }
 }
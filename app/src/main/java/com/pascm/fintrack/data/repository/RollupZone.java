@@ -0,0 +1,90 @@
+package com.pascm.fintrack.data.repository;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+
+import java.time.ZoneId;
+
+/**
+ * Mantiene los rollups (transaction_rollups y trip_rollups) agrupados por día en
+ * la zona horaria actual del dispositivo.
+ *
+ * Los triggers usan la zona vigente al escribir; si cambia (p. ej. durante un
+ * viaje) ambas tablas se recalculan una vez. Se comprueba al iniciar la app, al
+ * recibir ACTION_TIMEZONE_CHANGED y antes de cada reporte, así que los reportes
+ * y el resumen de viaje (TripRepository.getSpendSummary, TripForecast) leen los
+ * mismos días.
+ */
+public final class RollupZone {
+
+    private static final String TAG = "RollupZone";
+    private static final String PREFS_NAME = "fintrack_prefs";
+    private static final String KEY_ROLLUP_ZONE = "rollup_zone_id";
+
+    private RollupZone() {
+    }
+
+    /**
+     * Comprobar ahora (en segundo plano) y cada vez que cambie la zona horaria
+     * mientras el proceso viva. Llamar una vez, desde Application.onCreate().
+     */
+    public static void start(Context context) {
+        Context appContext = context.getApplicationContext();
+        FinTrackDatabase.databaseReadExecutor.execute(() -> ensureInBackground(appContext));
+
+        // Broadcast del sistema: llega aunque el receptor no esté exportado
+        ContextCompat.registerReceiver(appContext, new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context receiverContext, Intent intent) {
+                FinTrackDatabase.databaseReadExecutor.execute(() -> ensureInBackground(appContext));
+            }
+        }, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED), ContextCompat.RECEIVER_NOT_EXPORTED);
+    }
+
+    /**
+     * Recalcular los rollups si la zona horaria cambió desde la última vez.
+     * La zona se guarda solo después del commit de la reconstrucción.
+     *
+     * Bloquea; llamar en un hilo de fondo (nunca desde una tarea de WriteQueue).
+     *
+     * @throws RuntimeException si la reconstrucción no se confirmó (se reintenta
+     *                          en la siguiente llamada)
+     */
+    public static synchronized void ensureMatchesZone(Context context) {
+        String zoneId = ZoneId.systemDefault().getId();
+        SharedPreferences sp = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String storedZoneId = sp.getString(KEY_ROLLUP_ZONE, null);
+
+        if (zoneId.equals(storedZoneId)) {
+            return;
+        }
+        if (storedZoneId != null) {
+            Log.i(TAG, "Time zone changed " + storedZoneId + " -> " + zoneId + ", rebuilding rollups");
+            FinTrackDatabase database = FinTrackDatabase.getDatabase(context);
+            // Lanza si no se confirmó (error o interrupción): la zona no se guarda y se reintenta
+            FinTrackDatabase.databaseWriteExecutor.executeAndWait(() -> {
+                database.transactionRollupDao().rebuild();
+                database.tripRollupDao().rebuild();
+            });
+        }
+        // Solo después del commit de la reconstrucción
+        sp.edit().putString(KEY_ROLLUP_ZONE, zoneId).apply();
+    }
+
+    private static void ensureInBackground(Context context) {
+        try {
+            ensureMatchesZone(context);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error rebuilding rollups", e);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.pascm.fintrack.data.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.entity.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keyset-paged feed of a user's transactions, newest first.
+ *
+ * Pages are fetched with (transaction_date, transaction_id) as the cursor, so the
+ * cost of a page does not depend on how deep the user has scrolled. Only a bounded
+ * window of pages is kept in memory: loading past the end drops pages from the
+ * opposite side, and they are fetched again by key if the user scrolls back.
+ *
+ * When the transactions table changes, only the rows in the current window are
+ * re-read (instead of the whole history, as the LiveData list queries do).
+ *
+ * Usage:
+ * <pre>
+ * TransactionFeed feed = repository.getTransactionFeed(userId, null);
+ * feed.getSnapshot().observe(owner, snapshot -> adapter.setTransactions(snapshot.items));
+ * feed.loadOlder();   // when the list reaches the bottom
+ * feed.loadNewer();   // when the list reaches the top
+ * feed.close();       // in onDestroyView
+ * </pre>
+ */
+public class TransactionFeed {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_MAX_PAGES = 6;
+
+    private final FinTrackDatabase database;
+    private final TransactionDao transactionDao;
+    private final long userId;
+    private final String type;
+    private final int pageSize;
+    private final int maxPages;
+
+    private final LinkedList<List<Transaction>> pages = new LinkedList<>();
+    private final MutableLiveData<Snapshot> snapshot = new MutableLiveData<>();
+    private final InvalidationTracker.Observer invalidationObserver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /** True when pages were dropped from the head (there are newer rows outside the window) */
+    private boolean hasNewer = false;
+    /** False once a page shorter than pageSize came back from the tail */
+    private boolean hasOlder = true;
+    private boolean loading = false;
+    private boolean closed = false;
+    /** Bumped by every refresh so in-flight page loads against the old window are discarded */
+    private int generation = 0;
+
+    TransactionFeed(FinTrackDatabase database, long userId, Transaction.TransactionType type,
+                    int pageSize, int maxPages) {
+        this.database = database;
+        this.transactionDao = database.transactionDao();
+        this.userId = userId;
+        this.type = type != null ? type.name() : null;
+        this.pageSize = pageSize;
+        this.maxPages = Math.max(2, maxPages);
+
+        this.invalidationObserver = new InvalidationTracker.Observer("transactions") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                refresh();
+            }
+        };
+        database.getInvalidationTracker().addObserver(invalidationObserver);
+
+        refresh();
+    }
+
+    /**
+     * Current window of loaded transactions
+     */
+    public LiveData<Snapshot> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Load the next page of older transactions (scrolling down)
+     */
+    public void loadOlder() {
+        FinTrackDatabase.databaseReadExecutor.execute(() -> {
+            Transaction last;
+            int startGeneration;
+            synchronized (this) {
+                if (closed || loading || !hasOlder || pages.isEmpty()) return;
+                last = pages.getLast().get(pages.getLast().size() - 1);
+                startGeneration = generation;
+                loading = true;
+            }
+
+            List<Transaction> page = queryBefore(last.getTransactionDate().toEpochMilli(), last.getTransactionId());
+
+            synchronized (this) {
+                loading = false;
+                if (closed || startGeneration != generation) return;
+                int shift = 0;
+                if (!page.isEmpty()) {
+                    pages.addLast(page);
+                    if (pages.size() > maxPages) {
+                        shift = -pages.removeFirst().size();
+                        hasNewer = true;
+                    }
+                }
+                hasOlder = page.size() == pageSize;
+                publish(shift);
+            }
+        });
+    }
+
+    /**
+     * Load the previous page of newer transactions (scrolling back up after
+     * older pages evicted the head of the window)
+     */
+    public void loadNewer() {
+        FinTrackDatabase.databaseReadExecutor.execute(() -> {
+            Transaction first;
+            int startGeneration;
+            synchronized (this) {
+                if (closed || loading || !hasNewer || pages.isEmpty()) return;
+                first = pages.getFirst().get(0);
+                startGeneration = generation;
+                loading = true;
+            }
+
+            List<Transaction> page = queryAfter(first.getTransactionDate().toEpochMilli(), first.getTransactionId());
+
+            synchronized (this) {
+                loading = false;
+                if (closed || startGeneration != generation) return;
+                int shift = 0;
+                if (!page.isEmpty()) {
+                    pages.addFirst(page);
+                    shift = page.size();
+                    if (pages.size() > maxPages) {
+                        pages.removeLast();
+                        hasOlder = true;
+                    }
+                }
+                hasNewer = page.size() == pageSize;
+                publish(shift);
+            }
+        });
+    }
+
+    /**
+     * Stop listening for table changes. Call from onDestroyView/onCleared.
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        database.getInvalidationTracker().removeObserver(invalidationObserver);
+    }
+
+    /**
+     * Re-read the rows of the current window. If the window starts at the head of
+     * the feed it is reloaded from the top, so new rows show up; otherwise it is
+     * reloaded from its first key so the visible rows stay in place.
+     */
+    private void refresh() {
+        FinTrackDatabase.databaseReadExecutor.execute(() -> {
+            long beforeDate;
+            long beforeId;
+            int windowPages;
+            int refreshGeneration;
+            synchronized (this) {
+                if (closed) return;
+                refreshGeneration = ++generation;
+                windowPages = Math.max(1, pages.size());
+                if (hasNewer && !pages.isEmpty()) {
+                    Transaction first = pages.getFirst().get(0);
+                    beforeDate = first.getTransactionDate().toEpochMilli();
+                    // Anchor is inclusive: step the id key one past the first row
+                    beforeId = first.getTransactionId() + 1;
+                } else {
+                    beforeDate = Long.MAX_VALUE;
+                    beforeId = Long.MAX_VALUE;
+                }
+            }
+
+            List<Transaction> rows = database.runInTransaction(() -> {
+                List<Transaction> window = new ArrayList<>();
+                long date = beforeDate;
+                long id = beforeId;
+                for (int i = 0; i < windowPages; i++) {
+                    List<Transaction> page = queryBefore(date, id);
+                    window.addAll(page);
+                    if (page.size() < pageSize) break;
+                    Transaction last = page.get(page.size() - 1);
+                    date = last.getTransactionDate().toEpochMilli();
+                    id = last.getTransactionId();
+                }
+                return window;
+            });
+
+            synchronized (this) {
+                if (closed || refreshGeneration != generation) return;
+                pages.clear();
+                for (int from = 0; from < rows.size(); from += pageSize) {
+                    pages.addLast(new ArrayList<>(rows.subList(from, Math.min(rows.size(), from + pageSize))));
+                }
+                hasOlder = rows.size() == windowPages * pageSize;
+                publish(0);
+            }
+        });
+    }
+
+    private List<Transaction> queryBefore(long beforeDate, long beforeId) {
+        return type == null
+                ? transactionDao.getPageBefore(userId, beforeDate, beforeId, pageSize)
+                : transactionDao.getPageBeforeByType(userId, type, beforeDate, beforeId, pageSize);
+    }
+
+    private List<Transaction> queryAfter(long afterDate, long afterId) {
+        List<Transaction> page = type == null
+                ? transactionDao.getPageAfter(userId, afterDate, afterId, pageSize)
+                : transactionDao.getPageAfterByType(userId, type, afterDate, afterId, pageSize);
+        Collections.reverse(page);
+        return page;
+    }
+
+    private void publish(int shift) {
+        List<Transaction> items = new ArrayList<>(pages.size() * pageSize);
+        for (List<Transaction> page : pages) {
+            items.addAll(page);
+        }
+        Snapshot next = new Snapshot(Collections.unmodifiableList(items), hasNewer, hasOlder, shift);
+        // Post each snapshot individually: postValue() would coalesce them and lose position shifts
+        mainHandler.post(() -> snapshot.setValue(next));
+    }
+
+    /**
+     * Immutable view of the loaded window.
+     */
+    public static class Snapshot {
+        public final List<Transaction> items;
+        /** There are newer rows above the window (call loadNewer at the top) */
+        public final boolean hasNewer;
+        /** There are older rows below the window (call loadOlder at the bottom) */
+        public final boolean hasOlder;
+        /**
+         * How many positions existing rows moved since the previous snapshot
+         * (positive when a page was prepended, negative when the head was evicted).
+         * Lists use it to keep the scroll position stable.
+         */
+        public final int positionShift;
+
+        Snapshot(List<Transaction> items, boolean hasNewer, boolean hasOlder, int positionShift) {
+            this.items = items;
+            this.hasNewer = hasNewer;
+            this.hasOlder = hasOlder;
+            this.positionShift = positionShift;
+        }
+
+        public boolean isEmpty() {
+            return items.isEmpty() && !hasNewer;
+        }
+    }
+}
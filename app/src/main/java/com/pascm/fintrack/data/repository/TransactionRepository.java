@@ -2,16 +2,25 @@ package com.pascm.fintrack.data.repository;
 
 import android.content.Context;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 
 import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.dao.SyncDao;
 import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.entity.PendingAction;
 import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.sync.SyncActions;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Repository for managing transactions.
@@ -49,11 +58,21 @@ import java.util.List;
 public class TransactionRepository {
 
     private final TransactionDao transactionDao;
+    private final SyncDao syncDao;
     private final FinTrackDatabase database;
 
     public TransactionRepository(Context context) {
-        this.database = FinTrackDatabase.getDatabase(context);
+        this(FinTrackDatabase.getDatabase(context));
+    }
+
+    /**
+     * Repository over a given database. Public for the benchmark module.
+     */
+    @VisibleForTesting
+    public TransactionRepository(FinTrackDatabase database) {
+        this.database = database;
         this.transactionDao = database.transactionDao();
+        this.syncDao = database.syncDao();
     }
 
     // ========== Read Operations (Reactive with LiveData) ==========
@@ -65,6 +84,21 @@ public class TransactionRepository {
         return transactionDao.getAllByUser(userId);
     }
 
+    /**
+     * Get a keyset-paged feed of transactions, newest first.
+     *
+     * Prefer this over getAllTransactions for list screens: it only loads and
+     * re-reads a bounded window of rows instead of the whole history.
+     * The caller must close() the feed when the screen goes away.
+     *
+     * @param userId User ID
+     * @param type   Transaction type to filter by, or null for all types
+     */
+    public TransactionFeed getTransactionFeed(long userId, Transaction.TransactionType type) {
+        return new TransactionFeed(database, userId, type,
+                TransactionFeed.DEFAULT_PAGE_SIZE, TransactionFeed.DEFAULT_MAX_PAGES);
+    }
+
     /**
      * Get a specific transaction by ID
      */
@@ -142,10 +176,56 @@ public class TransactionRepository {
     }
 
     /**
-     * Search transactions by notes or merchant name
+     * Get transactions associated with a trip (background thread, e.g. for export)
+     */
+    public List<Transaction> getTransactionsByTripSync(long userId, long tripId) {
+        return transactionDao.getByTripSync(userId, tripId);
+    }
+
+    /**
+     * Get the most recent transactions of a trip, newest first
+     */
+    public LiveData<List<Transaction>> getRecentTransactionsByTrip(long userId, long tripId, int limit) {
+        return transactionDao.getRecentByTrip(userId, tripId, limit);
+    }
+
+    /**
+     * Get located transactions inside a map viewport, newest first.
+     *
+     * @param tripId Only this trip's transactions, or null for all
+     * @param limit  Maximum number of transactions (markers)
+     */
+    public LiveData<List<Transaction>> getTransactionsInArea(long userId, Long tripId,
+                                                             double minLat, double maxLat,
+                                                             double minLng, double maxLng, int limit) {
+        return transactionDao.getInArea(userId, tripId, minLat, maxLat, minLng, maxLng, limit);
+    }
+
+    /**
+     * Get the bounding box of a trip's located transactions
+     */
+    public LiveData<TransactionDao.LocationBounds> getTripLocationBounds(long userId, long tripId) {
+        return transactionDao.getLocationBoundsForTrip(userId, tripId);
+    }
+
+    /**
+     * Search transactions by notes, merchant or category name (every word as a
+     * prefix, ignoring case and accents), newest first
      */
     public LiveData<List<Transaction>> searchTransactions(long userId, String query) {
-        return transactionDao.search(userId, query);
+        String matchQuery = TransactionSearch.toMatchQuery(query);
+        if (matchQuery == null) {
+            return new MutableLiveData<>(Collections.emptyList());
+        }
+        return transactionDao.search(userId, matchQuery);
+    }
+
+    /**
+     * Start a ranked typeahead search session (debounced, paged, best match first).
+     * The caller must close() it when the screen goes away.
+     */
+    public TransactionSearch newTransactionSearch(long userId) {
+        return new TransactionSearch(database, userId);
     }
 
     /**
@@ -186,21 +266,19 @@ public class TransactionRepository {
     }
 
     /**
-     * Get total income for date range
+     * Get total income for date range (served from the daily rollups)
      */
     public LiveData<Double> getIncomeForDateRange(long userId, LocalDate startDate, LocalDate endDate) {
-        long startEpochMilli = startDate.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        long endEpochMilli = endDate.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        return transactionDao.getIncomeForDateRange(userId, startEpochMilli, endEpochMilli);
+        return database.transactionRollupDao().observeTotalForRange(
+                userId, startDate.toEpochDay(), endDate.toEpochDay(), Transaction.TransactionType.INCOME.name());
     }
 
     /**
-     * Get total expenses for date range
+     * Get total expenses for date range (served from the daily rollups)
      */
     public LiveData<Double> getExpensesForDateRange(long userId, LocalDate startDate, LocalDate endDate) {
-        long startEpochMilli = startDate.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        long endEpochMilli = endDate.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        return transactionDao.getExpensesForDateRange(userId, startEpochMilli, endEpochMilli);
+        return database.transactionRollupDao().observeTotalForRange(
+                userId, startDate.toEpochDay(), endDate.toEpochDay(), Transaction.TransactionType.EXPENSE.name());
     }
 
     /**
@@ -240,10 +318,19 @@ public class TransactionRepository {
     }
 
     /**
-     * Get spending by month (for trend analysis)
+     * Get spending by month (for trend analysis, served from the daily rollups)
      */
     public List<TransactionDao.MonthlyExpense> getSpendingByMonthSync(long userId, int year) {
-        return transactionDao.getSpendingByMonth(userId, year);
+        LocalDate firstDay = LocalDate.of(year, 1, 1);
+        LocalDate lastDay = LocalDate.of(year, 12, 31);
+        return database.transactionRollupDao().getSpendingByMonth(userId, firstDay.toEpochDay(), lastDay.toEpochDay());
+    }
+
+    /**
+     * Get daily expenses since a date, newest first (for trend charts)
+     */
+    public List<TransactionDao.DailyExpense> getDailyExpensesSync(long userId, LocalDate since) {
+        return database.transactionRollupDao().getDailyExpenses(userId, since.toEpochDay());
     }
 
     /**
@@ -273,70 +360,54 @@ public class TransactionRepository {
      * @param transaction Transaction to insert
      */
     public void insertTransaction(Transaction transaction) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            Instant now = Instant.now();
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> insertTransactionSync(transaction), null);
+    }
+
+    /**
+     * Insert multiple transactions at once (batch operation)
+     */
+    public void insertTransactions(List<Transaction> transactions) {
+        Instant now = Instant.now();
+        for (Transaction transaction : transactions) {
             transaction.setCreatedAt(now);
             transaction.setUpdatedAt(now);
 
-            // Set default status if not set
             if (transaction.getStatus() == null) {
                 transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
             }
-
-            // Set default currency if not set
             if (transaction.getCurrencyCode() == null || transaction.getCurrencyCode().isEmpty()) {
                 transaction.setCurrencyCode("MXN");
             }
+        }
 
-            long transactionId = transactionDao.insert(transaction);
-
-            android.util.Log.i("TransactionRepository", "Inserted transaction ID: " + transactionId);
-
-            // TODO: Mark for sync
-            // SyncRepository.markForSync("TRANSACTION", transactionId, "CREATE");
-        });
-    }
-
-    /**
-     * Insert multiple transactions at once (batch operation)
-     */
-    public void insertTransactions(List<Transaction> transactions) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            Instant now = Instant.now();
-            for (Transaction transaction : transactions) {
-                transaction.setCreatedAt(now);
-                transaction.setUpdatedAt(now);
-
-                if (transaction.getStatus() == null) {
-                    transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+            database.runInTransaction(() -> {
+                List<Long> insertedIds = transactionDao.insertAll(transactions);
+                List<PendingAction> actions = new ArrayList<>(insertedIds.size());
+                for (int i = 0; i < insertedIds.size(); i++) {
+                    Transaction transaction = transactions.get(i);
+                    transaction.setTransactionId(insertedIds.get(i));
+                    actions.add(SyncActions.create(SyncActions.TRANSACTION, insertedIds.get(i),
+                            SyncActions.CREATE, transaction));
                 }
-                if (transaction.getCurrencyCode() == null || transaction.getCurrencyCode().isEmpty()) {
-                    transaction.setCurrencyCode("MXN");
-                }
-            }
-
-            List<Long> ids = transactionDao.insertAll(transactions);
-            android.util.Log.i("TransactionRepository", "Inserted " + ids.size() + " transactions");
-
-            // TODO: Mark all for sync
-        });
+                syncDao.enqueueAll(actions);
+            });
+        }, () -> android.util.Log.i("TransactionRepository", "Inserted " + transactions.size() + " transactions"));
     }
 
     /**
      * Update an existing transaction
      */
     public void updateTransaction(Transaction transaction) {
+        transaction.setUpdatedAt(Instant.now());
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            transaction.setUpdatedAt(Instant.now());
-            int rowsUpdated = transactionDao.update(transaction);
-
-            if (rowsUpdated > 0) {
-                android.util.Log.i("TransactionRepository", "Updated transaction ID: " + transaction.getTransactionId());
-
-                // TODO: Mark for sync
-                // SyncRepository.markForSync("TRANSACTION", transaction.getTransactionId(), "UPDATE");
-            }
-        });
+            database.runInTransaction(() -> {
+                if (transactionDao.update(transaction) > 0) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, transaction.getTransactionId(),
+                            SyncActions.UPDATE, transaction));
+                }
+            });
+        }, null);
     }
 
     /**
@@ -344,10 +415,35 @@ public class TransactionRepository {
      */
     public void updateTransactionStatus(long transactionId, Transaction.TransactionStatus status) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            transactionDao.updateStatus(transactionId, status.name(), Instant.now().toEpochMilli());
+            database.runInTransaction(() -> {
+                transactionDao.updateStatus(transactionId, status.name(), Instant.now().toEpochMilli());
+                enqueueUpdate(transactionId);
+            });
+        }, null);
+    }
 
-            // TODO: Mark for sync
-        });
+    /**
+     * Append a photo or receipt path to a transaction's attachments
+     */
+    public void addAttachment(long transactionId, String path) {
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            database.runInTransaction(() -> {
+                // Read the row here, so a replay after a rollback adds the path once
+                Transaction transaction = transactionDao.getByIdSync(transactionId);
+                if (transaction == null) {
+                    return;
+                }
+                List<String> attachments = transaction.getAttachments() != null
+                        ? new ArrayList<>(transaction.getAttachments())
+                        : new ArrayList<>();
+                attachments.add(path);
+                transaction.setAttachments(attachments);
+                transaction.setUpdatedAt(Instant.now());
+                transactionDao.update(transaction);
+                syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, transactionId,
+                        SyncActions.UPDATE, transaction));
+            });
+        }, null);
     }
 
     /**
@@ -364,15 +460,13 @@ public class TransactionRepository {
      */
     public void deleteTransaction(Transaction transaction) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            int rowsDeleted = transactionDao.delete(transaction);
-
-            if (rowsDeleted > 0) {
-                android.util.Log.i("TransactionRepository", "Deleted transaction ID: " + transaction.getTransactionId());
-
-                // TODO: Mark for sync (DELETE operation)
-                // SyncRepository.markForSync("TRANSACTION", transaction.getTransactionId(), "DELETE");
-            }
-        });
+            database.runInTransaction(() -> {
+                if (transactionDao.delete(transaction) > 0) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, transaction.getTransactionId(),
+                            SyncActions.DELETE, transaction));
+                }
+            });
+        }, null);
     }
 
     /**
@@ -380,10 +474,16 @@ public class TransactionRepository {
      */
     public void deleteTransactions(List<Transaction> transactions) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            transactionDao.deleteAll(transactions);
-
-            // TODO: Mark all for sync
-        });
+            database.runInTransaction(() -> {
+                transactionDao.deleteAll(transactions);
+                List<PendingAction> actions = new ArrayList<>(transactions.size());
+                for (Transaction transaction : transactions) {
+                    actions.add(SyncActions.create(SyncActions.TRANSACTION, transaction.getTransactionId(),
+                            SyncActions.DELETE, transaction));
+                }
+                syncDao.enqueueAll(actions);
+            });
+        }, null);
     }
 
     // ========== Synchronous Operations (Use with caution - don't call on main thread!) ==========
@@ -414,13 +514,15 @@ public class TransactionRepository {
             transaction.setCurrencyCode("MXN");
         }
 
-        long transactionId = transactionDao.insert(transaction);
+        long transactionId = database.runInTransaction(() -> {
+            long id = transactionDao.insert(transaction);
+            transaction.setTransactionId(id);
+            syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, id, SyncActions.CREATE, transaction));
+            return id;
+        });
 
         android.util.Log.i("TransactionRepository", "Inserted transaction ID: " + transactionId);
 
-        // TODO: Mark for sync
-        // SyncRepository.markForSync("TRANSACTION", transactionId, "CREATE");
-
         return transactionId;
     }
 
@@ -454,6 +556,17 @@ public class TransactionRepository {
 
     // ========== Helper Methods ==========
 
+    /**
+     * Queue an UPDATE with the current row after a partial update.
+     * Must run inside the transaction of the update.
+     */
+    private void enqueueUpdate(long transactionId) {
+        Transaction updated = transactionDao.getByIdSync(transactionId);
+        if (updated != null) {
+            syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, transactionId, SyncActions.UPDATE, updated));
+        }
+    }
+
     /**
      * Create a quick expense transaction (for simple use cases)
      */
@@ -497,61 +610,139 @@ public class TransactionRepository {
             var activeTrip = tripDao.getActiveTripSync(userId);
 
             if (activeTrip != null) {
-                transactionDao.updateTripId(transactionId, activeTrip.getTripId(), Instant.now().toEpochMilli());
-                android.util.Log.i("TransactionRepository",
-                    "Associated transaction " + transactionId + " with trip " + activeTrip.getTripId());
+                database.runInTransaction(() -> {
+                    transactionDao.updateTripId(transactionId, activeTrip.getTripId(), Instant.now().toEpochMilli());
+                    enqueueUpdate(transactionId);
+                });
             }
+        }, null);
+    }
+
+    // ========== Ledger (transactions + balances) ==========
+
+    /**
+     * Insert movements and apply them to balances, asynchronously.
+     *
+     * @see #postTransactionsSync(List)
+     */
+    public void postTransactions(List<Transaction> transactions, PostCallback callback) {
+        List<Long> ids = new ArrayList<>();
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            ids.clear();
+            ids.addAll(postTransactionsSync(transactions));
+        }, () -> {
+            if (callback != null) callback.onPosted(ids);
+        }, e -> {
+            android.util.Log.e("TransactionRepository", "Error posting transactions", e);
+            if (callback != null) callback.onError(e.getMessage());
         });
     }
 
     /**
-     * Update card balance after transaction
+     * Insert movements and apply them to balances as one unit.
      *
-     * This should be called after inserting a transaction linked to a credit card
-     * to update the card's current balance.
+     * Each completed transaction moves the balance it was paid with:
+     * - Credit card (card type CREDIT): expenses raise the amount owed, income (payments) lowers it
+     * - Otherwise its account (debit card account or cash): income adds, expenses subtract
      *
-     * @param cardId      Card ID
-     * @param amount      Transaction amount (positive for charges, negative for payments)
-     * @param isCredit    true for credit card, false for debit card
+     * Either every row and balance change is committed or none is, so pass both
+     * legs of a transfer in one call. Balances are changed in place
+     * (balance = balance + delta), never read and written back, and deltas to the
+     * same account or card are summed first: a bulk import costs one UPDATE per
+     * account, not per row.
+     *
+     * WARNING: Don't call on main thread!
+     *
+     * @return The generated transaction IDs, in input order
      */
-    public void updateCardBalanceAfterTransaction(long cardId, double amount, boolean isCredit) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            if (isCredit) {
-                var creditCardDao = database.creditCardDao();
-                var card = creditCardDao.getByIdSync(cardId);
+    public List<Long> postTransactionsSync(List<Transaction> transactions) {
+        Instant now = Instant.now();
+        Map<Long, Double> accountDeltas = new HashMap<>();
+        Map<Long, Double> creditCardDeltas = new HashMap<>();
 
-                if (card != null) {
-                    double newBalance = card.getCurrentBalance() + amount;
-                    creditCardDao.updateBalance(cardId, newBalance, Instant.now().toEpochMilli());
+        for (Transaction transaction : transactions) {
+            transaction.setCreatedAt(now);
+            transaction.setUpdatedAt(now);
+            if (transaction.getStatus() == null) {
+                transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+            }
+            if (transaction.getCurrencyCode() == null || transaction.getCurrencyCode().isEmpty()) {
+                transaction.setCurrencyCode("MXN");
+            }
+
+            double delta = balanceDelta(transaction);
+            if (delta == 0) {
+                continue;
+            }
+            if (isCreditCardCharge(transaction)) {
+                // The card balance is debt: spending raises it
+                creditCardDeltas.merge(transaction.getCardId(), -delta, Double::sum);
+            } else if (transaction.getAccountId() != null) {
+                accountDeltas.merge(transaction.getAccountId(), delta, Double::sum);
+            }
+        }
+
+        long updatedAt = now.toEpochMilli();
+        List<Long> ids = database.runInTransaction(() -> {
+            List<Long> insertedIds = transactionDao.insertAll(transactions);
+            List<PendingAction> actions = new ArrayList<>(insertedIds.size() + creditCardDeltas.size());
+            for (int i = 0; i < insertedIds.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                transaction.setTransactionId(insertedIds.get(i));
+                actions.add(SyncActions.create(SyncActions.TRANSACTION, insertedIds.get(i),
+                        SyncActions.CREATE, transaction));
+            }
+
+            var accountDao = database.accountDao();
+            for (Map.Entry<Long, Double> entry : accountDeltas.entrySet()) {
+                accountDao.applyBalanceDelta(entry.getKey(), entry.getValue(), updatedAt);
+            }
 
-                    android.util.Log.i("TransactionRepository",
-                        "Updated card balance: " + card.getCurrentBalance() + " -> " + newBalance);
+            var creditCardDao = database.creditCardDao();
+            for (Map.Entry<Long, Double> entry : creditCardDeltas.entrySet()) {
+                if (creditCardDao.applyBalanceDelta(entry.getKey(), entry.getValue(), updatedAt) > 0) {
+                    actions.add(SyncActions.create(SyncActions.CREDIT_CARD, entry.getKey(),
+                            SyncActions.UPDATE, creditCardDao.getByIdSync(entry.getKey())));
                 }
             }
-            // TODO: Handle debit cards when DebitCardDao is implemented
+
+            syncDao.enqueueAll(actions);
+            return insertedIds;
         });
+
+        android.util.Log.i("TransactionRepository", "Posted " + ids.size() + " transactions to "
+                + (accountDeltas.size() + creditCardDeltas.size()) + " balances");
+        return ids;
     }
 
     /**
-     * Update account balance after transaction
-     *
-     * This should be called after inserting a transaction linked to an account.
-     *
-     * @param accountId Account ID
-     * @param amount    Transaction amount (positive for income, negative for expense)
+     * Signed effect of a transaction on what it was paid with (income positive).
+     * Transfers are posted as an EXPENSE leg and an INCOME leg; TRANSFER rows and
+     * non-completed ones do not move balances.
      */
-    public void updateAccountBalanceAfterTransaction(long accountId, double amount) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            var accountDao = database.accountDao();
-            var account = accountDao.getByIdSync(accountId);
+    static double balanceDelta(Transaction transaction) {
+        if (transaction.getStatus() != Transaction.TransactionStatus.COMPLETED) {
+            return 0;
+        }
+        if (transaction.getType() == Transaction.TransactionType.INCOME) {
+            return transaction.getAmount();
+        }
+        if (transaction.getType() == Transaction.TransactionType.EXPENSE) {
+            return -transaction.getAmount();
+        }
+        return 0;
+    }
 
-            if (account != null) {
-                double newBalance = account.getBalance() + amount;
-                accountDao.updateBalance(accountId, newBalance, Instant.now().toEpochMilli());
+    private static boolean isCreditCardCharge(Transaction transaction) {
+        return "CREDIT".equals(transaction.getCardType()) && transaction.getCardId() != null;
+    }
 
-                android.util.Log.i("TransactionRepository",
-                    "Updated account balance: " + account.getBalance() + " -> " + newBalance);
-            }
-        });
+    /**
+     * Callback for postTransactions
+     */
+    public interface PostCallback {
+        void onPosted(List<Long> transactionIds);
+
+        void onError(String error);
     }
 }
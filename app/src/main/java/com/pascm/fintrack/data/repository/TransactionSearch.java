@@ -0,0 +1,353 @@
+package com.pascm.fintrack.data.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.entity.Transaction;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ranked typeahead search over a user's transactions (notes, merchant and
+ * category names), backed by the transaction_search full-text index.
+ *
+ * Every word typed is matched as a prefix, ignoring case and accents ("cafe ox"
+ * finds "Café OXXO"). setQuery() is debounced, so a search only runs once the
+ * user pauses typing. A search reads the IDs and match statistics of all matches,
+ * ranks them, and loads the transactions one page at a time; loadMore() loads the
+ * next page of the same ranking.
+ *
+ * Ranking: for each word and column, matches weigh more when the word is rare in
+ * the index (BM25-style idf) and when it is in the merchant or category name
+ * rather than in the notes. Ties go to the newest transaction.
+ *
+ * The transaction list (TransaccionesListFragment) shows these results instead
+ * of its feed while the search box holds a query.
+ *
+ * Usage:
+ * <pre>
+ * TransactionSearch search = repository.newTransactionSearch(userId);
+ * search.getResults().observe(owner, results -> adapter.setTransactions(results.items));
+ * search.setQuery(editText.getText().toString());   // on every keystroke
+ * search.loadMore();                                 // when the list reaches the bottom
+ * search.close();                                    // in onDestroyView
+ * </pre>
+ */
+public class TransactionSearch {
+
+    public static final int PAGE_SIZE = 30;
+    static final long DEBOUNCE_MILLIS = 250;
+    static final int MIN_QUERY_LENGTH = 2;
+
+    /**
+     * Ranking weight of each transaction_search column: notes, merchant_name, category_name
+     */
+    private static final double[] COLUMN_WEIGHTS = {1.0, 2.0, 1.5};
+
+    private final FinTrackDatabase database;
+    private final TransactionDao transactionDao;
+    private final long userId;
+
+    private final MutableLiveData<Results> results = new MutableLiveData<>();
+    private final InvalidationTracker.Observer invalidationObserver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable debouncedSearch = this::runPendingQuery;
+
+    // Main thread only
+    private String pendingQuery = "";
+
+    // Guarded by this
+    private String query = "";
+    private long[] rankedIds = new long[0];
+    private final List<Transaction> loaded = new ArrayList<>();
+    private boolean loading = false;
+    private boolean closed = false;
+    /** Bumped by every search so in-flight page loads for an older query are discarded */
+    private int generation = 0;
+
+    TransactionSearch(FinTrackDatabase database, long userId) {
+        this.database = database;
+        this.transactionDao = database.transactionDao();
+        this.userId = userId;
+
+        // The index follows these tables through triggers
+        this.invalidationObserver = new InvalidationTracker.Observer("transactions", "merchants", "categories") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                String current;
+                synchronized (TransactionSearch.this) {
+                    current = query;
+                }
+                search(current, true);
+            }
+        };
+        database.getInvalidationTracker().addObserver(invalidationObserver);
+    }
+
+    /**
+     * Current query results
+     */
+    public LiveData<Results> getResults() {
+        return results;
+    }
+
+    /**
+     * Search for text as the user types. Call on the main thread.
+     */
+    public void setQuery(String text) {
+        pendingQuery = text != null ? text.trim() : "";
+        mainHandler.removeCallbacks(debouncedSearch);
+        mainHandler.postDelayed(debouncedSearch, DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Load the next page of the current results
+     */
+    public void loadMore() {
+        FinTrackDatabase.databaseReadExecutor.execute(() -> {
+            long[] ids;
+            int from;
+            int startGeneration;
+            synchronized (this) {
+                if (closed || loading || loaded.size() >= rankedIds.length) return;
+                ids = rankedIds;
+                from = loaded.size();
+                startGeneration = generation;
+                loading = true;
+            }
+
+            List<Transaction> page = loadPage(ids, from, Math.min(ids.length, from + PAGE_SIZE));
+
+            synchronized (this) {
+                loading = false;
+                if (closed || startGeneration != generation) return;
+                loaded.addAll(page);
+                publish();
+            }
+        });
+    }
+
+    /**
+     * Stop listening for table changes and drop a pending search. Call from onDestroyView/onCleared.
+     */
+    public void close() {
+        mainHandler.removeCallbacks(debouncedSearch);
+        synchronized (this) {
+            closed = true;
+        }
+        database.getInvalidationTracker().removeObserver(invalidationObserver);
+    }
+
+    private void runPendingQuery() {
+        search(pendingQuery, false);
+    }
+
+    /**
+     * Rank all matches of a query and load its first page.
+     *
+     * @param keepLoaded Reload as many rows as are loaded now (data changed under the same query)
+     */
+    private void search(String text, boolean keepLoaded) {
+        FinTrackDatabase.databaseReadExecutor.execute(() -> {
+            int searchGeneration;
+            int rowsToLoad;
+            synchronized (this) {
+                if (closed) return;
+                searchGeneration = ++generation;
+                rowsToLoad = keepLoaded && text.equals(query) ? Math.max(PAGE_SIZE, loaded.size()) : PAGE_SIZE;
+            }
+
+            String matchQuery = toMatchQuery(text);
+            long[] ids;
+            List<Transaction> rows;
+            if (matchQuery == null) {
+                ids = new long[0];
+                rows = Collections.emptyList();
+            } else {
+                ids = rank(transactionDao.searchMatches(userId, matchQuery));
+                rows = loadPage(ids, 0, Math.min(ids.length, rowsToLoad));
+            }
+
+            synchronized (this) {
+                if (closed || searchGeneration != generation) return;
+                query = text;
+                rankedIds = ids;
+                loaded.clear();
+                loaded.addAll(rows);
+                loading = false;
+                publish();
+            }
+        });
+    }
+
+    /**
+     * Load ranked IDs [from, to) and return them in ranking order
+     */
+    private List<Transaction> loadPage(long[] ids, int from, int to) {
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        List<Long> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(ids[i]);
+        }
+
+        Map<Long, Transaction> byId = new HashMap<>();
+        for (Transaction transaction : transactionDao.getByIdsSync(pageIds)) {
+            byId.put(transaction.getTransactionId(), transaction);
+        }
+
+        List<Transaction> page = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            Transaction transaction = byId.get(id);
+            if (transaction != null) {
+                page.add(transaction);
+            }
+        }
+        return page;
+    }
+
+    private void publish() {
+        Results next = new Results(query, Collections.unmodifiableList(new ArrayList<>(loaded)),
+                rankedIds.length, loaded.size() < rankedIds.length);
+        mainHandler.post(() -> results.setValue(next));
+    }
+
+    // ========== Query and Ranking ==========
+
+    /**
+     * Turn user input into an FTS MATCH expression: every word becomes a prefix
+     * term, all words required ("Café ox" -> "café* ox*"). Punctuation and FTS
+     * operators are dropped, so any input is a valid query.
+     *
+     * @return The expression, or null if the input is too short to search
+     */
+    public static String toMatchQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+
+        StringBuilder match = new StringBuilder();
+        int letters = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                // Lowercase so AND/OR/NOT/NEAR are read as words, not operators
+                match.append(text.substring(start, i).toLowerCase(Locale.ROOT)).append('*');
+                letters += i - start;
+            }
+        }
+        return letters >= MIN_QUERY_LENGTH ? match.toString() : null;
+    }
+
+    /**
+     * Order matches by score, best first, then newest first
+     */
+    static long[] rank(List<TransactionDao.SearchMatch> matches) {
+        int count = matches.size();
+        double[] scores = new double[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = score(matches.get(i).match_info);
+            order[i] = i;
+        }
+
+        java.util.Arrays.sort(order, (a, b) -> {
+            int byScore = Double.compare(scores[b], scores[a]);
+            if (byScore != 0) return byScore;
+            return Long.compare(matches.get(b).transaction_date, matches.get(a).transaction_date);
+        });
+
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = matches.get(order[i]).transaction_id;
+        }
+        return ids;
+    }
+
+    /**
+     * Score a row from its matchinfo 'pcnx' blob: phrase count, column count, row
+     * count, then for each (phrase, column): hits in this row, hits in all rows,
+     * rows with hits. The blob holds 32-bit integers in native byte order.
+     */
+    static double score(byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 12) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        int rows = buffer.getInt(8);
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int offset = 12 + 12 * (phrase * columns + column);
+                if (offset + 12 > matchInfo.length) {
+                    return score;
+                }
+                int hitsInRow = buffer.getInt(offset);
+                if (hitsInRow == 0) {
+                    continue;
+                }
+                int rowsWithHits = buffer.getInt(offset + 8);
+                double idf = Math.log(1 + (rows - rowsWithHits + 0.5) / (rowsWithHits + 0.5));
+                double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                // Saturating term frequency: a second hit adds less than the first
+                score += weight * idf * hitsInRow / (hitsInRow + 1.0);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Immutable view of the loaded results.
+     */
+    public static class Results {
+        /** Query these results belong to */
+        public final String query;
+        /** Loaded results, best match first */
+        public final List<Transaction> items;
+        /** Number of matches in total, loaded or not */
+        public final int totalMatches;
+        /** There are more matches to load (call loadMore at the bottom) */
+        public final boolean hasMore;
+
+        Results(String query, List<Transaction> items, int totalMatches, boolean hasMore) {
+            this.query = query;
+            this.items = items;
+            this.totalMatches = totalMatches;
+            this.hasMore = hasMore;
+        }
+
+        public boolean isEmpty() {
+            return items.isEmpty();
+        }
+    }
+}
@@ -6,8 +6,11 @@ import androidx.lifecycle.LiveData;
 
 import com.pascm.fintrack.data.TripPrefs;
 import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.dao.SyncDao;
 import com.pascm.fintrack.data.local.dao.TripDao;
+import com.pascm.fintrack.data.local.dao.TripRollupDao;
 import com.pascm.fintrack.data.local.entity.Trip;
+import com.pascm.fintrack.data.sync.SyncActions;
 
 import java.time.Instant;
 import java.time.LocalDate;
@@ -29,15 +32,22 @@ import java.util.List;
  *
  * OLD: TripPrefs.setActiveTrip(context, false) → End trip
  * NEW: tripRepository.endTrip(tripId)
+ *
+ * Every write queues the trip for sync (SyncActions.TRIP) in the same
+ * transaction, so other devices get it back with its transactions.
  */
 public class TripRepository {
 
     private final TripDao tripDao;
+    private final TripRollupDao tripRollupDao;
+    private final SyncDao syncDao;
     private final FinTrackDatabase database;
 
     public TripRepository(Context context) {
         this.database = FinTrackDatabase.getDatabase(context);
         this.tripDao = database.tripDao();
+        this.tripRollupDao = database.tripRollupDao();
+        this.syncDao = database.syncDao();
     }
 
     // ========== Read Operations ==========
@@ -92,6 +102,13 @@ public class TripRepository {
         return tripDao.getById(tripId);
     }
 
+    /**
+     * Get a trip's spending totals (one row, maintained on every transaction write)
+     */
+    public LiveData<TripRollupDao.TripSpendSummary> getSpendSummary(long tripId) {
+        return tripRollupDao.observeSummary(tripId);
+    }
+
     /**
      * Get upcoming trips (planned, not started yet)
      */
@@ -122,37 +139,27 @@ public class TripRepository {
      * @param trip Trip entity
      */
     public void createTrip(Trip trip) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            Instant now = Instant.now();
-            trip.setCreatedAt(now);
-            trip.setUpdatedAt(now);
-
-            long tripId = tripDao.insert(trip);
-
-            // TODO: Mark for sync
-            // SyncRepository.markForSync("TRIP", tripId, "CREATE");
-        });
+        insertTrip(trip, null);
     }
 
     /**
      * Insert a new trip with callback
      *
      * @param trip Trip entity
-     * @param callback Callback with generated trip ID
+     * @param callback Callback with generated trip ID, run on the writer thread after the commit
      */
     public void insertTrip(Trip trip, TripCallback callback) {
+        Instant now = Instant.now();
+        trip.setCreatedAt(now);
+        trip.setUpdatedAt(now);
+        long[] tripId = new long[1];
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            Instant now = Instant.now();
-            trip.setCreatedAt(now);
-            trip.setUpdatedAt(now);
-
-            long tripId = tripDao.insert(trip);
-
-            // TODO: Mark for sync
-            // SyncRepository.markForSync("TRIP", tripId, "CREATE");
-
+            // A replay after a rollback inserts a new row
+            trip.setTripId(0);
+            database.runInTransaction(() -> tripId[0] = insertAndEnqueue(trip));
+        }, () -> {
             if (callback != null) {
-                callback.onTripInserted(tripId);
+                callback.onTripInserted(tripId[0]);
             }
         });
     }
@@ -172,23 +179,25 @@ public class TripRepository {
      */
     public void createAndActivateTrip(Trip trip) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            // End any existing active trip first
-            Trip existingActive = tripDao.getActiveTripSync(trip.getUserId());
-            if (existingActive != null) {
-                existingActive.setStatus(Trip.TripStatus.CANCELLED);
-                existingActive.setUpdatedAt(Instant.now());
-                tripDao.update(existingActive);
-            }
-
-            // Create new trip as active
-            trip.setStatus(Trip.TripStatus.ACTIVE);
-            trip.setCreatedAt(Instant.now());
-            trip.setUpdatedAt(Instant.now());
-
-            long tripId = tripDao.insert(trip);
+            // A replay after a rollback inserts a new row
+            trip.setTripId(0);
+            database.runInTransaction(() -> {
+                // End any existing active trip first
+                Trip existingActive = tripDao.getActiveTripSync(trip.getUserId());
+                if (existingActive != null) {
+                    existingActive.setStatus(Trip.TripStatus.CANCELLED);
+                    existingActive.setUpdatedAt(Instant.now());
+                    updateAndEnqueue(existingActive);
+                }
+
+                // Create new trip as active
+                trip.setStatus(Trip.TripStatus.ACTIVE);
+                trip.setCreatedAt(Instant.now());
+                trip.setUpdatedAt(Instant.now());
 
-            // TODO: Mark for sync
-        });
+                insertAndEnqueue(trip);
+            });
+        }, null);
     }
 
     /**
@@ -197,10 +206,8 @@ public class TripRepository {
     public void updateTrip(Trip trip) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
             trip.setUpdatedAt(Instant.now());
-            tripDao.update(trip);
-
-            // TODO: Mark for sync
-        });
+            database.runInTransaction(() -> updateAndEnqueue(trip));
+        }, null);
     }
 
     /**
@@ -209,19 +216,19 @@ public class TripRepository {
      */
     public void activateTrip(long tripId, long userId) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            // End any existing active trip
-            Trip existingActive = tripDao.getActiveTripSync(userId);
-            if (existingActive != null && existingActive.getTripId() != tripId) {
-                existingActive.setStatus(Trip.TripStatus.CANCELLED);
-                existingActive.setUpdatedAt(Instant.now());
-                tripDao.update(existingActive);
-            }
-
-            // Activate this trip
-            tripDao.updateStatus(tripId, Trip.TripStatus.ACTIVE.name(), Instant.now().toEpochMilli());
-
-            // TODO: Mark for sync
-        });
+            database.runInTransaction(() -> {
+                // End any existing active trip
+                Trip existingActive = tripDao.getActiveTripSync(userId);
+                if (existingActive != null && existingActive.getTripId() != tripId) {
+                    existingActive.setStatus(Trip.TripStatus.CANCELLED);
+                    existingActive.setUpdatedAt(Instant.now());
+                    updateAndEnqueue(existingActive);
+                }
+
+                // Activate this trip
+                updateStatusAndEnqueue(tripId, Trip.TripStatus.ACTIVE);
+            });
+        }, null);
     }
 
     /**
@@ -232,37 +239,31 @@ public class TripRepository {
      */
     public void endActiveTrip(long userId) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            Trip activeTrip = tripDao.getActiveTripSync(userId);
-            if (activeTrip != null) {
-                activeTrip.setStatus(Trip.TripStatus.COMPLETED);
-                activeTrip.setUpdatedAt(Instant.now());
-                tripDao.update(activeTrip);
-
-                // TODO: Mark for sync
-            }
-        });
+            database.runInTransaction(() -> {
+                Trip activeTrip = tripDao.getActiveTripSync(userId);
+                if (activeTrip != null) {
+                    activeTrip.setStatus(Trip.TripStatus.COMPLETED);
+                    activeTrip.setUpdatedAt(Instant.now());
+                    updateAndEnqueue(activeTrip);
+                }
+            });
+        }, null);
     }
 
     /**
      * End a specific trip by ID
      */
     public void endTrip(long tripId) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            tripDao.updateStatus(tripId, Trip.TripStatus.COMPLETED.name(), Instant.now().toEpochMilli());
-
-            // TODO: Mark for sync
-        });
+        FinTrackDatabase.databaseWriteExecutor.execute(() ->
+                database.runInTransaction(() -> updateStatusAndEnqueue(tripId, Trip.TripStatus.COMPLETED)), null);
     }
 
     /**
      * Cancel a trip
      */
     public void cancelTrip(long tripId) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            tripDao.updateStatus(tripId, Trip.TripStatus.CANCELLED.name(), Instant.now().toEpochMilli());
-
-            // TODO: Mark for sync
-        });
+        FinTrackDatabase.databaseWriteExecutor.execute(() ->
+                database.runInTransaction(() -> updateStatusAndEnqueue(tripId, Trip.TripStatus.CANCELLED)), null);
     }
 
     /**
@@ -270,10 +271,44 @@ public class TripRepository {
      */
     public void deleteTrip(Trip trip) {
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            tripDao.delete(trip);
+            database.runInTransaction(() -> {
+                if (tripDao.delete(trip) > 0) {
+                    syncDao.enqueue(SyncActions.create(SyncActions.TRIP, trip.getTripId(), SyncActions.DELETE, trip));
+                }
+            });
+        }, null);
+    }
 
-            // TODO: Mark for sync
-        });
+    // ========== Sync ==========
+
+    /**
+     * Insert a trip and queue its CREATE. Must run inside the transaction of the write.
+     */
+    private long insertAndEnqueue(Trip trip) {
+        long id = tripDao.insert(trip);
+        trip.setTripId(id);
+        syncDao.enqueue(SyncActions.create(SyncActions.TRIP, id, SyncActions.CREATE, trip));
+        return id;
+    }
+
+    /**
+     * Update a trip and queue its UPDATE. Must run inside the transaction of the write.
+     */
+    private void updateAndEnqueue(Trip trip) {
+        if (tripDao.update(trip) > 0) {
+            syncDao.enqueue(SyncActions.create(SyncActions.TRIP, trip.getTripId(), SyncActions.UPDATE, trip));
+        }
+    }
+
+    /**
+     * Change a trip's status and queue an UPDATE with the current row.
+     * Must run inside the transaction of the write.
+     */
+    private void updateStatusAndEnqueue(long tripId, Trip.TripStatus status) {
+        if (tripDao.updateStatus(tripId, status.name(), Instant.now().toEpochMilli()) > 0) {
+            Trip trip = tripDao.getByIdSync(tripId);
+            syncDao.enqueue(SyncActions.create(SyncActions.TRIP, tripId, SyncActions.UPDATE, trip));
+        }
     }
 
     // ========== Migration from TripPrefs ==========
@@ -303,7 +338,7 @@ public class TripRepository {
                 trip.setCreatedAt(Instant.now());
                 trip.setUpdatedAt(Instant.now());
 
-                tripDao.insert(trip);
+                database.runInTransaction(() -> insertAndEnqueue(trip));
 
                 android.util.Log.i("TripRepository", "Migrated active trip from TripPrefs");
             }
@@ -1,29 +1,60 @@
 package com.pascm.fintrack.data.repository;
 
 import android.content.Context;
+import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseAuthUserCollisionException;
+import com.google.firebase.auth.FirebaseUser;
 import com.pascm.fintrack.data.local.FinTrackDatabase;
 import com.pascm.fintrack.data.local.dao.UserDao;
 import com.pascm.fintrack.data.local.entity.User;
 import com.pascm.fintrack.data.local.entity.UserProfile;
+import com.pascm.fintrack.worker.PullWorker;
+import com.pascm.fintrack.worker.SyncWorker;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Repository para gestión de usuarios y autenticación local (sin Firebase).
+ * Repository para gestión de usuarios y autenticación.
+ *
+ * El inicio de sesión es local (hash en Room). Además cada cuenta se vincula a
+ * una cuenta de Firebase Auth con el mismo email y contraseña; su UID
+ * (users.firebase_uid) identifica los datos del usuario en Firestore, igual en
+ * todos sus dispositivos.
  */
 public class UserRepository {
 
+    private static final String TAG = "UserRepository";
+    private static final long AUTH_TIMEOUT_SECONDS = 15;
+
+    // Firebase Auth espera a la red; fuera de la cola de escritura
+    private static final ExecutorService authExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "auth-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final UserDao userDao;
     private final FinTrackDatabase database;
+    private final FirebaseAuth firebaseAuth;
+    private final Context appContext;
 
     public UserRepository(Context context) {
+        this.appContext = context.getApplicationContext();
         this.database = FinTrackDatabase.getDatabase(context);
         this.userDao = database.userDao();
+        this.firebaseAuth = FirebaseAuth.getInstance();
     }
 
     // ========== Autenticación ==========
@@ -47,33 +78,14 @@ public class UserRepository {
                     return;
                 }
 
-                // Crear usuario
-                User user = new User();
-                user.setEmail(email);
-                user.setPasswordHash(hashPassword(password));
-                user.setStatus(User.UserStatus.ACTIVE);
-                user.setCreatedAt(Instant.now());
-                user.setUpdatedAt(Instant.now());
-                user.setLastLoginAt(Instant.now());
-
-                long userId = userDao.insert(user);
-                user.setUserId(userId);
+                User user = createLocalUser(email, password, fullName, null);
 
-                // Crear perfil por defecto con el nombre completo proporcionado
-                UserProfile profile = new UserProfile();
-                profile.setUserId(userId);
-                profile.setFullName(fullName != null && !fullName.trim().isEmpty() ? fullName.trim() : extractNameFromEmail(email));
-                profile.setLanguage("es");
-                profile.setDefaultCurrency("MXN");
-                profile.setTheme(UserProfile.Theme.LIGHT);
-                profile.setUpdatedAt(Instant.now());
-                userDao.insertProfile(profile);
-
-                android.util.Log.i("UserRepository", "Usuario registrado: " + email + " (ID: " + userId + ")");
+                Log.i(TAG, "Usuario registrado: " + email + " (ID: " + user.getUserId() + ")");
+                linkInBackground(user, password);
                 callback.onResult(AuthResult.success(user));
 
             } catch (Exception e) {
-                android.util.Log.e("UserRepository", "Error al registrar", e);
+                Log.e(TAG, "Error al registrar", e);
                 callback.onResult(AuthResult.error("Error al registrar: " + e.getMessage()));
             }
         });
@@ -84,7 +96,8 @@ public class UserRepository {
             try {
                 User user = userDao.getByEmail(email);
                 if (user == null) {
-                    callback.onResult(AuthResult.error("Email o contraseña incorrectos"));
+                    // Quizá la cuenta se creó en otro dispositivo (o antes de reinstalar)
+                    authExecutor.execute(() -> callback.onResult(loginRemoteOnly(email, password)));
                     return;
                 }
                 if (user.getStatus() != User.UserStatus.ACTIVE) {
@@ -101,11 +114,12 @@ public class UserRepository {
                 user.setUpdatedAt(Instant.now());
                 userDao.update(user);
 
-                android.util.Log.i("UserRepository", "Login: " + email + " (ID: " + user.getUserId() + ")");
+                Log.i(TAG, "Login: " + email + " (ID: " + user.getUserId() + ")");
+                linkInBackground(user, password);
                 callback.onResult(AuthResult.success(user));
 
             } catch (Exception e) {
-                android.util.Log.e("UserRepository", "Error de login", e);
+                Log.e(TAG, "Error de login", e);
                 callback.onResult(AuthResult.error("Error al iniciar sesión: " + e.getMessage()));
             }
         });
@@ -130,6 +144,13 @@ public class UserRepository {
                 }
                 String newHash = hashPassword(newPassword);
                 userDao.updatePasswordHash(userId, newHash, Instant.now().toEpochMilli());
+
+                // La cuenta remota con la misma contraseña, para iniciar sesión en otro dispositivo
+                FirebaseUser account = firebaseAuth.getCurrentUser();
+                if (account != null && account.getUid().equals(user.getFirebaseUid())) {
+                    account.updatePassword(newPassword).addOnFailureListener(e ->
+                            Log.w(TAG, "Contraseña remota sin actualizar: " + e.getMessage()));
+                }
                 callback.onResult(AuthResult.success(user));
             } catch (Exception e) {
                 callback.onResult(AuthResult.error("Error al cambiar contraseña: " + e.getMessage()));
@@ -156,20 +177,151 @@ public class UserRepository {
     }
 
     public void updateUserProfile(UserProfile profile) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            profile.setUpdatedAt(Instant.now());
-            userDao.updateProfile(profile);
-        });
+        profile.setUpdatedAt(Instant.now());
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> userDao.updateProfile(profile), null);
     }
 
     public void updateUserStatus(long userId, User.UserStatus status) {
         FinTrackDatabase.databaseWriteExecutor.execute(() ->
-                userDao.updateStatus(userId, status.name(), Instant.now().toEpochMilli())
-        );
+                userDao.updateStatus(userId, status.name(), Instant.now().toEpochMilli()), null);
+    }
+
+    // ========== Cuenta remota ==========
+
+    /**
+     * Vincula la cuenta local con Firebase Auth sin retrasar el inicio de sesión,
+     * que ya terminó: el inicio remoto espera a la red (hasta AUTH_TIMEOUT_SECONDS
+     * por intento). Si la sesión de Firebase ya es la de este usuario no hace nada.
+     * Al vincularla pide el envío y la descarga, que sin cuenta no hacían nada.
+     */
+    private void linkInBackground(User user, String password) {
+        FirebaseUser current = firebaseAuth.getCurrentUser();
+        if (current != null && current.getUid().equals(user.getFirebaseUid())) {
+            return;
+        }
+        authExecutor.execute(() -> {
+            if (linkRemoteAccount(user.getUserId(), user.getEmail(), user.getFirebaseUid(), password)) {
+                SyncWorker.requestSync(appContext);
+                PullWorker.requestPull(appContext);
+            }
+        });
+    }
+
+    /**
+     * Vincula la cuenta local con su cuenta de Firebase Auth: inicia sesión (la
+     * crea si no existe) y guarda el UID. Sin red la cuenta queda sin vincular
+     * hasta el próximo inicio de sesión; mientras tanto sus cambios esperan en la
+     * cola de sincronización.
+     *
+     * Corre en authExecutor.
+     *
+     * @return Si la cuenta quedó vinculada
+     */
+    private boolean linkRemoteAccount(long userId, String email, String firebaseUid, String password) {
+        try {
+            String uid = signInRemote(email, password, true);
+            if (!uid.equals(firebaseUid)) {
+                FinTrackDatabase.databaseWriteExecutor.executeAndWait(() ->
+                        userDao.updateFirebaseUid(userId, uid, Instant.now().toEpochMilli()));
+            }
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Cuenta " + email + " sin vincular: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Inicio de sesión sin usuario local: si la cuenta de Firebase Auth existe y
+     * la contraseña es correcta, crea el usuario local vinculado a ella. Sus
+     * datos llegan después con PullWorker.
+     *
+     * Corre en authExecutor.
+     */
+    private AuthResult loginRemoteOnly(String email, String password) {
+        String uid;
+        try {
+            uid = signInRemote(email, password, false);
+        } catch (Exception e) {
+            if (e instanceof ExecutionException && e.getCause() instanceof FirebaseAuthException) {
+                return AuthResult.error("Email o contraseña incorrectos");
+            }
+            Log.w(TAG, "Login remoto sin conexión", e);
+            return AuthResult.error("Email o contraseña incorrectos, o sin conexión para buscar la cuenta");
+        }
+
+        User[] created = new User[1];
+        try {
+            FinTrackDatabase.databaseWriteExecutor.executeAndWait(() -> {
+                // Registro concurrente del mismo email: usar ese usuario
+                User existing = userDao.getByEmail(email);
+                created[0] = existing != null ? existing : createLocalUser(email, password, null, uid);
+            });
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error al crear el usuario local", e);
+            return AuthResult.error("Error al iniciar sesión: " + e.getMessage());
+        }
+        Log.i(TAG, "Login remoto: " + email + " (ID: " + created[0].getUserId() + ")");
+        return AuthResult.success(created[0]);
+    }
+
+    /**
+     * Inicia sesión en Firebase Auth y devuelve el UID de la cuenta.
+     *
+     * @param createIfMissing Crear la cuenta remota si no existe (cuentas locales
+     *                        creadas sin red o antes de la sincronización)
+     * @throws ExecutionException con la causa de Firebase (credenciales o red)
+     */
+    private String signInRemote(String email, String password, boolean createIfMissing) throws Exception {
+        try {
+            return Tasks.await(firebaseAuth.signInWithEmailAndPassword(email, password),
+                    AUTH_TIMEOUT_SECONDS, TimeUnit.SECONDS).getUser().getUid();
+        } catch (ExecutionException signInError) {
+            // Solo un rechazo de Firebase Auth; los errores de red no crean cuentas
+            if (!createIfMissing || !(signInError.getCause() instanceof FirebaseAuthException)) {
+                throw signInError;
+            }
+            try {
+                return Tasks.await(firebaseAuth.createUserWithEmailAndPassword(email, password),
+                        AUTH_TIMEOUT_SECONDS, TimeUnit.SECONDS).getUser().getUid();
+            } catch (ExecutionException createError) {
+                // Ya existe con otra contraseña: el error útil es el del inicio de sesión
+                throw createError.getCause() instanceof FirebaseAuthUserCollisionException
+                        ? signInError : createError;
+            }
+        }
     }
 
     // ========== Helpers ==========
 
+    /**
+     * Crea el usuario y su perfil por defecto. Corre en la cola de escritura.
+     */
+    private User createLocalUser(String email, String password, String fullName, String firebaseUid) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash(hashPassword(password));
+        user.setFirebaseUid(firebaseUid);
+        user.setStatus(User.UserStatus.ACTIVE);
+        user.setCreatedAt(Instant.now());
+        user.setUpdatedAt(Instant.now());
+        user.setLastLoginAt(Instant.now());
+
+        long userId = userDao.insert(user);
+        user.setUserId(userId);
+
+        // Crear perfil por defecto con el nombre completo proporcionado
+        UserProfile profile = new UserProfile();
+        profile.setUserId(userId);
+        profile.setFullName(fullName != null && !fullName.trim().isEmpty() ? fullName.trim() : extractNameFromEmail(email));
+        profile.setLanguage("es");
+        profile.setDefaultCurrency("MXN");
+        profile.setTheme(UserProfile.Theme.LIGHT);
+        profile.setUpdatedAt(Instant.now());
+        userDao.insertProfile(profile);
+        return user;
+    }
+
     private String hashPassword(String password) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
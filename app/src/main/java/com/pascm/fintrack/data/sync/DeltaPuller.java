@@ -0,0 +1,364 @@
+package com.pascm.fintrack.data.sync;
+
+import android.util.Log;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.dao.SyncDao;
+import com.pascm.fintrack.data.local.entity.CreditCardEntity;
+import com.pascm.fintrack.data.local.entity.DebitCardEntity;
+import com.pascm.fintrack.data.local.entity.Merchant;
+import com.pascm.fintrack.data.local.entity.SyncCursor;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.Trip;
+import com.pascm.fintrack.data.local.entity.User;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Downloads remote changes into Room, one entity type at a time.
+ *
+ * Each entity type keeps a high-water mark in sync_cursors. A pull reads only
+ * documents updated after it, in pages of PAGE_SIZE. Each page is applied with
+ * the DAO's bulk upsertAll, together with its sync_state rows and the new cursor,
+ * in one Room transaction. An interrupted pull therefore resumes after the last
+ * page it applied.
+ *
+ * Documents are read from users/{firebaseUid}/{collection} and keyed by
+ * sync_id. Each one is mapped to this device's row with the same sync_id (or a
+ * new row), so rows pushed from another install never overwrite unrelated local
+ * rows. Updates happen in place: rows pointing to an updated trip, merchant or
+ * card keep their link. Accounts and categories are not synced, so pulled rows
+ * keep the local values of the row they update, and new rows start without them.
+ *
+ * Entities with a queued local change (pending_actions) are not overwritten. The
+ * local change wins and is pushed by SyncEngine.
+ *
+ * Deletions are not pulled: documents that no longer exist are never returned by
+ * the delta query. Archiving travels as an update.
+ */
+public class DeltaPuller {
+
+    private static final String TAG = "DeltaPuller";
+
+    static final int PAGE_SIZE = 200;
+
+    private final FinTrackDatabase database;
+    private final SyncDao syncDao;
+    private final SyncIds syncIds;
+    private final PullSource source;
+    private final List<PulledType<?>> types;
+
+    public DeltaPuller(FinTrackDatabase database, PullSource source) {
+        this.database = database;
+        this.syncDao = database.syncDao();
+        this.syncIds = new SyncIds(database);
+        this.source = source;
+
+        // Parents before children
+        this.types = new ArrayList<>();
+        types.add(new PulledType<CreditCardEntity>(SyncActions.CREDIT_CARD, CreditCardEntity.class) {
+            @Override
+            long idOf(CreditCardEntity card) {
+                return card.getCardId();
+            }
+
+            @Override
+            boolean localize(CreditCardEntity card, long localId, String syncId, long userId,
+                             Map<String, Object> data) {
+                CreditCardEntity existing = localId != 0 ? database.creditCardDao().getByIdSync(localId) : null;
+                card.setCardId(localId);
+                card.setSyncId(syncId);
+                card.setUserId(userId);
+                // Accounts are not synced: keep this device's link, if any
+                card.setAccountId(existing != null ? existing.getAccountId() : null);
+                // Reminder dates are local state; CardReminderWorker recomputes them
+                card.setScheduledStatementDate(null);
+                card.setScheduledPaymentDueDate(null);
+                return true;
+            }
+
+            @Override
+            List<Long> upsertAll(List<CreditCardEntity> cards) {
+                return database.creditCardDao().upsertAll(cards);
+            }
+
+            @Override
+            void setId(CreditCardEntity card, long id) {
+                card.setCardId(id);
+            }
+        });
+        types.add(new PulledType<DebitCardEntity>(SyncActions.DEBIT_CARD, DebitCardEntity.class) {
+            @Override
+            long idOf(DebitCardEntity card) {
+                return card.getCardId();
+            }
+
+            @Override
+            boolean localize(DebitCardEntity card, long localId, String syncId, long userId,
+                             Map<String, Object> data) {
+                // A debit card needs its account, and accounts are not synced
+                DebitCardEntity existing = localId != 0 ? database.debitCardDao().getByIdSync(localId) : null;
+                if (existing == null) {
+                    return false;
+                }
+                card.setCardId(localId);
+                card.setSyncId(syncId);
+                card.setUserId(userId);
+                card.setAccountId(existing.getAccountId());
+                return true;
+            }
+
+            @Override
+            List<Long> upsertAll(List<DebitCardEntity> cards) {
+                return database.debitCardDao().upsertAll(cards);
+            }
+
+            @Override
+            void setId(DebitCardEntity card, long id) {
+                card.setCardId(id);
+            }
+        });
+        types.add(new PulledType<Trip>(SyncActions.TRIP, Trip.class) {
+            @Override
+            long idOf(Trip trip) {
+                return trip.getTripId();
+            }
+
+            @Override
+            boolean localize(Trip trip, long localId, String syncId, long userId, Map<String, Object> data) {
+                trip.setTripId(localId);
+                trip.setSyncId(syncId);
+                trip.setUserId(userId);
+                return true;
+            }
+
+            @Override
+            List<Long> upsertAll(List<Trip> trips) {
+                return database.tripDao().upsertAll(trips);
+            }
+
+            @Override
+            void setId(Trip trip, long id) {
+                trip.setTripId(id);
+            }
+        });
+        types.add(new PulledType<Merchant>(SyncActions.MERCHANT, Merchant.class) {
+            @Override
+            long idOf(Merchant merchant) {
+                return merchant.getMerchantId();
+            }
+
+            @Override
+            boolean localize(Merchant merchant, long localId, String syncId, long userId,
+                             Map<String, Object> data) {
+                merchant.setMerchantId(localId);
+                merchant.setSyncId(syncId);
+                merchant.setUserId(userId);
+                return true;
+            }
+
+            @Override
+            List<Long> upsertAll(List<Merchant> merchants) {
+                return database.merchantDao().upsertAll(merchants);
+            }
+
+            @Override
+            void setId(Merchant merchant, long id) {
+                merchant.setMerchantId(id);
+            }
+        });
+        types.add(new PulledType<Transaction>(SyncActions.TRANSACTION, Transaction.class) {
+            @Override
+            long idOf(Transaction transaction) {
+                return transaction.getTransactionId();
+            }
+
+            @Override
+            boolean localize(Transaction transaction, long localId, String syncId, long userId,
+                             Map<String, Object> data) {
+                Transaction existing = localId != 0 ? database.transactionDao().getByIdSync(localId) : null;
+                transaction.setTransactionId(localId);
+                transaction.setSyncId(syncId);
+                transaction.setUserId(userId);
+
+                // Synced parents travel by sync_id
+                transaction.setTripId(syncIds.localIdOf(SyncActions.TRIP,
+                        stringField(data, SyncActions.TRIP_REF_FIELD)));
+                transaction.setMerchantId(syncIds.localIdOf(SyncActions.MERCHANT,
+                        stringField(data, SyncActions.MERCHANT_REF_FIELD)));
+                String cardEntityType = SyncIds.cardEntityType(transaction.getCardType());
+                Long cardId = cardEntityType != null
+                        ? syncIds.localIdOf(cardEntityType, stringField(data, SyncActions.CARD_REF_FIELD))
+                        : null;
+                transaction.setCardId(cardId);
+                if (cardId == null) {
+                    transaction.setCardType(null);
+                }
+
+                // Accounts and categories are not synced: keep this device's values, if any
+                transaction.setAccountId(existing != null ? existing.getAccountId() : null);
+                transaction.setCategoryId(existing != null ? existing.getCategoryId() : null);
+                transaction.setSubcategoryId(existing != null ? existing.getSubcategoryId() : null);
+                return true;
+            }
+
+            @Override
+            List<Long> upsertAll(List<Transaction> transactions) {
+                return database.transactionDao().upsertAll(transactions);
+            }
+
+            @Override
+            void setId(Transaction transaction, long id) {
+                transaction.setTransactionId(id);
+            }
+        });
+    }
+
+    /**
+     * Pull every entity type of a user, stopping at the first failure.
+     *
+     * Blocks; call from a background thread.
+     *
+     * @return Number of documents applied
+     * @throws Exception if a page could not be read; pages applied before it are kept
+     */
+    public int pull(long userId) throws Exception {
+        User user = database.userDao().getByIdSync(userId);
+        if (user == null || user.getFirebaseUid() == null) {
+            // Remote data lives under the Firebase UID; UserRepository links it at login
+            Log.i(TAG, "User " + userId + " not linked to a Firebase account, nothing to pull");
+            return 0;
+        }
+
+        int applied = 0;
+        for (PulledType<?> type : types) {
+            applied += pull(userId, user.getFirebaseUid(), type);
+        }
+        return applied;
+    }
+
+    private <T> int pull(long userId, String ownerUid, PulledType<T> type) throws Exception {
+        SyncCursor cursor = syncDao.getCursor(userId, type.entityType);
+        if (cursor == null) {
+            cursor = new SyncCursor(userId, type.entityType);
+        }
+
+        String collection = SyncActions.collectionFor(type.entityType);
+        int applied = 0;
+        List<PullSource.RemoteDocument> page;
+        do {
+            page = source.fetchPage(ownerUid, collection, cursor.getCursorMicros(),
+                    cursor.getCursorDocumentId(), PAGE_SIZE);
+            if (!page.isEmpty()) {
+                applied += applyPage(userId, ownerUid, type, cursor, page);
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        cursor.setLastPulledAt(Instant.now());
+        syncDao.upsertCursor(cursor);
+
+        if (applied > 0) {
+            Log.i(TAG, "Pulled " + applied + " " + collection);
+        }
+        return applied;
+    }
+
+    /**
+     * Apply one page and advance the cursor past it, atomically
+     */
+    private <T> int applyPage(long userId, String ownerUid, PulledType<T> type, SyncCursor cursor,
+                              List<PullSource.RemoteDocument> page) {
+        String collectionPath = "users/" + ownerUid + "/" + SyncActions.collectionFor(type.entityType) + "/";
+
+        return database.runInTransaction(() -> {
+            // Document IDs are sync_ids; map them to this device's rows
+            List<String> documentIds = new ArrayList<>(page.size());
+            for (PullSource.RemoteDocument document : page) {
+                documentIds.add(document.getId());
+            }
+            Map<String, Long> localIds = syncIds.localIdsOf(type.entityType, documentIds);
+
+            Set<Long> locallyChanged = localIds.isEmpty()
+                    ? new HashSet<>()
+                    : new HashSet<>(syncDao.getEntityIdsWithPendingActions(type.entityType,
+                            new ArrayList<>(localIds.values())));
+
+            List<T> entities = new ArrayList<>(page.size());
+            List<String> entitySyncIds = new ArrayList<>(page.size());
+            for (PullSource.RemoteDocument document : page) {
+                Long localId = localIds.get(document.getId());
+                if (localId != null && locallyChanged.contains(localId)) {
+                    continue;
+                }
+                T entity;
+                try {
+                    entity = SyncActions.fromPayload(document.getData(), type.entityClass);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Skipping unreadable " + collectionPath + document.getId(), e);
+                    continue;
+                }
+                if (!type.localize(entity, localId != null ? localId : 0, document.getId(),
+                        userId, document.getData())) {
+                    Log.w(TAG, "Skipping " + collectionPath + document.getId() + ": missing parent");
+                    continue;
+                }
+                entities.add(entity);
+                entitySyncIds.add(document.getId());
+            }
+
+            // New rows get their generated ID; updated ones keep theirs
+            List<Long> rowIds = type.upsertAll(entities);
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < entities.size(); i++) {
+                T entity = entities.get(i);
+                if (rowIds.get(i) > 0) {
+                    type.setId(entity, rowIds.get(i));
+                }
+                syncDao.markEntityPulled(type.entityType, type.idOf(entity),
+                        collectionPath + entitySyncIds.get(i), now);
+            }
+
+            PullSource.RemoteDocument last = page.get(page.size() - 1);
+            cursor.advance(last.getUpdatedMicros(), last.getId());
+            syncDao.upsertCursor(cursor);
+            return entities.size();
+        });
+    }
+
+    private static String stringField(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * How to read and store one entity type
+     */
+    private abstract static class PulledType<T> {
+        final String entityType;
+        final Class<T> entityClass;
+
+        PulledType(String entityType, Class<T> entityClass) {
+            this.entityType = entityType;
+            this.entityClass = entityClass;
+        }
+
+        abstract long idOf(T entity);
+
+        /**
+         * Rewrite a pulled entity's IDs for this device: its own row (0 if new),
+         * its owner and the rows it points to.
+         *
+         * @return false if the row cannot be stored (a parent is missing locally)
+         */
+        abstract boolean localize(T entity, long localId, String syncId, long userId, Map<String, Object> data);
+
+        abstract List<Long> upsertAll(List<T> entities);
+
+        abstract void setId(T entity, long id);
+    }
+}
@@ -0,0 +1,65 @@
+package com.pascm.fintrack.data.sync;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PullSource backed by Firestore queries on the server update time written by
+ * FirestoreSyncTransport.
+ */
+public class FirestorePullSource implements PullSource {
+
+    private static final long QUERY_TIMEOUT_SECONDS = 60;
+
+    private final FirebaseFirestore firestore;
+
+    public FirestorePullSource(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public List<RemoteDocument> fetchPage(String ownerUid, String collection, long afterMicros,
+                                          String afterDocumentId, int limit) throws Exception {
+        Query query = firestore.collection("users")
+                .document(ownerUid)
+                .collection(collection)
+                .orderBy(FirestoreSyncTransport.UPDATED_AT_FIELD)
+                .orderBy(FieldPath.documentId())
+                .limit(limit);
+
+        if (afterDocumentId != null) {
+            query = query.startAfter(toTimestamp(afterMicros), afterDocumentId);
+        }
+
+        // Always ask the server: the local Firestore cache may be behind
+        QuerySnapshot snapshot = Tasks.await(query.get(Source.SERVER), QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        List<RemoteDocument> page = new ArrayList<>(snapshot.size());
+        for (DocumentSnapshot document : snapshot.getDocuments()) {
+            Map<String, Object> data = new HashMap<>(document.getData());
+            Timestamp updatedAt = (Timestamp) data.remove(FirestoreSyncTransport.UPDATED_AT_FIELD);
+            page.add(new RemoteDocument(document.getId(), toMicros(updatedAt), data));
+        }
+        return page;
+    }
+
+    private static long toMicros(Timestamp timestamp) {
+        return timestamp.getSeconds() * 1_000_000L + timestamp.getNanoseconds() / 1_000;
+    }
+
+    private static Timestamp toTimestamp(long micros) {
+        return new Timestamp(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1_000);
+    }
+}
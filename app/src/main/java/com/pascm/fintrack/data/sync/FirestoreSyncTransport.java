@@ -0,0 +1,54 @@
+package com.pascm.fintrack.data.sync;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SyncTransport backed by Firestore WriteBatch commits.
+ *
+ * Every written document also gets the server time of the write in
+ * UPDATED_AT_FIELD, which the delta pull uses as its cursor (device clocks
+ * cannot be trusted to order writes from different devices).
+ */
+public class FirestoreSyncTransport implements SyncTransport {
+
+    /**
+     * Server timestamp of the last write of a document
+     */
+    public static final String UPDATED_AT_FIELD = "_updatedAt";
+
+    private static final long COMMIT_TIMEOUT_SECONDS = 60;
+
+    private final FirebaseFirestore firestore;
+
+    public FirestoreSyncTransport(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public void commit(List<SyncOperation> operations) throws Exception {
+        WriteBatch batch = firestore.batch();
+        for (SyncOperation operation : operations) {
+            DocumentReference document = firestore.document(operation.getDocumentPath());
+            if (operation.isDelete()) {
+                batch.delete(document);
+            } else {
+                Map<String, Object> data = new HashMap<>(operation.getData());
+                data.put(UPDATED_AT_FIELD, FieldValue.serverTimestamp());
+                batch.set(document, data);
+            }
+        }
+
+        // The commit task completes only once the server acknowledges the batch;
+        // while offline it never does, so give up and let the engine retry later
+        Tasks.await(batch.commit(), COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
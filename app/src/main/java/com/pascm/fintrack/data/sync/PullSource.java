@@ -0,0 +1,60 @@
+package com.pascm.fintrack.data.sync;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remote side of the delta pull.
+ *
+ * The production implementation is FirestorePullSource; tests use an
+ * in-process fake.
+ */
+public interface PullSource {
+
+    /**
+     * Read the next page of a user's collection, in (update time, document ID)
+     * order, starting strictly after the given position.
+     *
+     * @param ownerUid         Firebase Auth UID of the owner
+     * @param collection       Collection name (see SyncActions.collectionFor)
+     * @param afterMicros      Update time of the cursor, in microseconds since epoch
+     * @param afterDocumentId  Document ID of the cursor, or null to start from the beginning
+     * @param limit            Page size
+     * @throws Exception if the page could not be read
+     */
+    List<RemoteDocument> fetchPage(String ownerUid, String collection, long afterMicros,
+                                   String afterDocumentId, int limit) throws Exception;
+
+    /**
+     * A remote document (its ID is the entity's sync_id) and its position in the pull order
+     */
+    class RemoteDocument {
+        private final String id;
+        private final long updatedMicros;
+        private final Map<String, Object> data;
+
+        public RemoteDocument(String id, long updatedMicros, Map<String, Object> data) {
+            this.id = id;
+            this.updatedMicros = updatedMicros;
+            this.data = data;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Server update time, in microseconds since epoch
+         */
+        public long getUpdatedMicros() {
+            return updatedMicros;
+        }
+
+        /**
+         * Entity fields, as written by SyncActions.create()
+         */
+        public Map<String, Object> getData() {
+            return data;
+        }
+    }
+}
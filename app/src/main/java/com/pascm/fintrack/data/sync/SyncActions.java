@@ -0,0 +1,175 @@
+package com.pascm.fintrack.data.sync;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.google.gson.ToNumberPolicy;
+import com.google.gson.reflect.TypeToken;
+import com.pascm.fintrack.data.local.entity.PendingAction;
+
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Entity types, actions and payload encoding shared by the outbox writers
+ * (repositories) and the sync engine.
+ *
+ * Usage inside a repository write:
+ * <pre>
+ * database.runInTransaction(() -> {
+ *     long id = transactionDao.insert(transaction);
+ *     transaction.setTransactionId(id);
+ *     syncDao.enqueue(SyncActions.create(SyncActions.TRANSACTION, id, SyncActions.CREATE, transaction));
+ * });
+ * </pre>
+ */
+public final class SyncActions {
+
+    // ========== Entity Types ==========
+
+    public static final String TRANSACTION = "TRANSACTION";
+    public static final String CREDIT_CARD = "CREDIT_CARD";
+    public static final String DEBIT_CARD = "DEBIT_CARD";
+    public static final String TRIP = "TRIP";
+    public static final String MERCHANT = "MERCHANT";
+
+    // ========== Actions ==========
+
+    public static final String CREATE = "CREATE";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
+    /**
+     * Payload field with the entity's sync_id (see SyncOperation)
+     */
+    static final String SYNC_ID_FIELD = "syncId";
+
+    /**
+     * Fields SyncEngine adds to pushed transactions: the sync_id of the trip,
+     * merchant and card they point to. Local IDs mean nothing on another device.
+     */
+    static final String TRIP_REF_FIELD = "tripSyncId";
+    static final String MERCHANT_REF_FIELD = "merchantSyncId";
+    static final String CARD_REF_FIELD = "cardSyncId";
+
+    /**
+     * Payloads use epoch millis for Instant and ISO dates for LocalDate, and read
+     * integral numbers back as Long so IDs and timestamps keep their type in Firestore.
+     */
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Instant.class, new InstantAdapter())
+            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
+            .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
+            .create();
+
+    private static final Type PAYLOAD_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+
+    private SyncActions() {
+    }
+
+    /**
+     * Build the outbox row for a write, with a snapshot of the entity as payload.
+     * Cards sync before transactions so references resolve on the remote side.
+     * The row records the entity's owner so SyncDao.getReadyActions() can skip
+     * other accounts' rows in SQL.
+     */
+    public static PendingAction create(@NonNull String entityType, long entityId,
+                                       @NonNull String action, @NonNull Object entity) {
+        JsonObject payload = gson.toJsonTree(entity).getAsJsonObject();
+        PendingAction pendingAction = new PendingAction(entityType, entityId, action, gson.toJson(payload));
+        pendingAction.setPriority(TRANSACTION.equals(entityType) ? 0 : 1);
+        JsonElement owner = payload.get("userId");
+        if (owner != null && owner.isJsonPrimitive()) {
+            pendingAction.setUserId(owner.getAsLong());
+        }
+        return pendingAction;
+    }
+
+    /**
+     * Firestore collection of an entity type
+     */
+    static String collectionFor(String entityType) {
+        switch (entityType) {
+            case TRANSACTION:
+                return "transactions";
+            case CREDIT_CARD:
+                return "credit_cards";
+            case DEBIT_CARD:
+                return "debit_cards";
+            case TRIP:
+                return "trips";
+            case MERCHANT:
+                return "merchants";
+            default:
+                throw new IllegalArgumentException("Unknown entity type: " + entityType);
+        }
+    }
+
+    /**
+     * Primary key column of an entity type. Its table has the same name as its
+     * collection.
+     */
+    static String idColumnFor(String entityType) {
+        switch (entityType) {
+            case TRANSACTION:
+                return "transaction_id";
+            case CREDIT_CARD:
+            case DEBIT_CARD:
+                return "card_id";
+            case TRIP:
+                return "trip_id";
+            case MERCHANT:
+                return "merchant_id";
+            default:
+                throw new IllegalArgumentException("Unknown entity type: " + entityType);
+        }
+    }
+
+    /**
+     * Decode a payload written by create()
+     */
+    static Map<String, Object> parsePayload(String payloadJson) {
+        return gson.fromJson(payloadJson, PAYLOAD_TYPE);
+    }
+
+    /**
+     * Rebuild an entity from remote document data (the inverse of create())
+     */
+    static <T> T fromPayload(Map<String, Object> data, Class<T> entityClass) {
+        return gson.fromJson(gson.toJsonTree(data), entityClass);
+    }
+
+    private static class InstantAdapter implements JsonSerializer<Instant>, JsonDeserializer<Instant> {
+        @Override
+        public JsonElement serialize(Instant src, Type type, JsonSerializationContext context) {
+            return new JsonPrimitive(src.toEpochMilli());
+        }
+
+        @Override
+        public Instant deserialize(JsonElement json, Type type, JsonDeserializationContext context) {
+            return Instant.ofEpochMilli(json.getAsLong());
+        }
+    }
+
+    private static class LocalDateAdapter implements JsonSerializer<LocalDate>, JsonDeserializer<LocalDate> {
+        @Override
+        public JsonElement serialize(LocalDate src, Type type, JsonSerializationContext context) {
+            return new JsonPrimitive(src.toString());
+        }
+
+        @Override
+        public LocalDate deserialize(JsonElement json, Type type, JsonDeserializationContext context) {
+            return LocalDate.parse(json.getAsString());
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.pascm.fintrack.data.sync;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.dao.SyncDao;
+import com.pascm.fintrack.data.local.entity.PendingAction;
+import com.pascm.fintrack.data.local.entity.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains the pending_actions outbox into a SyncTransport.
+ *
+ * Actions are read in priority order, at most SyncTransport.MAX_BATCH_SIZE at a
+ * time, and each batch is committed atomically. On success the rows are removed
+ * and sync_state is marked clean; on failure every row of the batch gets its
+ * retry_count bumped and waits 2^retry_count minutes before it is read again.
+ * After 5 failures a row stays in the table as failed (SyncDao.getFailedActions()).
+ *
+ * Only the actions of the signed-in Firebase account are read and pushed, under
+ * its UID. Actions of another local user, or of one whose account is not linked
+ * to Firebase yet (users.firebase_uid), stay queued untouched until that account
+ * signs in.
+ *
+ * Not thread-safe: run one drain at a time (SyncWorker uses unique work for this).
+ */
+public class SyncEngine {
+
+    private static final String TAG = "SyncEngine";
+
+    private final FinTrackDatabase database;
+    private final SyncDao syncDao;
+    private final SyncTransport transport;
+    private final SyncIds syncIds;
+    private final String accountUid;
+
+    // Firebase UID of each local user seen in this engine's drains (null if not linked)
+    private final Map<Long, String> ownerUids = new HashMap<>();
+
+    /**
+     * @param accountUid Firebase Auth UID of the signed-in account
+     */
+    public SyncEngine(FinTrackDatabase database, SyncTransport transport, @NonNull String accountUid) {
+        this.database = database;
+        this.syncDao = database.syncDao();
+        this.transport = transport;
+        this.syncIds = new SyncIds(database);
+        this.accountUid = accountUid;
+    }
+
+    /**
+     * Push every ready action, batch by batch, until the queue has nothing ready
+     * or a commit fails.
+     *
+     * Blocks; call from a background thread.
+     */
+    public DrainResult drain() {
+        int pushed = 0;
+        int failed = 0;
+        int batches = 0;
+
+        while (true) {
+            long now = System.currentTimeMillis();
+            List<PendingAction> actions = syncDao.getReadyActions(accountUid, now, SyncTransport.MAX_BATCH_SIZE);
+            if (actions.isEmpty()) {
+                break;
+            }
+
+            List<SyncOperation> batch = decode(actions, now);
+            if (batch.isEmpty()) {
+                // Every row was abandoned or got its owner recorded; neither is read again
+                continue;
+            }
+
+            try {
+                transport.commit(batch);
+            } catch (Exception e) {
+                Log.w(TAG, "Batch of " + batch.size() + " failed", e);
+                recordFailure(batch, e);
+                failed += batch.size();
+                break;
+            }
+
+            recordSuccess(batch);
+            pushed += batch.size();
+            batches++;
+        }
+
+        int remaining = syncDao.getRetryableActionCount();
+        int held = syncDao.getHeldActionCount(accountUid);
+        Log.i(TAG, "Pushed " + pushed + " actions in " + batches + " batches, "
+                + failed + " failed, " + held + " held, " + remaining + " remaining");
+        return new DrainResult(pushed, failed, batches, held, remaining);
+    }
+
+    /**
+     * Decode rows into operations addressed to the signed-in account. Rows that
+     * can never be pushed are abandoned. A row without user_id that turns out to
+     * belong to another account gets its owner recorded, so it is not read again.
+     */
+    private List<SyncOperation> decode(List<PendingAction> actions, long now) {
+        List<SyncOperation> operations = new ArrayList<>(actions.size());
+        for (PendingAction action : actions) {
+            SyncOperation operation;
+            try {
+                operation = SyncOperation.from(action);
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Abandoning action " + action.getPendingActionId(), e);
+                syncDao.abandonAction(action.getPendingActionId(), now, e.getMessage());
+                continue;
+            }
+
+            if (!accountUid.equals(ownerUidOf(operation.getUserId()))) {
+                syncDao.setActionUserId(action.getPendingActionId(), operation.getUserId());
+                continue;
+            }
+
+            String documentId = operation.getDocumentId() != null
+                    ? operation.getDocumentId()
+                    : syncIds.syncIdOf(operation.getEntityType(), operation.getEntityId());
+            if (documentId == null) {
+                // Queued before sync_id existed, and the row is gone: no document to address
+                Log.e(TAG, "Abandoning action " + action.getPendingActionId() + ": no sync_id");
+                syncDao.abandonAction(action.getPendingActionId(), now, "Entity without sync_id");
+                continue;
+            }
+            if (SyncActions.TRANSACTION.equals(operation.getEntityType()) && !operation.isDelete()) {
+                addReferences(operation.getData());
+            }
+            operations.add(operation.addressedTo(accountUid, documentId));
+        }
+        return operations;
+    }
+
+    private String ownerUidOf(long userId) {
+        if (!ownerUids.containsKey(userId)) {
+            User user = database.userDao().getByIdSync(userId);
+            ownerUids.put(userId, user != null ? user.getFirebaseUid() : null);
+        }
+        return ownerUids.get(userId);
+    }
+
+    /**
+     * Add the sync_id of the rows a transaction points to, as of now
+     */
+    private void addReferences(Map<String, Object> data) {
+        putReference(data, SyncActions.TRIP_REF_FIELD, SyncActions.TRIP, data.get("tripId"));
+        putReference(data, SyncActions.MERCHANT_REF_FIELD, SyncActions.MERCHANT, data.get("merchantId"));
+        Object cardType = data.get("cardType");
+        String cardEntityType = SyncIds.cardEntityType(cardType instanceof String ? (String) cardType : null);
+        if (cardEntityType != null) {
+            putReference(data, SyncActions.CARD_REF_FIELD, cardEntityType, data.get("cardId"));
+        }
+    }
+
+    private void putReference(Map<String, Object> data, String field, String entityType, Object localId) {
+        String syncId = localId instanceof Number
+                ? syncIds.syncIdOf(entityType, ((Number) localId).longValue())
+                : null;
+        if (syncId != null) {
+            data.put(field, syncId);
+        } else {
+            data.remove(field);
+        }
+    }
+
+    private void recordSuccess(List<SyncOperation> batch) {
+        long now = System.currentTimeMillis();
+        database.runInTransaction(() -> {
+            for (SyncOperation operation : batch) {
+                // Removes nothing if the action was coalesced into a newer row meanwhile;
+                // that row stays queued and is pushed by a later batch
+                syncDao.deletePendingActionById(operation.getPendingActionId());
+
+                if (operation.isDelete()) {
+                    syncDao.deleteSyncStateByEntity(operation.getEntityType(), operation.getEntityId());
+                } else {
+                    syncDao.markEntitySynced(operation.getEntityType(), operation.getEntityId(),
+                            operation.getDocumentPath(), now);
+                }
+            }
+        });
+    }
+
+    private void recordFailure(List<SyncOperation> batch, Exception error) {
+        long now = System.currentTimeMillis();
+        String message = String.valueOf(error.getMessage());
+        database.runInTransaction(() -> {
+            for (SyncOperation operation : batch) {
+                syncDao.recordActionFailure(operation.getPendingActionId(), now, message);
+                syncDao.recordSyncFailure(operation.getEntityType(), operation.getEntityId(), message, now);
+            }
+        });
+    }
+
+    /**
+     * Outcome of a drain
+     */
+    public static class DrainResult {
+        private final int pushed;
+        private final int failed;
+        private final int batches;
+        private final int held;
+        private final int remaining;
+
+        DrainResult(int pushed, int failed, int batches, int held, int remaining) {
+            this.pushed = pushed;
+            this.failed = failed;
+            this.batches = batches;
+            this.held = held;
+            this.remaining = remaining;
+        }
+
+        /**
+         * Actions committed to the remote store
+         */
+        public int getPushed() {
+            return pushed;
+        }
+
+        /**
+         * Actions in the batch that failed (0 or the size of one batch)
+         */
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * Successful commits
+         */
+        public int getBatches() {
+            return batches;
+        }
+
+        /**
+         * Actions left queued because they belong to another (or an unlinked) account
+         */
+        public int getHeld() {
+            return held;
+        }
+
+        /**
+         * Actions still queued that will be retried (including those waiting for backoff)
+         */
+        public int getRemaining() {
+            return remaining;
+        }
+    }
+}
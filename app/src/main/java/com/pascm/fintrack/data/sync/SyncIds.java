@@ -0,0 +1,94 @@
+package com.pascm.fintrack.data.sync;
+
+import android.database.Cursor;
+
+import androidx.annotation.Nullable;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates between local row IDs (per install) and sync_id (the same on
+ * every device) for the synced tables.
+ *
+ * Pushed transactions carry the sync_id of the trip, merchant and card they
+ * point to (see SyncActions.TRIP_REF_FIELD and friends), so another device can
+ * resolve them to its own rows.
+ */
+class SyncIds {
+
+    private final FinTrackDatabase database;
+
+    SyncIds(FinTrackDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * sync_id of a local row, or null if it does not exist
+     */
+    @Nullable
+    String syncIdOf(String entityType, long entityId) {
+        String sql = "SELECT sync_id FROM " + SyncActions.collectionFor(entityType)
+                + " WHERE " + SyncActions.idColumnFor(entityType) + " = ?";
+        try (Cursor cursor = database.query(sql, new Object[]{entityId})) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    /**
+     * Local ID of the row with a sync_id, or null if there is none
+     */
+    @Nullable
+    Long localIdOf(String entityType, @Nullable String syncId) {
+        if (syncId == null) {
+            return null;
+        }
+        String sql = "SELECT " + SyncActions.idColumnFor(entityType) + " FROM "
+                + SyncActions.collectionFor(entityType) + " WHERE sync_id = ?";
+        try (Cursor cursor = database.query(sql, new Object[]{syncId})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : null;
+        }
+    }
+
+    /**
+     * Local IDs of the rows with the given sync_ids, keyed by sync_id. One query
+     * per call; sync_ids without a local row are absent.
+     */
+    Map<String, Long> localIdsOf(String entityType, List<String> syncIds) {
+        Map<String, Long> ids = new HashMap<>();
+        if (syncIds.isEmpty()) {
+            return ids;
+        }
+        StringBuilder sql = new StringBuilder("SELECT sync_id, ")
+                .append(SyncActions.idColumnFor(entityType))
+                .append(" FROM ").append(SyncActions.collectionFor(entityType))
+                .append(" WHERE sync_id IN (");
+        for (int i = 0; i < syncIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (Cursor cursor = database.query(sql.toString(), syncIds.toArray())) {
+            while (cursor.moveToNext()) {
+                ids.put(cursor.getString(0), cursor.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Entity type of a transaction's card_type ("CREDIT" or "DEBIT"), or null
+     */
+    @Nullable
+    static String cardEntityType(@Nullable String cardType) {
+        if ("CREDIT".equals(cardType)) {
+            return SyncActions.CREDIT_CARD;
+        }
+        if ("DEBIT".equals(cardType)) {
+            return SyncActions.DEBIT_CARD;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,129 @@
+package com.pascm.fintrack.data.sync;
+
+import androidx.annotation.NonNull;
+
+import com.pascm.fintrack.data.local.entity.PendingAction;
+
+import java.util.Map;
+
+/**
+ * One write to push to the remote store, decoded from a PendingAction.
+ *
+ * Documents live at users/{firebaseUid}/{collection}/{syncId}: the owner's
+ * Firebase Auth UID and the entity's globally unique sync_id, never local row
+ * IDs (those repeat across installs). The path is stored as firebase_id in
+ * sync_state once the write lands.
+ */
+public class SyncOperation {
+
+    private final long pendingActionId;
+    private final String entityType;
+    private final long entityId;
+    private final boolean delete;
+    private final long userId;
+    private final String documentId;
+    private final String documentPath;
+    private final Map<String, Object> data;
+
+    private SyncOperation(long pendingActionId, String entityType, long entityId, boolean delete,
+                          long userId, String documentId, String documentPath, Map<String, Object> data) {
+        this.pendingActionId = pendingActionId;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.delete = delete;
+        this.userId = userId;
+        this.documentId = documentId;
+        this.documentPath = documentPath;
+        this.data = data;
+    }
+
+    /**
+     * Decode an outbox row. The result has no document path yet; see addressedTo().
+     *
+     * @throws IllegalArgumentException if the row can never be pushed
+     *                                  (unknown entity type, missing or malformed payload)
+     */
+    @NonNull
+    public static SyncOperation from(@NonNull PendingAction action) {
+        if (action.getPayloadJson() == null) {
+            throw new IllegalArgumentException("Missing payload");
+        }
+
+        Map<String, Object> data;
+        try {
+            data = SyncActions.parsePayload(action.getPayloadJson());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed payload", e);
+        }
+
+        Object userId = data != null ? data.get("userId") : null;
+        if (!(userId instanceof Number)) {
+            throw new IllegalArgumentException("Payload without userId");
+        }
+        // Throws for unknown entity types
+        SyncActions.collectionFor(action.getEntityType());
+
+        // Payloads queued before sync_id existed have none; SyncEngine looks it up
+        Object syncId = data.get(SyncActions.SYNC_ID_FIELD);
+
+        return new SyncOperation(action.getPendingActionId(), action.getEntityType(),
+                action.getEntityId(), action.isDeleteAction(), ((Number) userId).longValue(),
+                syncId instanceof String ? (String) syncId : null, null, data);
+    }
+
+    /**
+     * The same operation with its document path
+     *
+     * @param ownerUid   Firebase Auth UID of the owner
+     * @param documentId sync_id of the entity
+     */
+    @NonNull
+    SyncOperation addressedTo(@NonNull String ownerUid, @NonNull String documentId) {
+        String path = "users/" + ownerUid + "/" + SyncActions.collectionFor(entityType) + "/" + documentId;
+        return new SyncOperation(pendingActionId, entityType, entityId, delete, userId, documentId, path, data);
+    }
+
+    public long getPendingActionId() {
+        return pendingActionId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public long getEntityId() {
+        return entityId;
+    }
+
+    public boolean isDelete() {
+        return delete;
+    }
+
+    /**
+     * Local ID of the owner (payload userId)
+     */
+    public long getUserId() {
+        return userId;
+    }
+
+    /**
+     * sync_id of the entity, or null until SyncEngine resolves it
+     */
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    /**
+     * Full document path, or null until addressedTo()
+     */
+    public String getDocumentPath() {
+        return documentPath;
+    }
+
+    /**
+     * Full entity snapshot (for deletes, the state before deletion)
+     */
+    public Map<String, Object> getData() {
+        return data;
+    }
+}
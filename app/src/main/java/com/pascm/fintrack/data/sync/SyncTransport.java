@@ -0,0 +1,27 @@
+package com.pascm.fintrack.data.sync;
+
+import java.util.List;
+
+/**
+ * Remote side of the sync engine.
+ *
+ * The production implementation is FirestoreSyncTransport; tests use an
+ * in-process fake.
+ */
+public interface SyncTransport {
+
+    /**
+     * Largest number of operations passed to a single commit (Firestore WriteBatch limit)
+     */
+    int MAX_BATCH_SIZE = 500;
+
+    /**
+     * Apply all operations atomically: either every write lands or none does.
+     * Blocks until the remote side acknowledges. Writes are full-document sets
+     * and deletes, so replaying a batch after an unknown outcome is safe.
+     *
+     * @param operations At most MAX_BATCH_SIZE operations
+     * @throws Exception if the batch was not applied
+     */
+    void commit(List<SyncOperation> operations) throws Exception;
+}
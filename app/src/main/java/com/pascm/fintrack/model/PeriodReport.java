@@ -0,0 +1,32 @@
+package com.pascm.fintrack.model;
+
+import java.util.List;
+
+/**
+ * Model class for a complete report of a period: summary totals plus the
+ * category and account type breakdowns, all read from the same snapshot
+ */
+public class PeriodReport {
+    private final ReportData summary;
+    private final List<CategoryReport> categoryReports;
+    private final List<AccountTypeReport> accountTypeReports;
+
+    public PeriodReport(ReportData summary, List<CategoryReport> categoryReports,
+                        List<AccountTypeReport> accountTypeReports) {
+        this.summary = summary;
+        this.categoryReports = categoryReports;
+        this.accountTypeReports = accountTypeReports;
+    }
+
+    public ReportData getSummary() {
+        return summary;
+    }
+
+    public List<CategoryReport> getCategoryReports() {
+        return categoryReports;
+    }
+
+    public List<AccountTypeReport> getAccountTypeReports() {
+        return accountTypeReports;
+    }
+}
@@ -0,0 +1,136 @@
+package com.pascm.fintrack.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Budget burn-rate projection of a trip: spending so far divided by the trip days
+ * elapsed (today included) gives a daily rate, and the remaining days at that rate
+ * give the projected total, compared against the trip's budget_amount.
+ */
+public class TripForecast {
+
+    private final double spent;
+    @Nullable
+    private final Double budget;
+    private final long totalDays;
+    private final long elapsedDays;
+    private final double dailyBurn;
+    private final double projectedTotal;
+    @Nullable
+    private final LocalDate budgetExhaustedOn;
+
+    private TripForecast(double spent, @Nullable Double budget, long totalDays, long elapsedDays,
+                         double dailyBurn, double projectedTotal, @Nullable LocalDate budgetExhaustedOn) {
+        this.spent = spent;
+        this.budget = budget;
+        this.totalDays = totalDays;
+        this.elapsedDays = elapsedDays;
+        this.dailyBurn = dailyBurn;
+        this.projectedTotal = projectedTotal;
+        this.budgetExhaustedOn = budgetExhaustedOn;
+    }
+
+    /**
+     * @param spent  Expenses of the trip so far
+     * @param budget Trip budget, or null/0 for none
+     * @param start  First day of the trip
+     * @param end    Last day of the trip (inclusive)
+     * @param today  Current day
+     */
+    public static TripForecast of(double spent, @Nullable Double budget,
+                                  @NonNull LocalDate start, @NonNull LocalDate end, @NonNull LocalDate today) {
+        long totalDays = Math.max(1, ChronoUnit.DAYS.between(start, end) + 1);
+        long elapsedDays = Math.max(0, Math.min(totalDays, ChronoUnit.DAYS.between(start, today) + 1));
+        // Spending before the trip starts (bookings) counts as the first day's
+        long rateDays = Math.max(1, elapsedDays);
+
+        double dailyBurn = spent / rateDays;
+        double projectedTotal = spent + dailyBurn * (totalDays - rateDays);
+
+        Double effectiveBudget = budget != null && budget > 0 ? budget : null;
+        LocalDate exhaustedOn = null;
+        if (effectiveBudget != null && projectedTotal > effectiveBudget && dailyBurn > 0) {
+            // Day (within the trip) on which the running total reaches the budget
+            long daysToBudget = (long) Math.ceil(effectiveBudget / dailyBurn);
+            exhaustedOn = start.plusDays(Math.max(0, daysToBudget - 1));
+        }
+
+        return new TripForecast(spent, effectiveBudget, totalDays, elapsedDays, dailyBurn,
+                projectedTotal, exhaustedOn);
+    }
+
+    public double getSpent() {
+        return spent;
+    }
+
+    public boolean hasBudget() {
+        return budget != null;
+    }
+
+    @Nullable
+    public Double getBudget() {
+        return budget;
+    }
+
+    public long getTotalDays() {
+        return totalDays;
+    }
+
+    /**
+     * Trip days up to today (0 before the trip, totalDays after it)
+     */
+    public long getElapsedDays() {
+        return elapsedDays;
+    }
+
+    public long getRemainingDays() {
+        return totalDays - elapsedDays;
+    }
+
+    /**
+     * Average spending per elapsed day
+     */
+    public double getDailyBurn() {
+        return dailyBurn;
+    }
+
+    /**
+     * Spending at the end of the trip if the daily rate holds
+     */
+    public double getProjectedTotal() {
+        return projectedTotal;
+    }
+
+    /**
+     * Budget minus projected total (negative when the projection overruns); 0 without budget
+     */
+    public double getProjectedRemaining() {
+        return budget != null ? budget - projectedTotal : 0;
+    }
+
+    public boolean isProjectedOverBudget() {
+        return budget != null && projectedTotal > budget;
+    }
+
+    /**
+     * What can still be spent per remaining day to end on budget; 0 without
+     * budget, days left or money left
+     */
+    public double getDailyAllowance() {
+        long remainingDays = getRemainingDays();
+        if (budget == null || remainingDays <= 0) return 0;
+        return Math.max(0, budget - spent) / remainingDays;
+    }
+
+    /**
+     * Day the budget runs out at the current rate, or null if the projection stays within it
+     */
+    @Nullable
+    public LocalDate getBudgetExhaustedOn() {
+        return budgetExhaustedOn;
+    }
+}
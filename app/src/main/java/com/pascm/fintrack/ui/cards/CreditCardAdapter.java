@@ -11,6 +11,8 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.constraintlayout.widget.ConstraintLayout;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.pascm.fintrack.R;
@@ -22,13 +24,51 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class CreditCardAdapter extends RecyclerView.Adapter<CreditCardAdapter.CardViewHolder> {
+public class CreditCardAdapter extends ListAdapter<CreditCardEntity, CreditCardAdapter.CardViewHolder> {
+
+    /**
+     * Payload: only the balance or the limit changed (e.g. after a transaction),
+     * so only the amounts and the usage bar are rebound
+     */
+    private static final Object PAYLOAD_BALANCE = new Object();
+
+    private static final DiffUtil.ItemCallback<CreditCardEntity> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<CreditCardEntity>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull CreditCardEntity oldItem, @NonNull CreditCardEntity newItem) {
+                    return oldItem.getCardId() == newItem.getCardId();
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull CreditCardEntity oldItem, @NonNull CreditCardEntity newItem) {
+                    return sameAppearance(oldItem, newItem)
+                            && oldItem.getCurrentBalance() == newItem.getCurrentBalance()
+                            && oldItem.getCreditLimit() == newItem.getCreditLimit();
+                }
+
+                @Override
+                public Object getChangePayload(@NonNull CreditCardEntity oldItem, @NonNull CreditCardEntity newItem) {
+                    return sameAppearance(oldItem, newItem) ? PAYLOAD_BALANCE : null;
+                }
+            };
+
+    /**
+     * Everything shown on the card except balance and limit
+     */
+    private static boolean sameAppearance(CreditCardEntity a, CreditCardEntity b) {
+        return Objects.equals(a.getIssuer(), b.getIssuer())
+                && Objects.equals(a.getLabel(), b.getLabel())
+                && Objects.equals(a.getPanLast4(), b.getPanLast4())
+                && Objects.equals(a.getBrand(), b.getBrand())
+                && Objects.equals(a.getGradient(), b.getGradient())
+                && Objects.equals(a.getStatementDay(), b.getStatementDay())
+                && Objects.equals(a.getPaymentDueDay(), b.getPaymentDueDay());
+    }
 
-    private List<CreditCardEntity> cards;
     private OnCardClickListener listener;
     private final NumberFormat currencyFormat;
     private final DateTimeFormatter expiryFormatter = DateTimeFormatter.ofPattern("MM/yy");
@@ -39,20 +79,29 @@ public class CreditCardAdapter extends RecyclerView.Adapter<CreditCardAdapter.Ca
     }
 
     public CreditCardAdapter() {
-        this.cards = new ArrayList<>();
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
         this.currencyFormat = NumberFormat.getNumberInstance(Locale.US);
         this.currencyFormat.setMaximumFractionDigits(0);
     }
 
+    /**
+     * Show a new list of cards. The difference with the current list is computed
+     * in the background and only changed rows are rebound.
+     */
     public void setCards(List<CreditCardEntity> cards) {
-        this.cards = cards;
-        notifyDataSetChanged();
+        submitList(cards);
     }
 
     public void setOnCardClickListener(OnCardClickListener listener) {
         this.listener = listener;
     }
 
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getCardId();
+    }
+
     @NonNull
     @Override
     public CardViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -63,13 +112,27 @@ public class CreditCardAdapter extends RecyclerView.Adapter<CreditCardAdapter.Ca
 
     @Override
     public void onBindViewHolder(@NonNull CardViewHolder holder, int position) {
-        CreditCardEntity card = cards.get(position);
+        CreditCardEntity card = getItem(position);
         holder.bind(card, listener, currencyFormat, expiryFormatter, dateFormatter);
     }
 
     @Override
-    public int getItemCount() {
-        return cards.size();
+    public void onBindViewHolder(@NonNull CardViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || !onlyPayload(payloads, PAYLOAD_BALANCE)) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+        CreditCardEntity card = getItem(position);
+        holder.bindBalance(card, currencyFormat);
+        holder.bindPaymentDate(card, dateFormatter);
+        holder.bindClick(card, listener);
+    }
+
+    static boolean onlyPayload(List<Object> payloads, Object payload) {
+        for (Object p : payloads) {
+            if (p != payload) return false;
+        }
+        return true;
     }
 
     static class CardViewHolder extends RecyclerView.ViewHolder {
@@ -117,38 +180,7 @@ public class CreditCardAdapter extends RecyclerView.Adapter<CreditCardAdapter.Ca
             txtBankName.setText(card.getIssuer());
             txtCardLabel.setText(card.getLabel());
             txtCardNumber.setText("•••• •••• •••• " + card.getPanLast4());
-            txtBalance.setText(currencyFormat.format(card.getCurrentBalance()));
-            txtLimit.setText(currencyFormat.format(card.getCreditLimit()));
-
-            // Configurar el nivel de uso
-            CreditCardEntity.UsageLevel usageLevel = card.getUsageLevel();
-            txtUsageLabel.setText(usageLevel.getLabel());
-
-            // Configurar la barra de progreso
-            float usagePercentage = card.getUsagePercentage();
-            progressBar.setProgress((int) usagePercentage);
-            txtUsagePercentage.setText(String.format(Locale.US, "%.0f%% de uso", usagePercentage));
-
-            // Cambiar el color de la barra de progreso según el nivel de uso
-            GradientDrawable progressDrawable = new GradientDrawable();
-            progressDrawable.setCornerRadius(5 * itemView.getContext().getResources().getDisplayMetrics().density);
-            progressDrawable.setColor(usageLevel.getColor());
-
-            android.graphics.drawable.ClipDrawable clipDrawable = new android.graphics.drawable.ClipDrawable(
-                    progressDrawable,
-                    android.view.Gravity.START,
-                    android.graphics.drawable.ClipDrawable.HORIZONTAL
-            );
-
-            android.graphics.drawable.LayerDrawable layerDrawable = new android.graphics.drawable.LayerDrawable(
-                    new android.graphics.drawable.Drawable[]{
-                            itemView.getContext().getDrawable(R.drawable.progress_bg),
-                            clipDrawable
-                    }
-            );
-            layerDrawable.setId(0, android.R.id.background);
-            layerDrawable.setId(1, android.R.id.progress);
-            progressBar.setProgressDrawable(layerDrawable);
+            bindBalance(card, currencyFormat);
 
             // Configurar el gradiente de fondo
             CreditCard.CardGradient gradient;
@@ -205,12 +237,59 @@ public class CreditCardAdapter extends RecyclerView.Adapter<CreditCardAdapter.Ca
                 txtStatementDate.setText("--");
             }
 
-            // Mostrar fecha de pago próxima
+            bindPaymentDate(card, dateFormatter);
+            bindClick(card, listener);
+        }
+
+        /**
+         * Saldo, límite y barra de uso
+         */
+        void bindBalance(CreditCardEntity card, NumberFormat currencyFormat) {
+            txtBalance.setText(currencyFormat.format(card.getCurrentBalance()));
+            txtLimit.setText(currencyFormat.format(card.getCreditLimit()));
+
+            // Configurar el nivel de uso
+            CreditCardEntity.UsageLevel usageLevel = card.getUsageLevel();
+            txtUsageLabel.setText(usageLevel.getLabel());
+
+            // Configurar la barra de progreso
+            float usagePercentage = card.getUsagePercentage();
+            progressBar.setProgress((int) usagePercentage);
+            txtUsagePercentage.setText(String.format(Locale.US, "%.0f%% de uso", usagePercentage));
+
+            // Cambiar el color de la barra de progreso según el nivel de uso
+            GradientDrawable progressDrawable = new GradientDrawable();
+            progressDrawable.setCornerRadius(5 * itemView.getContext().getResources().getDisplayMetrics().density);
+            progressDrawable.setColor(usageLevel.getColor());
+
+            android.graphics.drawable.ClipDrawable clipDrawable = new android.graphics.drawable.ClipDrawable(
+                    progressDrawable,
+                    android.view.Gravity.START,
+                    android.graphics.drawable.ClipDrawable.HORIZONTAL
+            );
+
+            android.graphics.drawable.LayerDrawable layerDrawable = new android.graphics.drawable.LayerDrawable(
+                    new android.graphics.drawable.Drawable[]{
+                            itemView.getContext().getDrawable(R.drawable.progress_bg),
+                            clipDrawable
+                    }
+            );
+            layerDrawable.setId(0, android.R.id.background);
+            layerDrawable.setId(1, android.R.id.progress);
+            progressBar.setProgressDrawable(layerDrawable);
+        }
+
+        /**
+         * Fecha de pago próxima, en rojo si ya pasó la fecha de corte
+         */
+        void bindPaymentDate(CreditCardEntity card, DateTimeFormatter dateFormatter) {
+            // El color base es el del texto del resto de la tarjeta
+            int textColor = txtBankName.getCurrentTextColor();
+
             LocalDate nextPayment = card.getNextPaymentDueDate();
             if (nextPayment != null) {
                 txtPaymentDate.setText(nextPayment.format(dateFormatter));
 
-                // Si ya pasó la fecha de corte, mostrar fecha de pago en rojo
                 if (card.isInPaymentPeriod()) {
                     txtPaymentDate.setTextColor(ContextCompat.getColor(itemView.getContext(), android.R.color.holo_red_light));
                 } else {
@@ -220,8 +299,10 @@ public class CreditCardAdapter extends RecyclerView.Adapter<CreditCardAdapter.Ca
                 txtPaymentDate.setText("--");
                 txtPaymentDate.setTextColor(textColor);
             }
+        }
 
-            // Click listener
+        void bindClick(CreditCardEntity card, OnCardClickListener listener) {
+            // El listener recibe la versión más reciente de la tarjeta
             itemView.setOnClickListener(v -> {
                 if (listener != null) {
                     listener.onCardClick(card);
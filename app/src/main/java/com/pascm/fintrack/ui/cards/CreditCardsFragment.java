@@ -16,6 +16,7 @@ import com.google.android.material.card.MaterialCardView;
 import com.pascm.fintrack.R;
 import com.pascm.fintrack.data.local.entity.CreditCardEntity;
 import com.pascm.fintrack.data.repository.CardRepository;
+import com.pascm.fintrack.data.repository.ReferenceDataCache;
 import com.pascm.fintrack.model.CreditCard;
 import com.pascm.fintrack.util.SessionManager;
 
@@ -84,8 +85,11 @@ public class CreditCardsFragment extends Fragment {
     }
 
     private void observeCards(long userId) {
-        cardRepository.getAllCreditCards(userId).observe(getViewLifecycleOwner(), entities -> {
-            if (entities != null && !entities.isEmpty()) {
+        // Misma lista que usa la pantalla de movimientos: sin consulta si no cambió
+        ReferenceDataCache.getInstance(requireContext()).observe(userId).observe(getViewLifecycleOwner(), data -> {
+            if (data == null) return; // Primera carga en curso
+            List<CreditCardEntity> entities = data.creditCards;
+            if (!entities.isEmpty()) {
                 adapter.setCards(entities);
 
                 // Detectar tarjetas pendientes de pago (en periodo de pago)
@@ -9,6 +9,8 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.pascm.fintrack.R;
@@ -19,13 +21,35 @@ import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class DebitCardAdapter extends RecyclerView.Adapter<DebitCardAdapter.CardViewHolder> {
+public class DebitCardAdapter extends ListAdapter<DebitCardEntity, DebitCardAdapter.CardViewHolder> {
+
+    /**
+     * Payload: only the account balances changed, so only the balance text is rebound
+     */
+    private static final Object PAYLOAD_BALANCE = new Object();
+
+    private static final DiffUtil.ItemCallback<DebitCardEntity> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<DebitCardEntity>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull DebitCardEntity oldItem, @NonNull DebitCardEntity newItem) {
+                    return oldItem.getCardId() == newItem.getCardId();
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull DebitCardEntity oldItem, @NonNull DebitCardEntity newItem) {
+                    return oldItem.getAccountId() == newItem.getAccountId()
+                            && Objects.equals(oldItem.getIssuer(), newItem.getIssuer())
+                            && Objects.equals(oldItem.getLabel(), newItem.getLabel())
+                            && Objects.equals(oldItem.getPanLast4(), newItem.getPanLast4())
+                            && Objects.equals(oldItem.getBrand(), newItem.getBrand())
+                            && Objects.equals(oldItem.getGradient(), newItem.getGradient());
+                }
+            };
 
-    private List<DebitCardEntity> cards;
     private java.util.Map<Long, Double> balances; // accountId -> balance
     private OnCardClickListener listener;
     private final DateTimeFormatter expiryFormatter = DateTimeFormatter.ofPattern("MM/yy");
@@ -36,26 +60,35 @@ public class DebitCardAdapter extends RecyclerView.Adapter<DebitCardAdapter.Card
     }
 
     public DebitCardAdapter() {
-        this.cards = new ArrayList<>();
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
         this.balances = new java.util.HashMap<>();
         this.currencyFormat = NumberFormat.getCurrencyInstance(new Locale("es", "MX"));
         this.currencyFormat.setMaximumFractionDigits(2);
     }
 
+    /**
+     * Show a new list of cards. The difference with the current list is computed
+     * in the background and only changed rows are rebound.
+     */
     public void setCards(List<DebitCardEntity> cards) {
-        this.cards = cards;
-        notifyDataSetChanged();
+        submitList(cards);
     }
 
     public void setBalances(java.util.Map<Long, Double> balances) {
         this.balances = balances;
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_BALANCE);
     }
 
     public void setOnCardClickListener(OnCardClickListener listener) {
         this.listener = listener;
     }
 
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getCardId();
+    }
+
     @NonNull
     @Override
     public CardViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -66,14 +99,18 @@ public class DebitCardAdapter extends RecyclerView.Adapter<DebitCardAdapter.Card
 
     @Override
     public void onBindViewHolder(@NonNull CardViewHolder holder, int position) {
-        DebitCardEntity card = cards.get(position);
+        DebitCardEntity card = getItem(position);
         Double balance = balances.get(card.getAccountId());
         holder.bind(card, balance, listener, expiryFormatter, currencyFormat);
     }
 
     @Override
-    public int getItemCount() {
-        return cards.size();
+    public void onBindViewHolder(@NonNull CardViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || !CreditCardAdapter.onlyPayload(payloads, PAYLOAD_BALANCE)) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+        holder.bindBalance(balances.get(getItem(position).getAccountId()), currencyFormat);
     }
 
     static class CardViewHolder extends RecyclerView.ViewHolder {
@@ -104,12 +141,7 @@ public class DebitCardAdapter extends RecyclerView.Adapter<DebitCardAdapter.Card
             txtCardAlias.setText(card.getLabel());
             txtCardNumber.setText("•••• •••• •••• " + (card.getPanLast4() != null ? card.getPanLast4() : "0000"));
 
-            // Balance comes from the linked account
-            if (balance != null) {
-                txtCardBalance.setText(currencyFormat.format(balance));
-            } else {
-                txtCardBalance.setText("—");
-            }
+            bindBalance(balance, currencyFormat);
 
             // Configurar el gradiente de fondo
             CreditCard.CardGradient gradient;
@@ -163,5 +195,16 @@ public class DebitCardAdapter extends RecyclerView.Adapter<DebitCardAdapter.Card
                 }
             });
         }
+
+        /**
+         * Balance comes from the linked account
+         */
+        void bindBalance(Double balance, NumberFormat currencyFormat) {
+            if (balance != null) {
+                txtCardBalance.setText(currencyFormat.format(balance));
+            } else {
+                txtCardBalance.setText("—");
+            }
+        }
     }
 }
@@ -14,11 +14,10 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.pascm.fintrack.R;
-import com.pascm.fintrack.data.local.FinTrackDatabase;
-import com.pascm.fintrack.data.local.dao.AccountDao;
 import com.pascm.fintrack.data.local.entity.Account;
 import com.pascm.fintrack.data.local.entity.DebitCardEntity;
 import com.pascm.fintrack.data.repository.CardRepository;
+import com.pascm.fintrack.data.repository.ReferenceDataCache;
 import com.pascm.fintrack.model.CreditCard;
 import com.pascm.fintrack.model.DebitCard;
 import com.pascm.fintrack.util.SessionManager;
@@ -37,7 +36,6 @@ public class DebitCardsFragment extends Fragment {
     private View emptyStateContainer;
     private DebitCardAdapter adapter;
     private CardRepository cardRepository;
-    private AccountDao accountDao;
 
     @Nullable
     @Override
@@ -51,8 +49,6 @@ public class DebitCardsFragment extends Fragment {
 
         // Repositories
         cardRepository = new CardRepository(requireContext());
-        FinTrackDatabase database = FinTrackDatabase.getDatabase(requireContext());
-        accountDao = database.accountDao();
 
         // User ID
         long userId = SessionManager.getUserId(requireContext());
@@ -90,12 +86,13 @@ public class DebitCardsFragment extends Fragment {
     }
 
     private void observeCards(long userId) {
-        cardRepository.getAllDebitCards(userId).observe(getViewLifecycleOwner(), entities -> {
-            if (entities != null && !entities.isEmpty()) {
+        // Tarjetas y cuentas de la misma instantánea: los saldos llegan con la lista
+        ReferenceDataCache.getInstance(requireContext()).observe(userId).observe(getViewLifecycleOwner(), data -> {
+            if (data == null) return; // Primera carga en curso
+            List<DebitCardEntity> entities = data.debitCards;
+            if (!entities.isEmpty()) {
                 adapter.setCards(entities);
-
-                // Cargar saldos de las cuentas asociadas
-                loadBalances(entities);
+                adapter.setBalances(balancesOf(entities, data));
 
                 showContent();
             } else {
@@ -105,22 +102,18 @@ public class DebitCardsFragment extends Fragment {
         });
     }
 
-    private void loadBalances(List<DebitCardEntity> cards) {
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            Map<Long, Double> balances = new HashMap<>();
-
-            for (DebitCardEntity card : cards) {
-                long accountId = card.getAccountId();
-                Account account = accountDao.getByIdSync(accountId);
-                if (account != null) {
-                    balances.put(accountId, account.getBalance());
-                }
+    /**
+     * Saldo de la cuenta asociada a cada tarjeta, por ID de cuenta
+     */
+    private static Map<Long, Double> balancesOf(List<DebitCardEntity> cards, ReferenceDataCache.Snapshot data) {
+        Map<Long, Double> balances = new HashMap<>();
+        for (DebitCardEntity card : cards) {
+            Account account = data.getAccount(card.getAccountId());
+            if (account != null) {
+                balances.put(account.getAccountId(), account.getBalance());
             }
-
-            requireActivity().runOnUiThread(() -> {
-                adapter.setBalances(balances);
-            });
-        });
+        }
+        return balances;
     }
 
     private void showEmptyState() {
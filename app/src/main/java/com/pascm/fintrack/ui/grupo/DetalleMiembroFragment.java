@@ -17,9 +17,7 @@ import com.pascm.fintrack.R;
 import com.pascm.fintrack.data.repository.GroupRepository;
 import com.pascm.fintrack.data.repository.TransactionRepository;
 import com.pascm.fintrack.data.repository.UserRepository;
-import com.pascm.fintrack.util.ImageHelper;
-
-import android.graphics.Bitmap;
+import com.pascm.fintrack.util.ImageLoader;
 
 import java.text.NumberFormat;
 import java.util.Locale;
@@ -114,10 +112,8 @@ public class DetalleMiembroFragment extends Fragment {
                         // Load profile photo if available
                         String photoUrl = profile.getAvatarUrl();
                         if (photoUrl != null && !photoUrl.isEmpty()) {
-                            Bitmap bitmap = ImageHelper.loadBitmapFromPath(photoUrl);
-                            if (bitmap != null) {
-                                ivProfilePhoto.setImageBitmap(bitmap);
-                            }
+                            ImageLoader.getInstance(requireContext()).load(ivProfilePhoto, photoUrl,
+                                    ImageLoader.SIZE_DETAIL, 0, null);
                         }
                     } else {
                         tvMemberName.setText(user.getEmail());
@@ -11,9 +11,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.pascm.fintrack.R;
-import com.pascm.fintrack.util.ImageHelper;
-
-import android.graphics.Bitmap;
+import com.pascm.fintrack.util.ImageLoader;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
@@ -61,6 +59,11 @@ public class GroupMembersAdapter extends RecyclerView.Adapter<GroupMembersAdapte
         holder.bind(member, isCurrentUserAdmin, listener, currencyFormat);
     }
 
+    @Override
+    public void onViewRecycled(@NonNull MemberViewHolder holder) {
+        ImageLoader.getInstance(holder.itemView.getContext()).cancel(holder.imgAvatar);
+    }
+
     @Override
     public int getItemCount() {
         return members.size();
@@ -117,17 +120,9 @@ public class GroupMembersAdapter extends RecyclerView.Adapter<GroupMembersAdapte
                 tvMemberName.setText(member.getUserName() + " (Admin)");
             }
 
-            // Load avatar image if available
-            if (member.getPhotoUrl() != null && !member.getPhotoUrl().isEmpty()) {
-                Bitmap bitmap = ImageHelper.loadBitmapFromPath(member.getPhotoUrl());
-                if (bitmap != null) {
-                    imgAvatar.setImageBitmap(bitmap);
-                } else {
-                    imgAvatar.setImageResource(R.drawable.ic_person);
-                }
-            } else {
-                imgAvatar.setImageResource(R.drawable.ic_person);
-            }
+            // Load avatar thumbnail in the background
+            ImageLoader.getInstance(itemView.getContext()).load(imgAvatar, member.getPhotoUrl(),
+                    ImageLoader.SIZE_THUMBNAIL, R.drawable.ic_person, null);
         }
     }
 }
@@ -1,7 +1,6 @@
 package com.pascm.fintrack.ui.grupo;
 
 import android.app.Dialog;
-import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -23,7 +22,7 @@ import com.pascm.fintrack.data.local.entity.User;
 import com.pascm.fintrack.data.repository.GroupRepository;
 import com.pascm.fintrack.data.repository.NotificationRepository;
 import com.pascm.fintrack.data.repository.UserRepository;
-import com.pascm.fintrack.util.ImageHelper;
+import com.pascm.fintrack.util.ImageLoader;
 import com.pascm.fintrack.util.SessionManager;
 
 import java.time.Instant;
@@ -183,10 +182,8 @@ public class InvitarMiembrosDialogFragment extends DialogFragment {
 
             // Load user photo if available
             if (profile != null && profile.getAvatarUrl() != null && !profile.getAvatarUrl().isEmpty()) {
-                Bitmap bitmap = ImageHelper.loadBitmapFromPath(profile.getAvatarUrl());
-                if (bitmap != null) {
-                    ivUserPhoto.setImageBitmap(bitmap);
-                }
+                ImageLoader.getInstance(requireContext()).load(ivUserPhoto, profile.getAvatarUrl(),
+                        ImageLoader.SIZE_DETAIL, 0, null);
             }
         });
     }
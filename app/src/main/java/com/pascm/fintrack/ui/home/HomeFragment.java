@@ -8,10 +8,10 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.Navigation;
 
 import com.pascm.fintrack.R;
-import com.pascm.fintrack.data.repository.HomeRepository;
 import com.pascm.fintrack.databinding.FragmentHomeBinding;
 
 import java.text.NumberFormat;
@@ -20,7 +20,7 @@ import java.util.Locale;
 public class HomeFragment extends Fragment {
 
     private FragmentHomeBinding binding;
-    private HomeRepository homeRepository;
+    private HomeViewModel viewModel;
 
     public HomeFragment() {
         // Required empty public constructor
@@ -37,8 +37,8 @@ public class HomeFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        // Initialize repository
-        homeRepository = new HomeRepository(requireContext());
+        // El resumen vive en el ViewModel: rotar o volver a Home no lo vuelve a consultar
+        viewModel = new ViewModelProvider(this).get(HomeViewModel.class);
 
         // Ensure correct selected item in bottom nav when on Home
         binding.bottomNavigation.setSelectedItemId(R.id.nav_home);
@@ -112,35 +112,21 @@ public class HomeFragment extends Fragment {
     }
 
     private void loadData() {
-        // Cargar balance total
-        homeRepository.getTotalBalance().observe(getViewLifecycleOwner(), total -> {
-            if (total != null) {
-                updateTotalBalance(total);
+        // Un solo flujo con todos los balances; se actualiza al cambiar cuentas o tarjetas
+        viewModel.getHomeSummary().observe(getViewLifecycleOwner(), summary -> {
+            if (summary == null) {
+                return;
             }
-        });
+            updateTotalBalance(summary.totalBalance);
 
-        // Cargar balance de efectivo
-        homeRepository.getCashBalance().observe(getViewLifecycleOwner(), info -> {
-            if (info != null) {
-                binding.txtCashBalance.setText(formatCurrency(info.balance));
-                binding.txtCashCount.setText(info.getCountText());
-            }
-        });
+            binding.txtCashBalance.setText(formatCurrency(summary.cash.balance));
+            binding.txtCashCount.setText(summary.cash.getCountText());
 
-        // Cargar balance de crédito
-        homeRepository.getCreditBalance().observe(getViewLifecycleOwner(), info -> {
-            if (info != null) {
-                binding.txtCreditBalance.setText(formatCurrency(info.balance));
-                binding.txtCreditCount.setText(info.getCountText());
-            }
-        });
+            binding.txtCreditBalance.setText(formatCurrency(summary.credit.balance));
+            binding.txtCreditCount.setText(summary.credit.getCountText());
 
-        // Cargar balance de débito
-        homeRepository.getDebitBalance().observe(getViewLifecycleOwner(), info -> {
-            if (info != null) {
-                binding.txtDebitBalance.setText(formatCurrency(info.balance));
-                binding.txtDebitCount.setText(info.getCountText());
-            }
+            binding.txtDebitBalance.setText(formatCurrency(summary.debit.balance));
+            binding.txtDebitCount.setText(summary.debit.getCountText());
         });
     }
 
@@ -0,0 +1,30 @@
+package com.pascm.fintrack.ui.home;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+
+import com.pascm.fintrack.data.repository.HomeRepository;
+
+/**
+ * Estado de la pantalla de inicio.
+ *
+ * Conserva el LiveData del resumen entre rotaciones y mientras Home está en la
+ * pila: Room solo vuelve a consultar si cambiaron cuentas o tarjetas, así que
+ * volver a la pantalla no ejecuta consultas.
+ */
+public class HomeViewModel extends AndroidViewModel {
+
+    private final LiveData<HomeRepository.HomeSummary> homeSummary;
+
+    public HomeViewModel(@NonNull Application application) {
+        super(application);
+        homeSummary = new HomeRepository(application).getHomeSummary();
+    }
+
+    public LiveData<HomeRepository.HomeSummary> getHomeSummary() {
+        return homeSummary;
+    }
+}
@@ -15,6 +15,8 @@ import com.pascm.fintrack.R;
 import com.pascm.fintrack.data.repository.UserRepository;
 import com.pascm.fintrack.databinding.FragmentLoginBinding;
 import com.pascm.fintrack.util.SessionManager;
+import com.pascm.fintrack.worker.PullWorker;
+import com.pascm.fintrack.worker.SyncWorker;
 import com.pascm.fintrack.util.PlacesManager;
 
 public class LoginFragment extends Fragment {
@@ -38,17 +40,23 @@ public class LoginFragment extends Fragment {
         // Initialize repository
         userRepository = new UserRepository(requireContext());
 
-        // Check if already logged in
-        if (SessionManager.isLoggedIn(requireContext())) {
-            Navigation.findNavController(view).navigate(R.id.action_login_to_home);
-            return;
-        }
-
         binding.btnLogin.setOnClickListener(v -> performLogin());
 
         binding.btnCreateAccount.setOnClickListener(v ->
                 Navigation.findNavController(v).navigate(R.id.action_login_to_registro)
         );
+
+        // Right after startup the session may still be loading: wait for it
+        // without blocking the main thread, hiding the form meanwhile
+        view.setVisibility(View.INVISIBLE);
+        SessionManager.whenLoaded(requireContext(), session -> {
+            if (binding == null || binding.getRoot() != view) return; // View destroyed meanwhile
+            if (session.loggedIn) {
+                Navigation.findNavController(view).navigate(R.id.action_login_to_home);
+            } else {
+                view.setVisibility(View.VISIBLE);
+            }
+        });
     }
 
     private void performLogin() {
@@ -77,6 +85,8 @@ public class LoginFragment extends Fragment {
 
                 if (result.isSuccess()) {
                     SessionManager.login(requireContext(), result.getUser());
+                    PullWorker.requestPull(requireContext());
+                    SyncWorker.requestSync(requireContext());
 
                     // Resetear Lugares para demo: siempre iniciar sin lugares
                     PlacesManager.setHasPlaces(requireContext(), false);
@@ -18,6 +18,8 @@ import com.pascm.fintrack.R;
 import com.pascm.fintrack.data.repository.UserRepository;
 import com.pascm.fintrack.databinding.FragmentRegistroBinding;
 import com.pascm.fintrack.util.SessionManager;
+import com.pascm.fintrack.worker.PullWorker;
+import com.pascm.fintrack.worker.SyncWorker;
 import com.pascm.fintrack.util.PlacesManager;
 
 public class RegistroFragment extends Fragment {
@@ -154,6 +156,8 @@ public class RegistroFragment extends Fragment {
                 if (result.isSuccess()) {
                     // Guardar sesión
                     SessionManager.login(requireContext(), result.getUser());
+                    PullWorker.requestPull(requireContext());
+                    SyncWorker.requestSync(requireContext());
 
                     // Resetear Lugares para demo: siempre iniciar sin lugares
                     PlacesManager.setHasPlaces(requireContext(), false);
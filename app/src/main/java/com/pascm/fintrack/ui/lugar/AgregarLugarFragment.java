@@ -3,11 +3,13 @@ package com.pascm.fintrack.ui.lugar;
 import android.Manifest;
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -38,6 +40,7 @@ import com.pascm.fintrack.data.local.entity.Merchant;
 import com.pascm.fintrack.data.repository.PlaceRepository;
 import com.pascm.fintrack.databinding.FragmentAgregarLugarBinding;
 import com.pascm.fintrack.util.ImageHelper;
+import com.pascm.fintrack.util.ImageIngest;
 import com.pascm.fintrack.util.LocationPermissionHelper;
 
 import java.io.File;
@@ -468,17 +471,25 @@ public class AgregarLugarFragment extends Fragment {
         place.setUsageCount(0);
 
         // Guardar en base de datos con callback para guardar la foto después
+        Context appContext = requireContext().getApplicationContext();
+        Uri photoUri = selectedPhotoUri;
         placeRepository.insertPlace(place, placeId -> {
-            // Save photo if selected
-            if (selectedPhotoUri != null) {
-                String photoPath = ImageHelper.savePlacePhoto(requireContext(), selectedPhotoUri, placeId);
-
-                if (photoPath != null) {
-                    // Update place with photo path
-                    place.setMerchantId(placeId);
-                    place.setPhotoUrl(photoPath);
-                    placeRepository.updatePlace(place);
-                }
+            // Procesar la foto en su propio worker (no en la cola de escritura) y asociarla al terminar
+            if (photoUri != null) {
+                ImageIngest.ingest(appContext, photoUri, ImageHelper.placePhotoFileName(placeId),
+                        new ImageIngest.Callback() {
+                            @Override
+                            public void onIngested(ImageIngest.Result result) {
+                                place.setMerchantId(placeId);
+                                place.setPhotoUrl(result.imagePath);
+                                placeRepository.updatePlace(place);
+                            }
+
+                            @Override
+                            public void onError(String message) {
+                                Log.e("AgregarLugar", "Error saving place photo: " + message);
+                            }
+                        });
             }
 
             requireActivity().runOnUiThread(() -> {
@@ -3,6 +3,7 @@ package com.pascm.fintrack.ui.lugar;
 import android.Manifest;
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
@@ -31,6 +32,7 @@ import com.pascm.fintrack.data.local.entity.Merchant;
 import com.pascm.fintrack.data.repository.PlaceRepository;
 import com.pascm.fintrack.databinding.FragmentEditarLugarBinding;
 import com.pascm.fintrack.util.ImageHelper;
+import com.pascm.fintrack.util.ImageIngest;
 import com.pascm.fintrack.util.LocationPermissionHelper;
 
 import java.io.File;
@@ -273,18 +275,23 @@ public class EditarLugarFragment extends Fragment {
         currentPlace.setLatitude(latitude);
         currentPlace.setLongitude(longitude);
 
-        // Guardar foto si cambió
+        // Guardar foto si cambió: se procesa en segundo plano y se asocia al lugar al terminar
         if (photoChanged && photoUri != null) {
-            try {
-                String photoPath = ImageHelper.saveImageToInternalStorage(
-                        requireContext(),
-                        photoUri,
-                        "place_" + placeId + "_" + System.currentTimeMillis() + ".jpg"
-                );
-                currentPlace.setPhotoUrl(photoPath);
-            } catch (Exception e) {
-                Toast.makeText(requireContext(), "Error al guardar foto", Toast.LENGTH_SHORT).show();
-            }
+            Merchant place = currentPlace;
+            Context appContext = requireContext().getApplicationContext();
+            ImageIngest.ingest(appContext, photoUri, ImageHelper.placePhotoFileName(placeId),
+                    new ImageIngest.Callback() {
+                        @Override
+                        public void onIngested(ImageIngest.Result result) {
+                            place.setPhotoUrl(result.imagePath);
+                            placeRepository.updatePlace(place);
+                        }
+
+                        @Override
+                        public void onError(String message) {
+                            Toast.makeText(appContext, "Error al guardar foto", Toast.LENGTH_SHORT).show();
+                        }
+                    });
         }
 
         // Actualizar en la base de datos
@@ -15,7 +15,11 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import com.pascm.fintrack.R;
 import com.pascm.fintrack.data.local.entity.Merchant;
 import com.pascm.fintrack.data.repository.PlaceRepository;
+import com.pascm.fintrack.data.repository.ReferenceDataCache;
 import com.pascm.fintrack.databinding.FragmentLugaresBinding;
+import com.pascm.fintrack.util.SessionManager;
+
+import java.util.List;
 
 public class LugaresFragment extends Fragment {
 
@@ -99,8 +103,11 @@ public class LugaresFragment extends Fragment {
     }
 
     private void loadPlaces() {
-        placeRepository.getAllPlaces().observe(getViewLifecycleOwner(), places -> {
-            if (places != null && !places.isEmpty()) {
+        long userId = SessionManager.getUserId(requireContext());
+        ReferenceDataCache.getInstance(requireContext()).observe(userId).observe(getViewLifecycleOwner(), data -> {
+            if (data == null) return; // Primera carga en curso
+            List<Merchant> places = data.merchants;
+            if (!places.isEmpty()) {
                 placeAdapter.setPlaces(places);
                 binding.noPlacesView.setVisibility(View.GONE);
                 binding.placesListView.setVisibility(View.VISIBLE);
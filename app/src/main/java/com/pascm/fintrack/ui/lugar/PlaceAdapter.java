@@ -1,6 +1,5 @@
 package com.pascm.fintrack.ui.lugar;
 
-import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,7 +11,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.pascm.fintrack.R;
 import com.pascm.fintrack.data.local.entity.Merchant;
-import com.pascm.fintrack.util.ImageHelper;
+import com.pascm.fintrack.util.ImageLoader;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -54,6 +53,11 @@ public class PlaceAdapter extends RecyclerView.Adapter<PlaceAdapter.PlaceViewHol
         holder.bind(place, listener);
     }
 
+    @Override
+    public void onViewRecycled(@NonNull PlaceViewHolder holder) {
+        ImageLoader.getInstance(holder.itemView.getContext()).cancel(holder.imgPlacePhoto);
+    }
+
     @Override
     public int getItemCount() {
         return places.size();
@@ -78,20 +82,12 @@ public class PlaceAdapter extends RecyclerView.Adapter<PlaceAdapter.PlaceViewHol
         }
 
         public void bind(Merchant place, OnPlaceActionListener listener) {
-            // Cargar foto del lugar
-            if (place.getPhotoUrl() != null && !place.getPhotoUrl().isEmpty()) {
-                Bitmap bitmap = ImageHelper.loadBitmapFromPath(place.getPhotoUrl());
-                if (bitmap != null) {
-                    imgPlacePhoto.setImageBitmap(bitmap);
-                    imgPlacePhoto.setScaleType(ImageView.ScaleType.CENTER_CROP);
-                } else {
-                    imgPlacePhoto.setImageResource(R.drawable.ic_location);
-                    imgPlacePhoto.setScaleType(ImageView.ScaleType.CENTER);
-                }
-            } else {
-                imgPlacePhoto.setImageResource(R.drawable.ic_location);
-                imgPlacePhoto.setScaleType(ImageView.ScaleType.CENTER);
-            }
+            // Cargar foto del lugar (miniatura en segundo plano)
+            imgPlacePhoto.setScaleType(ImageView.ScaleType.CENTER);
+            ImageLoader.getInstance(itemView.getContext()).load(imgPlacePhoto, place.getPhotoUrl(),
+                    ImageLoader.SIZE_THUMBNAIL, R.drawable.ic_location,
+                    success -> imgPlacePhoto.setScaleType(success
+                            ? ImageView.ScaleType.CENTER_CROP : ImageView.ScaleType.CENTER));
 
             // Nombre del lugar
             txtPlaceName.setText(place.getName());
@@ -3,11 +3,13 @@ package com.pascm.fintrack.ui.movimiento;
 import android.Manifest;
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -36,12 +38,12 @@ import com.pascm.fintrack.data.local.entity.Merchant;
 import com.pascm.fintrack.data.local.entity.Transaction;
 import com.pascm.fintrack.data.repository.CardRepository;
 import com.pascm.fintrack.data.repository.PlaceRepository;
+import com.pascm.fintrack.data.repository.ReferenceDataCache;
 import com.pascm.fintrack.data.repository.TransactionRepository;
 import com.pascm.fintrack.data.repository.TripRepository;
-import com.pascm.fintrack.data.repository.UserRepository;
 import com.pascm.fintrack.databinding.FragmentAgregarMovimientoBinding;
 import com.pascm.fintrack.model.PaymentMethod;
-import com.pascm.fintrack.util.ImageHelper;
+import com.pascm.fintrack.util.ImageIngest;
 import com.pascm.fintrack.util.LocationPermissionHelper;
 import com.pascm.fintrack.util.SessionManager;
 
@@ -52,6 +54,8 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
@@ -61,7 +65,6 @@ public class AgregarMovimientoFragment extends Fragment {
     private TransactionRepository transactionRepository;
     private TripRepository tripRepository;
     private CardRepository cardRepository;
-    private UserRepository userRepository;
     private PlaceRepository placeRepository;
     private FusedLocationProviderClient fusedLocationClient;
 
@@ -94,6 +97,9 @@ public class AgregarMovimientoFragment extends Fragment {
 
     private static final int CAMERA_PERMISSION_REQUEST_CODE = 1002;
 
+    // Distancia máxima para reconocer la ubicación GPS como un lugar guardado
+    private static final double NEAREST_PLACE_METERS = 75;
+
     // Default currency code for transactions
     private String userCurrencyCode = "MXN";
 
@@ -122,22 +128,12 @@ public class AgregarMovimientoFragment extends Fragment {
         transactionRepository = new TransactionRepository(requireContext());
         tripRepository = new TripRepository(requireContext());
         cardRepository = new CardRepository(requireContext());
-        userRepository = new UserRepository(requireContext());
         placeRepository = new PlaceRepository(requireContext());
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(requireContext());
 
-        // Obtener moneda por defecto del usuario
-        long userId = SessionManager.getUserId(requireContext());
-        userRepository.getUserProfile(userId).observe(getViewLifecycleOwner(), profile -> {
-            if (profile != null && profile.getDefaultCurrency() != null && !profile.getDefaultCurrency().isEmpty()) {
-                userCurrencyCode = profile.getDefaultCurrency();
-            }
-        });
-
         setupTypeButtons();
         updateDateDisplay();
-        loadPaymentMethods();
-        loadCategories();
+        loadReferenceData();
 
         // Botón cerrar (X) - regresa al Home
         binding.btnClose.setOnClickListener(v ->
@@ -301,6 +297,7 @@ public class AgregarMovimientoFragment extends Fragment {
                         selectedMerchantId = null;
 
                         updateLocationIndicator();
+                        matchNearestPlace();
                         Toast.makeText(requireContext(), "Ubicación GPS obtenida", Toast.LENGTH_SHORT).show();
                     } else {
                         // Fallback: intentar con último conocido
@@ -331,6 +328,7 @@ public class AgregarMovimientoFragment extends Fragment {
                         selectedMerchantId = null;
 
                         updateLocationIndicator();
+                        matchNearestPlace();
                         Toast.makeText(requireContext(), "Ubicación obtenida", Toast.LENGTH_SHORT).show();
                     } else {
                         Toast.makeText(requireContext(),
@@ -475,64 +473,63 @@ public class AgregarMovimientoFragment extends Fragment {
         binding.tvDate.setText(selectedDate.format(dateFormatter));
     }
 
-    private void loadPaymentMethods() {
+    /**
+     * Tarjetas, categorías y moneda del usuario desde la caché compartida: sin
+     * consultas si no cambiaron desde la última vez que se abrió la pantalla
+     */
+    private void loadReferenceData() {
         long userId = SessionManager.getUserId(requireContext());
+        ReferenceDataCache.getInstance(requireContext()).observe(userId)
+                .observe(getViewLifecycleOwner(), data -> {
+                    if (data == null) return;
+
+                    // Moneda por defecto del usuario
+                    if (data.getDefaultCurrency() != null) {
+                        userCurrencyCode = data.getDefaultCurrency();
+                    }
+                    loadPaymentMethods(data);
+                    loadCategories(data);
+                });
+    }
+
+    private void loadPaymentMethods(ReferenceDataCache.Snapshot data) {
+        paymentMethods.clear();
 
         // Siempre agregar efectivo como primera opción
         paymentMethods.add(new PaymentMethod());
 
-        // Cargar tarjetas de crédito
-        cardRepository.getAllCreditCards(userId).observe(getViewLifecycleOwner(), creditCards -> {
-            if (creditCards != null && !creditCards.isEmpty()) {
-                for (CreditCardEntity card : creditCards) {
-                    String displayName = card.getIssuer() + " - " + card.getLabel();
-                    String details = "•••• " + (card.getPanLast4() != null ? card.getPanLast4() : "0000");
-                    paymentMethods.add(new PaymentMethod(
-                            PaymentMethod.Type.CREDIT_CARD,
-                            card.getCardId(),
-                            displayName,
-                            details
-                    ));
-                }
-            }
-            updatePaymentMethodSpinner();
-        });
+        // Tarjetas de crédito
+        for (CreditCardEntity card : data.creditCards) {
+            String displayName = card.getIssuer() + " - " + card.getLabel();
+            String details = "•••• " + (card.getPanLast4() != null ? card.getPanLast4() : "0000");
+            paymentMethods.add(new PaymentMethod(
+                    PaymentMethod.Type.CREDIT_CARD,
+                    card.getCardId(),
+                    displayName,
+                    details
+            ));
+        }
 
-        // Cargar tarjetas de débito
-        cardRepository.getAllDebitCards(userId).observe(getViewLifecycleOwner(), debitCards -> {
-            if (debitCards != null && !debitCards.isEmpty()) {
-                for (DebitCardEntity card : debitCards) {
-                    String displayName = card.getIssuer() + " - " + card.getLabel();
-                    String details = "•••• " + (card.getPanLast4() != null ? card.getPanLast4() : "0000");
-                    paymentMethods.add(new PaymentMethod(
-                            PaymentMethod.Type.DEBIT_CARD,
-                            card.getCardId(),
-                            displayName,
-                            details
-                    ));
-                }
-            }
-            updatePaymentMethodSpinner();
-        });
+        // Tarjetas de débito
+        for (DebitCardEntity card : data.debitCards) {
+            String displayName = card.getIssuer() + " - " + card.getLabel();
+            String details = "•••• " + (card.getPanLast4() != null ? card.getPanLast4() : "0000");
+            paymentMethods.add(new PaymentMethod(
+                    PaymentMethod.Type.DEBIT_CARD,
+                    card.getCardId(),
+                    displayName,
+                    details
+            ));
+        }
+
+        updatePaymentMethodSpinner();
     }
 
-    private void loadCategories() {
-        // Cargar todas las categorías de la base de datos en background
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            try {
-                FinTrackDatabase db = FinTrackDatabase.getDatabase(requireContext());
-                List<com.pascm.fintrack.data.local.entity.Category> categories = db.categoryDao().getAllByUserSync();
-
-                if (categories != null) {
-                    categoryNameToIdMap.clear();
-                    for (com.pascm.fintrack.data.local.entity.Category cat : categories) {
-                        categoryNameToIdMap.put(cat.getName(), cat.getCategoryId());
-                    }
-                }
-            } catch (Exception e) {
-                android.util.Log.e("AgregarMovimiento", "Error loading categories: " + e.getMessage());
-            }
-        });
+    private void loadCategories(ReferenceDataCache.Snapshot data) {
+        categoryNameToIdMap.clear();
+        for (com.pascm.fintrack.data.local.entity.Category cat : data.categories) {
+            categoryNameToIdMap.put(cat.getName(), cat.getCategoryId());
+        }
     }
 
     private void updatePaymentMethodSpinner() {
@@ -633,7 +630,7 @@ public class AgregarMovimientoFragment extends Fragment {
             }
 
             // Validar saldo suficiente antes de transferir
-            FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            FinTrackDatabase.databaseReadExecutor.execute(() -> {
                 boolean hasEnoughBalance = checkBalanceAvailability(selectedPaymentMethod, amount);
 
                 requireActivity().runOnUiThread(() -> {
@@ -650,7 +647,7 @@ public class AgregarMovimientoFragment extends Fragment {
 
         // Validar saldo suficiente para gastos
         if (selectedType == Transaction.TransactionType.EXPENSE) {
-            FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            FinTrackDatabase.databaseReadExecutor.execute(() -> {
                 boolean hasEnoughBalance = checkBalanceAvailability(selectedPaymentMethod, amount);
 
                 requireActivity().runOnUiThread(() -> {
@@ -710,59 +707,13 @@ public class AgregarMovimientoFragment extends Fragment {
         }
     }
 
-    private void updateBalances(Transaction transaction, PaymentMethod paymentMethod) {
-        double effectiveAmount = transaction.getAmount();
-        if (transaction.getType() == Transaction.TransactionType.EXPENSE) {
-            effectiveAmount = -effectiveAmount;
-        }
-
-        switch (paymentMethod.getType()) {
-            case CREDIT_CARD:
-                updateCreditCardBalance(paymentMethod.getEntityId(), effectiveAmount);
-                break;
-            case DEBIT_CARD:
-                updateDebitCardBalance(paymentMethod.getEntityId(), effectiveAmount);
-                break;
-            case CASH:
-                updateCashAccountBalance(effectiveAmount);
-                break;
-        }
-    }
-
-    private void updateCashAccountBalance(double delta) {
-        long userId = SessionManager.getUserId(requireContext());
-        FinTrackDatabase db = FinTrackDatabase.getDatabase(requireContext());
-        var accountDao = db.accountDao();
-        var accounts = accountDao.getAllByUserSync(userId);
-        Account cash = null;
-        if (accounts != null) {
-            for (Account acc : accounts) {
-                if (acc.getType() == Account.AccountType.CASH && !acc.isArchived()) {
-                    cash = acc;
-                    break;
-                }
-            }
-        }
-        if (cash == null) {
-            // Crear cuenta de efectivo por defecto si no existe
-            cash = new Account();
-            cash.setUserId(userId);
-            cash.setName("Efectivo");
-            cash.setType(Account.AccountType.CASH);
-            cash.setCurrencyCode(userCurrencyCode != null ? userCurrencyCode : "MXN");
-            cash.setBalance(0.0);
-            cash.setAvailable(0.0);
-            long id = accountDao.insert(cash);
-            cash.setAccountId(id);
-        }
-        double newBalance = Math.max(0, cash.getBalance() + delta);
-        accountDao.updateBalance(cash.getAccountId(), newBalance, java.time.Instant.now().toEpochMilli());
-    }
-
-    private long getOrCreateCashAccountId() {
-        long userId = SessionManager.getUserId(requireContext());
-        FinTrackDatabase db = FinTrackDatabase.getDatabase(requireContext());
-        var accountDao = db.accountDao();
+    /**
+     * Cuenta de efectivo del usuario, creándola si no existe.
+     * Se llama dentro del lote de escritura: lee por el DAO, nunca de ReferenceDataCache,
+     * que guardaría filas aún sin confirmar (y que pueden revertirse).
+     */
+    private long getOrCreateCashAccountId(Context context, long userId) {
+        var accountDao = FinTrackDatabase.getDatabase(context).accountDao();
         var accounts = accountDao.getAllByUserSync(userId);
         if (accounts != null) {
             for (Account acc : accounts) {
@@ -777,8 +728,7 @@ public class AgregarMovimientoFragment extends Fragment {
         cash.setName("Efectivo");
         cash.setType(Account.AccountType.CASH);
         cash.setCurrencyCode(userCurrencyCode != null ? userCurrencyCode : "MXN");
-        long id = accountDao.insert(cash);
-        return id;
+        return accountDao.insert(cash);
     }
 
     private void proceedWithSaveTransaction(double amount) {
@@ -815,6 +765,7 @@ public class AgregarMovimientoFragment extends Fragment {
         if (hasLocation && currentLatitude != null && currentLongitude != null) {
             transaction.setLatitude(currentLatitude);
             transaction.setLongitude(currentLongitude);
+            transaction.setMerchantId(selectedMerchantId);
         }
 
         // Convertir LocalDate a Instant para transactionDate
@@ -840,7 +791,7 @@ public class AgregarMovimientoFragment extends Fragment {
 
         // Verificar si hay viaje activo y preguntar solo para gastos
         if (selectedType == Transaction.TransactionType.EXPENSE) {
-            FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            FinTrackDatabase.databaseReadExecutor.execute(() -> {
                 try {
                     var activeTrip = tripRepository.getActiveTripSync(userId);
                     if (activeTrip != null) {
@@ -898,48 +849,6 @@ public class AgregarMovimientoFragment extends Fragment {
             .show();
     }
 
-    /**
-     * Actualiza el saldo de una tarjeta de crédito
-     * Para gastos: incrementa el balance (deuda)
-     * Para ingresos (pagos): disminuye el balance (deuda)
-     */
-    private void updateCreditCardBalance(long cardId, double amount) {
-        CreditCardEntity card = cardRepository.getCreditCardByIdSync(cardId);
-        if (card != null) {
-            // En tarjetas de crédito:
-            // - Gasto (amount negativo) aumenta la deuda: balance aumenta
-            // - Pago (amount positivo) reduce la deuda: balance disminuye
-            double newBalance = card.getCurrentBalance() - amount; // Invertimos porque amount ya tiene el signo
-            newBalance = Math.max(0, newBalance); // No permitir balance negativo
-            newBalance = Math.min(card.getCreditLimit(), newBalance); // No exceder el límite
-
-            cardRepository.updateCardBalance(cardId, newBalance);
-        }
-    }
-
-    /**
-     * Actualiza el saldo de una cuenta vinculada a tarjeta de débito
-     * Para gastos: disminuye el saldo de la cuenta
-     * Para ingresos: aumenta el saldo de la cuenta
-     */
-    private void updateDebitCardBalance(long cardId, double amount) {
-        DebitCardEntity card = cardRepository.getDebitCardByIdSync(cardId);
-        if (card != null) {
-            long accountId = card.getAccountId();
-
-            // Obtener la cuenta y actualizar su saldo
-            FinTrackDatabase db = FinTrackDatabase.getDatabase(requireContext());
-            var account = db.accountDao().getByIdSync(accountId);
-
-            if (account != null) {
-                double newBalance = account.getBalance() + amount; // amount ya tiene el signo correcto
-                newBalance = Math.max(0, newBalance); // No permitir balance negativo
-
-                db.accountDao().updateBalance(accountId, newBalance, Instant.now().toEpochMilli());
-            }
-        }
-    }
-
     /**
      * Procesa una transferencia entre cuentas propias del usuario
      */
@@ -963,58 +872,54 @@ public class AgregarMovimientoFragment extends Fragment {
         long userId = SessionManager.getUserId(requireContext());
         Instant transactionDate = selectedDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
 
-        // Ejecutar transferencia
+        // Ejecutar transferencia; los avisos, después del commit
+        Context appContext = requireContext().getApplicationContext();
+        Activity activity = requireActivity();
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            try {
-                // Crear transacción de salida (origen)
-                Transaction outTransaction = createTransferTransaction(
-                        userId,
-                        amount,
-                        Transaction.TransactionType.EXPENSE,
-                        selectedPaymentMethod,
-                        transactionDate,
-                        finalTransferNote + " [Salida]"
-                );
-
-                // Crear transacción de entrada (destino)
-                Transaction inTransaction = createTransferTransaction(
-                        userId,
-                        amount,
-                        Transaction.TransactionType.INCOME,
-                        selectedPaymentMethodTo,
-                        transactionDate,
-                        finalTransferNote + " [Entrada]"
-                );
-
-                // Guardar ambas transacciones
-                transactionRepository.insertTransaction(outTransaction);
-                transactionRepository.insertTransaction(inTransaction);
-
-                // Actualizar saldos
-                updateBalances(outTransaction, selectedPaymentMethod);
-                updateBalances(inTransaction, selectedPaymentMethodTo);
+            // Crear transacción de salida (origen)
+            Transaction outTransaction = createTransferTransaction(
+                    userId,
+                    amount,
+                    Transaction.TransactionType.EXPENSE,
+                    selectedPaymentMethod,
+                    transactionDate,
+                    finalTransferNote + " [Salida]",
+                    appContext
+            );
 
-                requireActivity().runOnUiThread(() -> {
-                    String successMessage = "Transferencia realizada: " + selectedPaymentMethod.getDisplayName() +
-                                          " → " + selectedPaymentMethodTo.getDisplayName();
-                    if (hasLocation) successMessage += "\nUbicación GPS guardada";
+            // Crear transacción de entrada (destino)
+            Transaction inTransaction = createTransferTransaction(
+                    userId,
+                    amount,
+                    Transaction.TransactionType.INCOME,
+                    selectedPaymentMethodTo,
+                    transactionDate,
+                    finalTransferNote + " [Entrada]",
+                    appContext
+            );
 
-                    Toast.makeText(requireContext(), successMessage, Toast.LENGTH_LONG).show();
-                    Navigation.findNavController(requireView()).navigateUp();
-                });
-            } catch (Exception e) {
-                requireActivity().runOnUiThread(() -> {
-                    Toast.makeText(requireContext(), "Error en transferencia: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                });
-            }
-        });
+            // Guardar ambas transacciones y mover ambos saldos en una sola unidad
+            transactionRepository.postTransactionsSync(Arrays.asList(outTransaction, inTransaction));
+        }, () -> activity.runOnUiThread(() -> {
+            if (!isAdded()) return;
+            String successMessage = "Transferencia realizada: " + selectedPaymentMethod.getDisplayName() +
+                                  " → " + selectedPaymentMethodTo.getDisplayName();
+            if (hasLocation) successMessage += "\nUbicación GPS guardada";
+
+            Toast.makeText(requireContext(), successMessage, Toast.LENGTH_LONG).show();
+            Navigation.findNavController(requireView()).navigateUp();
+        }), e -> activity.runOnUiThread(() -> {
+            if (!isAdded()) return;
+            Toast.makeText(requireContext(), "Error en transferencia: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }));
     }
 
     /**
      * Crea una transacción para transferencia
      */
     private Transaction createTransferTransaction(long userId, double amount, Transaction.TransactionType type,
-                                         PaymentMethod method, Instant date, String notes) {
+                                         PaymentMethod method, Instant date, String notes,
+                                         Context context) {
         Transaction transaction = new Transaction();
         transaction.setUserId(userId);
         transaction.setAmount(amount);
@@ -1037,7 +942,7 @@ public class AgregarMovimientoFragment extends Fragment {
                 break;
             case CASH:
                 transaction.setCardType("CASH");
-                // AccountId para CASH se asignará en background thread
+                transaction.setAccountId(getOrCreateCashAccountId(context, userId));
                 break;
         }
 
@@ -1045,55 +950,91 @@ public class AgregarMovimientoFragment extends Fragment {
     }
 
     private void saveTransactionDirectly(Transaction transaction, PaymentMethod paymentMethod) {
+        Context appContext = requireContext().getApplicationContext();
+        Activity activity = requireActivity();
+        // La escritura puede repetirse si su lote se revierte: partir siempre de lo que dio el formulario
+        Long formAccountId = transaction.getAccountId();
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            try {
-                // Si es CASH o DEBIT, asignar el accountId ahora que estamos en background thread
-                if (paymentMethod.getType() == PaymentMethod.Type.CASH && transaction.getAccountId() == null) {
-                    transaction.setAccountId(getOrCreateCashAccountId());
-                } else if (paymentMethod.getType() == PaymentMethod.Type.DEBIT_CARD && transaction.getAccountId() == null) {
-                    DebitCardEntity dc = cardRepository.getDebitCardByIdSync(paymentMethod.getEntityId());
-                    if (dc != null) transaction.setAccountId(dc.getAccountId());
-                }
+            transaction.setTransactionId(0);
+            transaction.setAccountId(formAccountId);
+
+            // Si es CASH o DEBIT, asignar el accountId ahora que estamos en background thread
+            if (paymentMethod.getType() == PaymentMethod.Type.CASH && transaction.getAccountId() == null) {
+                transaction.setAccountId(getOrCreateCashAccountId(appContext, transaction.getUserId()));
+            } else if (paymentMethod.getType() == PaymentMethod.Type.DEBIT_CARD && transaction.getAccountId() == null) {
+                DebitCardEntity dc = cardRepository.getDebitCardByIdSync(paymentMethod.getEntityId());
+                if (dc != null) transaction.setAccountId(dc.getAccountId());
+            }
 
-                long transactionId = transactionRepository.insertTransactionSync(transaction);
+            // Guardar la transacción y actualizar el saldo del método de pago en una sola unidad
+            transactionRepository.postTransactionsSync(Collections.singletonList(transaction));
+        }, () -> {
+            // Ya confirmada: guardar foto si existe (en su propio worker, sin bloquear la cola de escritura)
+            if (hasPhoto && selectedPhotoUri != null) {
+                ImageIngest.ingest(appContext, selectedPhotoUri,
+                        "transaction_" + transaction.getTransactionId() + "_" + System.currentTimeMillis() + ".jpg",
+                        new ImageIngest.Callback() {
+                            @Override
+                            public void onIngested(ImageIngest.Result result) {
+                                transactionRepository.addAttachment(transaction.getTransactionId(), result.imagePath);
+                            }
 
-                // Guardar foto si existe
-                if (hasPhoto && selectedPhotoUri != null) {
-                    String photoPath = com.pascm.fintrack.util.ImageHelper.saveImageToInternalStorage(
-                            requireContext(),
-                            selectedPhotoUri,
-                            "transaction_" + transactionId + "_" + System.currentTimeMillis() + ".jpg"
-                    );
-                    // TODO: persistir photoPath en la entidad (no implementado aún)
-                }
+                            @Override
+                            public void onError(String message) {
+                                Log.e("AgregarMovimiento", "Error saving transaction photo: " + message);
+                            }
+                        });
+            }
 
-                // Actualizar saldos según método de pago
-                updateBalances(transaction, paymentMethod);
+            activity.runOnUiThread(() -> {
+                if (!isAdded()) return;
+                Transaction.TransactionType currentType = transaction.getType();
+                String typeText = currentType == Transaction.TransactionType.INCOME ? "Ingreso" :
+                        currentType == Transaction.TransactionType.EXPENSE ? "Gasto" : "Transferencia";
+                String paymentText = paymentMethod.getDisplayName();
+                StringBuilder successMessage = new StringBuilder(typeText + " guardado - " + paymentText);
+                if (hasPhoto) successMessage.append("\nFoto adjunta");
+                if (hasLocation && currentType == Transaction.TransactionType.EXPENSE) successMessage.append("\nUbicación GPS guardada");
+                if (transaction.getTripId() != null) successMessage.append("\nAsociado al viaje");
+
+                Toast.makeText(requireContext(), successMessage.toString(), Toast.LENGTH_LONG).show();
+
+                // Preguntar si desea guardar el lugar como frecuente (solo para gastos con ubicación)
+                if (currentType == Transaction.TransactionType.EXPENSE && hasLocation) {
+                    askToSavePlaceAsFrequent(transaction);
+                } else {
+                    Navigation.findNavController(requireView()).navigateUp();
+                }
+            });
+        }, e -> activity.runOnUiThread(() -> {
+            if (!isAdded()) return;
+            Toast.makeText(requireContext(), "Error al guardar: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }));
+    }
 
-                requireActivity().runOnUiThread(() -> {
-                    Transaction.TransactionType currentType = transaction.getType();
-                    String typeText = currentType == Transaction.TransactionType.INCOME ? "Ingreso" :
-                            currentType == Transaction.TransactionType.EXPENSE ? "Gasto" : "Transferencia";
-                    String paymentText = paymentMethod.getDisplayName();
-                    StringBuilder successMessage = new StringBuilder(typeText + " guardado - " + paymentText);
-                    if (hasPhoto) successMessage.append("\nFoto adjunta");
-                    if (hasLocation && currentType == Transaction.TransactionType.EXPENSE) successMessage.append("\nUbicación GPS guardada");
-                    if (transaction.getTripId() != null) successMessage.append("\nAsociado al viaje");
-
-                    Toast.makeText(requireContext(), successMessage.toString(), Toast.LENGTH_LONG).show();
-
-                    // Preguntar si desea guardar el lugar como frecuente (solo para gastos con ubicación)
-                    if (currentType == Transaction.TransactionType.EXPENSE && hasLocation) {
-                        askToSavePlaceAsFrequent(transaction);
-                    } else {
-                        Navigation.findNavController(requireView()).navigateUp();
-                    }
-                });
-            } catch (Exception e) {
-                requireActivity().runOnUiThread(() ->
-                        Toast.makeText(requireContext(), "Error al guardar: " + e.getMessage(), Toast.LENGTH_LONG).show()
-                );
-            }
+    /**
+     * Busca el lugar guardado más cercano a la ubicación GPS (índice espacial) y, si
+     * está a menos de NEAREST_PLACE_METERS, lo asigna al movimiento
+     */
+    private void matchNearestPlace() {
+        final double latitude = currentLatitude;
+        final double longitude = currentLongitude;
+        FinTrackDatabase.databaseReadExecutor.execute(() -> {
+            List<Merchant> nearest = placeRepository.getNearestPlacesSync(latitude, longitude, 1, NEAREST_PLACE_METERS);
+            if (nearest.isEmpty() || !isAdded()) return;
+
+            Merchant place = nearest.get(0);
+            requireActivity().runOnUiThread(() -> {
+                // Ignorar si la ubicación cambió mientras se buscaba
+                if (binding == null || selectedMerchantId != null
+                        || currentLatitude == null || currentLatitude != latitude
+                        || currentLongitude == null || currentLongitude != longitude) {
+                    return;
+                }
+                selectedPlaceName = place.getName();
+                selectedMerchantId = place.getMerchantId();
+                updateLocationIndicator();
+            });
         });
     }
 
@@ -1193,23 +1134,27 @@ public class AgregarMovimientoFragment extends Fragment {
                     hasLocation = true;
                     selectedPlaceName = place.getName();
 
-                    // Guardar la foto si existe
-                    if (photoUri != null) {
-                        try {
-                            String photoPath = ImageHelper.saveImageToInternalStorage(
-                                    requireContext(),
-                                    photoUri,
-                                    "place_" + System.currentTimeMillis() + ".jpg"
-                            );
-                            place.setPhotoUrl(photoPath);
-                        } catch (Exception e) {
-                            android.util.Log.e("AgregarMovimiento", "Error saving place photo: " + e.getMessage());
-                        }
-                    }
-
-                    // Guardar el lugar en la base de datos
+                    // Guardar el lugar en la base de datos; la foto se procesa en segundo plano
+                    // y se asocia al lugar cuando termina
+                    Context appContext = requireContext().getApplicationContext();
                     placeRepository.insertPlace(place, id -> {
                         selectedMerchantId = id;
+                        if (photoUri != null) {
+                            place.setMerchantId(id);
+                            ImageIngest.ingest(appContext, photoUri, "place_" + id + "_" + System.currentTimeMillis() + ".jpg",
+                                    new ImageIngest.Callback() {
+                                        @Override
+                                        public void onIngested(ImageIngest.Result result) {
+                                            place.setPhotoUrl(result.imagePath);
+                                            placeRepository.updatePlace(place);
+                                        }
+
+                                        @Override
+                                        public void onError(String message) {
+                                            Log.e("AgregarMovimiento", "Error saving place photo: " + message);
+                                        }
+                                    });
+                        }
                         requireActivity().runOnUiThread(() -> {
                             updateLocationIndicator();
                             Toast.makeText(requireContext(), "Lugar registrado: " + place.getName(), Toast.LENGTH_SHORT).show();
@@ -1,5 +1,6 @@
 package com.pascm.fintrack.ui.movimiento;
 
+import android.app.Activity;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -29,6 +30,7 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
@@ -285,7 +287,7 @@ public class TransferenciaFragment extends Fragment {
 
         // Validar saldo suficiente en cuenta origen
         final double finalAmount = amount;
-        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+        FinTrackDatabase.databaseReadExecutor.execute(() -> {
             boolean hasEnoughBalance = checkBalanceAvailability(fromMethod, finalAmount);
 
             requireActivity().runOnUiThread(() -> {
@@ -369,20 +371,6 @@ public class TransferenciaFragment extends Fragment {
         return transaction;
     }
 
-    private void updateBalanceForTransfer(PaymentMethod method, double amount) {
-        switch (method.getType()) {
-            case CREDIT_CARD:
-                updateCreditCardBalance(method.getEntityId(), amount);
-                break;
-            case DEBIT_CARD:
-                updateDebitCardBalance(method.getEntityId(), amount);
-                break;
-            case CASH:
-                updateCashAccountBalance(amount);
-                break;
-        }
-    }
-
     private long getOrCreateCashAccountId() {
         long userId = SessionManager.getUserId(requireContext());
         FinTrackDatabase db = FinTrackDatabase.getDatabase(requireContext());
@@ -405,34 +393,6 @@ public class TransferenciaFragment extends Fragment {
         return id;
     }
 
-    private void updateCashAccountBalance(double delta) {
-        long userId = SessionManager.getUserId(requireContext());
-        FinTrackDatabase db = FinTrackDatabase.getDatabase(requireContext());
-        var accountDao = db.accountDao();
-        var accounts = accountDao.getAllByUserSync(userId);
-        Account cash = null;
-        if (accounts != null) {
-            for (Account acc : accounts) {
-                if (acc.getType() == Account.AccountType.CASH && !acc.isArchived()) {
-                    cash = acc;
-                    break;
-                }
-            }
-        }
-        if (cash == null) {
-            cash = new Account();
-            cash.setUserId(userId);
-            cash.setName("Efectivo");
-            cash.setType(Account.AccountType.CASH);
-            cash.setCurrencyCode("MXN");
-            cash.setBalance(0.0);
-            long id = accountDao.insert(cash);
-            cash.setAccountId(id);
-        }
-        double newBalance = Math.max(0, cash.getBalance() + delta);
-        accountDao.updateBalance(cash.getAccountId(), newBalance, java.time.Instant.now().toEpochMilli());
-    }
-
     private void proceedWithTransfer(double amount) {
         String notes = binding.etNote.getText().toString().trim();
         String baseNote = notes.isEmpty() ? "Transferencia de " + fromMethod.getDisplayName() + " a " + toMethod.getDisplayName() : notes;
@@ -440,53 +400,23 @@ public class TransferenciaFragment extends Fragment {
         long userId = SessionManager.getUserId(requireContext());
         Instant date = selectedDate.atStartOfDay(ZoneId.systemDefault()).toInstant();
 
-        // Crear transacciones (salida y entrada)
-        Transaction outTx = createTransaction(userId, amount, Transaction.TransactionType.EXPENSE, fromMethod, date, baseNote + " [Salida]");
-        Transaction inTx = createTransaction(userId, amount, Transaction.TransactionType.INCOME, toMethod, date, baseNote + " [Entrada]");
-
+        // Los avisos, después del commit
+        Activity activity = requireActivity();
         FinTrackDatabase.databaseWriteExecutor.execute(() -> {
-            try {
-                transactionRepository.insertTransaction(outTx);
-                transactionRepository.insertTransaction(inTx);
-
-                // Actualizar saldos (origen negativo, destino positivo)
-                updateBalanceForTransfer(fromMethod, -amount);
-                updateBalanceForTransfer(toMethod, amount);
-
-                requireActivity().runOnUiThread(() -> {
-                    Toast.makeText(requireContext(), "Transferencia realizada", Toast.LENGTH_LONG).show();
-                    Navigation.findNavController(requireView()).navigateUp();
-                });
-            } catch (Exception e) {
-                requireActivity().runOnUiThread(() ->
-                        Toast.makeText(requireContext(), "Error al transferir: " + e.getMessage(), Toast.LENGTH_LONG).show()
-                );
-            }
-        });
-    }
-
-    private void updateCreditCardBalance(long cardId, double amount) {
-        CreditCardEntity card = cardRepository.getCreditCardByIdSync(cardId);
-        if (card != null) {
-            double newBalance = card.getCurrentBalance() - amount; // amount positivo reduce deuda; negativo aumenta deuda
-            newBalance = Math.max(0, newBalance);
-            newBalance = Math.min(card.getCreditLimit(), newBalance);
-            cardRepository.updateCardBalance(cardId, newBalance);
-        }
-    }
-
-    private void updateDebitCardBalance(long cardId, double amount) {
-        DebitCardEntity card = cardRepository.getDebitCardByIdSync(cardId);
-        if (card != null) {
-            long accountId = card.getAccountId();
-            FinTrackDatabase db = FinTrackDatabase.getDatabase(requireContext());
-            var account = db.accountDao().getByIdSync(accountId);
-            if (account != null) {
-                double newBalance = account.getBalance() + amount; // amount negativo resta, positivo suma
-                newBalance = Math.max(0, newBalance);
-                db.accountDao().updateBalance(accountId, newBalance, Instant.now().toEpochMilli());
-            }
-        }
+            // Crear transacciones (salida y entrada); en background porque resuelven cuentas
+            Transaction outTx = createTransaction(userId, amount, Transaction.TransactionType.EXPENSE, fromMethod, date, baseNote + " [Salida]");
+            Transaction inTx = createTransaction(userId, amount, Transaction.TransactionType.INCOME, toMethod, date, baseNote + " [Entrada]");
+
+            // Guardar ambas transacciones y mover ambos saldos (origen y destino) en una sola unidad
+            transactionRepository.postTransactionsSync(Arrays.asList(outTx, inTx));
+        }, () -> activity.runOnUiThread(() -> {
+            if (!isAdded()) return;
+            Toast.makeText(requireContext(), "Transferencia realizada", Toast.LENGTH_LONG).show();
+            Navigation.findNavController(requireView()).navigateUp();
+        }), e -> activity.runOnUiThread(() -> {
+            if (!isAdded()) return;
+            Toast.makeText(requireContext(), "Error al transferir: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }));
     }
 
     @Override
@@ -7,6 +7,8 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.pascm.fintrack.R;
@@ -21,14 +23,76 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
-public class NotificationsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+public class NotificationsAdapter extends ListAdapter<Object, RecyclerView.ViewHolder> {
 
     private static final int VIEW_TYPE_HEADER = 0;
     private static final int VIEW_TYPE_NOTIFICATION = 1;
     private static final int VIEW_TYPE_GROUP_INVITATION = 2;
 
-    private final List<Object> items; // Can be String (date header) or NotificationEntity
+    /**
+     * Payload: only the read flag changed, so only the unread indicator is updated
+     */
+    private static final Object PAYLOAD_READ = new Object();
+
+    // Items are DateHeader or NotificationEntity
+    private static final DiffUtil.ItemCallback<Object> DIFF_CALLBACK = new DiffUtil.ItemCallback<Object>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof DateHeader && newItem instanceof DateHeader) {
+                return ((DateHeader) oldItem).date.equals(((DateHeader) newItem).date);
+            }
+            if (oldItem instanceof NotificationEntity && newItem instanceof NotificationEntity) {
+                return ((NotificationEntity) oldItem).getNotificationId()
+                        == ((NotificationEntity) newItem).getNotificationId();
+            }
+            return false;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof DateHeader) {
+                return ((DateHeader) oldItem).label.equals(((DateHeader) newItem).label);
+            }
+            NotificationEntity a = (NotificationEntity) oldItem;
+            NotificationEntity b = (NotificationEntity) newItem;
+            return sameContent(a, b) && a.isRead() == b.isRead();
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof NotificationEntity
+                    && sameContent((NotificationEntity) oldItem, (NotificationEntity) newItem)) {
+                return PAYLOAD_READ;
+            }
+            return null;
+        }
+    };
+
+    /**
+     * Everything shown except the read flag
+     */
+    private static boolean sameContent(NotificationEntity a, NotificationEntity b) {
+        return Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getMessage(), b.getMessage())
+                && Objects.equals(a.getType(), b.getType())
+                && Objects.equals(a.getCreatedAt(), b.getCreatedAt());
+    }
+
+    /**
+     * Date separator row
+     */
+    static final class DateHeader {
+        final LocalDate date;
+        final String label;
+
+        DateHeader(LocalDate date, String label) {
+            this.date = date;
+            this.label = label;
+        }
+    }
+
     private OnNotificationClickListener listener;
     private OnInvitationActionListener invitationListener;
 
@@ -42,12 +106,15 @@ public class NotificationsAdapter extends RecyclerView.Adapter<RecyclerView.View
     }
 
     public NotificationsAdapter() {
-        this.items = new ArrayList<>();
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
     }
 
+    /**
+     * Show notifications grouped under date headers. The difference with the
+     * current list is computed in the background and only changed rows are rebound.
+     */
     public void setNotifications(List<NotificationEntity> notifications) {
-        items.clear();
-
         // Group notifications by date
         Map<LocalDate, List<NotificationEntity>> groupedByDate = new LinkedHashMap<>();
 
@@ -63,12 +130,13 @@ public class NotificationsAdapter extends RecyclerView.Adapter<RecyclerView.View
         }
 
         // Build items list with headers
+        List<Object> items = new ArrayList<>(notifications.size() + groupedByDate.size());
         for (Map.Entry<LocalDate, List<NotificationEntity>> entry : groupedByDate.entrySet()) {
-            items.add(formatDate(entry.getKey())); // Add date header
+            items.add(new DateHeader(entry.getKey(), formatDate(entry.getKey()))); // Add date header
             items.addAll(entry.getValue()); // Add notifications for that date
         }
 
-        notifyDataSetChanged();
+        submitList(items);
     }
 
     public void setOnNotificationClickListener(OnNotificationClickListener listener) {
@@ -79,10 +147,20 @@ public class NotificationsAdapter extends RecyclerView.Adapter<RecyclerView.View
         this.invitationListener = listener;
     }
 
+    @Override
+    public long getItemId(int position) {
+        Object item = getItem(position);
+        if (item instanceof DateHeader) {
+            // Negative so they never collide with notification IDs
+            return -1 - ((DateHeader) item).date.toEpochDay();
+        }
+        return ((NotificationEntity) item).getNotificationId();
+    }
+
     @Override
     public int getItemViewType(int position) {
-        Object item = items.get(position);
-        if (item instanceof String) {
+        Object item = getItem(position);
+        if (item instanceof DateHeader) {
             return VIEW_TYPE_HEADER;
         } else if (item instanceof NotificationEntity) {
             NotificationEntity notification = (NotificationEntity) item;
@@ -115,20 +193,36 @@ public class NotificationsAdapter extends RecyclerView.Adapter<RecyclerView.View
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         if (holder instanceof HeaderViewHolder) {
-            String date = (String) items.get(position);
-            ((HeaderViewHolder) holder).bind(date);
+            DateHeader header = (DateHeader) getItem(position);
+            ((HeaderViewHolder) holder).bind(header.label);
         } else if (holder instanceof GroupInvitationViewHolder) {
-            NotificationEntity notification = (NotificationEntity) items.get(position);
+            NotificationEntity notification = (NotificationEntity) getItem(position);
             ((GroupInvitationViewHolder) holder).bind(notification, invitationListener);
         } else if (holder instanceof NotificationViewHolder) {
-            NotificationEntity notification = (NotificationEntity) items.get(position);
+            NotificationEntity notification = (NotificationEntity) getItem(position);
             ((NotificationViewHolder) holder).bind(notification, listener);
         }
     }
 
     @Override
-    public int getItemCount() {
-        return items.size();
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || !onlyReadChanged(payloads)) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+        NotificationEntity notification = (NotificationEntity) getItem(position);
+        if (holder instanceof GroupInvitationViewHolder) {
+            ((GroupInvitationViewHolder) holder).bindRead(notification, invitationListener);
+        } else if (holder instanceof NotificationViewHolder) {
+            ((NotificationViewHolder) holder).bindRead(notification, listener);
+        }
+    }
+
+    private static boolean onlyReadChanged(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_READ) return false;
+        }
+        return true;
     }
 
     private String formatDate(LocalDate date) {
@@ -186,14 +280,19 @@ public class NotificationsAdapter extends RecyclerView.Adapter<RecyclerView.View
             DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("h:mm a");
             tvTime.setText(time.format(timeFormatter));
 
-            // Show/hide unread indicator
-            viewUnreadIndicator.setVisibility(notification.isRead() ? View.GONE : View.VISIBLE);
-
             // Set icon based on notification type
             int iconRes = getIconForType(notification.getType());
             imgIcon.setImageResource(iconRes);
 
-            // Click listener
+            bindRead(notification, listener);
+        }
+
+        /**
+         * Unread indicator, and the click listener so it gets the current entity
+         */
+        void bindRead(NotificationEntity notification, OnNotificationClickListener listener) {
+            viewUnreadIndicator.setVisibility(notification.isRead() ? View.GONE : View.VISIBLE);
+
             itemView.setOnClickListener(v -> {
                 if (listener != null) {
                     listener.onNotificationClick(notification);
@@ -252,13 +351,18 @@ public class NotificationsAdapter extends RecyclerView.Adapter<RecyclerView.View
             DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("h:mm a");
             tvTime.setText(time.format(timeFormatter));
 
-            // Show/hide unread indicator
-            viewUnreadIndicator.setVisibility(notification.isRead() ? View.GONE : View.VISIBLE);
-
             // Set icon
             imgIcon.setImageResource(R.drawable.ic_group_add);
 
-            // Button listeners
+            bindRead(notification, listener);
+        }
+
+        /**
+         * Unread indicator, and the button listeners so they get the current entity
+         */
+        void bindRead(NotificationEntity notification, OnInvitationActionListener listener) {
+            viewUnreadIndicator.setVisibility(notification.isRead() ? View.GONE : View.VISIBLE);
+
             btnAceptar.setOnClickListener(v -> {
                 if (listener != null) {
                     listener.onAcceptInvitation(notification);
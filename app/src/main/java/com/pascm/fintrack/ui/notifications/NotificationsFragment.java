@@ -12,6 +12,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.Toolbar;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.Navigation;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -31,6 +32,7 @@ public class NotificationsFragment extends Fragment {
     private NotificationsAdapter adapter;
     private NotificationRepository notificationRepository;
     private GroupRepository groupRepository;
+    private NotificationsViewModel viewModel;
     private long userId;
 
     @Nullable
@@ -47,6 +49,8 @@ public class NotificationsFragment extends Fragment {
         notificationRepository = new NotificationRepository(requireContext());
         groupRepository = new GroupRepository(requireContext());
         userId = SessionManager.getUserId(requireContext());
+        viewModel = new ViewModelProvider(this).get(NotificationsViewModel.class);
+        viewModel.setUserId(userId);
 
         initViews(view);
         setupListeners(view);
@@ -104,7 +108,7 @@ public class NotificationsFragment extends Fragment {
     }
 
     private void loadNotifications() {
-        notificationRepository.getAllNotifications(userId).observe(getViewLifecycleOwner(), notifications -> {
+        viewModel.getNotifications().observe(getViewLifecycleOwner(), notifications -> {
             if (notifications != null && !notifications.isEmpty()) {
                 adapter.setNotifications(notifications);
                 rvNotifications.setVisibility(View.VISIBLE);
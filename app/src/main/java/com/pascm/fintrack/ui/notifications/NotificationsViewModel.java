@@ -0,0 +1,46 @@
+package com.pascm.fintrack.ui.notifications;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+
+import com.pascm.fintrack.data.local.entity.NotificationEntity;
+import com.pascm.fintrack.data.repository.NotificationRepository;
+
+import java.util.List;
+
+/**
+ * Estado de la pantalla de notificaciones.
+ *
+ * Conserva el LiveData de la lista entre rotaciones: Room solo vuelve a
+ * consultar cuando cambian las notificaciones.
+ */
+public class NotificationsViewModel extends AndroidViewModel {
+
+    private final MutableLiveData<Long> userId = new MutableLiveData<>();
+    private final LiveData<List<NotificationEntity>> notifications;
+
+    public NotificationsViewModel(@NonNull Application application) {
+        super(application);
+        NotificationRepository repository = new NotificationRepository(application);
+        notifications = Transformations.switchMap(userId, repository::getAllNotifications);
+    }
+
+    /**
+     * Usuario de la sesión; llamar en onViewCreated. No hace nada si no cambió.
+     */
+    public void setUserId(long id) {
+        Long current = userId.getValue();
+        if (current == null || current != id) {
+            userId.setValue(id);
+        }
+    }
+
+    public LiveData<List<NotificationEntity>> getNotifications() {
+        return notifications;
+    }
+}
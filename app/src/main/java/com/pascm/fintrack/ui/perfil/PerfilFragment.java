@@ -4,11 +4,11 @@ import android.Manifest;
 import android.app.Activity;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.provider.MediaStore;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -24,6 +24,7 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
 
 import com.google.android.material.bottomsheet.BottomSheetDialog;
+import com.pascm.fintrack.BuildConfig;
 import com.pascm.fintrack.R;
 import com.pascm.fintrack.databinding.FragmentPerfilBinding;
 import com.pascm.fintrack.data.TripPrefs;
@@ -31,7 +32,8 @@ import com.pascm.fintrack.data.repository.GroupRepository;
 import com.pascm.fintrack.data.repository.UserRepository;
 import com.pascm.fintrack.data.local.entity.User;
 import com.pascm.fintrack.data.local.entity.UserProfile;
-import com.pascm.fintrack.util.ImageHelper;
+import com.pascm.fintrack.util.ImageIngest;
+import com.pascm.fintrack.util.ImageLoader;
 import com.pascm.fintrack.util.SessionManager;
 
 import java.io.File;
@@ -121,6 +123,14 @@ public class PerfilFragment extends Fragment {
             Navigation.findNavController(view).navigate(R.id.action_global_logout_to_login);
         });
 
+        // Pantalla de depuración: registro de consultas (solo en builds de depuración)
+        if (BuildConfig.DEBUG) {
+            binding.tvCorreo.setOnLongClickListener(v -> {
+                new QueryTraceDialogFragment().show(getChildFragmentManager(), "query_trace");
+                return true;
+            });
+        }
+
         // Ir a grupo
         binding.cardIrAGrupo.setOnClickListener(v -> {
             long userId = SessionManager.getUserId(requireContext());
@@ -372,7 +382,7 @@ public class PerfilFragment extends Fragment {
             }
             return File.createTempFile(imageFileName, ".jpg", storageDir);
         } catch (IOException e) {
-            android.util.Log.e("PerfilFragment", "Error creating image file", e);
+            Log.e("PerfilFragment", "Error creating image file", e);
             return null;
         }
     }
@@ -383,41 +393,40 @@ public class PerfilFragment extends Fragment {
             return;
         }
 
-        // Save image to internal storage
-        String fileName = "profile_" + userProfile.getUserId() + ".jpg";
-        String savedPath = ImageHelper.saveImageToInternalStorage(requireContext(), imageUri, fileName);
+        // Save image to internal storage (decoded off the UI thread)
+        UserProfile profile = userProfile;
+        String fileName = "profile_" + profile.getUserId() + ".jpg";
+        ImageIngest.ingest(requireContext(), imageUri, fileName, new ImageIngest.Callback() {
+            @Override
+            public void onIngested(ImageIngest.Result result) {
+                // Update profile with new avatar URL, even if the screen is gone by now
+                profile.setAvatarUrl(result.imagePath);
+                userRepository.updateUserProfile(profile);
 
-        if (savedPath != null) {
-            // Update profile with new avatar URL
-            userProfile.setAvatarUrl(savedPath);
-            userRepository.updateUserProfile(userProfile);
+                if (binding == null) return;
 
-            // Display image
-            loadAvatarImage(savedPath);
+                // Display image
+                loadAvatarImage(result.imagePath);
 
-            Toast.makeText(requireContext(), "Foto de perfil actualizada", Toast.LENGTH_SHORT).show();
-        } else {
-            Toast.makeText(requireContext(), "Error al guardar la imagen", Toast.LENGTH_SHORT).show();
-        }
+                Toast.makeText(requireContext(), "Foto de perfil actualizada", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(String message) {
+                if (binding == null) return;
+                Toast.makeText(requireContext(), "Error al guardar la imagen", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void loadAvatarImage(String avatarUrl) {
-        if (avatarUrl != null && !avatarUrl.isEmpty()) {
-            Bitmap bitmap = ImageHelper.loadBitmapFromPath(avatarUrl);
-            if (bitmap != null) {
-                binding.imgAvatar.setImageBitmap(bitmap);
-                binding.imgAvatar.setVisibility(View.VISIBLE);
-                binding.layoutAvatarPlaceholder.setVisibility(View.GONE);
-            } else {
-                // Show placeholder if image loading fails
-                binding.imgAvatar.setVisibility(View.GONE);
-                binding.layoutAvatarPlaceholder.setVisibility(View.VISIBLE);
-            }
-        } else {
-            // No avatar, show placeholder
-            binding.imgAvatar.setVisibility(View.GONE);
-            binding.layoutAvatarPlaceholder.setVisibility(View.VISIBLE);
-        }
+        // Se decodifica en segundo plano; si falla o no hay foto se muestra el placeholder
+        ImageLoader.getInstance(requireContext()).load(binding.imgAvatar, avatarUrl,
+                ImageLoader.SIZE_DETAIL, 0, success -> {
+                    if (binding == null) return;
+                    binding.imgAvatar.setVisibility(success ? View.VISIBLE : View.GONE);
+                    binding.layoutAvatarPlaceholder.setVisibility(success ? View.GONE : View.VISIBLE);
+                });
     }
 
     private void showCurrencySelectionDialog() {
@@ -0,0 +1,98 @@
+package com.pascm.fintrack.ui.perfil;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.FileProvider;
+import androidx.fragment.app.DialogFragment;
+
+import com.google.android.material.switchmaterial.SwitchMaterial;
+import com.pascm.fintrack.R;
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.trace.QueryTrace;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Pantalla de depuración del registro de consultas (QueryTrace): activarlo,
+ * ver las consultas con más tiempo total y exportar el volcado JSON.
+ * Se abre con una pulsación larga sobre el correo en Perfil.
+ */
+public class QueryTraceDialogFragment extends DialogFragment {
+
+    private static final int SUMMARY_LIMIT = 15;
+
+    private TextView tvSummary;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setStyle(DialogFragment.STYLE_NORMAL, R.style.Theme_FinTrack);
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        return inflater.inflate(R.layout.dialog_query_trace, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        tvSummary = view.findViewById(R.id.tv_summary);
+        SwitchMaterial switchTracing = view.findViewById(R.id.switch_tracing);
+
+        switchTracing.setChecked(QueryTrace.isEnabled(requireContext()));
+        switchTracing.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            QueryTrace.setEnabled(requireContext(), isChecked);
+            Toast.makeText(requireContext(), "Se aplicará al reiniciar la app", Toast.LENGTH_SHORT).show();
+        });
+
+        view.findViewById(R.id.btn_exportar).setOnClickListener(v -> exportDump());
+        view.findViewById(R.id.btn_limpiar).setOnClickListener(v -> {
+            QueryTrace.reset();
+            tvSummary.setText(QueryTrace.summary(SUMMARY_LIMIT));
+        });
+        view.findViewById(R.id.btn_cerrar).setOnClickListener(v -> dismiss());
+
+        tvSummary.setText(QueryTrace.summary(SUMMARY_LIMIT));
+    }
+
+    private void exportDump() {
+        Context context = requireContext().getApplicationContext();
+        FinTrackDatabase.databaseReadExecutor.execute(() -> {
+            try {
+                File file = QueryTrace.writeDump(context);
+                mainHandler.post(() -> {
+                    if (!isAdded()) return;
+                    Uri uri = FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", file);
+                    Intent shareIntent = new Intent(Intent.ACTION_SEND);
+                    shareIntent.setType("application/json");
+                    shareIntent.putExtra(Intent.EXTRA_STREAM, uri);
+                    shareIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                    startActivity(Intent.createChooser(shareIntent, "Exportar registro de consultas"));
+                });
+            } catch (IOException e) {
+                mainHandler.post(() -> {
+                    if (isAdded()) {
+                        Toast.makeText(requireContext(), "Error al exportar: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+        });
+    }
+}
@@ -6,23 +6,47 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.pascm.fintrack.R;
 import com.pascm.fintrack.model.AccountTypeReport;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class AccountTypeReportAdapter extends RecyclerView.Adapter<AccountTypeReportAdapter.ViewHolder> {
+public class AccountTypeReportAdapter extends ListAdapter<AccountTypeReport, AccountTypeReportAdapter.ViewHolder> {
+
+    private static final DiffUtil.ItemCallback<AccountTypeReport> DIFF_CALLBACK = new DiffUtil.ItemCallback<AccountTypeReport>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull AccountTypeReport oldItem, @NonNull AccountTypeReport newItem) {
+            return Objects.equals(oldItem.getAccountType(), newItem.getAccountType());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull AccountTypeReport oldItem, @NonNull AccountTypeReport newItem) {
+            return oldItem.getAmount() == newItem.getAmount()
+                    && oldItem.getTransactionCount() == newItem.getTransactionCount()
+                    && oldItem.getPercentage() == newItem.getPercentage();
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull AccountTypeReport oldItem, @NonNull AccountTypeReport newItem) {
+            // Icon and name depend only on the type, which is the identity
+            return CategoryReportAdapter.PAYLOAD_TOTALS;
+        }
+    };
 
-    private List<AccountTypeReport> reports = new ArrayList<>();
     private final NumberFormat currencyFormat;
 
     public AccountTypeReportAdapter() {
+        super(DIFF_CALLBACK);
         this.currencyFormat = NumberFormat.getCurrencyInstance(new Locale("es", "MX"));
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -33,9 +57,17 @@ public class AccountTypeReportAdapter extends RecyclerView.Adapter<AccountTypeRe
         return new ViewHolder(view);
     }
 
+    @Override
+    public long getItemId(int position) {
+        String type = getItem(position).getAccountType();
+        if ("CREDIT".equals(type)) return 1;
+        if ("DEBIT".equals(type)) return 2;
+        return 3;
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        AccountTypeReport report = reports.get(position);
+        AccountTypeReport report = getItem(position);
 
         // Set icon based on account type
         String icon = "💰";
@@ -47,19 +79,26 @@ public class AccountTypeReportAdapter extends RecyclerView.Adapter<AccountTypeRe
 
         holder.tvAccountIcon.setText(icon);
         holder.tvAccountType.setText(report.getAccountTypeDisplay());
-        holder.tvTransactionCount.setText(report.getTransactionCount() + " transacciones");
-        holder.tvAmount.setText(currencyFormat.format(report.getAmount()));
-        holder.tvPercentage.setText(String.format(Locale.getDefault(), "%.1f%%", report.getPercentage()));
+        bindTotals(holder, report);
     }
 
     @Override
-    public int getItemCount() {
-        return reports.size();
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && CategoryReportAdapter.onlyTotalsChanged(payloads)) {
+            bindTotals(holder, getItem(position));
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+
+    private void bindTotals(ViewHolder holder, AccountTypeReport report) {
+        holder.tvTransactionCount.setText(report.getTransactionCount() + " transacciones");
+        holder.tvAmount.setText(currencyFormat.format(report.getAmount()));
+        holder.tvPercentage.setText(String.format(Locale.getDefault(), "%.1f%%", report.getPercentage()));
     }
 
     public void setReports(List<AccountTypeReport> reports) {
-        this.reports = reports != null ? reports : new ArrayList<>();
-        notifyDataSetChanged();
+        submitList(reports != null ? reports : Collections.emptyList());
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -6,23 +6,57 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.pascm.fintrack.R;
 import com.pascm.fintrack.model.CategoryReport;
 
 import java.text.NumberFormat;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class CategoryReportAdapter extends RecyclerView.Adapter<CategoryReportAdapter.ViewHolder> {
+public class CategoryReportAdapter extends ListAdapter<CategoryReport, CategoryReportAdapter.ViewHolder> {
+
+    /**
+     * Payload: same category, only the totals changed
+     */
+    static final Object PAYLOAD_TOTALS = new Object();
+
+    private static final DiffUtil.ItemCallback<CategoryReport> DIFF_CALLBACK = new DiffUtil.ItemCallback<CategoryReport>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CategoryReport oldItem, @NonNull CategoryReport newItem) {
+            return oldItem.getCategoryId() == newItem.getCategoryId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull CategoryReport oldItem, @NonNull CategoryReport newItem) {
+            return sameCategory(oldItem, newItem)
+                    && oldItem.getAmount() == newItem.getAmount()
+                    && oldItem.getTransactionCount() == newItem.getTransactionCount()
+                    && oldItem.getPercentage() == newItem.getPercentage();
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull CategoryReport oldItem, @NonNull CategoryReport newItem) {
+            return sameCategory(oldItem, newItem) ? PAYLOAD_TOTALS : null;
+        }
+    };
+
+    private static boolean sameCategory(CategoryReport a, CategoryReport b) {
+        return Objects.equals(a.getCategoryName(), b.getCategoryName())
+                && Objects.equals(a.getCategoryIcon(), b.getCategoryIcon());
+    }
 
-    private List<CategoryReport> reports = new ArrayList<>();
     private final NumberFormat currencyFormat;
 
     public CategoryReportAdapter() {
+        super(DIFF_CALLBACK);
         this.currencyFormat = NumberFormat.getCurrencyInstance(new Locale("es", "MX"));
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -33,25 +67,44 @@ public class CategoryReportAdapter extends RecyclerView.Adapter<CategoryReportAd
         return new ViewHolder(view);
     }
 
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getCategoryId();
+    }
+
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        CategoryReport report = reports.get(position);
+        CategoryReport report = getItem(position);
 
         holder.tvCategoryIcon.setText(report.getCategoryIcon() != null ? report.getCategoryIcon() : "📊");
         holder.tvCategoryName.setText(report.getCategoryName());
+        bindTotals(holder, report);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && onlyTotalsChanged(payloads)) {
+            bindTotals(holder, getItem(position));
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+
+    private void bindTotals(ViewHolder holder, CategoryReport report) {
         holder.tvTransactionCount.setText(report.getTransactionCount() + " transacciones");
         holder.tvAmount.setText(currencyFormat.format(report.getAmount()));
         holder.tvPercentage.setText(String.format(Locale.getDefault(), "%.1f%%", report.getPercentage()));
     }
 
-    @Override
-    public int getItemCount() {
-        return reports.size();
+    static boolean onlyTotalsChanged(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_TOTALS) return false;
+        }
+        return true;
     }
 
     public void setReports(List<CategoryReport> reports) {
-        this.reports = reports != null ? reports : new ArrayList<>();
-        notifyDataSetChanged();
+        submitList(reports != null ? reports : Collections.emptyList());
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
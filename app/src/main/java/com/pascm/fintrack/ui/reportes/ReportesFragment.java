@@ -9,42 +9,39 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.Navigation;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.pascm.fintrack.R;
 import com.pascm.fintrack.databinding.FragmentReportesBinding;
-import com.pascm.fintrack.data.repository.ReportRepository;
-import com.pascm.fintrack.data.repository.TransactionRepository;
 import com.pascm.fintrack.model.AccountTypeReport;
 import com.pascm.fintrack.model.CategoryReport;
 import com.pascm.fintrack.model.ReportData;
+import com.pascm.fintrack.ui.reportes.ReportesViewModel.Period;
 import com.pascm.fintrack.util.SessionManager;
 import com.pascm.fintrack.util.CsvExporter;
+import com.pascm.fintrack.worker.CsvExportWorker;
 
 import android.net.Uri;
 
+import java.io.File;
 import java.text.NumberFormat;
-import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.temporal.TemporalAdjusters;
 import java.util.List;
 import java.util.Locale;
+import java.util.UUID;
 
 public class ReportesFragment extends Fragment {
 
     private FragmentReportesBinding binding;
-    private ReportRepository reportRepository;
-    private TransactionRepository transactionRepository;
+    private ReportesViewModel viewModel;
     private CategoryReportAdapter categoryAdapter;
     private AccountTypeReportAdapter accountTypeAdapter;
     private NumberFormat currencyFormat;
 
-    private enum Period { DAILY, WEEKLY, MONTHLY, YEARLY, ALL_TIME }
-    private Period currentPeriod = Period.MONTHLY;
-
     private double currentTotalIncome = 0;
     private double currentTotalExpense = 0;
 
@@ -59,8 +56,8 @@ public class ReportesFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        reportRepository = new ReportRepository(requireContext());
-        transactionRepository = new TransactionRepository(requireContext());
+        // Periodo y reporte viven en el ViewModel: rotar o volver no vuelve a consultar
+        viewModel = new ViewModelProvider(this).get(ReportesViewModel.class);
         currencyFormat = NumberFormat.getCurrencyInstance(new Locale("es", "MX"));
 
         setupRecyclerViews();
@@ -112,6 +109,7 @@ public class ReportesFragment extends Fragment {
         View sheetView = getLayoutInflater().inflate(R.layout.bottom_sheet_report_filters, null);
         dialog.setContentView(sheetView);
 
+        Period currentPeriod = viewModel.getPeriod();
         int selectedChipId;
         if (currentPeriod == Period.DAILY) selectedChipId = R.id.chip_daily;
         else if (currentPeriod == Period.WEEKLY) selectedChipId = R.id.chip_weekly;
@@ -123,14 +121,15 @@ public class ReportesFragment extends Fragment {
 
         sheetView.findViewById(R.id.btn_cancel).setOnClickListener(v -> dialog.dismiss());
         sheetView.findViewById(R.id.btn_apply).setOnClickListener(v -> {
-            if (sheetView.findViewById(R.id.chip_daily).isSelected()) currentPeriod = Period.DAILY;
-            else if (sheetView.findViewById(R.id.chip_weekly).isSelected()) currentPeriod = Period.WEEKLY;
-            else if (sheetView.findViewById(R.id.chip_monthly).isSelected()) currentPeriod = Period.MONTHLY;
-            else if (sheetView.findViewById(R.id.chip_yearly).isSelected()) currentPeriod = Period.YEARLY;
-            else if (sheetView.findViewById(R.id.chip_all_time).isSelected()) currentPeriod = Period.ALL_TIME;
-
+            Period period = currentPeriod;
+            if (sheetView.findViewById(R.id.chip_daily).isSelected()) period = Period.DAILY;
+            else if (sheetView.findViewById(R.id.chip_weekly).isSelected()) period = Period.WEEKLY;
+            else if (sheetView.findViewById(R.id.chip_monthly).isSelected()) period = Period.MONTHLY;
+            else if (sheetView.findViewById(R.id.chip_yearly).isSelected()) period = Period.YEARLY;
+            else if (sheetView.findViewById(R.id.chip_all_time).isSelected()) period = Period.ALL_TIME;
+
+            viewModel.setPeriod(period);
             updatePeriodDisplay();
-            loadReports();
             dialog.dismiss();
         });
 
@@ -138,6 +137,7 @@ public class ReportesFragment extends Fragment {
     }
 
     private void updatePeriodDisplay() {
+        Period currentPeriod = viewModel.getPeriod();
         String periodText;
         if (currentPeriod == Period.DAILY) periodText = "Hoy";
         else if (currentPeriod == Period.WEEKLY) periodText = "Esta semana";
@@ -154,112 +154,50 @@ public class ReportesFragment extends Fragment {
             Navigation.findNavController(requireView()).navigate(R.id.action_global_logout_to_login);
             return;
         }
-
-        long[] dateRange = getDateRange();
-        long startDate = dateRange[0];
-        long endDate = dateRange[1];
-
-        loadSummary(userId, startDate, endDate);
-        loadCategoryReport(userId, startDate, endDate);
-        loadAccountTypeReport(userId, startDate, endDate);
-    }
-
-    private long[] getDateRange() {
-        LocalDate now = LocalDate.now();
-        LocalDate startDate, endDate = now;
-
-        switch (currentPeriod) {
-            case DAILY:
-                startDate = now;
-                break;
-            case WEEKLY:
-                startDate = now.minusDays(now.getDayOfWeek().getValue() - 1);
-                break;
-            case YEARLY:
-                startDate = now.withDayOfYear(1);
-                break;
-            case ALL_TIME:
-                startDate = LocalDate.of(2000, 1, 1);
-                break;
-            case MONTHLY:
-            default:
-                startDate = now.with(TemporalAdjusters.firstDayOfMonth());
-                break;
-        }
-
-        long start = startDate.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        long end = endDate.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-
-        return new long[]{start, end};
-    }
-
-    private void loadSummary(long userId, long startDate, long endDate) {
-        reportRepository.getReportData(userId, startDate, endDate, new ReportRepository.ReportCallback() {
-            @Override
-            public void onSuccess(ReportData reportData) {
-                requireActivity().runOnUiThread(() -> {
-                    currentTotalIncome = reportData.getTotalIncome();
-                    currentTotalExpense = reportData.getTotalExpenses();
-                    binding.tvTotalIncome.setText(currencyFormat.format(currentTotalIncome));
-                    binding.tvTotalExpenses.setText(currencyFormat.format(currentTotalExpense));
-                    binding.tvBalance.setText(currencyFormat.format(reportData.getBalance()));
-                });
-            }
-
-            @Override
-            public void onError(String errorMessage) {
-                requireActivity().runOnUiThread(() ->
-                        Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show());
-            }
+        viewModel.setUserId(userId);
+
+        // Resumen y desgloses salen de una sola lectura consistente
+        viewModel.getReport().observe(getViewLifecycleOwner(), report -> {
+            if (report == null) return;
+            showSummary(report.getSummary());
+            showCategoryReports(report.getCategoryReports());
+            showAccountTypeReports(report.getAccountTypeReports());
+        });
+        viewModel.getError().observe(getViewLifecycleOwner(), errorMessage -> {
+            if (errorMessage == null) return;
+            Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show();
+            viewModel.consumeError();
         });
     }
 
-    private void loadCategoryReport(long userId, long startDate, long endDate) {
-        reportRepository.getCategoryReport(userId, startDate, endDate, new ReportRepository.CategoryReportCallback() {
-            @Override
-            public void onSuccess(List<CategoryReport> reports) {
-                requireActivity().runOnUiThread(() -> {
-                    if (reports.isEmpty()) {
-                        binding.rvCategories.setVisibility(View.GONE);
-                        binding.tvNoCategories.setVisibility(View.VISIBLE);
-                    } else {
-                        binding.rvCategories.setVisibility(View.VISIBLE);
-                        binding.tvNoCategories.setVisibility(View.GONE);
-                        categoryAdapter.setReports(reports);
-                    }
-                });
-            }
-
-            @Override
-            public void onError(String errorMessage) {
-                requireActivity().runOnUiThread(() ->
-                        Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show());
-            }
-        });
+    private void showSummary(ReportData reportData) {
+        currentTotalIncome = reportData.getTotalIncome();
+        currentTotalExpense = reportData.getTotalExpenses();
+        binding.tvTotalIncome.setText(currencyFormat.format(currentTotalIncome));
+        binding.tvTotalExpenses.setText(currencyFormat.format(currentTotalExpense));
+        binding.tvBalance.setText(currencyFormat.format(reportData.getBalance()));
     }
 
-    private void loadAccountTypeReport(long userId, long startDate, long endDate) {
-        reportRepository.getAccountTypeReport(userId, startDate, endDate, new ReportRepository.AccountTypeReportCallback() {
-            @Override
-            public void onSuccess(List<AccountTypeReport> reports) {
-                requireActivity().runOnUiThread(() -> {
-                    if (reports.isEmpty()) {
-                        binding.rvAccountTypes.setVisibility(View.GONE);
-                        binding.tvNoAccountTypes.setVisibility(View.VISIBLE);
-                    } else {
-                        binding.rvAccountTypes.setVisibility(View.VISIBLE);
-                        binding.tvNoAccountTypes.setVisibility(View.GONE);
-                        accountTypeAdapter.setReports(reports);
-                    }
-                });
-            }
+    private void showCategoryReports(List<CategoryReport> reports) {
+        if (reports.isEmpty()) {
+            binding.rvCategories.setVisibility(View.GONE);
+            binding.tvNoCategories.setVisibility(View.VISIBLE);
+        } else {
+            binding.rvCategories.setVisibility(View.VISIBLE);
+            binding.tvNoCategories.setVisibility(View.GONE);
+            categoryAdapter.setReports(reports);
+        }
+    }
 
-            @Override
-            public void onError(String errorMessage) {
-                requireActivity().runOnUiThread(() ->
-                        Toast.makeText(requireContext(), errorMessage, Toast.LENGTH_SHORT).show());
-            }
-        });
+    private void showAccountTypeReports(List<AccountTypeReport> reports) {
+        if (reports.isEmpty()) {
+            binding.rvAccountTypes.setVisibility(View.GONE);
+            binding.tvNoAccountTypes.setVisibility(View.VISIBLE);
+        } else {
+            binding.rvAccountTypes.setVisibility(View.VISIBLE);
+            binding.tvNoAccountTypes.setVisibility(View.GONE);
+            accountTypeAdapter.setReports(reports);
+        }
     }
 
     private void exportReportToCsv() {
@@ -269,45 +207,46 @@ public class ReportesFragment extends Fragment {
             return;
         }
 
-        long[] dateRange = getDateRange();
-        long startDate = dateRange[0];
-        long endDate = dateRange[1];
-
-        LocalDate startLocalDate = Instant.ofEpochMilli(startDate).atZone(ZoneId.systemDefault()).toLocalDate();
-        LocalDate endLocalDate = Instant.ofEpochMilli(endDate).atZone(ZoneId.systemDefault()).toLocalDate();
-
-        String periodName = getPeriodName();
-
-        // Get all transactions for the period
-        transactionRepository.getTransactionsByDateRange(userId, startLocalDate, endLocalDate)
-                .observe(getViewLifecycleOwner(), transactions -> {
-                    if (transactions != null) {
-                        // Export on background thread
-                        new Thread(() -> {
-                            Uri csvUri = CsvExporter.exportReportToCSV(
-                                    requireContext(),
-                                    periodName,
-                                    startLocalDate,
-                                    endLocalDate,
-                                    currentTotalIncome,
-                                    currentTotalExpense,
-                                    transactions
-                            );
-
-                            requireActivity().runOnUiThread(() -> {
-                                if (csvUri != null) {
-                                    CsvExporter.shareCsv(requireContext(), csvUri);
-                                    Toast.makeText(requireContext(), "Reporte exportado exitosamente", Toast.LENGTH_SHORT).show();
-                                } else {
-                                    Toast.makeText(requireContext(), "Error al exportar reporte", Toast.LENGTH_SHORT).show();
-                                }
-                            });
-                        }).start();
+        long[] dateRange = viewModel.getDateRange();
+
+        // Exportar en un trabajo de WorkManager; lee por bloques y no se relanza si cambian los datos
+        UUID workId = CsvExportWorker.requestExport(requireContext(), userId, getPeriodName(),
+                dateRange[0], dateRange[1], currentTotalIncome, currentTotalExpense);
+
+        binding.btnExportCsv.setEnabled(false);
+        WorkManager.getInstance(requireContext()).getWorkInfoByIdLiveData(workId)
+                .observe(getViewLifecycleOwner(), info -> {
+                    if (info == null || binding == null) {
+                        return;
+                    }
+
+                    if (info.getState() == WorkInfo.State.RUNNING) {
+                        int total = info.getProgress().getInt(CsvExportWorker.KEY_TOTAL, 0);
+                        int written = info.getProgress().getInt(CsvExportWorker.KEY_WRITTEN, 0);
+                        int percent = total == 0 ? 0 : (int) (written * 100L / total);
+                        binding.btnExportCsv.setText(getString(R.string.exportando_csv, percent));
+                        return;
+                    }
+                    if (!info.getState().isFinished()) {
+                        return;
+                    }
+
+                    binding.btnExportCsv.setEnabled(true);
+                    binding.btnExportCsv.setText(R.string.exportar_csv);
+
+                    String path = info.getOutputData().getString(CsvExportWorker.KEY_FILE_PATH);
+                    if (info.getState() == WorkInfo.State.SUCCEEDED && path != null) {
+                        Uri csvUri = CsvExporter.getShareUri(requireContext(), new File(path));
+                        CsvExporter.shareCsv(requireContext(), csvUri);
+                        Toast.makeText(requireContext(), "Reporte exportado exitosamente", Toast.LENGTH_SHORT).show();
+                    } else if (info.getState() == WorkInfo.State.FAILED) {
+                        Toast.makeText(requireContext(), "Error al exportar reporte", Toast.LENGTH_SHORT).show();
                     }
                 });
     }
 
     private String getPeriodName() {
+        Period currentPeriod = viewModel.getPeriod();
         if (currentPeriod == Period.DAILY) return "Hoy";
         else if (currentPeriod == Period.WEEKLY) return "Esta_semana";
         else if (currentPeriod == Period.YEARLY) return "Este_año";
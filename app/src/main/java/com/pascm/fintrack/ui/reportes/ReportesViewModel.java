@@ -0,0 +1,195 @@
+package com.pascm.fintrack.ui.reportes;
+
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.repository.ReportRepository;
+import com.pascm.fintrack.model.PeriodReport;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Estado de la pantalla de reportes: periodo elegido y su último reporte.
+ *
+ * El reporte se conserva entre rotaciones y al volver desde el historial de
+ * transacciones. Solo se vuelve a generar si cambia el periodo, el rango (cambio
+ * de día) o la tabla transaction_rollups, y solo mientras la pantalla lo observa.
+ */
+public class ReportesViewModel extends AndroidViewModel {
+
+    public enum Period { DAILY, WEEKLY, MONTHLY, YEARLY, ALL_TIME }
+
+    private final FinTrackDatabase database;
+    private final ReportRepository reportRepository;
+    private final ReportLiveData report = new ReportLiveData();
+    private final MutableLiveData<String> error = new MutableLiveData<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final InvalidationTracker.Observer invalidationObserver =
+            new InvalidationTracker.Observer("transaction_rollups") {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    synchronized (ReportesViewModel.this) {
+                        stale = true;
+                    }
+                    if (report.hasActiveObservers()) {
+                        report.refresh();
+                    }
+                }
+            };
+
+    private long userId = -1;
+    private Period period = Period.MONTHLY;
+
+    // Guarded by this
+    private boolean stale = true;
+    /** Rango del último reporte pedido (userId, inicio, fin) */
+    private long[] loadedKey;
+    /** Solo el resultado de la última carga se publica */
+    private int generation = 0;
+
+    public ReportesViewModel(@NonNull Application application) {
+        super(application);
+        database = FinTrackDatabase.getDatabase(application);
+        reportRepository = new ReportRepository(application);
+        database.getInvalidationTracker().addObserver(invalidationObserver);
+    }
+
+    /**
+     * Reporte del periodo actual; null hasta la primera carga
+     */
+    public LiveData<PeriodReport> getReport() {
+        return report;
+    }
+
+    /**
+     * Mensaje de error de la última carga; consumeError() lo limpia tras mostrarlo
+     */
+    public LiveData<String> getError() {
+        return error;
+    }
+
+    public void consumeError() {
+        error.setValue(null);
+    }
+
+    public void setUserId(long userId) {
+        if (this.userId == userId) return;
+        if (this.userId != -1) report.setValue(null);
+        this.userId = userId;
+        report.refresh();
+    }
+
+    public Period getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(@NonNull Period period) {
+        this.period = period;
+        report.refresh();
+    }
+
+    /**
+     * Rango del periodo actual en epoch millis: {inicio, fin} (hoy inclusive)
+     */
+    public long[] getDateRange() {
+        LocalDate now = LocalDate.now();
+        LocalDate startDate, endDate = now;
+
+        switch (period) {
+            case DAILY:
+                startDate = now;
+                break;
+            case WEEKLY:
+                startDate = now.minusDays(now.getDayOfWeek().getValue() - 1);
+                break;
+            case YEARLY:
+                startDate = now.withDayOfYear(1);
+                break;
+            case ALL_TIME:
+                startDate = LocalDate.of(2000, 1, 1);
+                break;
+            case MONTHLY:
+            default:
+                startDate = now.with(TemporalAdjusters.firstDayOfMonth());
+                break;
+        }
+
+        long start = startDate.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long end = endDate.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        return new long[]{start, end};
+    }
+
+    /**
+     * Genera el reporte si cambió el rango o los datos desde el último
+     */
+    private void loadIfNeeded() {
+        if (userId == -1) return;
+        long[] range = getDateRange();
+        long[] key = {userId, range[0], range[1]};
+
+        final int loadGeneration;
+        synchronized (this) {
+            if (!stale && Arrays.equals(key, loadedKey)) return;
+            stale = false;
+            loadedKey = key;
+            loadGeneration = ++generation;
+        }
+
+        reportRepository.getPeriodReport(userId, range[0], range[1], new ReportRepository.PeriodReportCallback() {
+            @Override
+            public void onSuccess(PeriodReport result) {
+                synchronized (ReportesViewModel.this) {
+                    if (loadGeneration != generation) return;
+                }
+                report.postValue(result);
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                synchronized (ReportesViewModel.this) {
+                    // Reintentar en la próxima observación
+                    if (loadGeneration == generation) stale = true;
+                }
+                error.postValue(errorMessage);
+            }
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        database.getInvalidationTracker().removeObserver(invalidationObserver);
+    }
+
+    /**
+     * Carga al empezar a observarse (p. ej. al volver a la pantalla) si hace falta
+     */
+    private final class ReportLiveData extends MutableLiveData<PeriodReport> {
+        @Override
+        protected void onActive() {
+            loadIfNeeded();
+        }
+
+        void refresh() {
+            // Invalidaciones llegan en hilos de fondo; cargar desde el hilo principal
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                if (hasActiveObservers()) loadIfNeeded();
+            } else {
+                mainHandler.post(this::refresh);
+            }
+        }
+    }
+}
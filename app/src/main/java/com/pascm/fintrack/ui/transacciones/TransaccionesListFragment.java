@@ -1,6 +1,8 @@
 package com.pascm.fintrack.ui.transacciones;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,22 +12,34 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.pascm.fintrack.R;
 import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.repository.TransactionFeed;
 import com.pascm.fintrack.data.repository.TransactionRepository;
+import com.pascm.fintrack.data.repository.TransactionSearch;
 import com.pascm.fintrack.databinding.FragmentTransaccionesListBinding;
 import com.pascm.fintrack.util.SessionManager;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class TransaccionesListFragment extends Fragment {
 
+    // Cargar la siguiente página cuando falten estas filas para llegar a un extremo
+    private static final int PREFETCH_DISTANCE = 10;
+
     private FragmentTransaccionesListBinding binding;
     private TransactionRepository transactionRepository;
     private TransaccionesAdapter adapter;
+    private LinearLayoutManager layoutManager;
+    private TransactionFeed feed;
+    private TransactionFeed.Snapshot currentSnapshot;
     private Transaction.TransactionType currentFilter = null; // null = todas
+    // Búsqueda de texto: mientras hay una consulta se muestran sus resultados en lugar del feed
+    private TransactionSearch search;
+    private TransactionSearch.Results currentResults;
+    private boolean searching = false;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -47,6 +61,7 @@ public class TransaccionesListFragment extends Fragment {
 
         setupUI();
         setupRecyclerView();
+        setupSearch();
         loadTransactions();
     }
 
@@ -64,39 +79,127 @@ public class TransaccionesListFragment extends Fragment {
 
     private void setupRecyclerView() {
         adapter = new TransaccionesAdapter();
-        binding.rvTransactions.setLayoutManager(new LinearLayoutManager(requireContext()));
+        layoutManager = new LinearLayoutManager(requireContext());
+        binding.rvTransactions.setLayoutManager(layoutManager);
         binding.rvTransactions.setAdapter(adapter);
-    }
-
-    private void loadTransactions() {
-        long userId = SessionManager.getUserId(requireContext());
 
-        transactionRepository.getAllTransactions(userId).observe(getViewLifecycleOwner(), transactions -> {
-            if (transactions != null) {
-                List<Transaction> filtered = filterByType(transactions);
-                adapter.setTransactions(filtered);
-
-                if (filtered.isEmpty()) {
-                    binding.emptyView.setVisibility(View.VISIBLE);
-                    binding.rvTransactions.setVisibility(View.GONE);
-                } else {
-                    binding.emptyView.setVisibility(View.GONE);
-                    binding.rvTransactions.setVisibility(View.VISIBLE);
+        // Paginación por llave: pedir más filas al acercarse a cualquiera de los extremos
+        binding.rvTransactions.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (searching) {
+                    if (dy > 0 && currentResults != null && currentResults.hasMore
+                            && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                        search.loadMore();
+                    }
+                    return;
+                }
+                if (feed == null || currentSnapshot == null) return;
+
+                if (dy > 0 && currentSnapshot.hasOlder
+                        && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    feed.loadOlder();
+                } else if (dy < 0 && currentSnapshot.hasNewer
+                        && layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+                    feed.loadNewer();
                 }
             }
         });
     }
 
-    private List<Transaction> filterByType(List<Transaction> all) {
-        if (currentFilter == null) return all;
+    private void setupSearch() {
+        search = transactionRepository.newTransactionSearch(SessionManager.getUserId(requireContext()));
+        search.getResults().observe(getViewLifecycleOwner(), this::showSearchResults);
+
+        binding.etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
 
-        List<Transaction> filtered = new ArrayList<>();
-        for (Transaction t : all) {
-            if (t.getType() == currentFilter) {
-                filtered.add(t);
+            @Override
+            public void afterTextChanged(Editable s) {
+                onSearchTextChanged(s.toString());
             }
+        });
+    }
+
+    private void onSearchTextChanged(String text) {
+        // Menos de dos letras: volver a la lista completa
+        boolean wasSearching = searching;
+        searching = TransactionSearch.toMatchQuery(text) != null;
+        search.setQuery(searching ? text : "");
+
+        // Los resultados cubren todos los tipos; los filtros solo aplican a la lista
+        binding.filterBar.setVisibility(searching ? View.GONE : View.VISIBLE);
+        if (wasSearching && !searching) {
+            currentResults = null;
+            if (currentSnapshot != null) {
+                showItems(currentSnapshot.items);
+            }
+        }
+    }
+
+    private void showSearchResults(TransactionSearch.Results results) {
+        // Resultados retrasados de una consulta que ya se borró
+        if (results == null || binding == null || !searching) return;
+
+        boolean newQuery = currentResults == null || !currentResults.query.equals(results.query);
+        currentResults = results;
+        showItems(results.items);
+        if (newQuery) {
+            layoutManager.scrollToPosition(0);
+        }
+    }
+
+    private void loadTransactions() {
+        long userId = SessionManager.getUserId(requireContext());
+
+        if (feed != null) {
+            feed.getSnapshot().removeObservers(getViewLifecycleOwner());
+            feed.close();
+        }
+        currentSnapshot = null;
+
+        // El filtro por tipo se resuelve en la consulta, no en memoria
+        feed = transactionRepository.getTransactionFeed(userId, currentFilter);
+        feed.getSnapshot().observe(getViewLifecycleOwner(), this::showSnapshot);
+    }
+
+    private void showSnapshot(TransactionFeed.Snapshot snapshot) {
+        if (snapshot == null || binding == null) return;
+
+        if (searching) {
+            // Se muestra al borrar la búsqueda
+            currentSnapshot = snapshot;
+            return;
+        }
+
+        // Conservar la posición visible cuando la ventana se desplaza
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        View firstView = layoutManager.findViewByPosition(firstVisible);
+        int offset = firstView != null ? firstView.getTop() : 0;
+
+        currentSnapshot = snapshot;
+        showItems(snapshot.items);
+
+        if (snapshot.positionShift != 0 && firstVisible != RecyclerView.NO_POSITION) {
+            int target = Math.max(0, firstVisible + snapshot.positionShift);
+            layoutManager.scrollToPositionWithOffset(target, offset);
+        }
+    }
+
+    private void showItems(List<Transaction> items) {
+        adapter.setTransactions(items);
+
+        if (items.isEmpty()) {
+            binding.emptyView.setVisibility(View.VISIBLE);
+            binding.rvTransactions.setVisibility(View.GONE);
+        } else {
+            binding.emptyView.setVisibility(View.GONE);
+            binding.rvTransactions.setVisibility(View.VISIBLE);
         }
-        return filtered;
     }
 
     private void filterTransactions(Transaction.TransactionType type) {
@@ -136,6 +239,16 @@ public class TransaccionesListFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (feed != null) {
+            feed.close();
+            feed = null;
+        }
+        if (search != null) {
+            search.close();
+            search = null;
+        }
+        searching = false;
+        currentResults = null;
         binding = null;
     }
 }
@@ -18,9 +18,9 @@ import androidx.navigation.Navigation;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.pascm.fintrack.R;
+import com.pascm.fintrack.data.local.dao.TripRollupDao;
 import com.pascm.fintrack.databinding.FragmentModoViajeBinding;
 import com.pascm.fintrack.data.repository.TripRepository;
-import com.pascm.fintrack.data.repository.TransactionRepository;
 import com.pascm.fintrack.data.local.entity.Trip;
 import com.pascm.fintrack.data.local.entity.Transaction;
 import com.pascm.fintrack.util.SessionManager;
@@ -39,7 +39,7 @@ public class ModoViajeFragment extends Fragment {
 
     private FragmentModoViajeBinding binding;
     private TripRepository tripRepository;
-    private TransactionRepository transactionRepository;
+    private TripViewModel viewModel;
     private TripTransactionAdapter transactionAdapter;
     private long userId;
 
@@ -72,10 +72,11 @@ public class ModoViajeFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        // Initialize repositories
+        // Viaje y resumen compartidos con las demás pantallas de viaje
         tripRepository = new TripRepository(requireContext());
-        transactionRepository = new TransactionRepository(requireContext());
         userId = SessionManager.getUserId(requireContext());
+        viewModel = TripViewModel.of(this);
+        viewModel.setUserId(userId);
 
         binding.bottomNavigation.setSelectedItemId(R.id.nav_viajes);
 
@@ -146,7 +147,7 @@ public class ModoViajeFragment extends Fragment {
     }
 
     private void loadTripData() {
-        tripRepository.getActiveTrip(userId).observe(getViewLifecycleOwner(), trip -> {
+        viewModel.getActiveTrip().observe(getViewLifecycleOwner(), trip -> {
             if (trip != null) {
                 // Show active trip view
                 binding.noTripView.setVisibility(View.GONE);
@@ -154,15 +155,18 @@ public class ModoViajeFragment extends Fragment {
 
                 // Update trip info
                 updateTripInfo(trip);
-
-                // Load transactions for this trip
-                loadTripTransactions(trip.getTripId());
+                updateSummary(viewModel.getSpendSummary().getValue());
             } else {
                 // Show no trip view
                 binding.noTripView.setVisibility(View.VISIBLE);
                 binding.activeTripView.setVisibility(View.GONE);
             }
         });
+
+        // Totales de trip_rollups y solo las transacciones recientes que se muestran
+        viewModel.getSpendSummary().observe(getViewLifecycleOwner(), this::updateSummary);
+        viewModel.getRecentTransactions().observe(getViewLifecycleOwner(), transactions ->
+                transactionAdapter.setTransactions(transactions));
     }
 
     private void updateTripInfo(Trip trip) {
@@ -192,85 +196,33 @@ public class ModoViajeFragment extends Fragment {
         }
     }
 
-    private void loadTripTransactions(long tripId) {
-        transactionRepository.getTransactionsByTrip(userId, tripId).observe(getViewLifecycleOwner(), transactions -> {
-            if (transactions != null) {
-                // Update transaction count
-                binding.txtTransactionCount.setText(String.valueOf(transactions.size()));
-
-                // Update adapter with recent transactions (max 5)
-                List<Transaction> recentTransactions = transactions.size() > 5 ?
-                        transactions.subList(0, 5) : transactions;
-                transactionAdapter.setTransactions(recentTransactions);
-
-                // Calculate totals and top category
-                double spent = 0;
-                int expenseCount = 0;
-                java.util.Map<Long, Integer> categoryCounts = new java.util.HashMap<>();
-                for (Transaction t : transactions) {
-                    if (t.getType() == Transaction.TransactionType.EXPENSE && t.getAmount() > 0) {
-                        spent += t.getAmount();
-                        expenseCount++;
-                        Long catId = t.getCategoryId();
-                        if (catId != null) {
-                            Integer c = categoryCounts.get(catId);
-                            categoryCounts.put(catId, c == null ? 1 : c + 1);
-                        }
-                    }
-                }
+    private void updateSummary(TripRollupDao.TripSpendSummary summary) {
+        if (summary != null) {
+            binding.txtTransactionCount.setText(String.valueOf(summary.transaction_count));
+            binding.txtBudgetSpent.setText(formatCurrency(summary.total_spent));
+            binding.txtTopCategory.setText(summary.expense_count > 0 && summary.top_category_name != null
+                    ? summary.top_category_name : "---");
+        } else {
+            // Sin transacciones
+            binding.txtTransactionCount.setText("0");
+            binding.txtTopCategory.setText("---");
+            binding.txtBudgetSpent.setText(formatCurrency(0));
+        }
+        updateBudget(viewModel.getActiveTrip().getValue(), summary);
+    }
 
-                final double totalSpent = spent;
-                binding.txtBudgetSpent.setText(formatCurrency(totalSpent));
-
-                // Update budget progress
-                tripRepository.getActiveTrip(userId).observe(getViewLifecycleOwner(), trip -> {
-                    if (trip != null && trip.hasBudget()) {
-                        double remaining = trip.getBudgetAmount() - totalSpent;
-                        binding.txtBudgetRemaining.setText(formatCurrency(Math.max(0, remaining)));
-
-                        int progress = trip.getBudgetAmount() > 0 ? (int) ((totalSpent / trip.getBudgetAmount()) * 100) : 0;
-                        binding.progressBudget.setProgress(Math.min(Math.max(progress, 0), 100));
-                    } else {
-                        binding.txtBudgetRemaining.setText(getString(R.string.valor_na));
-                        binding.progressBudget.setProgress(0);
-                    }
-                });
-
-                // Top categoría: mostrar nombre si hay al menos un gasto; de lo contrario '---'
-                if (expenseCount == 0 || categoryCounts.isEmpty()) {
-                    binding.txtTopCategory.setText("---");
-                } else {
-                    // encontrar categoría con mayor conteo
-                    Long topCategoryId = null; int max = -1;
-                    for (java.util.Map.Entry<Long, Integer> e : categoryCounts.entrySet()) {
-                        if (e.getValue() > max) { max = e.getValue(); topCategoryId = e.getKey(); }
-                    }
-                    final Long finalTopCategoryId = topCategoryId;
-                    // Obtener nombre de categoría en background
-                    new Thread(() -> {
-                        try {
-                            com.pascm.fintrack.data.local.FinTrackDatabase db = com.pascm.fintrack.data.local.FinTrackDatabase.getDatabase(requireContext());
-                            com.pascm.fintrack.data.local.entity.Category cat = finalTopCategoryId != null ? db.categoryDao().getByIdSync(finalTopCategoryId) : null;
-                            requireActivity().runOnUiThread(() -> {
-                                if (binding != null) {
-                                    binding.txtTopCategory.setText(cat != null ? cat.getName() : "---");
-                                }
-                            });
-                        } catch (Exception ex) {
-                            requireActivity().runOnUiThread(() -> {
-                                if (binding != null) binding.txtTopCategory.setText("---");
-                            });
-                        }
-                    }).start();
-                }
-            } else {
-                // Sin transacciones
-                binding.txtTransactionCount.setText("0");
-                binding.txtTopCategory.setText("---");
-                binding.txtBudgetSpent.setText(formatCurrency(0));
-                binding.progressBudget.setProgress(0);
-            }
-        });
+    private void updateBudget(Trip trip, TripRollupDao.TripSpendSummary summary) {
+        if (trip != null && trip.hasBudget()) {
+            double totalSpent = summary != null ? summary.total_spent : 0;
+            double remaining = trip.getBudgetAmount() - totalSpent;
+            binding.txtBudgetRemaining.setText(formatCurrency(Math.max(0, remaining)));
+
+            int progress = trip.getBudgetAmount() > 0 ? (int) ((totalSpent / trip.getBudgetAmount()) * 100) : 0;
+            binding.progressBudget.setProgress(Math.min(Math.max(progress, 0), 100));
+        } else {
+            binding.txtBudgetRemaining.setText(getString(R.string.valor_na));
+            binding.progressBudget.setProgress(0);
+        }
     }
 
     private void endTrip() {
@@ -291,29 +243,26 @@ public class ModoViajeFragment extends Fragment {
     }
 
     private void exportTripToCsv() {
-        tripRepository.getActiveTrip(userId).observe(getViewLifecycleOwner(), trip -> {
-            if (trip != null) {
-                transactionRepository.getTransactionsByTrip(userId, trip.getTripId()).observe(getViewLifecycleOwner(), transactions -> {
-                    if (transactions != null) {
-                        // Export on background thread
-                        new Thread(() -> {
-                            Uri csvUri = CsvExporter.exportTripToCSV(requireContext(), trip, transactions);
-
-                            requireActivity().runOnUiThread(() -> {
-                                if (csvUri != null) {
-                                    CsvExporter.shareCsv(requireContext(), csvUri);
-                                    Toast.makeText(requireContext(), "CSV exportado exitosamente", Toast.LENGTH_SHORT).show();
-                                } else {
-                                    Toast.makeText(requireContext(), "Error al exportar CSV", Toast.LENGTH_SHORT).show();
-                                }
-                            });
-                        }).start();
-                    }
-                });
-            } else {
-                Toast.makeText(requireContext(), "No hay viaje activo", Toast.LENGTH_SHORT).show();
-            }
-        });
+        Trip trip = viewModel.getActiveTrip().getValue();
+        if (trip == null) {
+            Toast.makeText(requireContext(), "No hay viaje activo", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // Export on background thread (the only place that reads every transaction of the trip)
+        new Thread(() -> {
+            List<Transaction> transactions = viewModel.loadTripTransactionsSync(trip.getTripId());
+            Uri csvUri = CsvExporter.exportTripToCSV(requireContext(), trip, transactions);
+
+            requireActivity().runOnUiThread(() -> {
+                if (csvUri != null) {
+                    CsvExporter.shareCsv(requireContext(), csvUri);
+                    Toast.makeText(requireContext(), "CSV exportado exitosamente", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(requireContext(), "Error al exportar CSV", Toast.LENGTH_SHORT).show();
+                }
+            });
+        }).start();
     }
 
     /**
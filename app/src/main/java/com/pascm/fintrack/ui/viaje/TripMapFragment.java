@@ -16,6 +16,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 import androidx.navigation.Navigation;
 
 import com.google.android.gms.location.FusedLocationProviderClient;
@@ -28,25 +31,44 @@ import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.pascm.fintrack.R;
+import com.pascm.fintrack.data.local.dao.TransactionDao;
 import com.pascm.fintrack.data.local.entity.Transaction;
 import com.pascm.fintrack.data.local.entity.Trip;
 import com.pascm.fintrack.data.repository.TransactionRepository;
-import com.pascm.fintrack.data.repository.TripRepository;
+import com.pascm.fintrack.util.ClusterMarkerLayer;
+import com.pascm.fintrack.util.MarkerClusterer;
 import com.pascm.fintrack.util.SessionManager;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public class TripMapFragment extends Fragment implements OnMapReadyCallback {
 
+    // Máximo de gastos que se consultan para la región visible; se dibujan agrupados
+    private static final int MAX_POINTS = 2000;
+
     private GoogleMap map;
-    private TripRepository tripRepository;
+    // Gastos agrupados por zona; solo se agregan o quitan los marcadores que cambian
+    private ClusterMarkerLayer expenseLayer;
+    private final Map<Long, Transaction> expensesById = new HashMap<>();
+    // Inicio y meta del viaje (se redibujan solo si cambian)
+    private Marker originMarker;
+    private Marker destinationMarker;
+    private TripViewModel viewModel;
     private TransactionRepository transactionRepository;
     private Trip currentTrip;
-    private List<Transaction> tripTransactions = new ArrayList<>();
+    private long userId;
+
+    // Región visible del mapa; cada cambio consulta solo los gastos dentro de ella
+    private final MutableLiveData<LatLngBounds> viewport = new MutableLiveData<>();
+    // Extensión de todos los gastos con ubicación del viaje (para encuadrar la cámara)
+    private TransactionDao.LocationBounds tripBounds;
 
     // Ubicación del usuario
     private FusedLocationProviderClient fusedLocationClient;
@@ -75,7 +97,7 @@ public class TripMapFragment extends Fragment implements OnMapReadyCallback {
         super.onViewCreated(view, savedInstanceState);
 
         // Initialize repositories
-        tripRepository = new TripRepository(requireContext());
+        viewModel = TripViewModel.of(this);
         transactionRepository = new TransactionRepository(requireContext());
 
         // Init fused location
@@ -98,41 +120,96 @@ public class TripMapFragment extends Fragment implements OnMapReadyCallback {
     }
 
     private void loadTripData() {
-        long userId = SessionManager.getUserId(requireContext());
-        tripRepository.getActiveTrip(userId).observe(getViewLifecycleOwner(), trip -> {
+        userId = SessionManager.getUserId(requireContext());
+        viewModel.setUserId(userId);
+
+        // Gastos dentro de la región visible (índice espacial), se vuelve a consultar al mover el mapa
+        LiveData<List<Transaction>> visible = Transformations.switchMap(viewport, bounds ->
+                transactionRepository.getTransactionsInArea(userId, currentTrip.getTripId(),
+                        bounds.southwest.latitude, bounds.northeast.latitude,
+                        // Región que cruza el antimeridiano: no filtrar por longitud
+                        bounds.southwest.longitude <= bounds.northeast.longitude ? bounds.southwest.longitude : -180,
+                        bounds.southwest.longitude <= bounds.northeast.longitude ? bounds.northeast.longitude : 180,
+                        MAX_POINTS));
+        visible.observe(getViewLifecycleOwner(), transactions -> {
+            expensesById.clear();
+            if (transactions != null) {
+                for (Transaction transaction : transactions) {
+                    expensesById.put(transaction.getTransactionId(), transaction);
+                }
+            }
+            updateExpenseMarkers();
+        });
+
+        // Viaje activo compartido con Modo viaje / Viaje activo: no se vuelve a consultar
+        viewModel.getActiveTrip().observe(getViewLifecycleOwner(), trip -> {
             if (trip != null) {
+                boolean sameTrip = currentTrip != null && currentTrip.getTripId() == trip.getTripId();
                 currentTrip = trip;
-                // Load transactions for this trip
-                transactionRepository.getTransactionsByTrip(userId, trip.getTripId())
-                        .observe(getViewLifecycleOwner(), transactions -> {
-                            if (transactions != null) {
-                                tripTransactions = transactions;
-                                // Update map if ready
-                                if (map != null) {
-                                    setupMapMarkers();
-                                    updateCamera();
-                                }
-                            }
+                updateTripMarkers();
+                if (sameTrip) {
+                    return;
+                }
+
+                // Solo la extensión de los gastos; los marcadores se cargan por región visible
+                transactionRepository.getTripLocationBounds(userId, trip.getTripId())
+                        .observe(getViewLifecycleOwner(), bounds -> {
+                            tripBounds = bounds;
+                            updateCamera();
                         });
+                publishViewport();
             } else {
                 Toast.makeText(requireContext(), "No hay viaje activo", Toast.LENGTH_SHORT).show();
             }
         });
     }
 
+    /**
+     * Publica la región visible actual para consultar sus gastos
+     */
+    private void publishViewport() {
+        if (map == null || currentTrip == null) return;
+        viewport.setValue(map.getProjection().getVisibleRegion().latLngBounds);
+    }
+
     @Override
     public void onMapReady(@NonNull GoogleMap googleMap) {
         map = googleMap;
         map.getUiSettings().setZoomControlsEnabled(true);
         map.getUiSettings().setMyLocationButtonEnabled(true);
+        map.setOnCameraIdleListener(this::publishViewport);
+
+        expenseLayer = new ClusterMarkerLayer(requireContext(), map,
+                BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE),
+                new ClusterMarkerLayer.ItemText() {
+                    @Override
+                    public String title(long transactionId) {
+                        Transaction transaction = expensesById.get(transactionId);
+                        return transaction != null && transaction.getNotes() != null
+                                && !transaction.getNotes().isEmpty()
+                                ? transaction.getNotes()
+                                : "Gasto";
+                    }
+
+                    @Override
+                    public String snippet(long transactionId) {
+                        Transaction transaction = expensesById.get(transactionId);
+                        if (transaction == null) return null;
+                        return String.format(Locale.getDefault(), "$%.2f %s",
+                                transaction.getAmount(),
+                                transaction.getCurrencyCode());
+                    }
+                });
+        map.setOnMarkerClickListener(expenseLayer::onMarkerClick);
 
         // Intentar habilitar mi ubicación y obtener última ubicación
         checkAndRequestLocationPermissions();
 
         // Setup markers if data is loaded
         if (currentTrip != null) {
-            setupMapMarkers();
+            updateTripMarkers();
             updateCamera();
+            publishViewport();
         }
     }
 
@@ -172,75 +249,60 @@ public class TripMapFragment extends Fragment implements OnMapReadyCallback {
         }
     }
 
-    private void setupMapMarkers() {
+    /**
+     * Marcadores de inicio (verde) y meta (rojo); solo se tocan si cambian
+     */
+    private void updateTripMarkers() {
         if (map == null || currentTrip == null) return;
 
-        map.clear();
-        List<LatLng> allPoints = new ArrayList<>();
-
-        // 1. Agregar marcador verde para el punto de inicio
-        if (currentTrip.getOriginLatitude() != null && currentTrip.getOriginLongitude() != null) {
-            LatLng originLatLng = new LatLng(
-                    currentTrip.getOriginLatitude(),
-                    currentTrip.getOriginLongitude()
-            );
-
-            map.addMarker(new MarkerOptions()
-                    .position(originLatLng)
-                    .title("Inicio")
-                    .snippet(currentTrip.getOrigin() != null ? currentTrip.getOrigin() : "Punto de inicio")
-                    .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_GREEN))
-            );
+        originMarker = placeTripMarker(originMarker,
+                currentTrip.getOriginLatitude(), currentTrip.getOriginLongitude(),
+                "Inicio",
+                currentTrip.getOrigin() != null ? currentTrip.getOrigin() : "Punto de inicio",
+                BitmapDescriptorFactory.HUE_GREEN);
+
+        destinationMarker = placeTripMarker(destinationMarker,
+                currentTrip.getDestinationLatitude(), currentTrip.getDestinationLongitude(),
+                "Meta",
+                currentTrip.getDestination() != null ? currentTrip.getDestination() : "Punto final",
+                BitmapDescriptorFactory.HUE_RED);
+    }
 
-            allPoints.add(originLatLng);
+    private Marker placeTripMarker(@Nullable Marker marker, Double latitude, Double longitude,
+                                   String title, String snippet, float hue) {
+        if (latitude == null || longitude == null) {
+            if (marker != null) marker.remove();
+            return null;
         }
 
-        // 2. Agregar marcador rojo (bandera) para el punto final
-        if (currentTrip.getDestinationLatitude() != null && currentTrip.getDestinationLongitude() != null) {
-            LatLng destinationLatLng = new LatLng(
-                    currentTrip.getDestinationLatitude(),
-                    currentTrip.getDestinationLongitude()
-            );
-
-            map.addMarker(new MarkerOptions()
-                    .position(destinationLatLng)
-                    .title("Meta")
-                    .snippet(currentTrip.getDestination() != null ? currentTrip.getDestination() : "Punto final")
-                    .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_RED))
-            );
-
-            allPoints.add(destinationLatLng);
+        LatLng position = new LatLng(latitude, longitude);
+        if (marker == null) {
+            return map.addMarker(new MarkerOptions()
+                    .position(position)
+                    .title(title)
+                    .snippet(snippet)
+                    .icon(BitmapDescriptorFactory.defaultMarker(hue)));
         }
+        if (!position.equals(marker.getPosition())) marker.setPosition(position);
+        if (!snippet.equals(marker.getSnippet())) marker.setSnippet(snippet);
+        return marker;
+    }
+
+    /**
+     * Agrupa los gastos con ubicación de la región visible y aplica solo los
+     * cambios de marcadores
+     */
+    private void updateExpenseMarkers() {
+        if (expenseLayer == null) return;
 
-        // 3. Agregar marcadores azules para cada gasto con ubicación
-        for (Transaction transaction : tripTransactions) {
+        List<MarkerClusterer.Point> points = new ArrayList<>(expensesById.size());
+        for (Transaction transaction : expensesById.values()) {
             if (transaction.getLatitude() != null && transaction.getLongitude() != null) {
-                LatLng transactionLatLng = new LatLng(
-                        transaction.getLatitude(),
-                        transaction.getLongitude()
-                );
-
-                String title = transaction.getNotes() != null && !transaction.getNotes().isEmpty()
-                        ? transaction.getNotes()
-                        : "Gasto";
-
-                String snippet = String.format(Locale.getDefault(), "$%.2f %s",
-                        transaction.getAmount(),
-                        transaction.getCurrencyCode());
-
-                map.addMarker(new MarkerOptions()
-                        .position(transactionLatLng)
-                        .title(title)
-                        .snippet(snippet)
-                        .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE))
-                );
-
-                allPoints.add(transactionLatLng);
+                points.add(new MarkerClusterer.Point(transaction.getTransactionId(),
+                        transaction.getLatitude(), transaction.getLongitude()));
             }
         }
-
-        // Guardar puntos para updateCamera (se retoman de las capas actuales)
-        // No centramos aquí; updateCamera() lo hará considerando userLatLng
+        expenseLayer.update(points);
     }
 
     private void updateCamera() {
@@ -257,10 +319,9 @@ public class TripMapFragment extends Fragment implements OnMapReadyCallback {
                 points.add(new LatLng(currentTrip.getDestinationLatitude(), currentTrip.getDestinationLongitude()));
             }
         }
-        for (Transaction t : tripTransactions) {
-            if (t.getLatitude() != null && t.getLongitude() != null) {
-                points.add(new LatLng(t.getLatitude(), t.getLongitude()));
-            }
+        if (tripBounds != null && tripBounds.point_count > 0) {
+            points.add(new LatLng(tripBounds.min_lat, tripBounds.min_lng));
+            points.add(new LatLng(tripBounds.max_lat, tripBounds.max_lng));
         }
         if (userLatLng != null) {
             points.add(userLatLng);
@@ -286,6 +347,16 @@ public class TripMapFragment extends Fragment implements OnMapReadyCallback {
         }
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // El mapa y sus marcadores se destruyen con la vista
+        map = null;
+        expenseLayer = null;
+        originMarker = null;
+        destinationMarker = null;
+    }
+
     /**
      * Convierte un Drawable a BitmapDescriptor (útil para iconos personalizados)
      */
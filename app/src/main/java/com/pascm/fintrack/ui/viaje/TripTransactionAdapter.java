@@ -7,28 +7,65 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.pascm.fintrack.R;
 import com.pascm.fintrack.data.local.entity.Transaction;
 
 import java.text.NumberFormat;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class TripTransactionAdapter extends RecyclerView.Adapter<TripTransactionAdapter.TransactionViewHolder> {
+public class TripTransactionAdapter extends ListAdapter<Transaction, TripTransactionAdapter.TransactionViewHolder> {
 
-    private List<Transaction> transactions;
+    /**
+     * Payload: only the amount changed
+     */
+    private static final Object PAYLOAD_AMOUNT = new Object();
+
+    private static final DiffUtil.ItemCallback<Transaction> DIFF_CALLBACK = new DiffUtil.ItemCallback<Transaction>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return oldItem.getTransactionId() == newItem.getTransactionId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return sameLabels(oldItem, newItem) && oldItem.getAmount() == newItem.getAmount();
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return sameLabels(oldItem, newItem) ? PAYLOAD_AMOUNT : null;
+        }
+    };
+
+    /**
+     * Everything shown except the amount
+     */
+    private static boolean sameLabels(Transaction a, Transaction b) {
+        return Objects.equals(a.getNotes(), b.getNotes())
+                && a.getType() == b.getType()
+                && Objects.equals(a.getTransactionDate(), b.getTransactionDate());
+    }
+
+    private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("es", "MX"));
 
     public TripTransactionAdapter() {
-        this.transactions = new ArrayList<>();
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
     }
 
+    /**
+     * Show the trip's transactions. The difference with the current list is
+     * computed in the background and only changed rows are rebound.
+     */
     public void setTransactions(List<Transaction> transactions) {
-        this.transactions = transactions != null ? transactions : new ArrayList<>();
-        notifyDataSetChanged();
+        submitList(transactions != null ? transactions : Collections.emptyList());
     }
 
     @NonNull
@@ -39,15 +76,31 @@ public class TripTransactionAdapter extends RecyclerView.Adapter<TripTransaction
         return new TransactionViewHolder(view);
     }
 
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getTransactionId();
+    }
+
     @Override
     public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
-        Transaction transaction = transactions.get(position);
-        holder.bind(transaction);
+        Transaction transaction = getItem(position);
+        holder.bind(transaction, currencyFormat);
     }
 
     @Override
-    public int getItemCount() {
-        return transactions.size();
+    public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && onlyAmountChanged(payloads)) {
+            holder.bindAmount(getItem(position), currencyFormat);
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+
+    private static boolean onlyAmountChanged(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_AMOUNT) return false;
+        }
+        return true;
     }
 
     static class TransactionViewHolder extends RecyclerView.ViewHolder {
@@ -64,7 +117,7 @@ public class TripTransactionAdapter extends RecyclerView.Adapter<TripTransaction
             txtAmount = itemView.findViewById(R.id.txt_amount);
         }
 
-        public void bind(Transaction transaction) {
+        public void bind(Transaction transaction, NumberFormat currencyFormat) {
             // Set transaction name/description
             String description = transaction.getNotes();
             if (description == null || description.isEmpty()) {
@@ -73,23 +126,24 @@ public class TripTransactionAdapter extends RecyclerView.Adapter<TripTransaction
             txtName.setText(description);
 
             // Set category and date
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd MMM", new Locale("es", "MX"));
             String typeText = transaction.getType() == Transaction.TransactionType.EXPENSE ? "Gasto" : "Ingreso";
             String categoryDate = typeText + " • " +
                     transaction.getTransactionDate().toString().substring(0, 10);
             txtCategoryDate.setText(categoryDate);
 
-            // Set amount
-            NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("es", "MX"));
-            String amountStr = transaction.getType() == Transaction.TransactionType.EXPENSE ?
-                    "-" + currencyFormat.format(transaction.getAmount()) :
-                    "+" + currencyFormat.format(transaction.getAmount());
-            txtAmount.setText(amountStr);
+            bindAmount(transaction, currencyFormat);
 
             // Set icon based on transaction type
             int iconRes = transaction.getType() == Transaction.TransactionType.EXPENSE ?
                     R.drawable.ic_shopping_bag : R.drawable.ic_add;
             imgCategory.setImageResource(iconRes);
         }
+
+        void bindAmount(Transaction transaction, NumberFormat currencyFormat) {
+            String amountStr = transaction.getType() == Transaction.TransactionType.EXPENSE ?
+                    "-" + currencyFormat.format(transaction.getAmount()) :
+                    "+" + currencyFormat.format(transaction.getAmount());
+            txtAmount.setText(amountStr);
+        }
     }
 }
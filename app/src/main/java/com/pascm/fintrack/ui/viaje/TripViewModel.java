@@ -0,0 +1,135 @@
+package com.pascm.fintrack.ui.viaje;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.navigation.fragment.NavHostFragment;
+
+import com.pascm.fintrack.R;
+import com.pascm.fintrack.data.local.dao.TripRollupDao;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.Trip;
+import com.pascm.fintrack.data.repository.TransactionRepository;
+import com.pascm.fintrack.data.repository.TripRepository;
+import com.pascm.fintrack.model.TripForecast;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Estado del viaje activo, compartido por Modo viaje, Viaje activo y el mapa
+ * del viaje.
+ *
+ * Vive en el ViewModelStore del nav graph (ver of()), así que las pantallas de
+ * viaje usan las mismas consultas de Room: pasar de una a otra, rotar o volver
+ * desde la pila no vuelve a consultar el viaje mientras no cambie.
+ *
+ * Las cifras salen de trip_rollups (una fila de totales mantenida por triggers
+ * al escribir transacciones), no de recorrer las transacciones del viaje; la
+ * lista completa solo se lee para exportar.
+ */
+public class TripViewModel extends AndroidViewModel {
+
+    static final int RECENT_COUNT = 5;
+
+    private final TransactionRepository transactionRepository;
+    private final MutableLiveData<Long> userId = new MutableLiveData<>();
+    private final LiveData<Trip> activeTrip;
+    private final LiveData<TripRollupDao.TripSpendSummary> spendSummary;
+    private final LiveData<List<Transaction>> recentTransactions;
+    private final MediatorLiveData<TripForecast> forecast = new MediatorLiveData<>();
+
+    public TripViewModel(@NonNull Application application) {
+        super(application);
+        TripRepository tripRepository = new TripRepository(application);
+        transactionRepository = new TransactionRepository(application);
+
+        activeTrip = Transformations.switchMap(userId, tripRepository::getActiveTrip);
+
+        // Ediciones del viaje (presupuesto, fechas) no vuelven a consultar sus cifras
+        LiveData<Long> activeTripId = Transformations.distinctUntilChanged(
+                Transformations.map(activeTrip, trip -> trip != null ? trip.getTripId() : null));
+        spendSummary = Transformations.switchMap(activeTripId, tripId -> tripId == null
+                ? new MutableLiveData<>(null)
+                : tripRepository.getSpendSummary(tripId));
+        recentTransactions = Transformations.switchMap(activeTripId, tripId -> tripId == null
+                ? new MutableLiveData<>(null)
+                : transactionRepository.getRecentTransactionsByTrip(userId.getValue(), tripId, RECENT_COUNT));
+
+        forecast.addSource(activeTrip, trip -> updateForecast());
+        forecast.addSource(spendSummary, summary -> updateForecast());
+    }
+
+    /**
+     * ViewModel compartido del nav graph, para fragments de viaje
+     */
+    public static TripViewModel of(@NonNull Fragment fragment) {
+        return new ViewModelProvider(NavHostFragment.findNavController(fragment)
+                .getViewModelStoreOwner(R.id.nav_graph)).get(TripViewModel.class);
+    }
+
+    /**
+     * Usuario de la sesión; llamar en onViewCreated. No hace nada si no cambió.
+     */
+    public void setUserId(long id) {
+        Long current = userId.getValue();
+        if (current == null || current != id) {
+            userId.setValue(id);
+        }
+    }
+
+    /**
+     * Viaje activo del usuario, o null si no hay
+     */
+    public LiveData<Trip> getActiveTrip() {
+        return activeTrip;
+    }
+
+    /**
+     * Totales del viaje activo (gastado, conteos, categoría principal), o null sin viaje
+     */
+    public LiveData<TripRollupDao.TripSpendSummary> getSpendSummary() {
+        return spendSummary;
+    }
+
+    /**
+     * Las RECENT_COUNT transacciones más recientes del viaje activo, o null sin viaje
+     */
+    public LiveData<List<Transaction>> getRecentTransactions() {
+        return recentTransactions;
+    }
+
+    /**
+     * Ritmo de gasto y proyección contra el presupuesto, o null sin viaje
+     */
+    public LiveData<TripForecast> getForecast() {
+        return forecast;
+    }
+
+    /**
+     * Todas las transacciones de un viaje (para exportar). Llamar en un hilo de fondo.
+     */
+    public List<Transaction> loadTripTransactionsSync(long tripId) {
+        Long user = userId.getValue();
+        return transactionRepository.getTransactionsByTripSync(user != null ? user : -1, tripId);
+    }
+
+    private void updateForecast() {
+        Trip trip = activeTrip.getValue();
+        TripRollupDao.TripSpendSummary summary = spendSummary.getValue();
+        if (trip == null) {
+            forecast.setValue(null);
+            return;
+        }
+        double spent = summary != null ? summary.total_spent : 0;
+        forecast.setValue(TripForecast.of(spent, trip.getBudgetAmount(),
+                trip.getStartDate(), trip.getEndDate(), LocalDate.now()));
+    }
+}
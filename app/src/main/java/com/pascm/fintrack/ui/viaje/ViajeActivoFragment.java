@@ -17,13 +17,12 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
 
 import com.pascm.fintrack.R;
+import com.pascm.fintrack.data.local.dao.TripRollupDao;
 import com.pascm.fintrack.databinding.FragmentViajeActivoBinding;
 import com.pascm.fintrack.data.repository.TripRepository;
-import com.pascm.fintrack.data.repository.TransactionRepository;
 import com.pascm.fintrack.util.SessionManager;
 import com.pascm.fintrack.util.CsvExporter;
-import com.pascm.fintrack.data.local.FinTrackDatabase;
-import com.pascm.fintrack.data.local.entity.Category;
+import com.pascm.fintrack.model.TripForecast;
 
 import android.net.Uri;
 
@@ -31,10 +30,8 @@ public class ViajeActivoFragment extends Fragment {
 
     private FragmentViajeActivoBinding binding;
     private TripRepository tripRepository;
-    private TransactionRepository transactionRepository;
-
-    private int topCategoryCalcVersion = 0; // versión para invalidar cálculos asíncronos previos
-    private java.util.List<com.pascm.fintrack.data.local.entity.Transaction> lastTransactions; // referencia para comparaciones
+    private TripViewModel viewModel;
+    private android.content.res.ColorStateList forecastDefaultColors;
 
     // Launcher para solicitar permisos de ubicación
     private final ActivityResultLauncher<String[]> locationPermissionLauncher =
@@ -61,6 +58,7 @@ public class ViajeActivoFragment extends Fragment {
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
         binding = FragmentViajeActivoBinding.inflate(inflater, container, false);
+        forecastDefaultColors = binding.tvForecast.getTextColors();
         return binding.getRoot();
     }
 
@@ -68,9 +66,10 @@ public class ViajeActivoFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        // Initialize repositories
+        // Viaje y resumen compartidos con las demás pantallas de viaje
         tripRepository = new TripRepository(requireContext());
-        transactionRepository = new TransactionRepository(requireContext());
+        viewModel = TripViewModel.of(this);
+        viewModel.setUserId(SessionManager.getUserId(requireContext()));
 
         // Ensure correct selected item in bottom nav when on Viajes
         binding.bottomNavigation.setSelectedItemId(R.id.nav_viajes);
@@ -134,25 +133,26 @@ public class ViajeActivoFragment extends Fragment {
     }
 
     private void loadTripData() {
-        long userId = SessionManager.getUserId(requireContext());
         // Reset visual antes de observar
         binding.tvTopCategory.setText("---");
-        tripRepository.getActiveTrip(userId).observe(getViewLifecycleOwner(), trip -> {
+        viewModel.getActiveTrip().observe(getViewLifecycleOwner(), trip -> {
             if (trip != null) {
                 // Cargar información del viaje
                 updateTripInfo(trip);
-
-                // Cargar transacciones del viaje
-                transactionRepository.getTransactionsByTrip(userId, trip.getTripId())
-                        .observe(getViewLifecycleOwner(), transactions -> {
-                            lastTransactions = transactions;
-                            updateTransactionInfo(trip, transactions);
-                        });
+                updateTransactionInfo(trip, viewModel.getSpendSummary().getValue());
             } else {
                 // Sin viaje activo
                 binding.tvTopCategory.setText("---");
             }
         });
+        // Una fila de totales (trip_rollups); la lista de transacciones no se carga
+        viewModel.getSpendSummary().observe(getViewLifecycleOwner(), summary -> {
+            com.pascm.fintrack.data.local.entity.Trip trip = viewModel.getActiveTrip().getValue();
+            if (trip != null) {
+                updateTransactionInfo(trip, summary);
+            }
+        });
+        viewModel.getForecast().observe(getViewLifecycleOwner(), this::updateForecast);
     }
 
     private void updateTripInfo(com.pascm.fintrack.data.local.entity.Trip trip) {
@@ -188,24 +188,14 @@ public class ViajeActivoFragment extends Fragment {
     }
 
     private void updateTransactionInfo(com.pascm.fintrack.data.local.entity.Trip trip,
-                                       java.util.List<com.pascm.fintrack.data.local.entity.Transaction> transactions) {
+                                       TripRollupDao.TripSpendSummary summary) {
         java.text.NumberFormat currencyFormat = java.text.NumberFormat.getCurrencyInstance(
             new java.util.Locale("es", "MX"));
 
-        int transactionCount = transactions != null ? transactions.size() : 0;
+        int transactionCount = summary != null ? summary.transaction_count : 0;
         binding.tvTransactionCount.setText(String.valueOf(transactionCount));
 
-        double totalSpent = 0;
-        int expenseCount = 0;
-        if (transactions != null) {
-            for (com.pascm.fintrack.data.local.entity.Transaction transaction : transactions) {
-                if (transaction.getType() == com.pascm.fintrack.data.local.entity.Transaction.TransactionType.EXPENSE
-                        && transaction.getAmount() > 0) {
-                    totalSpent += transaction.getAmount();
-                    expenseCount++;
-                }
-            }
-        }
+        double totalSpent = summary != null ? summary.total_spent : 0;
         binding.tvSpent.setText(currencyFormat.format(totalSpent));
 
         if (trip.getBudgetAmount() != null && trip.getBudgetAmount() > 0) {
@@ -219,86 +209,63 @@ public class ViajeActivoFragment extends Fragment {
         }
 
         // Top categoría: solo si hay al menos 1 gasto real
-        if (expenseCount > 0) {
-            calculateTopCategory(transactions);
-        } else {
-            // Invalidar cálculos previos incrementando versión
-            topCategoryCalcVersion++;
-            binding.tvTopCategory.setText("---");
-        }
+        boolean hasTopCategory = summary != null && summary.expense_count > 0 && summary.top_category_name != null;
+        binding.tvTopCategory.setText(hasTopCategory ? summary.top_category_name : "---");
     }
 
-    private void calculateTopCategory(java.util.List<com.pascm.fintrack.data.local.entity.Transaction> transactions) {
-        topCategoryCalcVersion++; // nuevo cálculo
-        final int calcVersion = topCategoryCalcVersion;
-        binding.tvTopCategory.setText("---");
-        if (transactions == null || transactions.isEmpty()) return;
-        java.util.Map<Long, Integer> categoryCounts = new java.util.HashMap<>();
-        for (com.pascm.fintrack.data.local.entity.Transaction t : transactions) {
-            if (t.getType() == com.pascm.fintrack.data.local.entity.Transaction.TransactionType.EXPENSE && t.getAmount() > 0) {
-                Long catId = t.getCategoryId();
-                if (catId != null) {
-                    Integer current = categoryCounts.get(catId);
-                    categoryCounts.put(catId, current == null ? 1 : current + 1);
-                }
-            }
+    /**
+     * Proyección al ritmo de gasto actual contra el presupuesto
+     */
+    private void updateForecast(TripForecast forecast) {
+        if (forecast == null || !forecast.hasBudget() || forecast.getSpent() <= 0) {
+            binding.tvForecast.setVisibility(View.GONE);
+            return;
+        }
+        java.text.NumberFormat currencyFormat = java.text.NumberFormat.getCurrencyInstance(
+            new java.util.Locale("es", "MX"));
+
+        String text = getString(R.string.proyeccion_viaje,
+                currencyFormat.format(forecast.getProjectedTotal()),
+                currencyFormat.format(forecast.getDailyBurn()));
+        if (forecast.getBudgetExhaustedOn() != null) {
+            java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter.ofPattern("dd MMM",
+                new java.util.Locale("es", "MX"));
+            text += "\n" + getString(R.string.proyeccion_excede, forecast.getBudgetExhaustedOn().format(formatter));
+        } else if (forecast.getRemainingDays() > 0) {
+            text += "\n" + getString(R.string.proyeccion_disponible_dia,
+                    currencyFormat.format(forecast.getDailyAllowance()));
         }
-        if (categoryCounts.isEmpty()) return;
-        Long topCategoryId = null; int max = 0;
-        for (java.util.Map.Entry<Long, Integer> e : categoryCounts.entrySet()) {
-            if (e.getValue() > max) { max = e.getValue(); topCategoryId = e.getKey(); }
+        binding.tvForecast.setText(text);
+        if (forecast.isProjectedOverBudget()) {
+            binding.tvForecast.setTextColor(ContextCompat.getColor(requireContext(), R.color.error_red));
+        } else {
+            binding.tvForecast.setTextColor(forecastDefaultColors);
         }
-        if (topCategoryId == null) return;
-        final Long finalTopCategoryId = topCategoryId;
-        new Thread(() -> {
-            try {
-                FinTrackDatabase db = FinTrackDatabase.getDatabase(requireContext());
-                Category category = db.categoryDao().getByIdSync(finalTopCategoryId);
-                requireActivity().runOnUiThread(() -> {
-                    // Verificar que versión siga vigente y lista de transacciones no haya cambiado a vacía
-                    if (binding != null && calcVersion == topCategoryCalcVersion && lastTransactions != null && !lastTransactions.isEmpty()) {
-                        if (category != null) {
-                            binding.tvTopCategory.setText(category.getName());
-                        } else {
-                            binding.tvTopCategory.setText("---");
-                        }
-                    }
-                });
-            } catch (Exception ex) {
-                requireActivity().runOnUiThread(() -> {
-                    if (binding != null && calcVersion == topCategoryCalcVersion) {
-                        binding.tvTopCategory.setText("---");
-                    }
-                });
-            }
-        }).start();
+        binding.tvForecast.setVisibility(View.VISIBLE);
     }
 
     private void exportTripToCsv() {
-        long userId = SessionManager.getUserId(requireContext());
-        tripRepository.getActiveTrip(userId).observe(getViewLifecycleOwner(), trip -> {
-            if (trip != null) {
-                transactionRepository.getTransactionsByTrip(userId, trip.getTripId()).observe(getViewLifecycleOwner(), transactions -> {
-                    if (transactions != null) {
-                        // Export on background thread
-                        new Thread(() -> {
-                            Uri csvUri = CsvExporter.exportTripToCSV(requireContext(), trip, transactions);
-
-                            requireActivity().runOnUiThread(() -> {
-                                if (csvUri != null) {
-                                    CsvExporter.shareCsv(requireContext(), csvUri);
-                                    Toast.makeText(requireContext(), "CSV exportado exitosamente", Toast.LENGTH_SHORT).show();
-                                } else {
-                                    Toast.makeText(requireContext(), "Error al exportar CSV", Toast.LENGTH_SHORT).show();
-                                }
-                            });
-                        }).start();
-                    }
-                });
-            } else {
-                Toast.makeText(requireContext(), "No hay viaje activo", Toast.LENGTH_SHORT).show();
-            }
-        });
+        com.pascm.fintrack.data.local.entity.Trip trip = viewModel.getActiveTrip().getValue();
+        if (trip == null) {
+            Toast.makeText(requireContext(), "No hay viaje activo", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // Export on background thread (the only place that reads every transaction of the trip)
+        new Thread(() -> {
+            java.util.List<com.pascm.fintrack.data.local.entity.Transaction> transactions =
+                    viewModel.loadTripTransactionsSync(trip.getTripId());
+            Uri csvUri = CsvExporter.exportTripToCSV(requireContext(), trip, transactions);
+
+            requireActivity().runOnUiThread(() -> {
+                if (csvUri != null) {
+                    CsvExporter.shareCsv(requireContext(), csvUri);
+                    Toast.makeText(requireContext(), "CSV exportado exitosamente", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(requireContext(), "Error al exportar CSV", Toast.LENGTH_SHORT).show();
+                }
+            });
+        }).start();
     }
 
     /**
@@ -325,8 +292,6 @@ public class ViajeActivoFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
-        // invalidar cálculos pendientes
-        topCategoryCalcVersion++;
         binding = null;
     }
 }
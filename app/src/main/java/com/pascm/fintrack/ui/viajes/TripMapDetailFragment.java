@@ -9,6 +9,9 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 import androidx.navigation.Navigation;
 
 import com.google.android.gms.maps.CameraUpdateFactory;
@@ -18,28 +21,49 @@ import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polyline;
 import com.google.android.gms.maps.model.PolylineOptions;
 import com.pascm.fintrack.R;
+import com.pascm.fintrack.data.local.dao.TransactionDao;
 import com.pascm.fintrack.data.local.entity.Transaction;
 import com.pascm.fintrack.data.local.entity.Trip;
 import com.pascm.fintrack.data.repository.TransactionRepository;
 import com.pascm.fintrack.data.repository.TripRepository;
 import com.pascm.fintrack.databinding.FragmentTripMapDetailBinding;
+import com.pascm.fintrack.util.ClusterMarkerLayer;
+import com.pascm.fintrack.util.MarkerClusterer;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public class TripMapDetailFragment extends Fragment implements OnMapReadyCallback {
 
     private FragmentTripMapDetailBinding binding;
     private TripRepository tripRepository;
     private TransactionRepository transactionRepository;
+    // Máximo de gastos que se consultan para la región visible; se dibujan agrupados
+    private static final int MAX_POINTS = 2000;
+
     private GoogleMap mMap;
     private long tripId;
     private Trip currentTrip;
+
+    // Región visible del mapa; cada cambio consulta solo los gastos dentro de ella
+    private final MutableLiveData<LatLngBounds> viewport = new MutableLiveData<>();
+    private final Map<Long, Transaction> expensesById = new HashMap<>();
+    // Gastos agrupados por zona; solo se agregan o quitan los marcadores que cambian
+    private ClusterMarkerLayer expenseLayer;
+    // Inicio, destino y línea de ruta
+    private final List<Marker> routeMarkers = new ArrayList<>();
+    private Polyline routeLine;
+    // Extensión de todos los gastos con ubicación del viaje (para encuadrar la cámara)
+    private TransactionDao.LocationBounds tripBounds;
     private final NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("es", "MX"));
 
     @Override
@@ -81,87 +105,140 @@ public class TripMapDetailFragment extends Fragment implements OnMapReadyCallbac
     }
 
     private void loadTripData() {
+        long userId = com.pascm.fintrack.util.SessionManager.getUserId(requireContext());
+
+        // Gastos dentro de la región visible (índice espacial), se vuelve a consultar al mover el mapa
+        LiveData<List<Transaction>> visible = Transformations.switchMap(viewport, bounds ->
+                transactionRepository.getTransactionsInArea(userId, tripId,
+                        bounds.southwest.latitude, bounds.northeast.latitude,
+                        // Región que cruza el antimeridiano: no filtrar por longitud
+                        bounds.southwest.longitude <= bounds.northeast.longitude ? bounds.southwest.longitude : -180,
+                        bounds.southwest.longitude <= bounds.northeast.longitude ? bounds.northeast.longitude : 180,
+                        MAX_POINTS));
+        visible.observe(getViewLifecycleOwner(), transactions -> {
+            expensesById.clear();
+            if (transactions != null) {
+                for (Transaction transaction : transactions) {
+                    expensesById.put(transaction.getTransactionId(), transaction);
+                }
+            }
+            updateExpenseMarkers();
+        });
+
+        // Solo la extensión de los gastos, para encuadrar la cámara
+        transactionRepository.getTripLocationBounds(userId, tripId).observe(getViewLifecycleOwner(), bounds -> {
+            tripBounds = bounds;
+            fitCamera();
+        });
+
         tripRepository.getTripById(tripId).observe(getViewLifecycleOwner(), trip -> {
             if (trip != null) {
                 currentTrip = trip;
-                loadExpensesOnMap();
+                drawRoute();
+                fitCamera();
             }
         });
     }
 
-    private void loadExpensesOnMap() {
-        if (mMap == null || currentTrip == null) return;
+    /**
+     * Publica la región visible actual para consultar sus gastos
+     */
+    private void publishViewport() {
+        if (mMap == null) return;
+        viewport.setValue(mMap.getProjection().getVisibleRegion().latLngBounds);
+    }
 
-        long userId = com.pascm.fintrack.util.SessionManager.getUserId(requireContext());
-        transactionRepository.getTransactionsByTrip(userId, tripId).observe(getViewLifecycleOwner(), transactions -> {
-            if (transactions != null) {
-                mMap.clear();
-                List<LatLng> allLocations = new ArrayList<>();
-
-                // Agregar marcador de inicio
-                if (currentTrip.getOriginLatitude() != null && currentTrip.getOriginLongitude() != null) {
-                    LatLng origin = new LatLng(currentTrip.getOriginLatitude(), currentTrip.getOriginLongitude());
-                    mMap.addMarker(new MarkerOptions()
-                            .position(origin)
-                            .title("Inicio: " + (currentTrip.getOrigin() != null ? currentTrip.getOrigin() : "Origen"))
-                            .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_GREEN)));
-                    allLocations.add(origin);
-                }
+    /**
+     * Agrupa los gastos con ubicación de la región visible y aplica solo los
+     * cambios de marcadores
+     */
+    private void updateExpenseMarkers() {
+        if (expenseLayer == null) return;
 
-                // Agregar marcador de destino
-                if (currentTrip.getDestinationLatitude() != null && currentTrip.getDestinationLongitude() != null) {
-                    LatLng destination = new LatLng(currentTrip.getDestinationLatitude(), currentTrip.getDestinationLongitude());
-                    mMap.addMarker(new MarkerOptions()
-                            .position(destination)
-                            .title("Destino: " + currentTrip.getDestination())
-                            .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_RED)));
-                    allLocations.add(destination);
-                }
+        List<MarkerClusterer.Point> points = new ArrayList<>(expensesById.size());
+        for (Transaction transaction : expensesById.values()) {
+            if (transaction.getLatitude() != null && transaction.getLongitude() != null) {
+                points.add(new MarkerClusterer.Point(transaction.getTransactionId(),
+                        transaction.getLatitude(), transaction.getLongitude()));
+            }
+        }
+        expenseLayer.update(points);
+    }
 
-                // Agregar marcadores de gastos
-                for (Transaction transaction : transactions) {
-                    if (transaction.getLatitude() != null && transaction.getLongitude() != null) {
-                        LatLng location = new LatLng(transaction.getLatitude(), transaction.getLongitude());
+    /**
+     * Marcadores de inicio y destino y la línea de ruta; se redibujan solo si
+     * el viaje cambia (los gastos van en su propia capa)
+     */
+    private void drawRoute() {
+        if (mMap == null || currentTrip == null) return;
 
-                        String title = getTransactionTypeString(transaction.getType());
-                        String snippet = currencyFormat.format(transaction.getAmount());
+        for (Marker marker : routeMarkers) {
+            marker.remove();
+        }
+        routeMarkers.clear();
+        if (routeLine != null) {
+            routeLine.remove();
+            routeLine = null;
+        }
 
-                        mMap.addMarker(new MarkerOptions()
-                                .position(location)
-                                .title(title)
-                                .snippet(snippet)
-                                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE)));
+        LatLng origin = null;
+        LatLng destination = null;
 
-                        allLocations.add(location);
-                    }
-                }
+        // Agregar marcador de inicio
+        if (currentTrip.getOriginLatitude() != null && currentTrip.getOriginLongitude() != null) {
+            origin = new LatLng(currentTrip.getOriginLatitude(), currentTrip.getOriginLongitude());
+            routeMarkers.add(mMap.addMarker(new MarkerOptions()
+                    .position(origin)
+                    .title("Inicio: " + (currentTrip.getOrigin() != null ? currentTrip.getOrigin() : "Origen"))
+                    .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_GREEN))));
+        }
 
-                // Dibujar línea de ruta si hay inicio y destino
-                if (currentTrip.getOriginLatitude() != null && currentTrip.getOriginLongitude() != null &&
-                    currentTrip.getDestinationLatitude() != null && currentTrip.getDestinationLongitude() != null) {
+        // Agregar marcador de destino
+        if (currentTrip.getDestinationLatitude() != null && currentTrip.getDestinationLongitude() != null) {
+            destination = new LatLng(currentTrip.getDestinationLatitude(), currentTrip.getDestinationLongitude());
+            routeMarkers.add(mMap.addMarker(new MarkerOptions()
+                    .position(destination)
+                    .title("Destino: " + currentTrip.getDestination())
+                    .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_RED))));
+        }
 
-                    LatLng origin = new LatLng(currentTrip.getOriginLatitude(), currentTrip.getOriginLongitude());
-                    LatLng destination = new LatLng(currentTrip.getDestinationLatitude(), currentTrip.getDestinationLongitude());
+        // Dibujar línea de ruta si hay inicio y destino
+        if (origin != null && destination != null) {
+            routeLine = mMap.addPolyline(new PolylineOptions()
+                    .add(origin, destination)
+                    .width(5)
+                    .color(getResources().getColor(R.color.primary, null))
+                    .geodesic(true));
+        }
+    }
 
-                    mMap.addPolyline(new PolylineOptions()
-                            .add(origin, destination)
-                            .width(5)
-                            .color(getResources().getColor(R.color.primary, null))
-                            .geodesic(true));
-                }
+    /**
+     * Ajusta la cámara para mostrar el inicio, el destino y todos los gastos
+     */
+    private void fitCamera() {
+        if (mMap == null || currentTrip == null) return;
 
-                // Ajustar la cámara para mostrar todos los marcadores
-                if (!allLocations.isEmpty()) {
-                    LatLngBounds.Builder boundsBuilder = new LatLngBounds.Builder();
-                    for (LatLng location : allLocations) {
-                        boundsBuilder.include(location);
-                    }
-                    LatLngBounds bounds = boundsBuilder.build();
-                    int padding = 100; // padding en píxeles
-                    mMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, padding));
-                }
+        List<LatLng> allLocations = new ArrayList<>();
+        if (currentTrip.getOriginLatitude() != null && currentTrip.getOriginLongitude() != null) {
+            allLocations.add(new LatLng(currentTrip.getOriginLatitude(), currentTrip.getOriginLongitude()));
+        }
+        if (currentTrip.getDestinationLatitude() != null && currentTrip.getDestinationLongitude() != null) {
+            allLocations.add(new LatLng(currentTrip.getDestinationLatitude(), currentTrip.getDestinationLongitude()));
+        }
+        if (tripBounds != null && tripBounds.point_count > 0) {
+            allLocations.add(new LatLng(tripBounds.min_lat, tripBounds.min_lng));
+            allLocations.add(new LatLng(tripBounds.max_lat, tripBounds.max_lng));
+        }
+
+        if (!allLocations.isEmpty()) {
+            LatLngBounds.Builder boundsBuilder = new LatLngBounds.Builder();
+            for (LatLng location : allLocations) {
+                boundsBuilder.include(location);
             }
-        });
+            LatLngBounds bounds = boundsBuilder.build();
+            int padding = 100; // padding en píxeles
+            mMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, padding));
+        }
     }
 
     private String getTransactionTypeString(Transaction.TransactionType type) {
@@ -178,12 +255,38 @@ public class TripMapDetailFragment extends Fragment implements OnMapReadyCallbac
         mMap = googleMap;
         mMap.getUiSettings().setZoomControlsEnabled(true);
         mMap.getUiSettings().setCompassEnabled(true);
-        loadExpensesOnMap();
+        mMap.setOnCameraIdleListener(this::publishViewport);
+
+        expenseLayer = new ClusterMarkerLayer(requireContext(), mMap,
+                BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE),
+                new ClusterMarkerLayer.ItemText() {
+                    @Override
+                    public String title(long transactionId) {
+                        Transaction transaction = expensesById.get(transactionId);
+                        return transaction != null ? getTransactionTypeString(transaction.getType()) : null;
+                    }
+
+                    @Override
+                    public String snippet(long transactionId) {
+                        Transaction transaction = expensesById.get(transactionId);
+                        return transaction != null ? currencyFormat.format(transaction.getAmount()) : null;
+                    }
+                });
+        mMap.setOnMarkerClickListener(expenseLayer::onMarkerClick);
+
+        drawRoute();
+        fitCamera();
+        publishViewport();
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
         binding = null;
+        // El mapa y sus marcadores se destruyen con la vista
+        mMap = null;
+        expenseLayer = null;
+        routeMarkers.clear();
+        routeLine = null;
     }
 }
@@ -0,0 +1,176 @@
+package com.pascm.fintrack.util;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.maps.CameraUpdateFactory;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Draws MarkerClusterer clusters on a GoogleMap and keeps them up to date with
+ * add/remove deltas: markers that did not change stay on the map, so other
+ * markers and shapes (trip origin, route) are never cleared.
+ *
+ * Single points use the given icon and the title/snippet from the ItemText;
+ * groups show their count and zoom to their points when tapped.
+ */
+public class ClusterMarkerLayer {
+
+    /**
+     * Title and snippet of a single point's marker, by point id
+     */
+    public interface ItemText {
+        String title(long pointId);
+
+        String snippet(long pointId);
+    }
+
+    private static final int CLUSTER_COLOR = 0xFF1E88E5;
+    private static final int CLUSTER_SIZE_DP = 40;
+
+    private final GoogleMap map;
+    private final ItemText itemText;
+    private final BitmapDescriptor pointIcon;
+    private final float density;
+
+    private final Map<String, Marker> markers = new HashMap<>();
+    private final Map<String, MarkerClusterer.Cluster> shown = new HashMap<>();
+    private final Map<String, BitmapDescriptor> countIcons = new HashMap<>();
+
+    public ClusterMarkerLayer(@NonNull Context context, @NonNull GoogleMap map,
+                              @NonNull BitmapDescriptor pointIcon, @NonNull ItemText itemText) {
+        this.map = map;
+        this.itemText = itemText;
+        this.pointIcon = pointIcon;
+        this.density = context.getResources().getDisplayMetrics().density;
+    }
+
+    /**
+     * Clusters the points at the current zoom and applies the marker changes
+     */
+    public void update(@NonNull List<MarkerClusterer.Point> points) {
+        float zoom = map.getCameraPosition().zoom;
+        // Map pixels (256 per tile) are dp on screen, so the cell size needs no scaling
+        List<MarkerClusterer.Cluster> clusters =
+                MarkerClusterer.cluster(points, zoom, MarkerClusterer.DEFAULT_CELL_SIZE_PX);
+        MarkerClusterer.Diff diff = MarkerClusterer.diff(shown, clusters);
+
+        for (String key : diff.removed) {
+            Marker marker = markers.remove(key);
+            if (marker != null) marker.remove();
+            shown.remove(key);
+        }
+        for (MarkerClusterer.Cluster cluster : diff.added) {
+            Marker marker = map.addMarker(markerOptions(cluster));
+            if (marker == null) continue;
+            marker.setTag(cluster);
+            markers.put(cluster.key, marker);
+            shown.put(cluster.key, cluster);
+        }
+
+        // Points kept on the map: the item may have been edited since
+        for (MarkerClusterer.Cluster cluster : clusters) {
+            if (!cluster.isSingle()) continue;
+            Marker marker = markers.get(cluster.key);
+            if (marker == null) continue;
+            String title = itemText.title(cluster.pointId);
+            String snippet = itemText.snippet(cluster.pointId);
+            if (!Objects.equals(title, marker.getTitle())) marker.setTitle(title);
+            if (!Objects.equals(snippet, marker.getSnippet())) marker.setSnippet(snippet);
+        }
+    }
+
+    /**
+     * Zooms into a tapped group. For GoogleMap.OnMarkerClickListener; returns
+     * false for markers that are not groups so the default (info window) applies.
+     */
+    public boolean onMarkerClick(@NonNull Marker marker) {
+        if (!(marker.getTag() instanceof MarkerClusterer.Cluster)) return false;
+        MarkerClusterer.Cluster cluster = (MarkerClusterer.Cluster) marker.getTag();
+        if (cluster.isSingle()) return false;
+
+        if (cluster.minLat == cluster.maxLat && cluster.minLng == cluster.maxLng) {
+            // All at the same spot: zoom in a couple of levels
+            map.animateCamera(CameraUpdateFactory.newLatLngZoom(marker.getPosition(),
+                    map.getCameraPosition().zoom + 2));
+        } else {
+            LatLngBounds bounds = new LatLngBounds(
+                    new LatLng(cluster.minLat, cluster.minLng),
+                    new LatLng(cluster.maxLat, cluster.maxLng));
+            map.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, (int) (48 * density)));
+        }
+        return true;
+    }
+
+    /**
+     * Removes this layer's markers (not the rest of the map)
+     */
+    public void clear() {
+        for (Marker marker : markers.values()) {
+            marker.remove();
+        }
+        markers.clear();
+        shown.clear();
+    }
+
+    private MarkerOptions markerOptions(MarkerClusterer.Cluster cluster) {
+        MarkerOptions options = new MarkerOptions()
+                .position(new LatLng(cluster.latitude, cluster.longitude));
+        if (cluster.isSingle()) {
+            return options
+                    .title(itemText.title(cluster.pointId))
+                    .snippet(itemText.snippet(cluster.pointId))
+                    .icon(pointIcon);
+        }
+        return options
+                .icon(countIcon(cluster.count))
+                .anchor(0.5f, 0.5f);
+    }
+
+    /**
+     * Circle with the count, cached per label ("2" .. "99", "99+")
+     */
+    private BitmapDescriptor countIcon(int count) {
+        String label = count > 99 ? "99+" : String.valueOf(count);
+        BitmapDescriptor icon = countIcons.get(label);
+        if (icon != null) return icon;
+
+        int size = (int) (CLUSTER_SIZE_DP * density);
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        Paint fill = new Paint(Paint.ANTI_ALIAS_FLAG);
+        fill.setColor(Color.WHITE);
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f, fill);
+        fill.setColor(CLUSTER_COLOR);
+        canvas.drawCircle(size / 2f, size / 2f, size / 2f - 2 * density, fill);
+
+        Paint text = new Paint(Paint.ANTI_ALIAS_FLAG);
+        text.setColor(Color.WHITE);
+        text.setTextAlign(Paint.Align.CENTER);
+        text.setFakeBoldText(true);
+        text.setTextSize((label.length() > 2 ? 12 : 14) * density);
+        float baseline = size / 2f - (text.descent() + text.ascent()) / 2;
+        canvas.drawText(label, size / 2f, baseline, text);
+
+        icon = BitmapDescriptorFactory.fromBitmap(bitmap);
+        countIcons.put(label, icon);
+        return icon;
+    }
+}
@@ -2,21 +2,27 @@ package com.pascm.fintrack.util;
 
 import android.content.Context;
 import android.content.Intent;
+import android.database.Cursor;
 import android.net.Uri;
 import android.util.Log;
 
 import androidx.core.content.FileProvider;
 
+import com.pascm.fintrack.data.local.dao.TransactionDao;
 import com.pascm.fintrack.data.local.entity.Transaction;
 import com.pascm.fintrack.data.local.entity.Trip;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
 /**
  * Utility class for exporting data to CSV format
@@ -114,64 +120,133 @@ public class CsvExporter {
     }
 
     /**
-     * Export general report to CSV
-     *
-     * @param context      Application context
-     * @param periodName   Name of the period (e.g., "Este mes")
-     * @param startDate    Start date
-     * @param endDate      End date
-     * @param totalIncome  Total income
-     * @param totalExpense Total expenses
-     * @param transactions List of transactions
-     * @return Uri of the created CSV file, or null if failed
+     * Rows read per chunk of the report export
      */
-    public static Uri exportReportToCSV(Context context, String periodName, LocalDate startDate, LocalDate endDate,
-                                         double totalIncome, double totalExpense, List<Transaction> transactions) {
-        try {
-            // Create CSV file
-            File csvFile = createCsvFile(context, "reporte_" + periodName.replaceAll("[^a-zA-Z0-9]", "_"));
-            FileWriter writer = new FileWriter(csvFile);
+    static final int EXPORT_CHUNK_SIZE = 1000;
+
+    /**
+     * Progress of a streaming export
+     */
+    public interface ProgressListener {
+        void onProgress(int written, int total);
+    }
 
+    /**
+     * Export general report to CSV, streaming the transactions of the range.
+     *
+     * Rows are read in keyset chunks of EXPORT_CHUNK_SIZE with category and
+     * merchant names already joined, and written through a buffered UTF-8
+     * CsvWriter, so memory stays constant however many rows the range has.
+     *
+     * Blocks; call from a background thread (see CsvExportWorker).
+     *
+     * The rows go to a temporary file that is renamed to the result once
+     * complete. Between chunks isStopped is checked: when it returns true the
+     * temporary file is deleted and CancellationException is thrown, so a
+     * cancelled export never leaves a partial file behind.
+     *
+     * @param context        Application context
+     * @param transactionDao DAO to read the rows from
+     * @param userId         User ID
+     * @param periodName     Name of the period (e.g., "Este mes")
+     * @param startMillis    Range start (inclusive), epoch millis
+     * @param endMillis      Range end (inclusive), epoch millis
+     * @param totalIncome    Total income
+     * @param totalExpense   Total expenses
+     * @param listener       Called after each chunk, or null
+     * @param isStopped      Checked before each chunk, or null to always finish
+     * @return The created CSV file
+     */
+    public static File exportReportToCSV(Context context, TransactionDao transactionDao, long userId,
+                                         String periodName, long startMillis, long endMillis,
+                                         double totalIncome, double totalExpense,
+                                         ProgressListener listener, BooleanSupplier isStopped) throws IOException {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate startDate = Instant.ofEpochMilli(startMillis).atZone(zone).toLocalDate();
+        LocalDate endDate = Instant.ofEpochMilli(endMillis).atZone(zone).toLocalDate();
+        int total = transactionDao.getTransactionCountForDateRangeSync(userId, startMillis, endMillis);
+
+        File csvFile = createCsvFile(context, "reporte_" + periodName.replaceAll("[^a-zA-Z0-9]", "_"));
+        // Unique per export: a replaced export still running never touches this one's rows
+        File partFile = File.createTempFile(csvFile.getName(), ".part", csvFile.getParentFile());
+        boolean complete = false;
+        try (CsvWriter csv = new CsvWriter(partFile, zone)) {
             // Write report header
-            writer.append("REPORTE FINANCIERO\n");
-            writer.append("Período:,").append(periodName).append("\n");
-            writer.append("Fecha inicio:,").append(startDate.format(DATE_FORMATTER)).append("\n");
-            writer.append("Fecha fin:,").append(endDate.format(DATE_FORMATTER)).append("\n");
-            writer.append("Total ingresos:,").append(String.format(Locale.US, "%.2f", totalIncome)).append("\n");
-            writer.append("Total gastos:,").append(String.format(Locale.US, "%.2f", totalExpense)).append("\n");
-            writer.append("Balance:,").append(String.format(Locale.US, "%.2f", totalIncome - totalExpense)).append("\n");
-            writer.append("\n");
+            csv.field("REPORTE FINANCIERO").endRow();
+            csv.field("Período:").field(periodName).endRow();
+            csv.field("Fecha inicio:").field(startDate.format(DATE_FORMATTER)).endRow();
+            csv.field("Fecha fin:").field(endDate.format(DATE_FORMATTER)).endRow();
+            csv.field("Total ingresos:").amount(totalIncome).endRow();
+            csv.field("Total gastos:").amount(totalExpense).endRow();
+            csv.field("Balance:").amount(totalIncome - totalExpense).endRow();
+            csv.endRow();
 
             // Write transactions header
-            writer.append("TRANSACCIONES\n");
-            writer.append("Fecha,Tipo,Monto,Categoría,Método de pago,Notas\n");
-
-            // Write transactions
-            for (Transaction transaction : transactions) {
-                writer.append(transaction.getTransactionDate().toString().substring(0, 10));
-                writer.append(",");
-                writer.append(getTransactionTypeText(transaction.getType()));
-                writer.append(",");
-                writer.append(String.format(Locale.US, "%.2f", transaction.getAmount()));
-                writer.append(",");
-                writer.append(""); // Category
-                writer.append(",");
-                writer.append(getPaymentMethodText(transaction.getCardType()));
-                writer.append(",");
-                writer.append(escapeCSV(transaction.getNotes() != null ? transaction.getNotes() : ""));
-                writer.append("\n");
-            }
-
-            writer.flush();
-            writer.close();
+            csv.field("TRANSACCIONES").endRow();
+            csv.field("Fecha").field("Tipo").field("Monto").field("Categoría")
+                    .field("Comercio").field("Método de pago").field("Notas").endRow();
+
+            // Write transactions, one chunk at a time
+            long afterDate = startMillis;
+            long afterId = -1;
+            int written = 0;
+            int chunkRows;
+            do {
+                if (isStopped != null && isStopped.getAsBoolean()) {
+                    throw new CancellationException("Export stopped after " + written + " rows");
+                }
+                chunkRows = 0;
+                try (Cursor cursor = transactionDao.getExportChunk(userId, afterDate, afterId, endMillis, EXPORT_CHUNK_SIZE)) {
+                    int idColumn = cursor.getColumnIndexOrThrow("transaction_id");
+                    int dateColumn = cursor.getColumnIndexOrThrow("transaction_date");
+                    int typeColumn = cursor.getColumnIndexOrThrow("type");
+                    int amountColumn = cursor.getColumnIndexOrThrow("amount");
+                    int cardTypeColumn = cursor.getColumnIndexOrThrow("card_type");
+                    int notesColumn = cursor.getColumnIndexOrThrow("notes");
+                    int categoryColumn = cursor.getColumnIndexOrThrow("category_name");
+                    int merchantColumn = cursor.getColumnIndexOrThrow("merchant_name");
+
+                    while (cursor.moveToNext()) {
+                        afterId = cursor.getLong(idColumn);
+                        afterDate = cursor.getLong(dateColumn);
+
+                        csv.date(afterDate)
+                                .field(getTransactionTypeText(cursor.getString(typeColumn)))
+                                .amount(cursor.getDouble(amountColumn))
+                                .field(cursor.getString(categoryColumn))
+                                .field(cursor.getString(merchantColumn))
+                                .field(getPaymentMethodText(cursor.isNull(cardTypeColumn) ? null : cursor.getString(cardTypeColumn)))
+                                .field(cursor.getString(notesColumn));
+                        csv.endRow();
+                        chunkRows++;
+                    }
+                }
 
-            // Return file URI
-            return FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", csvFile);
+                written += chunkRows;
+                if (listener != null) {
+                    listener.onProgress(written, Math.max(written, total));
+                }
+            } while (chunkRows == EXPORT_CHUNK_SIZE);
 
-        } catch (IOException e) {
-            Log.e(TAG, "Error exporting report to CSV", e);
-            return null;
+            Log.d(TAG, "Exported " + written + " transactions to " + csvFile.getName());
+            complete = true;
+        } finally {
+            if (!complete && !partFile.delete()) {
+                Log.w(TAG, "Could not delete " + partFile.getName());
+            }
         }
+        if (!partFile.renameTo(csvFile)) {
+            partFile.delete();
+            throw new IOException("Could not rename " + partFile.getName() + " to " + csvFile.getName());
+        }
+        return csvFile;
+    }
+
+    /**
+     * Uri to share an exported file through the app's FileProvider
+     */
+    public static Uri getShareUri(Context context, File csvFile) {
+        return FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", csvFile);
     }
 
     /**
@@ -239,6 +314,25 @@ public class CsvExporter {
         }
     }
 
+    /**
+     * Get transaction type text in Spanish from its stored name
+     */
+    private static String getTransactionTypeText(String type) {
+        if (type == null) {
+            return "Desconocido";
+        }
+        switch (type) {
+            case "INCOME":
+                return "Ingreso";
+            case "EXPENSE":
+                return "Gasto";
+            case "TRANSFER":
+                return "Transferencia";
+            default:
+                return "Desconocido";
+        }
+    }
+
     /**
      * Get payment method text
      */
@@ -0,0 +1,163 @@
+package com.pascm.fintrack.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Buffered UTF-8 CSV writer for large exports.
+ *
+ * Numbers and dates are written digit by digit into a reused buffer instead of
+ * going through String.format, and the formatted date is reused while rows stay
+ * on the same day, so writing a row allocates nothing beyond the strings it is
+ * given.
+ *
+ * Usage:
+ * <pre>
+ * try (CsvWriter csv = new CsvWriter(file, ZoneId.systemDefault())) {
+ *     csv.field("Fecha").field("Monto").endRow();
+ *     csv.date(epochMillis).amount(150.5).endRow();
+ * }
+ * </pre>
+ */
+public final class CsvWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+    private final ZoneId zone;
+    private final char[] digits = new char[20];
+    private boolean rowStarted;
+
+    // Current day of date(): [dayStartMillis, dayEndMillis) and its yyyy-MM-dd text
+    private final char[] dayText = new char[10];
+    private long dayStartMillis = Long.MAX_VALUE;
+    private long dayEndMillis = Long.MIN_VALUE;
+
+    public CsvWriter(File file, ZoneId zone) throws IOException {
+        this.out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.zone = zone;
+    }
+
+    /**
+     * Write a text field, quoted only if it contains a comma, quote or line break
+     */
+    public CsvWriter field(String value) throws IOException {
+        separate();
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            out.write(value);
+            return this;
+        }
+
+        out.write('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+        return this;
+    }
+
+    /**
+     * Write an amount with two decimals and a dot separator (e.g. -1234.50)
+     */
+    public CsvWriter amount(double value) throws IOException {
+        separate();
+        long cents = Math.round(value * 100);
+        if (cents < 0) {
+            out.write('-');
+            cents = -cents;
+        }
+        writeDigits(cents / 100);
+        out.write('.');
+        long fraction = cents % 100;
+        out.write((char) ('0' + fraction / 10));
+        out.write((char) ('0' + fraction % 10));
+        return this;
+    }
+
+    /**
+     * Write the local date (yyyy-MM-dd) of an instant
+     */
+    public CsvWriter date(long epochMillis) throws IOException {
+        separate();
+        if (epochMillis < dayStartMillis || epochMillis >= dayEndMillis) {
+            LocalDate day = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+            dayStartMillis = day.atStartOfDay(zone).toInstant().toEpochMilli();
+            dayEndMillis = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            formatDay(day);
+        }
+        out.write(dayText);
+        return this;
+    }
+
+    /**
+     * Finish the current row
+     */
+    public void endRow() throws IOException {
+        out.write('\n');
+        rowStarted = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void separate() throws IOException {
+        if (rowStarted) {
+            out.write(',');
+        }
+        rowStarted = true;
+    }
+
+    private static boolean needsQuotes(String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeDigits(long value) throws IOException {
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        out.write(digits, position, digits.length - position);
+    }
+
+    private void formatDay(LocalDate day) {
+        int year = day.getYear();
+        dayText[0] = (char) ('0' + year / 1000 % 10);
+        dayText[1] = (char) ('0' + year / 100 % 10);
+        dayText[2] = (char) ('0' + year / 10 % 10);
+        dayText[3] = (char) ('0' + year % 10);
+        dayText[4] = '-';
+        dayText[5] = (char) ('0' + day.getMonthValue() / 10);
+        dayText[6] = (char) ('0' + day.getMonthValue() % 10);
+        dayText[7] = '-';
+        dayText[8] = (char) ('0' + day.getDayOfMonth() / 10);
+        dayText[9] = (char) ('0' + day.getDayOfMonth() % 10);
+    }
+}
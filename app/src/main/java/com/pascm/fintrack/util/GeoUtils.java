@@ -0,0 +1,66 @@
+package com.pascm.fintrack.util;
+
+/**
+ * Distance and bounding-box math for latitude/longitude points (degrees, WGS84
+ * sphere approximation).
+ */
+public final class GeoUtils {
+
+    /** Mean Earth radius */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Great-circle (haversine) distance between two points, in meters
+     */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Smallest latitude/longitude box that contains every point within radiusMeters
+     * of a center. Clamped to valid coordinates; boxes are not wrapped across the
+     * antimeridian.
+     */
+    public static Box boxAround(double latitude, double longitude, double radiusMeters) {
+        double dLat = radiusMeters / METERS_PER_DEGREE;
+        double minLat = Math.max(-90, latitude - dLat);
+        double maxLat = Math.min(90, latitude + dLat);
+
+        // Longitude degrees shrink with latitude; use the widest edge of the box
+        double widestLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+        double cos = Math.cos(Math.toRadians(widestLat));
+        double dLng = cos < 1e-6 ? 180 : Math.min(180, radiusMeters / (METERS_PER_DEGREE * cos));
+        return new Box(minLat, maxLat, Math.max(-180, longitude - dLng), Math.min(180, longitude + dLng));
+    }
+
+    /**
+     * Latitude/longitude bounding box, in degrees
+     */
+    public static final class Box {
+        public final double minLat;
+        public final double maxLat;
+        public final double minLng;
+        public final double maxLng;
+
+        public Box(double minLat, double maxLat, double minLng, double maxLng) {
+            this.minLat = minLat;
+            this.maxLat = maxLat;
+            this.minLng = minLng;
+            this.maxLng = maxLng;
+        }
+
+        public boolean contains(double latitude, double longitude) {
+            return latitude >= minLat && latitude <= maxLat && longitude >= minLng && longitude <= maxLng;
+        }
+    }
+}
@@ -3,15 +3,11 @@ package com.pascm.fintrack.util;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Matrix;
-import android.media.ExifInterface;
 import android.net.Uri;
 import android.util.Log;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 
 /**
  * Helper class for handling image operations.
@@ -19,10 +15,14 @@ import java.io.InputStream;
 public class ImageHelper {
 
     private static final String TAG = "ImageHelper";
-    private static final int MAX_IMAGE_SIZE = 1024; // Max width or height in pixels
+    private static final String IMAGES_DIRECTORY = "images";
+    private static final String THUMBNAILS_DIRECTORY = "thumbnails";
 
     /**
-     * Save image from URI to internal storage and return the file path.
+     * Save image from URI to internal storage, with a thumbnail, and return the file path.
+     *
+     * The image is decoded subsampled and bounded in size (see ImageIngest).
+     * WARNING: Don't call on main thread! Prefer ImageIngest.ingest from UI code.
      *
      * @param context  Context
      * @param imageUri URI of the image
@@ -31,122 +31,97 @@ public class ImageHelper {
      */
     public static String saveImageToInternalStorage(Context context, Uri imageUri, String fileName) {
         try {
-            InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
-            if (inputStream == null) {
-                Log.e(TAG, "Failed to open input stream");
-                return null;
-            }
-
-            // Decode and compress image
-            Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-            inputStream.close();
-
-            if (bitmap == null) {
-                Log.e(TAG, "Failed to decode bitmap");
-                return null;
-            }
-
-            // Resize if too large
-            bitmap = resizeBitmap(bitmap, MAX_IMAGE_SIZE);
-
-            // Rotate if needed (fix orientation)
-            bitmap = rotateImageIfRequired(context, bitmap, imageUri);
-
-            // Save to internal storage
-            File directory = new File(context.getFilesDir(), "images");
-            if (!directory.exists()) {
-                directory.mkdirs();
-            }
-
-            File imageFile = new File(directory, fileName);
-            FileOutputStream outputStream = new FileOutputStream(imageFile);
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 85, outputStream);
-            outputStream.flush();
-            outputStream.close();
-            bitmap.recycle();
-
-            Log.i(TAG, "Image saved to: " + imageFile.getAbsolutePath());
-            return imageFile.getAbsolutePath();
-
-        } catch (IOException e) {
+            return ImageIngest.ingestSync(context, imageUri, fileName).imagePath;
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
             Log.e(TAG, "Error saving image", e);
             return null;
         }
     }
 
     /**
-     * Resize bitmap to fit within max size while maintaining aspect ratio.
+     * Directory of stored images
      */
-    private static Bitmap resizeBitmap(Bitmap bitmap, int maxSize) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-
-        if (width <= maxSize && height <= maxSize) {
-            return bitmap;
-        }
-
-        float ratio = Math.min((float) maxSize / width, (float) maxSize / height);
-        int newWidth = Math.round(ratio * width);
-        int newHeight = Math.round(ratio * height);
-
-        return Bitmap.createScaledBitmap(bitmap, newWidth, newHeight, true);
+    public static File getImagesDirectory(Context context) {
+        return new File(context.getFilesDir(), IMAGES_DIRECTORY);
     }
 
     /**
-     * Rotate image if required based on EXIF data.
+     * Path of the thumbnail written next to a stored image
      */
-    private static Bitmap rotateImageIfRequired(Context context, Bitmap bitmap, Uri imageUri) {
-        try {
-            InputStream input = context.getContentResolver().openInputStream(imageUri);
-            if (input == null) {
-                return bitmap;
-            }
-
-            ExifInterface exif = new ExifInterface(input);
-            int orientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
-            input.close();
-
-            int rotation = 0;
-            switch (orientation) {
-                case ExifInterface.ORIENTATION_ROTATE_90:
-                    rotation = 90;
-                    break;
-                case ExifInterface.ORIENTATION_ROTATE_180:
-                    rotation = 180;
-                    break;
-                case ExifInterface.ORIENTATION_ROTATE_270:
-                    rotation = 270;
-                    break;
-            }
-
-            if (rotation != 0) {
-                Matrix matrix = new Matrix();
-                matrix.postRotate(rotation);
-                return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
-            }
-
-        } catch (IOException e) {
-            Log.e(TAG, "Error reading EXIF data", e);
-        }
-
-        return bitmap;
+    public static String getThumbnailPath(String imagePath) {
+        File image = new File(imagePath);
+        return new File(new File(image.getParentFile(), THUMBNAILS_DIRECTORY), image.getName()).getAbsolutePath();
     }
 
     /**
-     * Load bitmap from file path.
+     * Load the thumbnail of a stored image, for lists and avatars.
+     *
+     * Images saved before thumbnails existed fall back to a subsampled decode of
+     * the full image.
      */
-    public static Bitmap loadBitmapFromPath(String path) {
+    public static Bitmap loadThumbnailFromPath(String path) {
         if (path == null || path.isEmpty()) {
             return null;
         }
 
+        File thumbnail = new File(getThumbnailPath(path));
+        if (thumbnail.exists()) {
+            return BitmapFactory.decodeFile(thumbnail.getAbsolutePath());
+        }
+
+        return decodeSampledBitmap(path, ImageIngest.THUMBNAIL_SIZE);
+    }
+
+    /**
+     * Decode an image file to fit within maxSize (never enlarged), subsampling
+     * while decoding so the full-size image is never in memory.
+     *
+     * @return The bitmap, or null if the file is missing or not an image
+     */
+    public static Bitmap decodeSampledBitmap(String path, int maxSize) {
         File file = new File(path);
         if (!file.exists()) {
             Log.w(TAG, "Image file does not exist: " + path);
             return null;
         }
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = ImageIngest.calculateInSampleSize(bounds.outWidth, bounds.outHeight, maxSize);
+        Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+        if (bitmap == null) {
+            return null;
+        }
 
-        return BitmapFactory.decodeFile(path);
+        float scale = ImageIngest.fitScale(bitmap.getWidth(), bitmap.getHeight(), maxSize);
+        if (scale >= 1f) {
+            return bitmap;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+
+    /**
+     * Load bitmap from file path, bounded to ImageIngest.MAX_IMAGE_SIZE.
+     *
+     * Decodes from disk on every call; to show an image in a view use ImageLoader,
+     * which caches and loads off the UI thread.
+     */
+    public static Bitmap loadBitmapFromPath(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        return decodeSampledBitmap(path, ImageIngest.MAX_IMAGE_SIZE);
     }
 
     /**
@@ -157,6 +132,8 @@ public class ImageHelper {
             return false;
         }
 
+        ImageLoader.invalidate(path);
+        new File(getThumbnailPath(path)).delete();
         File file = new File(path);
         if (file.exists()) {
             return file.delete();
@@ -173,8 +150,14 @@ public class ImageHelper {
      * @return File path of saved image, or null if failed
      */
     public static String savePlacePhoto(Context context, Uri imageUri, long placeId) {
-        String fileName = "place_" + placeId + "_" + System.currentTimeMillis() + ".jpg";
-        return saveImageToInternalStorage(context, imageUri, fileName);
+        return saveImageToInternalStorage(context, imageUri, placePhotoFileName(placeId));
+    }
+
+    /**
+     * Unique file name for a place photo
+     */
+    public static String placePhotoFileName(long placeId) {
+        return "place_" + placeId + "_" + System.currentTimeMillis() + ".jpg";
     }
 
     /**
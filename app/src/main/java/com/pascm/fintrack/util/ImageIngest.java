@@ -0,0 +1,294 @@
+package com.pascm.fintrack.util;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory-safe ingest of user photos (camera or gallery) into internal storage.
+ *
+ * A photo is never decoded at full resolution:
+ * 1. Read only the header: pixel size (inJustDecodeBounds) and EXIF orientation.
+ * 2. Decode with the largest power-of-two inSampleSize that keeps the image at
+ *    least MAX_IMAGE_SIZE on its long side, so a 50MP photo decodes at ~1/4 of
+ *    its linear size (~1/16 of the pixels) instead of in full.
+ * 3. Scale to MAX_IMAGE_SIZE and apply the EXIF orientation with one matrix, in a
+ *    single createBitmap.
+ * 4. Write the image and a THUMBNAIL_SIZE thumbnail (see ImageHelper.getThumbnailPath)
+ *    scaled from the result, each to a temp file renamed into place.
+ *
+ * Peak heap is the sampled decode (under 2 x MAX_IMAGE_SIZE per side) plus the
+ * scaled copy, whatever the camera resolution. Work runs on a single background
+ * thread with a short queue, so several photos picked at once are processed
+ * one at a time instead of decoding in parallel.
+ */
+public final class ImageIngest {
+
+    private static final String TAG = "ImageIngest";
+
+    /** Max width or height of stored images, in pixels */
+    public static final int MAX_IMAGE_SIZE = 1024;
+    /** Max width or height of thumbnails, in pixels */
+    public static final int THUMBNAIL_SIZE = 256;
+
+    private static final int IMAGE_QUALITY = 85;
+    private static final int THUMBNAIL_QUALITY = 75;
+    private static final int MAX_QUEUED = 4;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            1, 1, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_QUEUED),
+            runnable -> {
+                Thread thread = new Thread(runnable, "image-ingest");
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            });
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private ImageIngest() {
+    }
+
+    /**
+     * Stored image and thumbnail of an ingested photo
+     */
+    public static final class Result {
+        public final String imagePath;
+        public final String thumbnailPath;
+        public final int width;
+        public final int height;
+
+        Result(String imagePath, String thumbnailPath, int width, int height) {
+            this.imagePath = imagePath;
+            this.thumbnailPath = thumbnailPath;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Callback for ingest operations, called on the main thread
+     */
+    public interface Callback {
+        void onIngested(Result result);
+
+        void onError(String message);
+    }
+
+    /**
+     * Ingest a photo in the background.
+     *
+     * @param context  Context
+     * @param imageUri URI of the photo (content:// or file://)
+     * @param fileName Name for the stored file (e.g. "place_12_1700000000.jpg")
+     * @param callback Called on the main thread with the result or an error
+     */
+    public static void ingest(Context context, Uri imageUri, String fileName, Callback callback) {
+        Context appContext = context.getApplicationContext();
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        try {
+            EXECUTOR.execute(() -> {
+                try {
+                    Result result = ingestSync(appContext, imageUri, fileName);
+                    mainHandler.post(() -> callback.onIngested(result));
+                } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                    Log.e(TAG, "Error ingesting image " + imageUri, e);
+                    mainHandler.post(() -> callback.onError("No se pudo procesar la imagen"));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Ingest queue full, rejecting " + imageUri);
+            mainHandler.post(() -> callback.onError("Hay demasiadas imágenes en proceso, intenta de nuevo"));
+        }
+    }
+
+    /**
+     * Ingest a photo on the calling thread.
+     *
+     * WARNING: Don't call on main thread!
+     *
+     * @throws IOException If the photo can't be read or decoded, or the files can't be written
+     */
+    public static Result ingestSync(Context context, Uri imageUri, String fileName) throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+
+        // 1. Header only: pixel size and orientation
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream input = open(resolver, imageUri)) {
+            BitmapFactory.decodeStream(input, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not a decodable image: " + imageUri);
+        }
+        int orientation = readOrientation(resolver, imageUri);
+
+        // 2. Subsampled decode
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, MAX_IMAGE_SIZE);
+        Bitmap decoded;
+        try (InputStream input = open(resolver, imageUri)) {
+            decoded = BitmapFactory.decodeStream(input, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Failed to decode image: " + imageUri);
+        }
+
+        // 3. Scale and orient in one pass
+        Bitmap image = transform(decoded, MAX_IMAGE_SIZE, orientation);
+        if (image != decoded) {
+            decoded.recycle();
+        }
+
+        // 4. Image and thumbnail
+        Bitmap thumbnail = transform(image, THUMBNAIL_SIZE, ExifInterface.ORIENTATION_NORMAL);
+        try {
+            File imageFile = new File(ImageHelper.getImagesDirectory(context), fileName);
+            File thumbnailFile = new File(ImageHelper.getThumbnailPath(imageFile.getAbsolutePath()));
+            writeJpeg(image, imageFile, IMAGE_QUALITY);
+            writeJpeg(thumbnail, thumbnailFile, THUMBNAIL_QUALITY);
+            // Same file name may be reused (e.g. profile photo)
+            ImageLoader.invalidate(imageFile.getAbsolutePath());
+
+            Log.i(TAG, "Ingested " + bounds.outWidth + "x" + bounds.outHeight + " (sample "
+                    + options.inSampleSize + ") as " + image.getWidth() + "x" + image.getHeight()
+                    + ": " + imageFile.getAbsolutePath());
+            return new Result(imageFile.getAbsolutePath(), thumbnailFile.getAbsolutePath(),
+                    image.getWidth(), image.getHeight());
+        } finally {
+            if (thumbnail != image) {
+                thumbnail.recycle();
+            }
+            image.recycle();
+        }
+    }
+
+    /**
+     * Largest power of two that keeps the long side of a width x height image at
+     * least maxSize after subsampling (the final size is reached by scaling).
+     */
+    static int calculateInSampleSize(int width, int height, int maxSize) {
+        int longSide = Math.max(width, height);
+        int sampleSize = 1;
+        while (longSide / (sampleSize * 2) >= maxSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Scale factor that fits a width x height image within maxSize (never enlarges)
+     */
+    static float fitScale(int width, int height, int maxSize) {
+        int longSide = Math.max(width, height);
+        return longSide <= maxSize ? 1f : (float) maxSize / longSide;
+    }
+
+    /**
+     * Scale a bitmap to fit maxSize and apply an EXIF orientation, as one transform.
+     *
+     * @return The source itself when there is nothing to do
+     */
+    private static Bitmap transform(Bitmap source, int maxSize, int orientation) {
+        float scale = fitScale(source.getWidth(), source.getHeight(), maxSize);
+        Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postConcat(orientationMatrix(orientation));
+        if (matrix.isIdentity()) {
+            return source;
+        }
+        return Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
+    }
+
+    /**
+     * Matrix that turns stored pixels upright for an EXIF orientation
+     */
+    private static Matrix orientationMatrix(int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.setScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.setRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.setScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.setRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.setRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.setRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.setRotate(-90);
+                break;
+            default:
+                break;
+        }
+        return matrix;
+    }
+
+    private static int readOrientation(ContentResolver resolver, Uri imageUri) {
+        try (InputStream input = open(resolver, imageUri)) {
+            return new ExifInterface(input).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            Log.w(TAG, "No EXIF orientation for " + imageUri, e);
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static InputStream open(ContentResolver resolver, Uri imageUri) throws IOException {
+        InputStream input = resolver.openInputStream(imageUri);
+        if (input == null) {
+            throw new FileNotFoundException("Failed to open input stream: " + imageUri);
+        }
+        return input;
+    }
+
+    /**
+     * Write a JPEG through a temp file, so readers never see a half-written image
+     */
+    private static void writeJpeg(Bitmap bitmap, File file, int quality) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, quality, output)) {
+                throw new IOException("Failed to encode " + file);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Failed to move image into place: " + file);
+        }
+    }
+}
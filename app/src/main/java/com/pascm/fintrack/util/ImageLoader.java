@@ -0,0 +1,406 @@
+package com.pascm.fintrack.util;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache and async loader for stored images (place photos, avatars,
+ * receipts).
+ *
+ * Lookup for a (path, target size):
+ * 1. Memory: LRU of decoded bitmaps keyed by path and target size, bounded to
+ *    1/8 of the app heap.
+ * 2. Disk: JPEG variants downsampled to the target size, in cacheDir/image_variants,
+ *    bounded to MAX_DISK_BYTES (least recently used deleted first). A variant
+ *    older than its source file is stale and ignored.
+ * 3. Source: subsampled decode of the stored image (or of its ingest thumbnail
+ *    when that is big enough), written to both tiers.
+ *
+ * load() serves memory hits at once and runs tiers 2-3 on two worker threads. The
+ * result reaches the ImageView on the main thread unless the view was loaded
+ * again or cancel()ed meanwhile, so adapters should call cancel() from
+ * onViewRecycled.
+ *
+ * Usage:
+ * <pre>
+ * ImageLoader.getInstance(context).load(imageView, photoPath, ImageLoader.SIZE_THUMBNAIL, R.drawable.ic_location, null);
+ * ImageLoader.getInstance(context).cancel(imageView);   // in onViewRecycled
+ * </pre>
+ */
+public final class ImageLoader {
+
+    private static final String TAG = "ImageLoader";
+
+    /** Target size of list rows (place photos, member avatars) */
+    public static final int SIZE_THUMBNAIL = ImageIngest.THUMBNAIL_SIZE;
+    /** Target size of single-image screens (profile, member detail) */
+    public static final int SIZE_DETAIL = 512;
+
+    private static final String DISK_DIRECTORY = "image_variants";
+    private static final long MAX_DISK_BYTES = 32L * 1024 * 1024;
+    private static final int VARIANT_QUALITY = 85;
+    private static final int WORKER_THREADS = 2;
+
+    private static volatile ImageLoader INSTANCE;
+
+    /**
+     * Called on the main thread when a load() finishes (not when it is cancelled)
+     */
+    public interface Listener {
+        void onLoaded(boolean success);
+    }
+
+    /**
+     * Hit/miss counters since process start
+     */
+    public static final class Stats {
+        public final long memoryHits;
+        public final long diskHits;
+        public final long misses;
+        public final long memoryBytes;
+        public final long memoryMaxBytes;
+
+        Stats(long memoryHits, long diskHits, long misses, long memoryBytes, long memoryMaxBytes) {
+            this.memoryHits = memoryHits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.memoryBytes = memoryBytes;
+            this.memoryMaxBytes = memoryMaxBytes;
+        }
+
+        /**
+         * Share of lookups served without decoding the source image
+         */
+        public double hitRate() {
+            long total = memoryHits + diskHits + misses;
+            return total == 0 ? 0 : (double) (memoryHits + diskHits) / total;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "memory hits " + memoryHits + ", disk hits " + diskHits + ", misses " + misses
+                    + ", memory " + memoryBytes / 1024 + "/" + memoryMaxBytes / 1024 + " KB";
+        }
+    }
+
+    private static final class Request {
+        volatile boolean cancelled;
+        Future<?> future;
+    }
+
+    private final LruCache<String, Bitmap> memory;
+    private final File diskDirectory;
+    private final ExecutorService executor = Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "image-loader");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only: the pending request of each view
+    private final Map<ImageView, Request> requests = new WeakHashMap<>();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    /** Bytes in diskDirectory, or -1 until measured */
+    private final AtomicLong diskBytes = new AtomicLong(-1);
+
+    private ImageLoader(Context context) {
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        memory = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(@NonNull String key, @NonNull Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+        diskDirectory = new File(context.getCacheDir(), DISK_DIRECTORY);
+
+        context.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_BACKGROUND) {
+                    memory.evictAll();
+                } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                    memory.trimToSize(memory.maxSize() / 2);
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                memory.evictAll();
+            }
+        });
+    }
+
+    public static ImageLoader getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ImageLoader.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ImageLoader(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Drop the cached variants of an image whose file was rewritten in place (same
+     * path, new content). Does nothing if no loader was created yet.
+     */
+    public static void invalidate(String path) {
+        ImageLoader loader = INSTANCE;
+        if (loader == null || path == null) {
+            return;
+        }
+        String prefix = path + "@";
+        for (String key : loader.memory.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                loader.memory.remove(key);
+            }
+        }
+        // Disk variants go stale by themselves: they are older than the new file
+    }
+
+    /**
+     * Show an image in a view, cancelling the view's previous request.
+     *
+     * Call on the main thread.
+     *
+     * @param view        Target view
+     * @param path        Stored image path, or null to show the placeholder
+     * @param targetSize  Max width or height to decode at (SIZE_THUMBNAIL, SIZE_DETAIL)
+     * @param placeholder Drawable shown while loading and on failure, or 0 to leave the view as is
+     * @param listener    Optional; told whether the image was shown
+     */
+    public void load(@NonNull ImageView view, @Nullable String path, int targetSize,
+                     @DrawableRes int placeholder, @Nullable Listener listener) {
+        cancel(view);
+
+        if (path == null || path.isEmpty()) {
+            showPlaceholder(view, placeholder);
+            if (listener != null) listener.onLoaded(false);
+            return;
+        }
+
+        Bitmap cached = memory.get(key(path, targetSize));
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            view.setImageBitmap(cached);
+            if (listener != null) listener.onLoaded(true);
+            return;
+        }
+
+        showPlaceholder(view, placeholder);
+        Request request = new Request();
+        requests.put(view, request);
+        request.future = executor.submit(() -> {
+            if (request.cancelled) return;
+            Bitmap bitmap = getSync(path, targetSize);
+            mainHandler.post(() -> {
+                if (request.cancelled || requests.get(view) != request) return;
+                requests.remove(view);
+                if (bitmap != null) {
+                    view.setImageBitmap(bitmap);
+                }
+                if (listener != null) listener.onLoaded(bitmap != null);
+            });
+        });
+    }
+
+    /**
+     * Cancel the pending load() of a view, if any. Call on the main thread.
+     */
+    public void cancel(@NonNull ImageView view) {
+        Request request = requests.remove(view);
+        if (request != null) {
+            request.cancelled = true;
+            if (request.future != null) {
+                request.future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Get an image at a target size through both cache tiers.
+     *
+     * WARNING: Don't call on main thread!
+     *
+     * @return The bitmap, or null if the file is missing or not an image
+     */
+    @Nullable
+    public Bitmap getSync(@NonNull String path, int targetSize) {
+        String key = key(path, targetSize);
+        Bitmap bitmap = memory.get(key);
+        if (bitmap != null) {
+            memoryHits.incrementAndGet();
+            return bitmap;
+        }
+
+        File source = new File(path);
+        long sourceModified = source.lastModified();
+        if (sourceModified == 0) {
+            Log.w(TAG, "Image file does not exist: " + path);
+            return null;
+        }
+
+        // Disk variant, if not older than the source
+        File variant = variantFile(source, targetSize);
+        if (variant.lastModified() >= sourceModified) {
+            bitmap = BitmapFactory.decodeFile(variant.getPath());
+            if (bitmap != null) {
+                diskHits.incrementAndGet();
+                // Mark as recently used for trimming
+                variant.setLastModified(System.currentTimeMillis());
+                memory.put(key, bitmap);
+                return bitmap;
+            }
+        }
+
+        // Source: prefer the ingest thumbnail when it is large enough
+        misses.incrementAndGet();
+        String decodePath = path;
+        File thumbnail = new File(ImageHelper.getThumbnailPath(path));
+        if (targetSize <= ImageIngest.THUMBNAIL_SIZE && thumbnail.lastModified() >= sourceModified) {
+            decodePath = thumbnail.getPath();
+        }
+        bitmap = ImageHelper.decodeSampledBitmap(decodePath, targetSize);
+        if (bitmap == null) {
+            return null;
+        }
+
+        // Only variants smaller than their source are worth a disk entry
+        if (decodePath.equals(path) && bitmap.getWidth() * bitmap.getHeight() < sourcePixels(path)) {
+            writeVariant(bitmap, variant);
+        }
+        memory.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Current hit/miss counters
+     */
+    public Stats getStats() {
+        return new Stats(memoryHits.get(), diskHits.get(), misses.get(), memory.size(), memory.maxSize());
+    }
+
+    // ========== Internals ==========
+
+    private static String key(String path, int targetSize) {
+        return path + "@" + targetSize;
+    }
+
+    private static void showPlaceholder(ImageView view, @DrawableRes int placeholder) {
+        if (placeholder != 0) {
+            view.setImageResource(placeholder);
+        }
+    }
+
+    private File variantFile(File source, int targetSize) {
+        String name = source.getName() + "_" + Integer.toHexString(source.getPath().hashCode()) + "_" + targetSize + ".jpg";
+        return new File(diskDirectory, name);
+    }
+
+    private static long sourcePixels(String path) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, bounds);
+        return (long) bounds.outWidth * bounds.outHeight;
+    }
+
+    private void writeVariant(Bitmap bitmap, File variant) {
+        if (!diskDirectory.exists() && !diskDirectory.mkdirs()) {
+            return;
+        }
+        File temp = new File(variant.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, VARIANT_QUALITY, output);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cache variant " + variant, e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(variant)) {
+            temp.delete();
+            return;
+        }
+
+        diskBytes.compareAndSet(-1, directorySize(diskDirectory));
+        if (diskBytes.addAndGet(variant.length()) > MAX_DISK_BYTES) {
+            synchronized (this) {
+                diskBytes.set(trimDirectory(diskDirectory, MAX_DISK_BYTES * 3 / 4));
+            }
+        }
+    }
+
+    private static long directorySize(File directory) {
+        File[] files = directory.listFiles();
+        long total = 0;
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Delete the least recently modified files of a directory until it holds at
+     * most maxBytes.
+     *
+     * @return Bytes left in the directory
+     */
+    static long trimDirectory(File directory, long maxBytes) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long[] modified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        long total = 0;
+        for (int i = 0; i < files.length; i++) {
+            modified[i] = files[i].lastModified();
+            order[i] = i;
+            total += files[i].length();
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> modified[i]));
+
+        for (int i = 0; i < order.length && total > maxBytes; i++) {
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+        return total;
+    }
+}
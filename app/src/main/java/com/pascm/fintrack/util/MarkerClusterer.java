@@ -0,0 +1,210 @@
+package com.pascm.fintrack.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups map points into clusters with a zoom-dependent grid, and diffs two sets
+ * of clusters into the markers to add and remove. No Maps SDK types, so it runs
+ * in plain unit tests; ClusterMarkerLayer draws the result on a GoogleMap.
+ *
+ * The grid is fixed in Web Mercator world pixels (256 px tiles) at the integer
+ * zoom level, so panning does not regroup points: a cell's key and contents
+ * stay the same while it is on screen and only cells entering or leaving the
+ * viewport change. Points alone in their cell keep a key of their own id, so
+ * their marker survives zoom changes that do not merge them.
+ */
+public final class MarkerClusterer {
+
+    /** Grid cell side, in map pixels (dp on screen) at the current zoom */
+    public static final int DEFAULT_CELL_SIZE_PX = 96;
+
+    private static final double TILE_SIZE = 256;
+    private static final double MAX_LATITUDE = 85.05112878;
+    // Google Maps tops out at 21; keeps cell coordinates within 32 bits
+    private static final int MAX_ZOOM = 22;
+
+    private MarkerClusterer() {
+    }
+
+    /**
+     * Clusters of the given points at a camera zoom. Order of the result is not
+     * meaningful.
+     */
+    public static List<Cluster> cluster(List<Point> points, float zoom, int cellSizePx) {
+        int zoomLevel = Math.max(0, Math.min(MAX_ZOOM, (int) Math.floor(zoom)));
+        double worldSize = TILE_SIZE * (1L << zoomLevel);
+
+        Map<Long, CellBuilder> cells = new HashMap<>();
+        for (Point point : points) {
+            long cellX = (long) Math.floor(worldX(point.longitude, worldSize) / cellSizePx);
+            long cellY = (long) Math.floor(worldY(point.latitude, worldSize) / cellSizePx);
+            long cell = (cellX << 32) ^ (cellY & 0xFFFFFFFFL);
+
+            CellBuilder builder = cells.get(cell);
+            if (builder == null) {
+                builder = new CellBuilder(zoomLevel, cellX, cellY);
+                cells.put(cell, builder);
+            }
+            builder.add(point);
+        }
+
+        List<Cluster> clusters = new ArrayList<>(cells.size());
+        for (CellBuilder builder : cells.values()) {
+            clusters.add(builder.build());
+        }
+        return clusters;
+    }
+
+    /**
+     * Markers to remove and add to go from the shown clusters to the next ones.
+     * A cluster whose key is shown with the same count and position is kept.
+     */
+    public static Diff diff(Map<String, Cluster> shown, List<Cluster> next) {
+        Map<String, Cluster> nextByKey = new HashMap<>(next.size() * 2);
+        for (Cluster cluster : next) {
+            nextByKey.put(cluster.key, cluster);
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Cluster> entry : shown.entrySet()) {
+            Cluster replacement = nextByKey.get(entry.getKey());
+            if (replacement == null || !replacement.sameMarker(entry.getValue())) {
+                removed.add(entry.getKey());
+            }
+        }
+
+        List<Cluster> added = new ArrayList<>();
+        for (Cluster cluster : next) {
+            Cluster current = shown.get(cluster.key);
+            if (current == null || !current.sameMarker(cluster)) {
+                added.add(cluster);
+            }
+        }
+        return new Diff(added, removed);
+    }
+
+    // Web Mercator, in world pixels at the given world size
+
+    private static double worldX(double longitude, double worldSize) {
+        return (longitude + 180) / 360 * worldSize;
+    }
+
+    private static double worldY(double latitude, double worldSize) {
+        double lat = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        double mercator = Math.log(Math.tan(Math.PI / 4 + lat / 2));
+        return (1 - mercator / Math.PI) / 2 * worldSize;
+    }
+
+    /**
+     * Point to cluster: an id for the caller to look up its item, and a position
+     */
+    public static final class Point {
+        public final long id;
+        public final double latitude;
+        public final double longitude;
+
+        public Point(long id, double latitude, double longitude) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    /**
+     * One marker: a single point (count 1, key "p" + id) or a group at the mean
+     * position of its points, with their bounding box to zoom into
+     */
+    public static final class Cluster {
+        public final String key;
+        public final int count;
+        public final double latitude;
+        public final double longitude;
+        /** Id of the point when count is 1, else the id of any of its points */
+        public final long pointId;
+        public final double minLat;
+        public final double maxLat;
+        public final double minLng;
+        public final double maxLng;
+
+        Cluster(String key, int count, double latitude, double longitude, long pointId,
+                double minLat, double maxLat, double minLng, double maxLng) {
+            this.key = key;
+            this.count = count;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.pointId = pointId;
+            this.minLat = minLat;
+            this.maxLat = maxLat;
+            this.minLng = minLng;
+            this.maxLng = maxLng;
+        }
+
+        public boolean isSingle() {
+            return count == 1;
+        }
+
+        boolean sameMarker(Cluster other) {
+            return count == other.count && latitude == other.latitude && longitude == other.longitude;
+        }
+    }
+
+    /**
+     * Marker changes between two clusterings
+     */
+    public static final class Diff {
+        public final List<Cluster> added;
+        public final List<String> removed;
+
+        Diff(List<Cluster> added, List<String> removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private static final class CellBuilder {
+        private final int zoomLevel;
+        private final long cellX;
+        private final long cellY;
+        private int count;
+        private long firstId;
+        private double sumLat;
+        private double sumLng;
+        private double minLat = Double.MAX_VALUE;
+        private double maxLat = -Double.MAX_VALUE;
+        private double minLng = Double.MAX_VALUE;
+        private double maxLng = -Double.MAX_VALUE;
+
+        CellBuilder(int zoomLevel, long cellX, long cellY) {
+            this.zoomLevel = zoomLevel;
+            this.cellX = cellX;
+            this.cellY = cellY;
+        }
+
+        void add(Point point) {
+            if (count == 0) firstId = point.id;
+            count++;
+            sumLat += point.latitude;
+            sumLng += point.longitude;
+            minLat = Math.min(minLat, point.latitude);
+            maxLat = Math.max(maxLat, point.latitude);
+            minLng = Math.min(minLng, point.longitude);
+            maxLng = Math.max(maxLng, point.longitude);
+        }
+
+        Cluster build() {
+            if (count == 1) {
+                return new Cluster("p" + firstId, 1, sumLat, sumLng, firstId,
+                        minLat, maxLat, minLng, maxLng);
+            }
+            return new Cluster("c" + zoomLevel + ":" + cellX + ":" + cellY, count,
+                    sumLat / count, sumLng / count, firstId, minLat, maxLat, minLng, maxLng);
+        }
+    }
+}
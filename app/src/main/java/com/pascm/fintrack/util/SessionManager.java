@@ -2,17 +2,44 @@ package com.pascm.fintrack.util;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.pascm.fintrack.data.local.entity.User;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Session manager for storing logged-in user information.
  *
- * Uses SharedPreferences to persist the current user session.
- * This is a simple local session - no tokens or Firebase session management.
+ * The session is persisted in SharedPreferences but read from an immutable
+ * in-memory Session snapshot: init() loads it once on a background thread at
+ * startup, and once loaded getUserId() and the other getters are plain field
+ * reads. A getter called before the load has finished blocks until it does,
+ * so the first screen must not call them: it uses whenLoaded() instead, which
+ * runs its callback on the main thread once the session is there.
+ *
+ * login() and logout() replace the snapshot right away, write the preferences
+ * in order on a background thread, and notify SessionListeners on the main
+ * thread. This is a simple local session - no tokens or Firebase session
+ * management.
  *
  * Usage:
  * <pre>
+ * // First screen, right after startup
+ * SessionManager.whenLoaded(context, session -> {
+ *     if (session.loggedIn) navigateHome();
+ * });
+ *
  * // After successful login
  * SessionManager.login(context, user);
  *
@@ -27,12 +54,143 @@ import com.pascm.fintrack.data.local.entity.User;
  */
 public class SessionManager {
 
+    private static final String TAG = "SessionManager";
+
     private static final String PREF_NAME = "FinTrackSession";
     private static final String KEY_IS_LOGGED_IN = "is_logged_in";
     private static final String KEY_USER_ID = "user_id";
     private static final String KEY_USER_EMAIL = "user_email";
     private static final String KEY_USER_NAME = "user_name";
 
+    // App settings kept in the same store (read by PlacesManager)
+    private static final String SETTINGS_PREF_NAME = "FinTrackPrefs";
+    private static final String KEY_HAS_PLACES = "has_places";
+
+    /**
+     * Login state and settings at one point in time
+     */
+    public static final class Session {
+        static final Session LOGGED_OUT = new Session(false, -1, null, null, false);
+
+        public final boolean loggedIn;
+        /** User ID, or -1 if not logged in */
+        public final long userId;
+        @Nullable
+        public final String email;
+        @Nullable
+        public final String name;
+        public final boolean hasPlaces;
+
+        Session(boolean loggedIn, long userId, @Nullable String email, @Nullable String name,
+                boolean hasPlaces) {
+            this.loggedIn = loggedIn;
+            this.userId = userId;
+            this.email = email;
+            this.name = name;
+            this.hasPlaces = hasPlaces;
+        }
+
+        Session withHasPlaces(boolean hasPlaces) {
+            return new Session(loggedIn, userId, email, name, hasPlaces);
+        }
+    }
+
+    /**
+     * Notified on the main thread after login and logout
+     */
+    public interface SessionListener {
+        void onSessionChanged(@NonNull Session session);
+    }
+
+    private static final Object LOCK = new Object();
+    private static final CountDownLatch loaded = new CountDownLatch(1);
+    private static final List<SessionListener> listeners = new CopyOnWriteArrayList<>();
+    // Waiting for the initial load, guarded by LOCK
+    private static final List<SessionListener> loadCallbacks = new ArrayList<>();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Preference writes, in call order
+    private static final ExecutorService writeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile Session session;
+    private static volatile boolean initStarted = false;
+
+    /**
+     * Start loading the session in the background. Call once from
+     * Application.onCreate; later calls do nothing.
+     */
+    public static void init(Context context) {
+        Context appContext = context.getApplicationContext();
+        synchronized (LOCK) {
+            if (initStarted) return;
+            initStarted = true;
+        }
+        // Same executor as the writes, so a write queued early never runs before the load
+        writeExecutor.execute(() -> {
+            Session stored = read(appContext);
+            synchronized (LOCK) {
+                // A login/logout during the load already set the current session
+                if (session == null) session = stored;
+            }
+            markLoaded();
+        });
+    }
+
+    /**
+     * Run a callback with the session once it is loaded, without blocking: right
+     * away if it already is, otherwise on the main thread when the load ends.
+     * Call from the main thread.
+     */
+    public static void whenLoaded(Context context, @NonNull SessionListener callback) {
+        Session current;
+        synchronized (LOCK) {
+            current = session;
+            if (current == null) {
+                loadCallbacks.add(callback);
+            }
+        }
+        if (current != null) {
+            callback.onSessionChanged(current);
+        } else {
+            init(context);
+        }
+    }
+
+    /**
+     * Current session snapshot. Blocks until the initial load has finished; on
+     * the main thread right after startup use whenLoaded() instead.
+     */
+    @NonNull
+    public static Session getSession(Context context) {
+        Session current = session;
+        if (current != null) return current;
+
+        init(context);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                loaded.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        return session;
+    }
+
+    public static void addListener(@NonNull SessionListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(@NonNull SessionListener listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * Save user login session.
      *
@@ -40,15 +198,7 @@ public class SessionManager {
      * @param user    User who logged in
      */
     public static void login(Context context, User user) {
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-
-        editor.putBoolean(KEY_IS_LOGGED_IN, true);
-        editor.putLong(KEY_USER_ID, user.getUserId());
-        editor.putString(KEY_USER_EMAIL, user.getEmail());
-        editor.apply();
-
-        android.util.Log.i("SessionManager", "User logged in: " + user.getEmail() + " (ID: " + user.getUserId() + ")");
+        login(context, user, null);
     }
 
     /**
@@ -56,19 +206,28 @@ public class SessionManager {
      *
      * @param context  Context
      * @param user     User who logged in
-     * @param fullName User's full name
+     * @param fullName User's full name, or null to keep the stored one
      */
-    public static void login(Context context, User user, String fullName) {
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
+    public static void login(Context context, User user, @Nullable String fullName) {
+        Session current = getSession(context);
+        // Without a name the stored one is kept, as before
+        Session next = new Session(true, user.getUserId(), user.getEmail(),
+                fullName != null ? fullName : current.name, current.hasPlaces);
+        update(next);
 
-        editor.putBoolean(KEY_IS_LOGGED_IN, true);
-        editor.putLong(KEY_USER_ID, user.getUserId());
-        editor.putString(KEY_USER_EMAIL, user.getEmail());
-        editor.putString(KEY_USER_NAME, fullName);
-        editor.apply();
+        Context appContext = context.getApplicationContext();
+        writeExecutor.execute(() -> {
+            SharedPreferences.Editor editor = appContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
+                    .putBoolean(KEY_IS_LOGGED_IN, true)
+                    .putLong(KEY_USER_ID, next.userId)
+                    .putString(KEY_USER_EMAIL, next.email);
+            if (fullName != null) {
+                editor.putString(KEY_USER_NAME, fullName);
+            }
+            editor.commit();
+        });
 
-        android.util.Log.i("SessionManager", "User logged in: " + user.getEmail() + " (ID: " + user.getUserId() + ")");
+        Log.i(TAG, "User logged in: " + user.getEmail() + " (ID: " + user.getUserId() + ")");
     }
 
     /**
@@ -77,15 +236,14 @@ public class SessionManager {
      * @param context Context
      */
     public static void logout(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-
-        String email = prefs.getString(KEY_USER_EMAIL, "unknown");
+        Session previous = getSession(context);
+        update(Session.LOGGED_OUT.withHasPlaces(previous.hasPlaces));
 
-        editor.clear();
-        editor.apply();
+        Context appContext = context.getApplicationContext();
+        writeExecutor.execute(() ->
+                appContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit().clear().commit());
 
-        android.util.Log.i("SessionManager", "User logged out: " + email);
+        Log.i(TAG, "User logged out: " + (previous.email != null ? previous.email : "unknown"));
     }
 
     /**
@@ -95,8 +253,7 @@ public class SessionManager {
      * @return true if logged in
      */
     public static boolean isLoggedIn(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        return prefs.getBoolean(KEY_IS_LOGGED_IN, false);
+        return getSession(context).loggedIn;
     }
 
     /**
@@ -106,8 +263,7 @@ public class SessionManager {
      * @return User ID, or -1 if not logged in
      */
     public static long getUserId(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        return prefs.getLong(KEY_USER_ID, -1);
+        return getSession(context).userId;
     }
 
     /**
@@ -117,8 +273,7 @@ public class SessionManager {
      * @return User email, or null if not logged in
      */
     public static String getUserEmail(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        return prefs.getString(KEY_USER_EMAIL, null);
+        return getSession(context).email;
     }
 
     /**
@@ -128,8 +283,7 @@ public class SessionManager {
      * @return User name, or null if not set
      */
     public static String getUserName(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        return prefs.getString(KEY_USER_NAME, null);
+        return getSession(context).name;
     }
 
     /**
@@ -142,9 +296,81 @@ public class SessionManager {
      * @throws IllegalStateException if not logged in
      */
     public static long requireUserId(Context context) {
-        if (!isLoggedIn(context)) {
+        Session current = getSession(context);
+        if (!current.loggedIn) {
             throw new IllegalStateException("User not logged in");
         }
-        return getUserId(context);
+        return current.userId;
+    }
+
+    /**
+     * Whether the user has registered places (see PlacesManager)
+     */
+    static boolean hasPlaces(Context context) {
+        return getSession(context).hasPlaces;
+    }
+
+    static void setHasPlaces(Context context, boolean hasPlaces) {
+        Session current = getSession(context);
+        if (current.hasPlaces == hasPlaces) return;
+        synchronized (LOCK) {
+            session = session.withHasPlaces(hasPlaces);
+        }
+
+        Context appContext = context.getApplicationContext();
+        writeExecutor.execute(() ->
+                appContext.getSharedPreferences(SETTINGS_PREF_NAME, Context.MODE_PRIVATE).edit()
+                        .putBoolean(KEY_HAS_PLACES, hasPlaces).commit());
+    }
+
+    // ========== Internal ==========
+
+    private static Session read(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        SharedPreferences settings = context.getSharedPreferences(SETTINGS_PREF_NAME, Context.MODE_PRIVATE);
+        return new Session(
+                prefs.getBoolean(KEY_IS_LOGGED_IN, false),
+                prefs.getLong(KEY_USER_ID, -1),
+                prefs.getString(KEY_USER_EMAIL, null),
+                prefs.getString(KEY_USER_NAME, null),
+                settings.getBoolean(KEY_HAS_PLACES, false));
+    }
+
+    /**
+     * Release reads and whenLoaded() callbacks waiting for the first session
+     */
+    private static void markLoaded() {
+        List<SessionListener> callbacks;
+        synchronized (LOCK) {
+            callbacks = new ArrayList<>(loadCallbacks);
+            loadCallbacks.clear();
+        }
+        loaded.countDown();
+
+        if (!callbacks.isEmpty()) {
+            mainHandler.post(() -> {
+                Session current = session;
+                for (SessionListener callback : callbacks) {
+                    callback.onSessionChanged(current);
+                }
+            });
+        }
+    }
+
+    /**
+     * Publish a new session and notify listeners on the main thread
+     */
+    private static void update(Session next) {
+        synchronized (LOCK) {
+            session = next;
+        }
+        // A read waiting for the initial load can now use this session
+        markLoaded();
+
+        mainHandler.post(() -> {
+            for (SessionListener listener : listeners) {
+                listener.onSessionChanged(next);
+            }
+        });
     }
 }
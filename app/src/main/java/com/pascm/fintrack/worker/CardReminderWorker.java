@@ -0,0 +1,263 @@
+package com.pascm.fintrack.worker;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.dao.CreditCardDao;
+import com.pascm.fintrack.data.local.entity.CreditCardEntity;
+import com.pascm.fintrack.util.notifications.CreditCardNotificationHelper;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker de recordatorios de tarjetas de crédito: fecha de corte, fecha límite
+ * de pago y recordatorio 3 días antes del pago.
+ *
+ * Cada tarjeta guarda su próxima fecha de corte y de pago en columnas indexadas
+ * (next_statement_date, next_payment_due_date). En vez de revisar todas las
+ * tarjetas cada día, el worker corre una sola vez (trabajo único, one-shot) el
+ * día del próximo evento a las 9:00, lee solo las tarjetas dentro de la ventana
+ * con una consulta por rango, avanza sus fechas al mes siguiente y se programa
+ * para el siguiente evento.
+ *
+ * schedule() se llama al iniciar la app, al escribir tarjetas y tras cada
+ * descarga: calcula las fechas que falten y reprograma la alarma.
+ */
+public class CardReminderWorker extends Worker {
+
+    private static final String TAG = "CardReminderWorker";
+    private static final String REMINDER_WORK = "card_reminder_work";
+
+    // Sondeos diarios que este worker reemplaza; se cancelan en instalaciones existentes
+    private static final String[] LEGACY_WORK = {
+            "credit_card_notification_work",
+            "card_payment_notification_work"
+    };
+
+    static final int REMINDER_DAYS_BEFORE_PAYMENT = 3;
+
+    // Una alarma retrasada (Doze, teléfono apagado) aún notifica hasta estos días tarde
+    private static final int MAX_LATE_DAYS = 3;
+
+    private static final LocalTime ALARM_TIME = LocalTime.of(9, 0);
+
+    private static final String PREFS = "card_reminder_prefs";
+    private static final String KEY_LAST_REMINDER_DAY = "last_reminder_day";
+
+    public CardReminderWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        FinTrackDatabase database = FinTrackDatabase.getDatabase(context);
+        CreditCardDao dao = database.creditCardDao();
+        LocalDate today = LocalDate.now();
+
+        try {
+            database.runInTransaction(() -> {
+                scheduleMissing(dao, today);
+                notifyDue(context, dao, today);
+            });
+            markRemindersSent(context, today);
+            scheduleNext(context, dao, today);
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Error sending card reminders", e);
+            return Result.retry();
+        }
+    }
+
+    /**
+     * Notifica los eventos de hoy (o atrasados hasta MAX_LATE_DAYS) de las
+     * tarjetas dentro de la ventana y avanza sus fechas.
+     */
+    private void notifyDue(Context context, CreditCardDao dao, LocalDate today) {
+        boolean remindersSent = remindersSentOn(context, today);
+        LocalDate reminderDay = today.plusDays(REMINDER_DAYS_BEFORE_PAYMENT);
+        LocalDate oldestNotified = today.minusDays(MAX_LATE_DAYS);
+        LocalDate tomorrow = today.plusDays(1);
+
+        List<CreditCardEntity> cards = dao.getDueBySync(reminderDay);
+        Log.d(TAG, cards.size() + " cards with dates up to " + reminderDay);
+        if (cards.isEmpty()) return;
+
+        CreditCardNotificationHelper helper = new CreditCardNotificationHelper(context);
+        for (CreditCardEntity card : cards) {
+            LocalDate statement = card.getScheduledStatementDate();
+            LocalDate due = card.getScheduledPaymentDueDate();
+            boolean advanced = false;
+
+            if (statement != null && !statement.isAfter(today)) {
+                if (!statement.isBefore(oldestNotified)) {
+                    helper.showStatementDateNotification(card);
+                }
+                statement = nextOccurrence(card.getStatementDay(), tomorrow);
+                advanced = true;
+            }
+
+            if (due != null && !due.isAfter(today)) {
+                if (!due.isBefore(oldestNotified) && card.getCurrentBalance() > 0) {
+                    helper.showPaymentDueNotification(card);
+                }
+                due = nextOccurrence(card.getPaymentDueDay(), tomorrow);
+                advanced = true;
+            } else if (due != null && due.equals(reminderDay) && !remindersSent
+                    && card.getCurrentBalance() > 0) {
+                helper.showPaymentReminderNotification(card, REMINDER_DAYS_BEFORE_PAYMENT);
+            }
+
+            if (advanced) {
+                dao.updateSchedule(card.getCardId(), statement, due);
+            }
+        }
+    }
+
+    // ========== Scheduling ==========
+
+    /**
+     * Calcula las fechas que falten y (re)programa la alarma del próximo evento.
+     * Se ejecuta en la cola de escritura; llamar tras escribir tarjetas.
+     */
+    public static void schedule(Context context) {
+        Context appContext = context.getApplicationContext();
+        FinTrackDatabase.databaseWriteExecutor.execute(() -> {
+            CreditCardDao dao = FinTrackDatabase.getDatabase(appContext).creditCardDao();
+            LocalDate today = LocalDate.now();
+            scheduleMissing(dao, today);
+            scheduleNext(appContext, dao, today);
+        });
+    }
+
+    /**
+     * Cancela los sondeos diarios anteriores y programa la alarma. Al iniciar la app.
+     */
+    public static void start(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        for (String name : LEGACY_WORK) {
+            workManager.cancelUniqueWork(name);
+        }
+        schedule(context);
+    }
+
+    /**
+     * Cancela la alarma (p. ej. si el usuario desactiva las notificaciones).
+     */
+    public static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(REMINDER_WORK);
+    }
+
+    /**
+     * Próximas fechas de las tarjetas nuevas o cuyos días cambiaron (contando hoy)
+     */
+    private static void scheduleMissing(CreditCardDao dao, LocalDate today) {
+        for (CreditCardEntity card : dao.getUnscheduledSync()) {
+            LocalDate statement = card.getScheduledStatementDate() != null
+                    ? card.getScheduledStatementDate()
+                    : nextOccurrence(card.getStatementDay(), today);
+            LocalDate due = card.getScheduledPaymentDueDate() != null
+                    ? card.getScheduledPaymentDueDate()
+                    : nextOccurrence(card.getPaymentDueDay(), today);
+            dao.updateSchedule(card.getCardId(), statement, due);
+        }
+    }
+
+    /**
+     * Programa el worker el día del evento más cercano: un corte, un pago o el
+     * recordatorio de un pago. Sin tarjetas con fechas, cancela la alarma.
+     */
+    private static void scheduleNext(Context context, CreditCardDao dao, LocalDate today) {
+        // Si los recordatorios de hoy ya salieron, el siguiente es para un pago posterior
+        LocalDate reminderAfter = today.plusDays(remindersSentOn(context, today)
+                ? REMINDER_DAYS_BEFORE_PAYMENT
+                : REMINDER_DAYS_BEFORE_PAYMENT - 1);
+        CreditCardDao.ScheduleBounds bounds = dao.getScheduleBoundsSync(reminderAfter);
+
+        LocalDate next = earliest(
+                toDate(bounds.statement_date),
+                toDate(bounds.due_date),
+                bounds.reminder_due_date == null ? null
+                        : LocalDate.ofEpochDay(bounds.reminder_due_date - REMINDER_DAYS_BEFORE_PAYMENT));
+
+        WorkManager workManager = WorkManager.getInstance(context);
+        if (next == null) {
+            workManager.cancelUniqueWork(REMINDER_WORK);
+            return;
+        }
+
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime alarm = next.atTime(ALARM_TIME).atZone(ZoneId.systemDefault());
+        long delayMillis = Math.max(0, Duration.between(now, alarm).toMillis());
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CardReminderWorker.class)
+                .setInitialDelay(delayMillis, TimeUnit.MILLISECONDS)
+                .build();
+
+        // REPLACE: una tarjeta nueva o editada puede adelantar la alarma pendiente
+        workManager.enqueueUniqueWork(REMINDER_WORK, ExistingWorkPolicy.REPLACE, request);
+        Log.d(TAG, "Next card reminder check on " + next);
+    }
+
+    /**
+     * Primer día con el día del mes dado a partir de from (inclusive). En meses
+     * más cortos cae en el último día (día 31 en febrero: 28 o 29).
+     */
+    @Nullable
+    static LocalDate nextOccurrence(@Nullable Integer dayOfMonth, @NonNull LocalDate from) {
+        if (dayOfMonth == null) return null;
+        LocalDate date = from.withDayOfMonth(Math.min(dayOfMonth, from.lengthOfMonth()));
+        if (date.isBefore(from)) {
+            LocalDate nextMonth = from.plusMonths(1);
+            date = nextMonth.withDayOfMonth(Math.min(dayOfMonth, nextMonth.lengthOfMonth()));
+        }
+        return date;
+    }
+
+    private static LocalDate earliest(LocalDate... dates) {
+        LocalDate earliest = null;
+        for (LocalDate date : dates) {
+            if (date != null && (earliest == null || date.isBefore(earliest))) {
+                earliest = date;
+            }
+        }
+        return earliest;
+    }
+
+    private static LocalDate toDate(Long epochDay) {
+        return epochDay == null ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    // ========== Reminder day ==========
+
+    // Los recordatorios no avanzan ninguna fecha; se recuerda el día en que salieron
+
+    private static boolean remindersSentOn(Context context, LocalDate day) {
+        return prefs(context).getLong(KEY_LAST_REMINDER_DAY, Long.MIN_VALUE) >= day.toEpochDay();
+    }
+
+    private static void markRemindersSent(Context context, LocalDate day) {
+        prefs(context).edit().putLong(KEY_LAST_REMINDER_DAY, day.toEpochDay()).apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
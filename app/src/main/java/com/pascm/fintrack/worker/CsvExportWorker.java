@@ -0,0 +1,120 @@
+package com.pascm.fintrack.worker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.util.CsvExporter;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Worker que exporta a CSV las transacciones de un periodo.
+ *
+ * Lee las filas por bloques (ver CsvExporter.exportReportToCSV), así que la
+ * memoria no crece con el número de transacciones. Publica el avance en
+ * KEY_WRITTEN / KEY_TOTAL y al terminar deja la ruta del archivo en KEY_FILE_PATH.
+ * Si se cancela (o la reemplaza otra exportación) se detiene en el siguiente
+ * bloque y borra su archivo parcial.
+ */
+public class CsvExportWorker extends Worker {
+
+    private static final String TAG = "CsvExportWorker";
+    private static final String EXPORT_WORK = "csv_export_work";
+
+    // Entrada
+    private static final String KEY_USER_ID = "user_id";
+    private static final String KEY_PERIOD_NAME = "period_name";
+    private static final String KEY_START_MILLIS = "start_millis";
+    private static final String KEY_END_MILLIS = "end_millis";
+    private static final String KEY_TOTAL_INCOME = "total_income";
+    private static final String KEY_TOTAL_EXPENSE = "total_expense";
+
+    // Avance y salida
+    public static final String KEY_WRITTEN = "written";
+    public static final String KEY_TOTAL = "total";
+    public static final String KEY_FILE_PATH = "file_path";
+
+    public CsvExportWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Data input = getInputData();
+        Context context = getApplicationContext();
+
+        try {
+            // Publicar avance solo cuando cambia el porcentaje; cada publicación escribe en la BD de WorkManager
+            int[] lastPercent = {-1};
+            File csvFile = CsvExporter.exportReportToCSV(
+                    context,
+                    FinTrackDatabase.getDatabase(context).transactionDao(),
+                    input.getLong(KEY_USER_ID, -1),
+                    input.getString(KEY_PERIOD_NAME),
+                    input.getLong(KEY_START_MILLIS, 0),
+                    input.getLong(KEY_END_MILLIS, 0),
+                    input.getDouble(KEY_TOTAL_INCOME, 0),
+                    input.getDouble(KEY_TOTAL_EXPENSE, 0),
+                    (written, total) -> {
+                        int percent = total == 0 ? 100 : (int) (written * 100L / total);
+                        if (percent != lastPercent[0]) {
+                            lastPercent[0] = percent;
+                            setProgressAsync(new Data.Builder()
+                                    .putInt(KEY_WRITTEN, written)
+                                    .putInt(KEY_TOTAL, total)
+                                    .build());
+                        }
+                    },
+                    this::isStopped);
+
+            return Result.success(new Data.Builder()
+                    .putString(KEY_FILE_PATH, csvFile.getAbsolutePath())
+                    .build());
+        } catch (CancellationException e) {
+            // Cancelada o reemplazada por otra exportación: el archivo parcial ya se borró
+            Log.i(TAG, e.getMessage());
+            return Result.failure();
+        } catch (Exception e) {
+            Log.e(TAG, "Error exporting report to CSV", e);
+            return Result.failure();
+        }
+    }
+
+    /**
+     * Encola la exportación de un periodo. Reemplaza a una exportación anterior
+     * que siga corriendo.
+     *
+     * @return ID del trabajo, para observar su avance con WorkManager
+     */
+    public static UUID requestExport(Context context, long userId, String periodName,
+                                     long startMillis, long endMillis,
+                                     double totalIncome, double totalExpense) {
+        Data input = new Data.Builder()
+                .putLong(KEY_USER_ID, userId)
+                .putString(KEY_PERIOD_NAME, periodName)
+                .putLong(KEY_START_MILLIS, startMillis)
+                .putLong(KEY_END_MILLIS, endMillis)
+                .putDouble(KEY_TOTAL_INCOME, totalIncome)
+                .putDouble(KEY_TOTAL_EXPENSE, totalExpense)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CsvExportWorker.class)
+                .setInputData(input)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(EXPORT_WORK, ExistingWorkPolicy.REPLACE, request);
+        return request.getId();
+    }
+}
@@ -0,0 +1,82 @@
+package com.pascm.fintrack.worker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.sync.DeltaPuller;
+import com.pascm.fintrack.data.sync.FirestorePullSource;
+import com.pascm.fintrack.util.SessionManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker que descarga de Firestore los cambios del usuario en sesión desde la
+ * última descarga (transacciones, tarjetas, viajes y comercios).
+ *
+ * Se encola al iniciar la app y al iniciar sesión; con una instalación nueva o
+ * un segundo dispositivo la primera corrida trae todo el historial por páginas.
+ */
+public class PullWorker extends Worker {
+
+    private static final String TAG = "PullWorker";
+    private static final String PULL_WORK = "delta_pull_work";
+
+    public PullWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        if (!SessionManager.isLoggedIn(context)) {
+            return Result.success();
+        }
+
+        long userId = SessionManager.getUserId(context);
+        DeltaPuller puller = new DeltaPuller(FinTrackDatabase.getDatabase(context),
+                new FirestorePullSource(FirebaseFirestore.getInstance()));
+
+        try {
+            int applied = puller.pull(userId);
+            Log.d(TAG, "Delta pull applied " + applied + " documents");
+            if (applied > 0) {
+                // Tarjetas descargadas: calcular sus fechas y reprogramar recordatorios
+                CardReminderWorker.schedule(context);
+            }
+            return Result.success();
+        } catch (Exception e) {
+            // Las páginas ya aplicadas se conservan; el reintento sigue desde el cursor
+            Log.e(TAG, "Error in delta pull", e);
+            return Result.retry();
+        }
+    }
+
+    /**
+     * Encola una descarga. Si ya hay una pendiente o corriendo no hace nada.
+     */
+    public static void requestPull(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PullWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 1, TimeUnit.MINUTES)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(PULL_WORK, ExistingWorkPolicy.KEEP, request);
+    }
+}
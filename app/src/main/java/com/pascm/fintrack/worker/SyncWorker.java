@@ -0,0 +1,86 @@
+package com.pascm.fintrack.worker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.sync.FirestoreSyncTransport;
+import com.pascm.fintrack.data.sync.SyncEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker que envía a Firestore la cola de cambios locales (pending_actions).
+ *
+ * Se encola como trabajo único cada vez que la cola cambia (ver
+ * FinTrackApplication) y solo corre con red. Si quedan acciones pendientes
+ * (lote fallido o en espera de backoff) pide reintento a WorkManager.
+ *
+ * Solo envía con una cuenta de Firebase Auth activa (ver UserRepository); las
+ * acciones de otras cuentas esperan a que esa cuenta inicie sesión.
+ */
+public class SyncWorker extends Worker {
+
+    private static final String TAG = "SyncWorker";
+    private static final String SYNC_WORK = "outbox_sync_work";
+
+    public SyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseUser account = FirebaseAuth.getInstance().getCurrentUser();
+        if (account == null) {
+            // Sin cuenta no hay a dónde escribir; el inicio de sesión vuelve a pedir el envío
+            return Result.success();
+        }
+
+        FinTrackDatabase database = FinTrackDatabase.getDatabase(getApplicationContext());
+        SyncEngine engine = new SyncEngine(database,
+                new FirestoreSyncTransport(FirebaseFirestore.getInstance()), account.getUid());
+
+        try {
+            SyncEngine.DrainResult result = engine.drain();
+            // Las acciones retenidas no se envían reintentando; esperan a su cuenta
+            return result.getRemaining() > result.getHeld() ? Result.retry() : Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Error draining sync queue", e);
+            return Result.retry();
+        }
+    }
+
+    /**
+     * Encola un envío de la cola, detrás del que esté pendiente o corriendo.
+     *
+     * No se descarta aunque ya haya uno corriendo: una acción encolada después de
+     * su última lectura de la cola se perdería hasta el siguiente cambio. Un envío
+     * que encuentra la cola vacía termina tras una sola consulta.
+     */
+    public static void requestSync(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SyncWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 1, TimeUnit.MINUTES)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(SYNC_WORK, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+}
@@ -0,0 +1,106 @@
+package com.pascm.fintrack.data.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StatementParserTest {
+
+    @Test
+    public void csv_skipsPreambleAndReadsSignedAmounts() throws IOException {
+        String csv = "\uFEFFCuenta,0123456789\n"
+                + "Periodo,Enero 2024\n"
+                + "\n"
+                + "Fecha,Descripción,Monto\n"
+                + "05/01/2024,\"OXXO, SUC 123\",-45.50\n"
+                + "06/01/2024,\"Pago \"\"nómina\"\"\",\"15,000.00\"\n"
+                + "sin fecha,basura,10\n";
+
+        List<StatementRow> rows = new ArrayList<>();
+        CsvStatementParser parser = new CsvStatementParser(new StringReader(csv));
+        StatementRow row;
+        while ((row = parser.next()) != null) rows.add(row);
+
+        assertEquals(2, rows.size());
+        assertEquals(LocalDate.of(2024, 1, 5), rows.get(0).date);
+        assertEquals(-45.50, rows.get(0).amount, 0.0);
+        assertEquals("OXXO, SUC 123", rows.get(0).description);
+        assertEquals(15_000.00, rows.get(1).amount, 0.0);
+        assertEquals("Pago \"nómina\"", rows.get(1).description);
+        assertEquals(1, parser.getSkippedRows());
+    }
+
+    @Test
+    public void csv_debitAndCreditColumnsWithSemicolons() throws IOException {
+        String csv = "Fecha Operación;Concepto;Cargo;Abono\r\n"
+                + "2024-02-01;SPEI RECIBIDO;;1.234,56\r\n"
+                + "2024-02-02;WALMART;300,00;\r\n";
+
+        CsvStatementParser parser = new CsvStatementParser(new StringReader(csv));
+        StatementRow income = parser.next();
+        StatementRow expense = parser.next();
+
+        assertEquals(1_234.56, income.amount, 1e-9);
+        assertEquals(-300.00, expense.amount, 1e-9);
+        assertEquals("WALMART", expense.description);
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void ofx_sgmlWithoutClosingTags() throws IOException {
+        String ofx = "OFXHEADER:100\nDATA:OFXSGML\n\n<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n"
+                + "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>20240105120000.000[-6:CST]\n<TRNAMT>-45.50\n"
+                + "<FITID>1\n<NAME>OXXO &amp; CO\n</STMTTRN>\n"
+                + "<STMTTRN>\n<TRNTYPE>CREDIT\n<DTPOSTED>20240106\n<TRNAMT>1500\n<MEMO>Deposito\n</STMTTRN>\n"
+                + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+
+        OfxStatementParser parser = new OfxStatementParser(new StringReader(ofx));
+        StatementRow first = parser.next();
+        StatementRow second = parser.next();
+
+        assertEquals(LocalDate.of(2024, 1, 5), first.date);
+        assertEquals(-45.50, first.amount, 0.0);
+        assertEquals("OXXO & CO", first.description);
+        assertEquals(1500, second.amount, 0.0);
+        assertEquals("Deposito", second.description);
+        assertNull(parser.next());
+    }
+
+    @Test
+    public void values_datesAndAmounts() {
+        assertEquals(LocalDate.of(2024, 1, 31), StatementValues.parseDate("31/01/2024"));
+        assertEquals(LocalDate.of(2024, 1, 31), StatementValues.parseDate("01/31/2024"));
+        assertEquals(LocalDate.of(2024, 3, 4), StatementValues.parseDate("04-03-24"));
+        assertEquals(LocalDate.of(2024, 3, 4), StatementValues.parseDate("2024-03-04 10:15:00"));
+        assertNull(StatementValues.parseDate("31/02/2024"));
+
+        assertEquals(-1_234.5, StatementValues.parseAmount("($1,234.50)"), 1e-9);
+        assertEquals(1_234.5, StatementValues.parseAmount("1.234,50 MXN"), 1e-9);
+        assertEquals(1_234, StatementValues.parseAmount("1,234"), 1e-9);
+        assertEquals(-12.3, StatementValues.parseAmount("12.30-"), 1e-9);
+        assertEquals(Double.NaN, StatementValues.parseAmount(""), 0.0);
+    }
+
+    @Test
+    public void fingerprint_ignoresCaseAccentsAndPunctuation() {
+        LocalDate date = LocalDate.of(2024, 1, 5);
+        String card = TransactionFingerprint.paymentKey("CREDIT", 7L, null);
+
+        assertEquals(TransactionFingerprint.of(date, -4550, card, "PAGO OXXO #123"),
+                TransactionFingerprint.of(date, -4550, card, "  Pagó oxxo 123"));
+        assertNotEquals(TransactionFingerprint.of(date, -4550, card, "OXXO"),
+                TransactionFingerprint.of(date, 4550, card, "OXXO"));
+        assertNotEquals(TransactionFingerprint.of(date, -4550, card, "OXXO"),
+                TransactionFingerprint.of(date.plusDays(1), -4550, card, "OXXO"));
+        assertNotEquals(TransactionFingerprint.of(date, -4550, card, "OXXO"),
+                TransactionFingerprint.of(date, -4550, TransactionFingerprint.paymentKey(null, null, null), "OXXO"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.pascm.fintrack.data.local.converters;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ConvertersTest {
+
+    @Test
+    public void stringList_roundTripsEscapes() {
+        List<String> list = Arrays.asList("/files/images/a.jpg", "comillas \"y\" \\ barra",
+                "línea\nnueva\ttab", "\u0001 ", "", null);
+        String json = Converters.stringListToJson(list);
+
+        assertEquals(list, Converters.jsonToStringList(json));
+        assertEquals("[]", Converters.stringListToJson(Collections.emptyList()));
+    }
+
+    @Test
+    public void stringList_readsGsonRows() {
+        // Gson escapes HTML characters and writes lists without spaces
+        assertEquals(Arrays.asList("a<b>", "x=y", "it's"),
+                Converters.jsonToStringList("[\"a\\u003cb\\u003e\",\"x\\u003dy\",\"it\\u0027s\"]"));
+        assertEquals(Arrays.asList("1", "true", null),
+                Converters.jsonToStringList(" [ 1 , true , null ] "));
+        assertEquals(Collections.emptyList(), Converters.jsonToStringList("[]"));
+        assertNull(Converters.jsonToStringList(""));
+        assertNull(Converters.jsonToStringList("null"));
+        assertNull(Converters.jsonToStringList(null));
+    }
+
+    @Test
+    public void longList_roundTripsAndReadsLenientNumbers() {
+        List<Long> list = Arrays.asList(1L, -2L, Long.MAX_VALUE, null);
+        assertEquals("[1,-2,9223372036854775807,null]", Converters.longListToJson(list));
+        assertEquals(list, Converters.jsonToLongList(Converters.longListToJson(list)));
+
+        assertEquals(Arrays.asList(5L, 6L, 7L), Converters.jsonToLongList("[5.0,\"6\",7]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void longList_rejectsFractions() {
+        Converters.jsonToLongList("[1.5]");
+    }
+
+    @Test
+    public void stringMap_roundTripsAndDropsNullValues() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("nota", "café \"especial\"");
+        map.put("vacío", "");
+        map.put("nulo", null);
+
+        String json = Converters.mapToJson(map);
+        assertEquals("{\"nota\":\"café \\\"especial\\\"\",\"vacío\":\"\"}", json);
+
+        map.remove("nulo");
+        assertEquals(map, Converters.jsonToMap(json));
+    }
+
+    @Test
+    public void objectMap_readsValuesAsGsonDid() {
+        Map<String, Object> map = Converters.jsonToObjectMap(
+                "{\"amount\":1234.5,\"count\":3,\"ok\":true,\"none\":null,"
+                        + "\"tags\":[\"a\",1],\"nested\":{\"k\":\"v\"}}");
+
+        assertEquals(1234.5, map.get("amount"));
+        assertEquals(3.0, map.get("count"));
+        assertEquals(Boolean.TRUE, map.get("ok"));
+        assertNull(map.get("none"));
+        assertEquals(Arrays.asList("a", 1.0), map.get("tags"));
+        assertEquals(Collections.singletonMap("k", "v"), map.get("nested"));
+    }
+
+    @Test
+    public void objectMap_roundTrips() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("amount", 99.5);
+        map.put("type", "EXPENSE");
+        map.put("synced", false);
+        map.put("ids", Arrays.asList(1.0, 2.0));
+        map.put("meta", Collections.singletonMap("k", "v"));
+
+        assertEquals(map, Converters.jsonToObjectMap(Converters.objectMapToJson(map)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedJson_throws() {
+        Converters.jsonToStringList("[\"a\"");
+    }
+}
@@ -0,0 +1,63 @@
+package com.pascm.fintrack.data.local.trace;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class QueryStatsTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void bucketOf_powerOfTwoMilliseconds() {
+        assertEquals(0, QueryStats.bucketOf(500_000));
+        assertEquals(1, QueryStats.bucketOf(MS));
+        assertEquals(2, QueryStats.bucketOf(3 * MS));
+        assertEquals(QueryStats.BUCKET_BOUNDS_MS.length, QueryStats.bucketOf(5_000 * MS));
+    }
+
+    @Test
+    public void percentile_isUpperBoundOfBucket() {
+        QueryStats stats = new QueryStats("SELECT 1");
+        for (int i = 0; i < 95; i++) {
+            stats.add(MS / 2, 1, false, "A.a");
+        }
+        for (int i = 0; i < 5; i++) {
+            stats.add(300 * MS, 1, false, "A.a");
+        }
+
+        assertEquals(1.0, stats.percentileMs(50), 0.0);
+        assertEquals(1.0, stats.percentileMs(95), 0.0);
+        // 300 ms falls in 256-512 ms, capped at the maximum seen
+        assertEquals(300.0, stats.percentileMs(99), 0.0);
+        assertEquals(100, stats.count);
+        assertEquals(100, stats.totalRows);
+    }
+
+    @Test
+    public void callers_areCapped() {
+        QueryStats stats = new QueryStats("SELECT 1");
+        for (int i = 0; i < 40; i++) {
+            stats.add(MS, -1, i == 0, "Caller" + i + ".run");
+        }
+
+        assertEquals(17, stats.callers.size());
+        assertEquals(Long.valueOf(24), stats.callers.get("(other)"));
+        assertEquals(1, stats.mainThreadCount);
+        assertEquals(0, stats.totalRows);
+    }
+
+    @Test
+    public void callerName_foldsLambdasAndInnerClasses() {
+        assertEquals("TransactionRepository.getPage",
+                QueryTrace.callerName("com.pascm.fintrack.data.repository.TransactionRepository", "lambda$getPage$3"));
+        assertEquals("ReportesFragment.onChanged",
+                QueryTrace.callerName("com.pascm.fintrack.ui.reportes.ReportesFragment$1", "onChanged"));
+    }
+
+    @Test
+    public void normalize_collapsesWhitespace() {
+        assertEquals("SELECT * FROM transactions WHERE user_id = ?",
+                QueryTrace.normalize("  SELECT *\n   FROM transactions\n\tWHERE user_id = ?  "));
+    }
+}
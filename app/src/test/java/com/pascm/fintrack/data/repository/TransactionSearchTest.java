@@ -0,0 +1,88 @@
+package com.pascm.fintrack.data.repository;
+
+import com.pascm.fintrack.data.local.dao.TransactionDao;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionSearchTest {
+
+    @Test
+    public void toMatchQuery_prefixesEveryWord() {
+        assertEquals("café* ox*", TransactionSearch.toMatchQuery("  Café OX "));
+    }
+
+    @Test
+    public void toMatchQuery_dropsOperatorsAndPunctuation() {
+        assertEquals("uber* or* taxi*", TransactionSearch.toMatchQuery("\"uber\" OR -taxi*"));
+    }
+
+    @Test
+    public void toMatchQuery_tooShortIsNull() {
+        assertNull(TransactionSearch.toMatchQuery(null));
+        assertNull(TransactionSearch.toMatchQuery(""));
+        assertNull(TransactionSearch.toMatchQuery(" a * "));
+    }
+
+    @Test
+    public void score_merchantHitOutranksNotesHit() {
+        // 1 phrase, 3 columns (notes, merchant_name, category_name), 100 rows, 5 with hits
+        double notes = TransactionSearch.score(matchInfo(1, 3, 100, 1, 5, 5, 0, 0, 0, 0, 0, 0));
+        double merchant = TransactionSearch.score(matchInfo(1, 3, 100, 0, 0, 0, 1, 5, 5, 0, 0, 0));
+
+        assertTrue(merchant > notes);
+        assertTrue(notes > 0);
+    }
+
+    @Test
+    public void score_rareWordOutranksCommonWord() {
+        double rare = TransactionSearch.score(matchInfo(1, 3, 100, 1, 2, 2, 0, 0, 0, 0, 0, 0));
+        double common = TransactionSearch.score(matchInfo(1, 3, 100, 1, 90, 90, 0, 0, 0, 0, 0, 0));
+
+        assertTrue(rare > common);
+    }
+
+    @Test
+    public void score_truncatedBlobIsSafe() {
+        assertEquals(0, TransactionSearch.score(null), 0);
+        assertEquals(0, TransactionSearch.score(new byte[4]), 0);
+        assertEquals(0, TransactionSearch.score(matchInfo(2, 3, 100)), 0);
+    }
+
+    @Test
+    public void rank_breaksTiesByNewestFirst() {
+        byte[] hit = matchInfo(1, 3, 100, 1, 5, 5, 0, 0, 0, 0, 0, 0);
+        byte[] merchantHit = matchInfo(1, 3, 100, 0, 0, 0, 1, 5, 5, 0, 0, 0);
+
+        long[] ranked = TransactionSearch.rank(Arrays.asList(
+                match(1, 1_000, hit),
+                match(2, 3_000, hit),
+                match(3, 2_000, merchantHit)));
+
+        assertArrayEquals(new long[]{3, 2, 1}, ranked);
+    }
+
+    private static TransactionDao.SearchMatch match(long id, long date, byte[] matchInfo) {
+        TransactionDao.SearchMatch match = new TransactionDao.SearchMatch();
+        match.transaction_id = id;
+        match.transaction_date = date;
+        match.match_info = matchInfo;
+        return match;
+    }
+
+    private static byte[] matchInfo(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,61 @@
+package com.pascm.fintrack.model;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TripForecastTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 7, 1);
+    private static final LocalDate END = LocalDate.of(2025, 7, 10);
+
+    @Test
+    public void projectsDailyRateOverRemainingDays() {
+        // Day 4 of 10, 2,000 spent: 500/day, 5,000 projected
+        TripForecast forecast = TripForecast.of(2000, 6000.0, START, END, START.plusDays(3));
+
+        assertEquals(10, forecast.getTotalDays());
+        assertEquals(4, forecast.getElapsedDays());
+        assertEquals(6, forecast.getRemainingDays());
+        assertEquals(500, forecast.getDailyBurn(), 1e-9);
+        assertEquals(5000, forecast.getProjectedTotal(), 1e-9);
+        assertEquals(1000, forecast.getProjectedRemaining(), 1e-9);
+        assertFalse(forecast.isProjectedOverBudget());
+        assertEquals(4000.0 / 6, forecast.getDailyAllowance(), 1e-9);
+        assertNull(forecast.getBudgetExhaustedOn());
+    }
+
+    @Test
+    public void overrunGivesDayBudgetRunsOut() {
+        // 800/day against 6,000: the running total passes 6,000 on day 8
+        TripForecast forecast = TripForecast.of(1600, 6000.0, START, END, START.plusDays(1));
+
+        assertTrue(forecast.isProjectedOverBudget());
+        assertEquals(8000, forecast.getProjectedTotal(), 1e-9);
+        assertEquals(-2000, forecast.getProjectedRemaining(), 1e-9);
+        assertEquals(LocalDate.of(2025, 7, 8), forecast.getBudgetExhaustedOn());
+    }
+
+    @Test
+    public void beforeAndAfterTrip() {
+        // Bookings before the trip count as the first day's spending
+        TripForecast before = TripForecast.of(300, null, START, END, START.minusDays(5));
+        assertEquals(0, before.getElapsedDays());
+        assertEquals(300, before.getDailyBurn(), 1e-9);
+        assertEquals(3000, before.getProjectedTotal(), 1e-9);
+        assertFalse(before.hasBudget());
+        assertEquals(0, before.getDailyAllowance(), 0);
+
+        // After the trip the projection is what was spent
+        TripForecast after = TripForecast.of(4500, 4000.0, START, END, END.plusDays(3));
+        assertEquals(10, after.getElapsedDays());
+        assertEquals(4500, after.getProjectedTotal(), 1e-9);
+        assertEquals(0, after.getDailyAllowance(), 0);
+        assertTrue(after.isProjectedOverBudget());
+    }
+}
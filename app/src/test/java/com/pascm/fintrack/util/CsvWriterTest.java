@@ -0,0 +1,57 @@
+package com.pascm.fintrack.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.junit.Assert.assertEquals;
+
+public class CsvWriterTest {
+
+    private static final ZoneId ZONE = ZoneId.of("America/Mexico_City");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void amount_roundsToTwoDecimals() throws Exception {
+        assertEquals("0.00,1.50,-1234.57,1000000.25\n", write(csv ->
+                csv.amount(0).amount(1.5).amount(-1234.567).amount(1000000.25).endRow()));
+    }
+
+    @Test
+    public void field_quotesOnlyWhenNeeded() throws Exception {
+        assertEquals("Café,\"a,b\",\"di \"\"hola\"\"\",\"x\ny\",\n", write(csv ->
+                csv.field("Café").field("a,b").field("di \"hola\"").field("x\ny").field(null).endRow()));
+    }
+
+    @Test
+    public void date_usesLocalDayAcrossDayBoundaries() throws Exception {
+        long midnight = LocalDate.of(2025, 3, 9).atStartOfDay(ZONE).toInstant().toEpochMilli();
+
+        assertEquals("2025-03-08\n2025-03-09\n2025-03-09\n2025-03-10\n", write(csv -> {
+            csv.date(midnight - 1).endRow();
+            csv.date(midnight).endRow();
+            csv.date(midnight + 3_600_000).endRow();
+            csv.date(midnight + 86_400_000).endRow();
+        }));
+    }
+
+    private interface Rows {
+        void write(CsvWriter csv) throws Exception;
+    }
+
+    private String write(Rows rows) throws Exception {
+        File file = folder.newFile();
+        try (CsvWriter csv = new CsvWriter(file, ZONE)) {
+            rows.write(csv);
+        }
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,37 @@
+package com.pascm.fintrack.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ImageIngestTest {
+
+    @Test
+    public void inSampleSize_keepsLongSideAtLeastTarget() {
+        // 50MP (8160x6144) decodes at 1/4: 2040x1536
+        assertEquals(4, ImageIngest.calculateInSampleSize(8160, 6144, 1024));
+        assertEquals(4, ImageIngest.calculateInSampleSize(6144, 8160, 1024));
+        // 12MP (4000x3000) decodes at 1/2: 2000x1500
+        assertEquals(2, ImageIngest.calculateInSampleSize(4000, 3000, 1024));
+        assertEquals(2, ImageIngest.calculateInSampleSize(2048, 100, 1024));
+    }
+
+    @Test
+    public void inSampleSize_neverSubsamplesSmallImages() {
+        assertEquals(1, ImageIngest.calculateInSampleSize(2047, 1000, 1024));
+        assertEquals(1, ImageIngest.calculateInSampleSize(800, 600, 1024));
+        assertEquals(1, ImageIngest.calculateInSampleSize(1, 1, 256));
+    }
+
+    @Test
+    public void fitScale_shrinksLongSideToTarget() {
+        assertEquals(1024f / 2040, ImageIngest.fitScale(2040, 1536, 1024), 1e-6);
+        assertEquals(256f / 1024, ImageIngest.fitScale(768, 1024, 256), 1e-6);
+    }
+
+    @Test
+    public void fitScale_neverEnlarges() {
+        assertEquals(1f, ImageIngest.fitScale(800, 600, 1024), 0);
+        assertEquals(1f, ImageIngest.fitScale(1024, 1024, 1024), 0);
+    }
+}
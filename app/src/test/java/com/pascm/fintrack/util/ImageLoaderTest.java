@@ -0,0 +1,56 @@
+package com.pascm.fintrack.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ImageLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void trimDirectory_deletesLeastRecentlyUsedFirst() throws Exception {
+        File oldest = file("a.jpg", 100, 1_000);
+        File middle = file("b.jpg", 100, 2_000);
+        File newest = file("c.jpg", 100, 3_000);
+
+        assertEquals(200, ImageLoader.trimDirectory(folder.getRoot(), 250));
+
+        assertFalse(oldest.exists());
+        assertTrue(middle.exists());
+        assertTrue(newest.exists());
+    }
+
+    @Test
+    public void trimDirectory_keepsEverythingUnderLimit() throws Exception {
+        file("a.jpg", 100, 1_000);
+        file("b.jpg", 100, 2_000);
+
+        assertEquals(200, ImageLoader.trimDirectory(folder.getRoot(), 200));
+        assertEquals(2, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void trimDirectory_canEmptyDirectory() throws Exception {
+        file("a.jpg", 100, 1_000);
+
+        assertEquals(0, ImageLoader.trimDirectory(folder.getRoot(), 0));
+        assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    private File file(String name, int bytes, long lastModified) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), new byte[bytes]);
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+}
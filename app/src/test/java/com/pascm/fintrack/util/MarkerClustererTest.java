@@ -0,0 +1,104 @@
+package com.pascm.fintrack.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MarkerClustererTest {
+
+    // Zócalo, CDMX, and a point ~5 km away
+    private static final double LAT = 19.4326;
+    private static final double LNG = -99.1332;
+
+    @Test
+    public void cluster_groupsNearbyPointsWhenZoomedOut() {
+        List<MarkerClusterer.Point> points = Arrays.asList(
+                new MarkerClusterer.Point(1, LAT, LNG),
+                new MarkerClusterer.Point(2, LAT + 0.0005, LNG + 0.0005),
+                new MarkerClusterer.Point(3, LAT + 0.045, LNG));
+
+        List<MarkerClusterer.Cluster> far = MarkerClusterer.cluster(points, 8, MarkerClusterer.DEFAULT_CELL_SIZE_PX);
+        assertEquals(1, far.size());
+        assertEquals(3, far.get(0).count);
+
+        List<MarkerClusterer.Cluster> close = MarkerClusterer.cluster(points, 18, MarkerClusterer.DEFAULT_CELL_SIZE_PX);
+        assertEquals(3, close.size());
+        for (MarkerClusterer.Cluster cluster : close) {
+            assertTrue(cluster.isSingle());
+            assertEquals("p" + cluster.pointId, cluster.key);
+        }
+    }
+
+    @Test
+    public void cluster_positionsGroupAtMeanWithBounds() {
+        List<MarkerClusterer.Point> points = Arrays.asList(
+                new MarkerClusterer.Point(1, LAT, LNG),
+                new MarkerClusterer.Point(2, LAT + 0.001, LNG + 0.002));
+
+        MarkerClusterer.Cluster cluster = MarkerClusterer.cluster(points, 10, MarkerClusterer.DEFAULT_CELL_SIZE_PX).get(0);
+        assertEquals(2, cluster.count);
+        assertEquals(LAT + 0.0005, cluster.latitude, 1e-9);
+        assertEquals(LNG + 0.001, cluster.longitude, 1e-9);
+        assertEquals(LAT, cluster.minLat, 0);
+        assertEquals(LNG + 0.002, cluster.maxLng, 0);
+    }
+
+    @Test
+    public void diff_onlyTouchesChangedMarkers() {
+        List<MarkerClusterer.Point> points = new ArrayList<>(Arrays.asList(
+                new MarkerClusterer.Point(1, LAT, LNG),
+                new MarkerClusterer.Point(2, LAT + 0.2, LNG + 0.2)));
+        Map<String, MarkerClusterer.Cluster> shown = show(MarkerClusterer.cluster(points, 14, MarkerClusterer.DEFAULT_CELL_SIZE_PX));
+
+        // A new point far from the others: one add, nothing removed
+        points.add(new MarkerClusterer.Point(3, LAT - 0.2, LNG - 0.2));
+        MarkerClusterer.Diff diff = MarkerClusterer.diff(shown,
+                MarkerClusterer.cluster(points, 14, MarkerClusterer.DEFAULT_CELL_SIZE_PX));
+        assertEquals(1, diff.added.size());
+        assertEquals("p3", diff.added.get(0).key);
+        assertTrue(diff.removed.isEmpty());
+
+        // Same points again: no changes
+        shown.put("p3", diff.added.get(0));
+        assertTrue(MarkerClusterer.diff(shown,
+                MarkerClusterer.cluster(points, 14, MarkerClusterer.DEFAULT_CELL_SIZE_PX)).isEmpty());
+
+        // Point 1 leaves the viewport
+        points.remove(0);
+        diff = MarkerClusterer.diff(shown, MarkerClusterer.cluster(points, 14, MarkerClusterer.DEFAULT_CELL_SIZE_PX));
+        assertTrue(diff.added.isEmpty());
+        assertEquals(Arrays.asList("p1"), diff.removed);
+    }
+
+    @Test
+    public void diff_replacesGroupWhenItsCountChanges() {
+        List<MarkerClusterer.Point> points = new ArrayList<>(Arrays.asList(
+                new MarkerClusterer.Point(1, LAT, LNG),
+                new MarkerClusterer.Point(2, LAT + 0.0001, LNG)));
+        List<MarkerClusterer.Cluster> before = MarkerClusterer.cluster(points, 10, MarkerClusterer.DEFAULT_CELL_SIZE_PX);
+        Map<String, MarkerClusterer.Cluster> shown = show(before);
+
+        points.add(new MarkerClusterer.Point(3, LAT, LNG + 0.0001));
+        MarkerClusterer.Diff diff = MarkerClusterer.diff(shown,
+                MarkerClusterer.cluster(points, 10, MarkerClusterer.DEFAULT_CELL_SIZE_PX));
+
+        assertEquals(Arrays.asList(before.get(0).key), diff.removed);
+        assertEquals(1, diff.added.size());
+        assertEquals(3, diff.added.get(0).count);
+    }
+
+    private static Map<String, MarkerClusterer.Cluster> show(List<MarkerClusterer.Cluster> clusters) {
+        Map<String, MarkerClusterer.Cluster> shown = new HashMap<>();
+        for (MarkerClusterer.Cluster cluster : clusters) {
+            shown.put(cluster.key, cluster);
+        }
+        return shown;
+    }
+}
@@ -0,0 +1,47 @@
+plugins {
+    alias(libs.plugins.android.test)
+}
+
+// Microbenchmarks of the data layer (DAO queries, converters, report, export and import paths)
+// and of list updates (RecyclerView rebind and layout).
+// They run inside the app process against the non-debuggable "benchmark" build of :app:
+//   ./gradlew :benchmark:connectedBenchmarkAndroidTest
+// Results: benchmark/build/outputs/connected_android_test_additional_output/**/*benchmarkData.json
+android {
+    namespace = "com.pascm.fintrack.benchmark"
+    compileSdk = 36
+
+    defaultConfig {
+        minSdk = 30
+        targetSdk = 36
+
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
+    }
+
+    buildTypes {
+        // Matches the "benchmark" build type of :app
+        create("benchmark") {
+            isDebuggable = true
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+        }
+    }
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+
+    targetProjectPath = ":app"
+}
+
+dependencies {
+    implementation(libs.benchmark.junit4)
+    implementation(libs.ext.junit)
+    implementation(libs.junit)
+
+    // Provided at runtime by the app under test
+    compileOnly(libs.room.runtime)
+    compileOnly(libs.lifecycle.livedata)
+    compileOnly(libs.gson)
+    compileOnly(libs.material)
+}
@@ -0,0 +1,176 @@
+package com.pascm.fintrack.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.pascm.fintrack.data.local.converters.Converters;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Room type converters for the JSON list/map columns (tags, attachments,
+ * permissions, sync payloads), each way, at the sizes those columns hold.
+ *
+ * The *_gson cases run the reflective Gson code the converters used before
+ * JsonCodec (a new TypeToken per call, as Room called it once per row), for
+ * comparison of time and allocationCount in the JSON results.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ConvertersBenchmark {
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private static final Gson GSON = new Gson();
+
+    private static final List<String> STRINGS = new ArrayList<>();
+    private static final List<Long> LONGS = new ArrayList<>();
+    private static final Map<String, String> MAP = new HashMap<>();
+    private static final Map<String, Object> OBJECT_MAP = new HashMap<>();
+
+    static {
+        for (int i = 0; i < 10; i++) {
+            STRINGS.add("/data/user/0/com.pascm.fintrack/files/images/transaction_" + i + ".jpg");
+        }
+        for (long i = 0; i < 50; i++) {
+            LONGS.add(1_000_000L + i * 37);
+        }
+        for (int i = 0; i < 10; i++) {
+            MAP.put("key_" + i, "valor \"" + i + "\"");
+        }
+        OBJECT_MAP.put("amount", 1234.5);
+        OBJECT_MAP.put("type", "EXPENSE");
+        OBJECT_MAP.put("notes", "café con pan");
+        OBJECT_MAP.put("categoryId", 7.0);
+        OBJECT_MAP.put("synced", true);
+    }
+
+    @Test
+    public void stringListToJson() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Converters.stringListToJson(STRINGS);
+        }
+    }
+
+    @Test
+    public void jsonToStringList() {
+        String json = Converters.stringListToJson(STRINGS);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Converters.jsonToStringList(json);
+        }
+    }
+
+    @Test
+    public void longListToJson() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Converters.longListToJson(LONGS);
+        }
+    }
+
+    @Test
+    public void jsonToLongList() {
+        String json = Converters.longListToJson(LONGS);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Converters.jsonToLongList(json);
+        }
+    }
+
+    @Test
+    public void mapToJson() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Converters.mapToJson(MAP);
+        }
+    }
+
+    @Test
+    public void jsonToMap() {
+        String json = Converters.mapToJson(MAP);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Converters.jsonToMap(json);
+        }
+    }
+
+    @Test
+    public void objectMapToJson() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Converters.objectMapToJson(OBJECT_MAP);
+        }
+    }
+
+    @Test
+    public void jsonToObjectMap() {
+        String json = Converters.objectMapToJson(OBJECT_MAP);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Converters.jsonToObjectMap(json);
+        }
+    }
+
+    // ========== Before: reflective Gson ==========
+
+    @Test
+    public void stringListToJson_gson() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            GSON.toJson(STRINGS);
+        }
+    }
+
+    @Test
+    public void jsonToStringList_gson() {
+        String json = Converters.stringListToJson(STRINGS);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Type listType = new TypeToken<ArrayList<String>>() {}.getType();
+            GSON.fromJson(json, listType);
+        }
+    }
+
+    @Test
+    public void jsonToLongList_gson() {
+        String json = Converters.longListToJson(LONGS);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Type listType = new TypeToken<ArrayList<Long>>() {}.getType();
+            GSON.fromJson(json, listType);
+        }
+    }
+
+    @Test
+    public void jsonToMap_gson() {
+        String json = Converters.mapToJson(MAP);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Type mapType = new TypeToken<Map<String, String>>() {}.getType();
+            GSON.fromJson(json, mapType);
+        }
+    }
+
+    @Test
+    public void jsonToObjectMap_gson() {
+        String json = Converters.objectMapToJson(OBJECT_MAP);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+            GSON.fromJson(json, mapType);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.pascm.fintrack.benchmark;
+
+import android.app.Instrumentation;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.R;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.ui.viaje.TripTransactionAdapter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of showing an update in a 5k-row list, as the main-thread layout pass
+ * that follows it (the part that drops frames):
+ * - a full rebind (notifyDataSetChanged, what the adapters used to do)
+ * - a single row rebind (notifyItemChanged)
+ * - submitList of a copy with one changed amount, end to end: background
+ *   diff, then the payload rebind and layout on the main thread
+ */
+@RunWith(AndroidJUnit4.class)
+public class ListUpdateBenchmark {
+
+    private static final int ROWS = 5_000;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2400;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Instrumentation instrumentation;
+    private RecyclerView recyclerView;
+    private TripTransactionAdapter adapter;
+    private List<Transaction> rows;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        rows = new ArrayList<>(ROWS);
+        long date = SyntheticDataset.startOf(SyntheticDataset.END_DATE);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(transaction(i + 1, 100 + i, date - i * 60_000L));
+        }
+
+        instrumentation.runOnMainSync(() -> {
+            ContextThemeWrapper context = new ContextThemeWrapper(
+                    instrumentation.getTargetContext(), R.style.Theme_FinTrack);
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            adapter = new TripTransactionAdapter();
+            recyclerView.setAdapter(adapter);
+            // The first list is applied without a diff
+            adapter.setTransactions(rows);
+            layout();
+        });
+    }
+
+    @Test
+    public void notifyDataSetChanged() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            instrumentation.runOnMainSync(() -> {
+                adapter.notifyDataSetChanged();
+                layout();
+            });
+        }
+    }
+
+    @Test
+    public void notifyItemChanged() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            instrumentation.runOnMainSync(() -> {
+                adapter.notifyItemChanged(3);
+                layout();
+            });
+        }
+    }
+
+    @Test
+    public void submitListOneChange() throws InterruptedException {
+        BenchmarkState state = benchmarkRule.getState();
+        int iteration = 0;
+        while (state.keepRunning()) {
+            // A new list as Room would emit it: new objects, one amount changed
+            state.pauseTiming();
+            List<Transaction> next = new ArrayList<>(ROWS);
+            for (Transaction row : rows) {
+                next.add(transaction(row.getTransactionId(), row.getAmount(),
+                        row.getTransactionDate().toEpochMilli()));
+            }
+            next.get(3).setAmount(next.get(3).getAmount() + 1 + (iteration++ % 2));
+            rows = next;
+            CountDownLatch committed = new CountDownLatch(1);
+            state.resumeTiming();
+
+            instrumentation.runOnMainSync(() -> adapter.submitList(next, committed::countDown));
+            if (!committed.await(10, TimeUnit.SECONDS)) {
+                throw new AssertionError("submitList did not commit");
+            }
+            instrumentation.runOnMainSync(this::layout);
+        }
+    }
+
+    private void layout() {
+        recyclerView.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private static Transaction transaction(long id, double amount, long date) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(id);
+        transaction.setAmount(amount);
+        transaction.setNotes("café " + id);
+        transaction.setType(Transaction.TransactionType.EXPENSE);
+        transaction.setTransactionDate(Instant.ofEpochMilli(date));
+        return transaction;
+    }
+}
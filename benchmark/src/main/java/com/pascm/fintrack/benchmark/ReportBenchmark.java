@@ -0,0 +1,110 @@
+package com.pascm.fintrack.benchmark;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.dao.TransactionRollupDao;
+import com.pascm.fintrack.data.repository.ReportRepository;
+import com.pascm.fintrack.util.CsvExporter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Report paths at each dataset size: the rollup-backed period report
+ * (ReportRepository.getPeriodReport without the executor hop) for a month and
+ * a year, the per-transaction reads it replaced (three total queries plus the
+ * category and account-type scans), and the streaming CSV export of a year.
+ *
+ * Compare periodReportYear with legacyReportYear for the old-versus-new latency.
+ */
+@RunWith(Parameterized.class)
+public class ReportBenchmark {
+
+    @Parameterized.Parameters(name = "rows={0}")
+    public static List<Integer> sizes() {
+        return Arrays.asList(SyntheticDataset.SIZES);
+    }
+
+    @Parameterized.Parameter
+    public int size;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+    private SyntheticDataset dataset;
+    private long yearStart;
+    private long yearEnd;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dataset = SyntheticDataset.get(context, size);
+        yearStart = SyntheticDataset.startOf(SyntheticDataset.END_DATE.minusYears(1).plusDays(1));
+        yearEnd = SyntheticDataset.endOf(SyntheticDataset.END_DATE);
+    }
+
+    @Test
+    public void periodReportMonth() {
+        LocalDate end = SyntheticDataset.END_DATE;
+        measurePeriodReport(end.withDayOfMonth(1).toEpochDay(), end.toEpochDay());
+    }
+
+    @Test
+    public void periodReportYear() {
+        measurePeriodReport(ReportRepository.toEpochDay(yearStart), ReportRepository.toEpochDay(yearEnd));
+    }
+
+    private void measurePeriodReport(long startDay, long endDay) {
+        TransactionRollupDao rollupDao = dataset.database.transactionRollupDao();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ReportRepository.buildPeriodReport(rollupDao.getPeriodReport(dataset.userId, startDay, endDay));
+        }
+    }
+
+    /**
+     * The report as it was read before the rollups: the summary in three
+     * sequential queries, then a scan for each breakdown
+     */
+    @Test
+    public void legacyReportYear() {
+        TransactionDao transactionDao = dataset.database.transactionDao();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            transactionDao.getTotalIncomeForRangeSync(dataset.userId, yearStart, yearEnd);
+            transactionDao.getTotalExpensesForRangeSync(dataset.userId, yearStart, yearEnd);
+            transactionDao.getTransactionCountForRangeSync(dataset.userId, yearStart, yearEnd);
+            transactionDao.getCategoryReportForDateRange(dataset.userId, yearStart, yearEnd);
+            transactionDao.getAccountTypeReportForDateRange(dataset.userId, yearStart, yearEnd);
+        }
+    }
+
+    @Test
+    public void csvExportYear() throws IOException {
+        TransactionDao transactionDao = dataset.database.transactionDao();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            File file = CsvExporter.exportReportToCSV(context, transactionDao, dataset.userId,
+                    "Benchmark", yearStart, yearEnd, 0, 0, null, null);
+
+            state.pauseTiming();
+            file.delete();
+            state.resumeTiming();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.pascm.fintrack.benchmark;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.importer.StatementImporter;
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.entity.CreditCardEntity;
+import com.pascm.fintrack.data.local.entity.User;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * StatementImporter.importSync of a 100k-row CSV statement (two years, sorted
+ * by date) paid with one credit card, in an in-memory database with the app's
+ * triggers:
+ * - into an empty database: every row is fingerprinted, none matches, all are posted
+ * - into a database already holding the first half: 50k duplicates, 50k posted
+ * - the same file again: 100k duplicates, nothing posted (the dedup path alone)
+ *
+ * The target is the whole file in under 10 s on a mid-range device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StatementImportBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final long SEED = 42;
+
+    private static final String[] DESCRIPTIONS = {
+            "OXXO SUC", "WALMART", "SORIANA", "STARBUCKS", "LIVERPOOL", "COSTCO", "PEMEX",
+            "FARMACIA GDL", "CINEPOLIS", "UBER TRIP", "NETFLIX", "PAGO TDC"
+    };
+
+    /** Whole statement, and the statement cut after its first half of rows */
+    private static byte[] statement;
+    private static byte[] firstHalf;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+    private FinTrackDatabase database;
+    private long userId;
+    private long cardId;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        if (statement == null) {
+            buildStatement();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Test
+    public void importIntoEmptyDatabase() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        StatementImporter.Result result = null;
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            StatementImporter importer = freshDatabase();
+            state.resumeTiming();
+
+            result = importInto(importer, statement);
+        }
+        assertEquals(ROWS, result.imported);
+    }
+
+    @Test
+    public void importHalfDuplicates() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        StatementImporter.Result result = null;
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            StatementImporter importer = freshDatabase();
+            importInto(importer, firstHalf);
+            state.resumeTiming();
+
+            result = importInto(importer, statement);
+        }
+        assertEquals(ROWS / 2, result.duplicates);
+        assertEquals(ROWS - ROWS / 2, result.imported);
+    }
+
+    @Test
+    public void reimportAllDuplicates() throws IOException {
+        StatementImporter importer = freshDatabase();
+        importInto(importer, statement);
+
+        BenchmarkState state = benchmarkRule.getState();
+        StatementImporter.Result result = null;
+        while (state.keepRunning()) {
+            result = importInto(importer, statement);
+        }
+        assertEquals(ROWS, result.duplicates);
+        assertEquals(0, result.imported);
+    }
+
+    private StatementImporter.Result importInto(StatementImporter importer, byte[] file) throws IOException {
+        return importer.importSync(new ByteArrayInputStream(file), userId,
+                StatementImporter.Target.creditCard(cardId), null);
+    }
+
+    /**
+     * Closes the previous database and opens an empty one with the user and card
+     */
+    private StatementImporter freshDatabase() {
+        if (database != null) {
+            database.close();
+        }
+        database = FinTrackDatabase.createInMemory(context);
+
+        User user = new User();
+        user.setEmail("import@fintrack.test");
+        userId = database.userDao().insert(user);
+
+        CreditCardEntity card = new CreditCardEntity();
+        card.setUserId(userId);
+        card.setIssuer("BBVA");
+        card.setLabel("Crédito BBVA");
+        card.setBrand("VISA");
+        card.setPanLast4("1234");
+        card.setCreditLimit(50_000);
+        cardId = database.creditCardDao().insert(card);
+
+        return new StatementImporter(context, database);
+    }
+
+    /**
+     * Bank-export style CSV: a preamble, a Spanish header, dd/MM/yyyy dates,
+     * quoted descriptions and signed amounts, ~137 rows per day. Each row has a
+     * distinct reference, so the only duplicates are the ones the benchmarks add.
+     */
+    private static void buildStatement() {
+        Random random = new Random(SEED);
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("dd/MM/yyyy", Locale.ROOT);
+        LocalDate start = SyntheticDataset.START_DATE;
+        long days = SyntheticDataset.END_DATE.toEpochDay() - start.toEpochDay() + 1;
+
+        StringBuilder csv = new StringBuilder(ROWS * 48);
+        csv.append("Cuenta,0123456789\n");
+        csv.append("Periodo,").append(format.format(start)).append(" - ")
+                .append(format.format(SyntheticDataset.END_DATE)).append('\n');
+        csv.append("Fecha,Concepto,Monto\n");
+        int halfLength = 0;
+        for (int i = 0; i < ROWS; i++) {
+            if (i == ROWS / 2) {
+                halfLength = csv.length();
+            }
+            LocalDate date = start.plusDays(i * days / ROWS);
+            boolean income = random.nextInt(10) == 0;
+            double amount = income
+                    ? 500 + random.nextInt(3_000_000) / 100.0
+                    : -(10 + random.nextInt(300_000) / 100.0);
+            csv.append(format.format(date)).append(",\"")
+                    .append(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)])
+                    .append(" REF ").append(i).append("\",")
+                    .append(String.format(Locale.ROOT, "%.2f", amount)).append('\n');
+        }
+
+        String text = csv.toString();
+        statement = text.getBytes(StandardCharsets.UTF_8);
+        firstHalf = text.substring(0, halfLength).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,288 @@
+package com.pascm.fintrack.benchmark;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.pascm.fintrack.data.local.FinTrackDatabase;
+import com.pascm.fintrack.data.local.entity.Account;
+import com.pascm.fintrack.data.local.entity.Category;
+import com.pascm.fintrack.data.local.entity.CreditCardEntity;
+import com.pascm.fintrack.data.local.entity.DebitCardEntity;
+import com.pascm.fintrack.data.local.entity.Merchant;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.local.entity.Trip;
+import com.pascm.fintrack.data.local.entity.User;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded synthetic data for the benchmarks: one user with two years of history,
+ * in an in-memory database with the app's triggers (rollups, search index and
+ * spatial index are maintained as in the app).
+ *
+ * Per dataset:
+ * - 12 categories, 2 accounts, 3 credit cards, 2 debit cards
+ * - 1 merchant per 50 transactions (at least 20), most of them geotagged
+ * - 1 trip per 2k transactions (at least 3), each holding ~5% of the rows in its dates
+ * - the transactions: 80% expenses, 15% income, 5% transfers; 5% pending;
+ *   paid in cash, credit or debit; 70% at a merchant; 60% geotagged; half with notes
+ *
+ * The same size always gives the same rows (fixed seed and end date), so
+ * results of different runs and builds can be compared.
+ */
+public final class SyntheticDataset {
+
+    private static final String TAG = "SyntheticDataset";
+
+    /** Transactions per dataset used by the parameterized benchmarks */
+    public static final Integer[] SIZES = {1_000, 10_000, 100_000};
+
+    private static final long SEED = 42;
+    private static final int BATCH_SIZE = 5_000;
+
+    /** Last day of the generated history */
+    public static final LocalDate END_DATE = LocalDate.of(2025, 6, 30);
+    public static final LocalDate START_DATE = END_DATE.minusYears(2).plusDays(1);
+
+    // Ciudad de México, ~30 x 30 km
+    public static final double CENTER_LAT = 19.4326;
+    public static final double CENTER_LNG = -99.1332;
+    private static final double SPAN = 0.27;
+
+    private static final String[] CATEGORIES = {
+            "Comida", "Supermercado", "Transporte", "Gasolina", "Renta", "Servicios",
+            "Entretenimiento", "Salud", "Ropa", "Viajes", "Salario", "Otros"
+    };
+    private static final String[] MERCHANT_NAMES = {
+            "Oxxo", "Walmart", "Soriana", "Starbucks", "Liverpool", "Costco", "Pemex",
+            "Farmacia Guadalajara", "Cinépolis", "Sanborns", "Chedraui", "La Comer"
+    };
+    private static final String[] NOTE_WORDS = {
+            "café", "despensa", "gasolina", "comida", "cena", "renta", "luz", "internet",
+            "cine", "medicinas", "regalo", "uber", "taxi", "desayuno", "boletos", "hotel",
+            "mensualidad", "oficina", "fiesta", "mercado"
+    };
+
+    private static SyntheticDataset current;
+
+    public final FinTrackDatabase database;
+    public final int size;
+    public long userId;
+    public long[] categoryIds;
+    public long[] merchantIds;
+    public long[] creditCardIds;
+    public long[] debitCardIds;
+    public long[] tripIds;
+
+    private SyntheticDataset(FinTrackDatabase database, int size) {
+        this.database = database;
+        this.size = size;
+    }
+
+    /**
+     * Dataset with the given number of transactions. The last one is kept and
+     * reused while consecutive benchmarks ask for the same size, since seeding
+     * 100k rows takes far longer than measuring them.
+     */
+    public static synchronized SyntheticDataset get(Context context, int size) {
+        if (current != null && current.size == size) {
+            return current;
+        }
+        if (current != null) {
+            current.database.close();
+            current = null;
+        }
+        long start = System.nanoTime();
+        SyntheticDataset dataset = new SyntheticDataset(FinTrackDatabase.createInMemory(context), size);
+        dataset.seed(new Random(SEED));
+        Log.i(TAG, "Seeded " + size + " transactions in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        current = dataset;
+        return dataset;
+    }
+
+    // ========== Ranges ==========
+
+    /** Start of a local day, epoch millis */
+    public static long startOf(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /** Last millisecond of a local day, epoch millis */
+    public static long endOf(LocalDate date) {
+        return startOf(date.plusDays(1)) - 1;
+    }
+
+    // ========== Generation ==========
+
+    private void seed(Random random) {
+        User user = new User();
+        user.setEmail("bench@fintrack.test");
+        userId = database.userDao().insert(user);
+
+        categoryIds = new long[CATEGORIES.length];
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            boolean income = "Salario".equals(CATEGORIES[i]);
+            categoryIds[i] = database.categoryDao().insert(
+                    new Category(CATEGORIES[i], null, 0xFF000000 | random.nextInt(0xFFFFFF), income, !income));
+        }
+
+        long checkingId = insertAccount("Nómina", Account.AccountType.CHECKING);
+        long savingsId = insertAccount("Ahorro", Account.AccountType.SAVINGS);
+
+        String[] issuers = {"BBVA", "Banorte", "Santander"};
+        creditCardIds = new long[issuers.length];
+        for (int i = 0; i < issuers.length; i++) {
+            CreditCardEntity card = new CreditCardEntity();
+            card.setUserId(userId);
+            card.setIssuer(issuers[i]);
+            card.setLabel("Crédito " + issuers[i]);
+            card.setBrand(i % 2 == 0 ? "VISA" : "MASTERCARD");
+            card.setPanLast4(String.format("%04d", random.nextInt(10_000)));
+            card.setCreditLimit(20_000 + random.nextInt(80) * 1_000);
+            card.setStatementDay(1 + random.nextInt(28));
+            card.setPaymentDueDay(1 + random.nextInt(28));
+            creditCardIds[i] = database.creditCardDao().insert(card);
+        }
+
+        debitCardIds = new long[]{
+                database.debitCardDao().insert(new DebitCardEntity(userId, checkingId, "BBVA", "Débito nómina")),
+                database.debitCardDao().insert(new DebitCardEntity(userId, savingsId, "Banorte", "Débito ahorro"))
+        };
+        long[] debitAccountIds = {checkingId, savingsId};
+
+        seedMerchants(random);
+        seedTrips(random);
+        seedTransactions(random, debitAccountIds);
+    }
+
+    private long insertAccount(String name, Account.AccountType type) {
+        Account account = new Account();
+        account.setUserId(userId);
+        account.setName(name);
+        account.setType(type);
+        return database.accountDao().insert(account);
+    }
+
+    private void seedMerchants(Random random) {
+        int count = Math.max(20, size / 50);
+        List<Merchant> merchants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Merchant merchant = new Merchant(MERCHANT_NAMES[i % MERCHANT_NAMES.length] + " " + (i / MERCHANT_NAMES.length + 1));
+            merchant.setUserId(userId);
+            if (random.nextInt(10) != 0) {
+                merchant.setLatitude(randomLatitude(random));
+                merchant.setLongitude(randomLongitude(random));
+            }
+            merchants.add(merchant);
+        }
+        List<Long> ids = database.merchantDao().insertAll(merchants);
+        merchantIds = toArray(ids);
+    }
+
+    private void seedTrips(Random random) {
+        int count = Math.max(3, size / 2_000);
+        List<Trip> trips = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate start = START_DATE.plusDays(random.nextInt(700));
+            Trip trip = new Trip();
+            trip.setUserId(userId);
+            trip.setName("Viaje " + (i + 1));
+            trip.setBudgetAmount(5_000.0 + random.nextInt(20) * 1_000);
+            trip.setStartDate(start);
+            trip.setEndDate(start.plusDays(3 + random.nextInt(10)));
+            trip.setStatus(Trip.TripStatus.COMPLETED);
+            trips.add(trip);
+        }
+        tripIds = toArray(database.tripDao().insertAll(trips));
+    }
+
+    private void seedTransactions(Random random, long[] debitAccountIds) {
+        List<Trip> trips = database.tripDao().getAllByUserSync(userId);
+        long startMillis = startOf(START_DATE);
+        long spanMillis = endOf(END_DATE) - startMillis;
+
+        List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < size; i++) {
+            Transaction t = new Transaction();
+            t.setUserId(userId);
+
+            int kind = random.nextInt(100);
+            if (kind < 80) {
+                t.setType(Transaction.TransactionType.EXPENSE);
+                t.setCategoryId(categoryIds[random.nextInt(categoryIds.length - 2)]);
+                t.setAmount(10 + random.nextInt(300_000) / 100.0);
+            } else if (kind < 95) {
+                t.setType(Transaction.TransactionType.INCOME);
+                t.setCategoryId(categoryIds[CATEGORIES.length - 2]);
+                t.setAmount(500 + random.nextInt(3_000_000) / 100.0);
+            } else {
+                t.setType(Transaction.TransactionType.TRANSFER);
+                t.setCategoryId(categoryIds[CATEGORIES.length - 1]);
+                t.setAmount(100 + random.nextInt(1_000_000) / 100.0);
+            }
+            t.setStatus(random.nextInt(20) == 0
+                    ? Transaction.TransactionStatus.PENDING
+                    : Transaction.TransactionStatus.COMPLETED);
+
+            int payment = random.nextInt(100);
+            if (payment < 45) {
+                t.setCardId(creditCardIds[random.nextInt(creditCardIds.length)]);
+                t.setCardType("CREDIT");
+            } else if (payment < 70) {
+                int debit = random.nextInt(debitCardIds.length);
+                t.setCardId(debitCardIds[debit]);
+                t.setAccountId(debitAccountIds[debit]);
+                t.setCardType("DEBIT");
+            }
+
+            if (random.nextInt(10) < 7) {
+                t.setMerchantId(merchantIds[random.nextInt(merchantIds.length)]);
+            }
+            if (random.nextInt(10) < 6) {
+                t.setLatitude(randomLatitude(random));
+                t.setLongitude(randomLongitude(random));
+            }
+            if (random.nextBoolean()) {
+                t.setNotes(NOTE_WORDS[random.nextInt(NOTE_WORDS.length)] + " "
+                        + NOTE_WORDS[random.nextInt(NOTE_WORDS.length)]);
+            }
+
+            long date = startMillis + (long) (random.nextDouble() * spanMillis);
+            if (random.nextInt(20) == 0) {
+                Trip trip = trips.get(random.nextInt(trips.size()));
+                long tripStart = startOf(trip.getStartDate());
+                date = tripStart + (long) (random.nextDouble() * (endOf(trip.getEndDate()) - tripStart));
+                t.setTripId(trip.getTripId());
+            }
+            t.setTransactionDate(Instant.ofEpochMilli(date));
+            batch.add(t);
+
+            if (batch.size() == BATCH_SIZE) {
+                database.transactionDao().insertAll(batch);
+                batch.clear();
+            }
+        }
+        database.transactionDao().insertAll(batch);
+    }
+
+    private static double randomLatitude(Random random) {
+        return CENTER_LAT + (random.nextDouble() - 0.5) * SPAN;
+    }
+
+    private static double randomLongitude(Random random) {
+        return CENTER_LNG + (random.nextDouble() - 0.5) * SPAN;
+    }
+
+    private static long[] toArray(List<Long> ids) {
+        long[] array = new long[ids.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = ids.get(i);
+        }
+        return array;
+    }
+}
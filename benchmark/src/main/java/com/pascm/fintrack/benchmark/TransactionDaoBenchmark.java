@@ -0,0 +1,199 @@
+package com.pascm.fintrack.benchmark;
+
+import android.database.Cursor;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.pascm.fintrack.data.local.dao.MerchantDao;
+import com.pascm.fintrack.data.local.dao.TransactionDao;
+import com.pascm.fintrack.data.local.entity.Transaction;
+import com.pascm.fintrack.data.repository.TransactionSearch;
+import com.pascm.fintrack.util.GeoUtils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hot TransactionDao and MerchantDao queries, at each dataset size:
+ * feed pages (first and deep keyset page, with and without type filter),
+ * a month of the calendar, an export chunk, full-text search, map viewports,
+ * and a single insert with all its triggers.
+ */
+@RunWith(Parameterized.class)
+public class TransactionDaoBenchmark {
+
+    private static final int PAGE_SIZE = 30;
+
+    @Parameterized.Parameters(name = "rows={0}")
+    public static List<Integer> sizes() {
+        return Arrays.asList(SyntheticDataset.SIZES);
+    }
+
+    @Parameterized.Parameter
+    public int size;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private SyntheticDataset dataset;
+    private TransactionDao transactionDao;
+    private MerchantDao merchantDao;
+
+    @Before
+    public void setUp() {
+        dataset = SyntheticDataset.get(InstrumentationRegistry.getInstrumentation().getTargetContext(), size);
+        transactionDao = dataset.database.transactionDao();
+        merchantDao = dataset.database.merchantDao();
+    }
+
+    // ========== Feed ==========
+
+    @Test
+    public void feedFirstPage() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            transactionDao.getPageBefore(dataset.userId, Long.MAX_VALUE, Long.MAX_VALUE, PAGE_SIZE);
+        }
+    }
+
+    @Test
+    public void feedPageMidHistory() {
+        // Clave de una fila a la mitad del historial
+        long midDate = SyntheticDataset.startOf(SyntheticDataset.END_DATE.minusYears(1));
+        Transaction key = transactionDao.getPageBefore(dataset.userId, midDate, Long.MAX_VALUE, 1).get(0);
+        long beforeDate = key.getTransactionDate().toEpochMilli();
+        long beforeId = key.getTransactionId();
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            transactionDao.getPageBefore(dataset.userId, beforeDate, beforeId, PAGE_SIZE);
+        }
+    }
+
+    @Test
+    public void feedFirstPageByType() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            transactionDao.getPageBeforeByType(dataset.userId, "INCOME", Long.MAX_VALUE, Long.MAX_VALUE, PAGE_SIZE);
+        }
+    }
+
+    // ========== Ranges ==========
+
+    @Test
+    public void dateRangeLastMonth() {
+        long start = SyntheticDataset.startOf(SyntheticDataset.END_DATE.withDayOfMonth(1));
+        long end = SyntheticDataset.endOf(SyntheticDataset.END_DATE);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            transactionDao.getByDateRangeSync(dataset.userId, start, end);
+        }
+    }
+
+    @Test
+    public void exportChunk() {
+        long start = SyntheticDataset.startOf(SyntheticDataset.START_DATE);
+        long end = SyntheticDataset.endOf(SyntheticDataset.END_DATE);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            try (Cursor cursor = transactionDao.getExportChunk(dataset.userId, start, -1, end, 1_000)) {
+                while (cursor.moveToNext()) {
+                    cursor.getLong(0);
+                }
+            }
+        }
+    }
+
+    // ========== Search ==========
+
+    @Test
+    public void searchMatches() {
+        String matchQuery = TransactionSearch.toMatchQuery("caf");
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            transactionDao.searchMatches(dataset.userId, matchQuery);
+        }
+    }
+
+    // ========== Map ==========
+
+    @Test
+    public void merchantsInViewport() {
+        GeoUtils.Box box = GeoUtils.boxAround(SyntheticDataset.CENTER_LAT, SyntheticDataset.CENTER_LNG, 2_000);
+        SimpleSQLiteQuery query = new SimpleSQLiteQuery(MerchantDao.IN_BOX_SQL,
+                new Object[]{dataset.userId, box.minLat, box.maxLat, box.minLng, box.maxLng});
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            merchantDao.querySync(query);
+        }
+    }
+
+    @Test
+    public void transactionsInViewport() {
+        GeoUtils.Box box = GeoUtils.boxAround(SyntheticDataset.CENTER_LAT, SyntheticDataset.CENTER_LNG, 5_000);
+        SimpleSQLiteQuery query = new SimpleSQLiteQuery(TransactionDao.IN_AREA_SQL,
+                new Object[]{dataset.userId, box.minLat, box.maxLat, box.minLng, box.maxLng, null, 300});
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            try (Cursor cursor = dataset.database.query(query)) {
+                while (cursor.moveToNext()) {
+                    cursor.getLong(0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nearestMerchants() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            merchantDao.getNearestSync(dataset.userId, SyntheticDataset.CENTER_LAT, SyntheticDataset.CENTER_LNG, 5, 10_000);
+        }
+    }
+
+    // ========== Writes ==========
+
+    /**
+     * One insert with the rollup, search and spatial triggers it fires, plus the
+     * delete that keeps the dataset unchanged (untimed)
+     */
+    @Test
+    public void insertTransaction() {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(dataset.userId);
+        transaction.setAmount(123.45);
+        transaction.setCategoryId(dataset.categoryIds[0]);
+        transaction.setMerchantId(dataset.merchantIds[0]);
+        transaction.setCardType("CREDIT");
+        transaction.setCardId(dataset.creditCardIds[0]);
+        transaction.setNotes("café benchmark");
+        transaction.setLatitude(SyntheticDataset.CENTER_LAT);
+        transaction.setLongitude(SyntheticDataset.CENTER_LNG);
+        transaction.setTransactionDate(Instant.ofEpochMilli(SyntheticDataset.endOf(SyntheticDataset.END_DATE)));
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            transaction.setTransactionId(0);
+            long id = transactionDao.insert(transaction);
+
+            state.pauseTiming();
+            transactionDao.deleteById(id);
+            state.resumeTiming();
+        }
+    }
+}